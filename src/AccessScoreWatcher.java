@@ -0,0 +1,97 @@
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Watches a directory for TSV files of OSM way access scores and applies each one to a {@link MapGraph} once as it
+ * appears. Files have the same format as the access score TSV loaded at startup. Writers must move each finished file
+ * into the directory rather than write it in place: only file creation is watched, so the watcher never reads a
+ * partial file, and each update reweighs the map and clears its route cache only once.
+ *
+ * @see MapGraph#updateAccessScores(Map)
+ */
+class AccessScoreWatcher implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(AccessScoreWatcher.class);
+    private final MapGraph map;
+    private final Path directory;
+    private final WatchService watcher;
+    private final Thread thread;
+
+    /**
+     * Constructs and starts a watcher applying the access score files in the given directory to the given map.
+     *
+     * @param map       the map to update.
+     * @param directory the directory to watch.
+     * @throws IOException if the directory cannot be watched.
+     */
+    AccessScoreWatcher(MapGraph map, Path directory) throws IOException {
+        this.map = map;
+        this.directory = directory;
+        watcher = directory.getFileSystem().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+        thread = new Thread(this::run, "access-scores");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Applies new files until this watcher is closed.
+     */
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                // A file deleted and moved in again within one batch is still applied only once.
+                Set<Path> created = new LinkedHashSet<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path name && name.toString().endsWith(".tsv")) {
+                        created.add(directory.resolve(name));
+                    }
+                }
+                for (Path file : created) {
+                    apply(file);
+                }
+                if (!key.reset()) {
+                    LOG.warn("Stopped watching {} for access scores", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Applies the access scores in the given file, logging rather than throwing any failure so that one bad file does
+     * not stop the watcher.
+     */
+    private void apply(Path file) {
+        try (InputStream input = Files.newInputStream(file)) {
+            Map<Long, Double> scores = MapGraph.readAccessScores(input);
+            int edges = map.updateAccessScores(scores);
+            LOG.info("Applied {} access scores from {} to {} edges (version {})",
+                    scores.size(), file, edges, map.version());
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not apply access scores from {}", file, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+        thread.interrupt();
+    }
+}
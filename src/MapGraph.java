@@ -1,52 +1,198 @@
-import autocomplete.Autocomplete;
-import autocomplete.TreeSetAutocomplete;
+import cache.WeightedLRUCache;
 import graphs.AStarGraph;
+import graphs.CSRGraph;
 import graphs.Edge;
-import graphs.shortestpaths.AStarSolver;
-import minpq.DoubleMapMinPQ;
+import graphs.IntAStarGraph;
+import graphs.IntGraph;
+import graphs.ReversibleAStarGraph;
+import graphs.chains.ChainGraph;
+import graphs.hierarchy.ContractionHierarchy;
+import graphs.hierarchy.ContractionHierarchyBuckets;
+import graphs.hierarchy.ContractionHierarchyBuilder;
+import graphs.hierarchy.ContractionHierarchySolver;
+import graphs.landmarks.LandmarkGraph;
+import graphs.landmarks.Landmarks;
+import graphs.shortestpaths.IntAStarSolver;
+import graphs.shortestpaths.IntBidirectionalAStarSolver;
+import graphs.shortestpaths.IntOneToManySolver;
+import graphs.shortestpaths.IntRangeSolver;
+import graphs.shortestpaths.SearchBudget;
+import graphs.shortestpaths.SearchResult;
+import graphs.shortestpaths.SearchWorkspace;
 import org.locationtech.spatial4j.context.SpatialContext;
+import org.locationtech.spatial4j.distance.DistanceUtils;
 import org.locationtech.spatial4j.shape.Point;
-import org.xml.sax.Attributes;
+import org.locationtech.spatial4j.shape.Rectangle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
+import spatial.ConvexHull;
+import spatial.KDTree;
+import spatial.PlaceIndex;
+import spatial.SegmentRTree;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * {@link AStarGraph} of places as {@link Point} vertices and streets edges weighted by physical distance.
+ * {@link AStarGraph} of places as {@link Point} vertices and streets edges weighted by physical distance. The road
+ * network is stored as a {@link CSRGraph} over primitive vertex ids with coordinates in parallel arrays; {@link Point}
+ * vertices and {@link Edge} objects are only created at the {@link AStarGraph} interface boundary.
  *
  * @see AStarGraph
+ * @see ReversibleAStarGraph
+ * @see IntGraph
  * @see MapServer
  */
-public class MapGraph implements AStarGraph<Point> {
+public class MapGraph implements ReversibleAStarGraph<Point> {
+    private static final Logger LOG = LoggerFactory.getLogger(MapGraph.class);
     private final String osmPath;
     private final String accessPath;
     private final SpatialContext context;
-    private final Map<Point, List<Edge<Point>>> neighbors;
-    private final Map<Long, Point> byId;
+    private final double[] lat;
+    private final double[] lon;
+    private final Map<Point, Integer> vertices;
+    private final KDTree spatialIndex;
+    /**
+     * Road segments, which routes start and end partway along.
+     */
+    private final SegmentRTree segmentIndex;
+    /**
+     * Current version of the weighted road network, replaced as a whole when access scores change.
+     */
+    private volatile Network network;
+    /**
+     * Whether a contraction hierarchy was loaded or built, so that it is rebuilt after access score updates.
+     */
+    private volatile boolean wantsHierarchy;
+    /**
+     * Whether landmarks were loaded or built, so that they are rebuilt after access score updates.
+     */
+    private volatile boolean wantsLandmarks;
+    /**
+     * Rebuilds the contraction hierarchy and landmarks for the latest weights after access score updates, one update
+     * at a time.
+     */
+    private final ExecutorService preprocessing;
+    /**
+     * Reverse of the road network with the edge of the road network that each of its edges reverses, shared by the
+     * reverse graphs of every version and profile.
+     */
+    private final CSRGraph reverseTopology;
+    private final int[] reverseEdges;
+    /**
+     * Road network with the weights of each profile other than {@link Profile#ACCESSIBLE}, which is part of the
+     * current {@link Network}. The graphs share their edges and differ only in their weights.
+     */
+    private final Map<Profile, CSRGraph> profiles;
+    /**
+     * Ids of the OSM ways with edges in ascending order.
+     */
+    private final long[] ways;
+    /**
+     * Edges of each way in {@link #ways}, stored at indices {@code wayEdgeOffsets[w]} up to
+     * {@code wayEdgeOffsets[w + 1]} of the parallel {@code wayEdges} and {@code wayEdgeSources} arrays.
+     */
+    private final int[] wayEdgeOffsets;
+    private final int[] wayEdges;
+    private final int[] wayEdgeSources;
+    private final ThreadLocal<SearchWorkspace> workspaces;
+    private final ThreadLocal<SearchWorkspace> backwardWorkspaces;
     private final Map<String, List<Point>> byName;
-    private final Autocomplete autocomplete;
-    private final Map<Long, Double> accessScores;
-    private static final Set<String> allowedHighwayTypes = Set.of(
-            "motorway",
-            "trunk",
-            "primary",
-            "secondary",
-            "tertiary",
-            "unclassified",
-            "residential",
-            "living_street",
-            "motorway_link",
-            "trunk_link",
-            "primary_link",
-            "secondary_link",
-            "tertiary_link"
+    /**
+     * Spatial index over the locations of each name with more than one location, identified by their index in
+     * {@link #byName}.
+     */
+    private final Map<String, KDTree> byNameIndex;
+    /**
+     * Place names indexed by prefix and location, for ranking prefix matches by distance.
+     */
+    private final PlaceIndex places;
+    /**
+     * Recent routes keyed by their version, profile, and snapped start and goal locations, weighed by route length.
+     */
+    private final WeightedLRUCache<List<Object>, SearchResult<Point>> routeCache;
+    /**
+     * Number of landmarks chosen by {@link #buildLandmarks(String)}.
+     */
+    private static final int LANDMARK_COUNT = 16;
+    /**
+     * Maximum total number of points across all cached routes.
+     */
+    private static final int ROUTE_CACHE_POINTS = 1_000_000;
+    /**
+     * Shortest path algorithms that {@link #shortestPath(Point, Point, Algorithm, SearchBudget)} can run. All of them
+     * return the same optimal route; they differ in how many vertices they settle to find it.
+     *
+     * @see IntAStarSolver
+     * @see IntBidirectionalAStarSolver
+     * @see ContractionHierarchySolver
+     * @see LandmarkGraph
+     */
+    public enum Algorithm {
+        /**
+         * Unidirectional A* search from the start toward the goal.
+         */
+        ASTAR,
+        /**
+         * Bidirectional A* search from both the start and the goal, which settles far fewer vertices on long routes.
+         */
+        BIDIRECTIONAL_ASTAR,
+        /**
+         * A* search with landmark lower bounds, which stay tight where access scores make edges much longer than the
+         * straight-line distance. Falls back to {@link #ASTAR} if no landmarks have been loaded or built.
+         */
+        ALT,
+        /**
+         * Bidirectional upward search over the contraction hierarchy, which settles only a few hundred vertices on
+         * any route. Falls back to {@link #BIDIRECTIONAL_ASTAR} if no hierarchy has been loaded or built.
+         */
+        CONTRACTION_HIERARCHY
+    }
+
+    /**
+     * Cost models for choosing routes. Every profile weighs each edge by at least its straight-line length, so the
+     * straight-line distance stays an admissible A* heuristic for all of them. The contraction hierarchy and landmarks
+     * are computed for {@link #ACCESSIBLE} weights only, so the other profiles run {@link Algorithm#ASTAR} or
+     * {@link Algorithm#BIDIRECTIONAL_ASTAR} over the full road network.
+     */
+    public enum Profile {
+        /**
+         * Edges weighed by their physical length.
+         */
+        SHORTEST,
+        /**
+         * Edges weighed by their physical length divided by the access score of their way, which is the default.
+         */
+        ACCESSIBLE,
+        /**
+         * Edges weighed by their physical length times a penalty for busy highway types.
+         */
+        AVOID_ARTERIALS
+    }
+
+    /**
+     * Weight multiplier of each highway type for {@link Profile#AVOID_ARTERIALS}. Other highway types keep their
+     * physical length as their weight. Every multiplier is at least 1, so weights never fall below the straight-line
+     * distance that A* search estimates.
+     */
+    static final Map<String, Double> ARTERIAL_PENALTIES = Map.of(
+            "motorway", 4.0,
+            "motorway_link", 4.0,
+            "trunk", 4.0,
+            "trunk_link", 4.0,
+            "primary", 3.0,
+            "primary_link", 3.0,
+            "secondary", 2.0,
+            "secondary_link", 2.0,
+            "tertiary", 1.5,
+            "tertiary_link", 1.5
     );
 
     /**
@@ -60,30 +206,133 @@ public class MapGraph implements AStarGraph<Point> {
      */
     public MapGraph(String osmPath, String accessPath, SpatialContext context)
             throws ParserConfigurationException, SAXException, IOException {
+        this(osmPath, accessPath, null, context);
+    }
+
+    /**
+     * Constructs a new map graph from the path to an OSM GZ file and a places TSV. If a snapshot built from the same
+     * source files exists at the snapshot path, the graph is loaded from the snapshot instead of parsing the OSM
+     * file. Otherwise, the OSM file is parsed and a new snapshot is written for the next start.
+     *
+     * @param osmPath      The path to a gzipped OSM (XML) file.
+     * @param accessPath   The path to a TSV file representing access scores for each OSM way.
+     * @param snapshotPath The file path for the binary graph snapshot, or null to always parse the OSM file.
+     * @throws ParserConfigurationException if a parser cannot be created.
+     * @throws SAXException                 for SAX errors.
+     * @throws IOException                  if a file is not found or if the file is not gzipped.
+     * @see MapSnapshot
+     */
+    public MapGraph(String osmPath, String accessPath, String snapshotPath, SpatialContext context)
+            throws ParserConfigurationException, SAXException, IOException {
         this.osmPath = osmPath;
         this.accessPath = accessPath;
         this.context = context;
+        byName = new HashMap<>();
+        byNameIndex = new HashMap<>();
+
+        long checksum = 0;
+        MapSnapshot snapshot = null;
+        if (snapshotPath != null) {
+            checksum = MapSnapshot.checksum(fileStream(osmPath), fileStream(accessPath));
+            snapshot = MapSnapshot.read(Path.of(snapshotPath), checksum);
+        }
+        if (snapshot == null) {
+            // Parse the Project Sidewalk access scores
+            Map<Long, Double> accessScores = readAccessScores(fileStream(accessPath));
 
-        // Parse the Project Sidewalk access scores
-        accessScores = new HashMap<>();
-        try (Scanner input = new Scanner(fileStream(accessPath))) {
-            input.nextLine(); // Skip header
-            while (input.hasNextLine()) {
-                Scanner line = new Scanner(input.nextLine()).useDelimiter("\t");
-                accessScores.put(line.nextLong(), line.nextDouble());
+            // Parse the OpenStreetMap (OSM) data in pipelined inflate, parse, and build stages.
+            snapshot = new MapLoader(accessScores).load(() -> fileStream(osmPath), checksum);
+            if (snapshotPath != null) {
+                snapshot.write(Path.of(snapshotPath));
             }
         }
 
-        // Parse the OpenStreetMap (OSM) data using the SAXParser XML tree walker.
-        neighbors = new HashMap<>();
-        byId = new HashMap<>();
-        byName = new HashMap<>();
-        SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
-        saxParser.parse(new GZIPInputStream(fileStream(osmPath)), new Handler());
+        // Restore the road network and places from the snapshot.
+        CSRGraph graph = new CSRGraph(snapshot.offsets, snapshot.targets, snapshot.weights);
+        reverseTopology = graph.reverse();
+        reverseEdges = graph.reverseEdges();
+        network = new Network(0, graph);
+        preprocessing = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "preprocessing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lat = Arrays.copyOf(snapshot.lat, snapshot.vertexCount);
+        lon = Arrays.copyOf(snapshot.lon, snapshot.vertexCount);
+        vertices = new HashMap<>(lat.length * 2);
+        for (int v = 0; v < lat.length; v += 1) {
+            vertices.put(point(v), v);
+        }
+        spatialIndex = new KDTree(lat, lon);
+        segmentIndex = segments(graph);
+        workspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(graph.size()));
+        backwardWorkspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(graph.size()));
+        routeCache = new WeightedLRUCache<>(ROUTE_CACHE_POINTS, result -> result.solution().size() + 1);
+        for (Map.Entry<String, int[]> entry : snapshot.names.entrySet()) {
+            List<Point> locations = new ArrayList<>(entry.getValue().length);
+            for (int index : entry.getValue()) {
+                locations.add(context.getShapeFactory().pointLatLon(snapshot.lat[index], snapshot.lon[index]));
+            }
+            byName.put(entry.getKey(), locations);
+            if (locations.size() > 1) {
+                double[] locationLat = new double[locations.size()];
+                double[] locationLon = new double[locations.size()];
+                for (int i = 0; i < locations.size(); i += 1) {
+                    locationLat[i] = locations.get(i).getLat();
+                    locationLon[i] = locations.get(i).getLon();
+                }
+                byNameIndex.put(entry.getKey(), new KDTree(locationLat, locationLon));
+            }
+        }
+        // Group the edges by way, so that access score updates can find the edges to reweigh.
+        ways = snapshot.ways;
+        wayEdgeOffsets = new int[ways.length + 1];
+        for (int way : snapshot.edgeWays) {
+            wayEdgeOffsets[way + 1] += 1;
+        }
+        for (int w = 0; w < ways.length; w += 1) {
+            wayEdgeOffsets[w + 1] += wayEdgeOffsets[w];
+        }
+        wayEdges = new int[snapshot.edgeWays.length];
+        wayEdgeSources = new int[snapshot.edgeWays.length];
+        int[] next = Arrays.copyOf(wayEdgeOffsets, ways.length);
+        for (int v = 0; v < graph.size(); v += 1) {
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e += 1) {
+                int way = snapshot.edgeWays[e];
+                wayEdges[next[way]] = e;
+                wayEdgeSources[next[way]] = v;
+                next[way] += 1;
+            }
+        }
+
+        // Weigh the edges for the other profiles from their lengths and the highway types of their ways.
+        double[] penalties = new double[MapLoader.HIGHWAY_TYPES.size()];
+        for (int i = 0; i < penalties.length; i += 1) {
+            penalties[i] = ARTERIAL_PENALTIES.getOrDefault(MapLoader.HIGHWAY_TYPES.get(i), 1.0);
+        }
+        float[] shortest = new float[graph.edgeCount()];
+        float[] avoidArterials = new float[graph.edgeCount()];
+        for (int v = 0; v < graph.size(); v += 1) {
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e += 1) {
+                double length = distance(v, graph.target(e));
+                shortest[e] = CSRGraph.roundUp(length);
+                avoidArterials[e] = CSRGraph.roundUp(length * penalties[snapshot.wayTypes[snapshot.edgeWays[e]]]);
+            }
+        }
+        profiles = new EnumMap<>(Profile.class);
+        profiles.put(Profile.SHORTEST, graph.withWeights(shortest));
+        profiles.put(Profile.AVOID_ARTERIALS, graph.withWeights(avoidArterials));
 
-        // Add reachable locations to the Autocomplete engine.
-        autocomplete = new TreeSetAutocomplete();
-        autocomplete.addAll(byName.keySet());
+        // Index each place name at its first location for prefix search.
+        List<String> placeNames = new ArrayList<>(byName.keySet());
+        double[] placeLat = new double[placeNames.size()];
+        double[] placeLon = new double[placeNames.size()];
+        for (int i = 0; i < placeNames.size(); i += 1) {
+            Point location = byName.get(placeNames.get(i)).get(0);
+            placeLat[i] = location.getLat();
+            placeLon[i] = location.getLon();
+        }
+        places = new PlaceIndex(placeNames, placeLat, placeLon);
     }
 
     /**
@@ -97,32 +346,83 @@ public class MapGraph implements AStarGraph<Point> {
     }
 
     /**
-     * Returns the location closest to the given target location.
+     * Returns the access scores in the given TSV stream of OSM way ids and scores with a header line. The stream is
+     * closed after reading.
+     *
+     * @param input the TSV stream.
+     * @return the access score for each OSM way in the stream.
+     * @throws java.util.NoSuchElementException if the stream has no header or a line is not a way id and a score.
+     */
+    static Map<Long, Double> readAccessScores(InputStream input) {
+        Map<Long, Double> result = new HashMap<>();
+        try (Scanner lines = new Scanner(input)) {
+            lines.nextLine(); // Skip header
+            while (lines.hasNextLine()) {
+                Scanner line = new Scanner(lines.nextLine()).useDelimiter("\t");
+                result.put(line.nextLong(), line.nextDouble());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the location closest to the given target location: the target itself if it is a place on the map, and
+     * otherwise the closest point on any road segment.
      *
      * @param target the target location.
-     * @return the id of the location closest to the target.
+     * @return the location closest to the target.
      */
     public Point closest(Point target) {
-        if (neighbors.containsKey(target)) {
+        if (vertices.containsKey(target)) {
             return target;
         }
-        return Collections.min(neighbors.keySet(),
-                Comparator.comparingDouble(p -> estimatedDistance(target, p)));
+        Projection projection = project(network, Profile.ACCESSIBLE, target);
+        return projection == null ? target : projection.point;
+    }
+
+    /**
+     * Returns up to k locations closest to the given target location, ordered from closest to farthest.
+     *
+     * @param target the target location.
+     * @param k      the maximum number of locations to return.
+     * @return up to k locations closest to the given target location.
+     */
+    public List<Point> closest(Point target, int k) {
+        List<Point> result = new ArrayList<>(k);
+        for (int v : spatialIndex.nearest(target.getLat(), target.getLon(), k)) {
+            result.add(point(v));
+        }
+        return result;
     }
 
     /**
-     * Return the names of all locations that prefix-match the query string.
+     * Return the names of up to the given number of locations that prefix-match the query string, ordered from closest
+     * to farthest from the center. The matches are searched through k-d trees over blocks of the sorted names, so
+     * short prefixes that match thousands of names examine only a few hundred near the center.
      *
-     * @param prefix prefix string that could be any case with or without punctuation.
+     * @param prefix     prefix string that could be any case with or without punctuation.
+     * @param center     the location to rank matches by distance from.
+     * @param maxMatches the maximum number of names to return.
      * @return a list of full names of locations matching the prefix.
      */
     public List<CharSequence> getLocationsByPrefix(String prefix, Point center, int maxMatches) {
-        List<CharSequence> matches = autocomplete.allMatches(prefix);
-        Map<CharSequence, Double> elementsAndPriorities = new HashMap<>(matches.size());
-        for (CharSequence match : matches) {
-            elementsAndPriorities.put(match, estimatedDistance(center, byName.get(match).get(0)));
-        }
-        return new DoubleMapMinPQ<>(elementsAndPriorities).removeMin(maxMatches);
+        return places.nearest(prefix, center.getLat(), center.getLon(), maxMatches);
+    }
+
+    /**
+     * Writes the names of up to the given number of locations that prefix-match the query string to the given stream
+     * as a UTF-8 JSON array, ordered from closest to farthest from the center. The names are stored pre-encoded, so
+     * writing them is a copy rather than a serialization.
+     *
+     * @param prefix     prefix string that could be any case with or without punctuation.
+     * @param center     the location to rank matches by distance from.
+     * @param maxMatches the maximum number of names to write.
+     * @param out        the stream to write the JSON array to.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeLocationsByPrefix(String prefix, Point center, int maxMatches, OutputStream out)
+            throws IOException {
+        places.writeNearest(prefix, center.getLat(), center.getLon(), maxMatches, out);
     }
 
     /**
@@ -136,19 +436,657 @@ public class MapGraph implements AStarGraph<Point> {
     }
 
     /**
-     * Returns a list of points representing the shortest path from the points closest to the start and goal.
+     * Return up to the given number of locations that match a valid location name and lie within the given bounds,
+     * ordered from closest to farthest from the center of the bounds. Names such as chain stores can have hundreds of
+     * locations, so this keeps the number of map pins bounded at any zoom.
+     *
+     * @param locationName a full name of a valid location.
+     * @param bounds       the area to return locations in.
+     * @param maxLocations the maximum number of locations to return.
+     * @return a list of the matching locations within the bounds closest to their center.
+     */
+    public List<Point> getLocations(String locationName, Rectangle bounds, int maxLocations) {
+        List<Point> locations = getLocations(locationName);
+        KDTree index = byNameIndex.get(locationName);
+        if (index == null) {
+            // At most one location, so there is nothing to rank.
+            if (locations.isEmpty() || maxLocations < 1 || !bounds.relate(locations.get(0)).intersects()) {
+                return List.of();
+            }
+            return locations;
+        }
+        Point center = bounds.getCenter();
+        int[] nearest = index.nearest(center.getLat(), center.getLon(), maxLocations,
+                i -> bounds.relate(locations.get(i)).intersects());
+        List<Point> result = new ArrayList<>(nearest.length);
+        for (int i : nearest) {
+            result.add(locations.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a list of points representing the shortest path from the points closest to the start and goal. Routes
+     * begin and end at the closest point on any road segment rather than at the closest vertex, so they do not detour
+     * to the far end of a long segment.
      *
      * @param start the {@link Point} to start the shortest path.
      * @param goal  the {@link Point} to end the shortest path.
      * @return a list of points representing the shortest path from the points closest to the start and goal.
      */
     public List<Point> shortestPath(Point start, Point goal) {
-        return new AStarSolver<>(this, closest(start), closest(goal)).solution();
+        return shortestPath(start, goal, SearchBudget.unlimited()).solution();
+    }
+
+    /**
+     * Loads the contraction hierarchy stored at the given path if it was built from this road network.
+     *
+     * @param hierarchyPath the hierarchy file path.
+     * @return true if a matching hierarchy was loaded, false if it is missing or stale.
+     * @throws IOException if the hierarchy exists but cannot be read.
+     * @see #buildHierarchy(String)
+     */
+    public boolean loadHierarchy(String hierarchyPath) throws IOException {
+        Network current = network;
+        ContractionHierarchy loaded = ContractionHierarchy.read(Path.of(hierarchyPath), current.graph.fingerprint());
+        if (loaded == null) {
+            return false;
+        }
+        wantsHierarchy = true;
+        return replace(current, current.withHierarchy(loaded));
+    }
+
+    /**
+     * Builds a contraction hierarchy over the road network, writes it to the given path, and uses it for later
+     * searches unless access scores changed in the meantime. Building takes much longer than loading, so this is meant
+     * to run offline.
+     *
+     * @param hierarchyPath the hierarchy file path, or null to skip writing the hierarchy.
+     * @throws IOException if the hierarchy cannot be written.
+     * @see MapPreprocessor
+     */
+    public void buildHierarchy(String hierarchyPath) throws IOException {
+        Network current = network;
+        ContractionHierarchy built = new ContractionHierarchyBuilder(current.graph).build();
+        if (hierarchyPath != null) {
+            built.write(Path.of(hierarchyPath));
+        }
+        wantsHierarchy = true;
+        replace(current, current.withHierarchy(built));
+    }
+
+    /**
+     * Loads the landmarks stored at the given path if they were built from this road network.
+     *
+     * @param landmarksPath the landmarks file path.
+     * @return true if matching landmarks were loaded, false if they are missing or stale.
+     * @throws IOException if the landmarks exist but cannot be read.
+     * @see #buildLandmarks(String)
+     */
+    public boolean loadLandmarks(String landmarksPath) throws IOException {
+        Network current = network;
+        Landmarks loaded = Landmarks.read(Path.of(landmarksPath), current.graph.fingerprint());
+        if (loaded == null) {
+            return false;
+        }
+        wantsLandmarks = true;
+        return replace(current, current.withLandmarks(loaded));
+    }
+
+    /**
+     * Chooses landmarks with the avoid strategy, computes their distances, writes them to the given path, and uses them
+     * for later {@link Algorithm#ALT} searches unless access scores changed in the meantime. Building runs two full
+     * searches per landmark, so this is meant to run offline.
+     *
+     * @param landmarksPath the landmarks file path, or null to skip writing the landmarks.
+     * @throws IOException if the landmarks cannot be written.
+     * @see MapPreprocessor
+     */
+    public void buildLandmarks(String landmarksPath) throws IOException {
+        Network current = network;
+        Landmarks built = landmarks(current);
+        if (landmarksPath != null) {
+            built.write(Path.of(landmarksPath));
+        }
+        wantsLandmarks = true;
+        replace(current, current.withLandmarks(built));
+    }
+
+    /**
+     * Returns landmarks chosen with the avoid strategy over the given road network.
+     */
+    private static Landmarks landmarks(Network network) {
+        return Landmarks.build(network.graph, network.reverse, LANDMARK_COUNT, Landmarks.Selection.AVOID, 0);
+    }
+
+    /**
+     * Returns true if routes currently use a contraction hierarchy, which is false until one is loaded or built and
+     * while one is rebuilt after an access score update.
+     *
+     * @return true if routes currently use a contraction hierarchy.
+     */
+    public boolean hasHierarchy() {
+        return network.hierarchy != null;
+    }
+
+    /**
+     * Returns true if routes currently use landmarks, which is false until they are loaded or built and while they are
+     * rebuilt after an access score update.
+     *
+     * @return true if routes currently use landmarks.
+     */
+    public boolean hasLandmarks() {
+        return network.landmarkRoads != null;
+    }
+
+    /**
+     * Sets the access scores of the given OSM ways and reweighs the edges of those ways without parsing the OSM file
+     * again. The edge weights are copied on write into a new version of the road network, so searches that are
+     * already running finish on the version they started with. The contraction hierarchy and landmarks were computed
+     * from the old weights, so routes fall back to A* search while they are rebuilt in the background for the new
+     * weights, and the route cache is cleared.
+     *
+     * @param scores the new access score for each OSM way.
+     * @return the number of edges reweighed.
+     * @throws IllegalArgumentException if a score is not greater than 0 and at most 1.
+     */
+    public synchronized int updateAccessScores(Map<Long, Double> scores) {
+        // Scores above 1 would make edges shorter than the straight-line distance that A* search relies on.
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            if (!(entry.getValue() > 0 && entry.getValue() <= 1)) {
+                throw new IllegalArgumentException("Access score of way " + entry.getKey() + " must be in (0, 1]: "
+                        + entry.getValue());
+            }
+        }
+        Network current = network;
+        int count = 0;
+        for (long way : scores.keySet()) {
+            int w = Arrays.binarySearch(ways, way);
+            if (w >= 0) {
+                count += wayEdgeOffsets[w + 1] - wayEdgeOffsets[w];
+            }
+        }
+        int[] edges = new int[count];
+        double[] weights = new double[count];
+        int i = 0;
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            int w = Arrays.binarySearch(ways, entry.getKey());
+            for (int j = w < 0 ? 0 : wayEdgeOffsets[w]; j < (w < 0 ? 0 : wayEdgeOffsets[w + 1]); j += 1) {
+                edges[i] = wayEdges[j];
+                weights[i] = distance(wayEdgeSources[j], current.graph.target(wayEdges[j])) / entry.getValue();
+                i += 1;
+            }
+        }
+        Network updated = new Network(current.version + 1, current.graph.reweigh(edges, weights));
+        synchronized (routeCache) {
+            network = updated;
+            routeCache.clear();
+        }
+        if (wantsHierarchy || wantsLandmarks) {
+            LOG.warn("Access scores changed; routes use A* search until preprocessing for version {} is rebuilt",
+                    updated.version);
+            preprocessing.execute(() -> rebuild(updated));
+        }
+        return count;
+    }
+
+    /**
+     * Rebuilds the contraction hierarchy and landmarks that were in use for the given version of the road network,
+     * unless a later update has already replaced it.
+     */
+    private void rebuild(Network target) {
+        Network current = target;
+        long start = System.nanoTime();
+        if (wantsHierarchy) {
+            if (network != current) {
+                return;
+            }
+            Network next = current.withHierarchy(new ContractionHierarchyBuilder(current.graph).build());
+            if (!replace(current, next)) {
+                return;
+            }
+            current = next;
+        }
+        if (wantsLandmarks) {
+            if (network != current) {
+                return;
+            }
+            Network next = current.withLandmarks(landmarks(current));
+            if (!replace(current, next)) {
+                return;
+            }
+        }
+        LOG.info("Rebuilt preprocessing for version {} in {} ms", target.version,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Returns the version of the edge weights, which starts at 0 and increases with every access score update.
+     *
+     * @return the version of the edge weights.
+     */
+    public long version() {
+        return network.version;
+    }
+
+    /**
+     * Replaces the current road network with the given one if the current network is still the expected one.
+     *
+     * @return true if the network was replaced.
+     */
+    private synchronized boolean replace(Network expected, Network replacement) {
+        if (network != expected) {
+            return false;
+        }
+        network = replacement;
+        return true;
+    }
+
+    /**
+     * Returns the outcome of searching for the shortest path from the points closest to the start and goal. Both are
+     * snapped to the closest point on any road segment, and the search starts from both ends of the start segment and
+     * ends at both ends of the goal segment with the weights of the partial segments. Routes between the same snapped
+     * points are served from the route cache. Otherwise, the search uses the contraction hierarchy if one is
+     * available, then A* search with landmarks if they are available, and then plain A* search. It stops once the
+     * shortest path is proven or the budget is exceeded; aborted searches are not cached.
+     *
+     * @param start  the {@link Point} to start the shortest path.
+     * @param goal   the {@link Point} to end the shortest path.
+     * @param budget the limits on the search.
+     * @return the outcome of the search, including the path if the goal was found.
+     */
+    public SearchResult<Point> shortestPath(Point start, Point goal, SearchBudget budget) {
+        return shortestPath(start, goal, Profile.ACCESSIBLE, budget);
+    }
+
+    /**
+     * Returns the outcome of searching for the shortest path from the points closest to the start and goal with the
+     * edge weights of the given profile. Routes between the same snapped points with the same profile are served from
+     * the route cache. Otherwise, {@link Profile#ACCESSIBLE} searches use the contraction hierarchy if one is
+     * available, then A* search with landmarks if they are available, and then plain A* search; other profiles use
+     * bidirectional A* search. Aborted searches are not cached.
+     *
+     * @param start   the {@link Point} to start the shortest path.
+     * @param goal    the {@link Point} to end the shortest path.
+     * @param profile the cost model for weighing edges.
+     * @param budget  the limits on the search.
+     * @return the outcome of the search, including the path if the goal was found.
+     */
+    public SearchResult<Point> shortestPath(Point start, Point goal, Profile profile, SearchBudget budget) {
+        Route route = route(start, goal, profile);
+        if (route == null) {
+            return new SearchResult<>(SearchResult.Status.NOT_FOUND, List.of(), Double.POSITIVE_INFINITY, 0);
+        }
+        return shortestPath(route, budget);
+    }
+
+    /**
+     * Returns the route between the points closest to the start and goal with the edge weights of the given profile,
+     * snapped on the current road network, or null if there are no roads. Snapping is cheap, so callers can identify a
+     * route by its {@link Route#version()} and {@link Route#fingerprint()} before searching for it.
+     *
+     * @param start   the {@link Point} to start the route.
+     * @param goal    the {@link Point} to end the route.
+     * @param profile the cost model for weighing edges.
+     * @return the snapped route, or null if there are no roads.
+     */
+    public Route route(Point start, Point goal, Profile profile) {
+        Network network = this.network;
+        Projection from = project(network, profile, start);
+        Projection to = project(network, profile, goal);
+        if (from == null || to == null) {
+            return null;
+        }
+        return new Route(network, profile, from, to);
+    }
+
+    /**
+     * Returns the outcome of searching for the shortest path of the given route over the road network it was snapped
+     * on, even if access score updates have replaced that network since. Routes between the same snapped points with
+     * the same profile and version are served from the route cache, and otherwise searched as in
+     * {@link #shortestPath(Point, Point, Profile, SearchBudget)}. Aborted searches are not cached.
+     *
+     * @param route  the snapped route.
+     * @param budget the limits on the search.
+     * @return the outcome of the search, including the path if the goal was found.
+     */
+    public SearchResult<Point> shortestPath(Route route, SearchBudget budget) {
+        Network network = route.network;
+        Profile profile = route.profile;
+        List<Object> key = List.of(network.version, profile, route.from.point, route.to.point);
+        SearchResult<Point> cached = routeCache.get(key);
+        if (cached != null) {
+            return new SearchResult<>(cached.status(), cached.solution(), cached.distance(), 0);
+        }
+        Algorithm algorithm = Algorithm.ASTAR;
+        if (profile != Profile.ACCESSIBLE) {
+            algorithm = Algorithm.BIDIRECTIONAL_ASTAR;
+        } else if (network.hierarchy != null) {
+            algorithm = Algorithm.CONTRACTION_HIERARCHY;
+        } else if (network.landmarkRoads != null) {
+            algorithm = Algorithm.ALT;
+        }
+        SearchResult<Point> result = search(network, profile, route.from, route.to, algorithm, budget);
+        if (result.status() != SearchResult.Status.ABORTED) {
+            // Routes found on weights that have since been updated are not cached.
+            synchronized (routeCache) {
+                if (this.network.version == network.version) {
+                    routeCache.put(key, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the outcome of searching for the shortest path from the points closest to the start and goal using the
+     * given algorithm. The search stops once the shortest path is proven or the budget is exceeded. Unlike
+     * {@link #shortestPath(Point, Point, SearchBudget)}, this always runs a new search and bypasses the route cache.
+     *
+     * @param start     the {@link Point} to start the shortest path.
+     * @param goal      the {@link Point} to end the shortest path.
+     * @param algorithm the shortest path algorithm to run.
+     * @param budget    the limits on the search.
+     * @return the outcome of the search, including the path if the goal was found.
+     */
+    public SearchResult<Point> shortestPath(Point start, Point goal, Algorithm algorithm, SearchBudget budget) {
+        return shortestPath(start, goal, Profile.ACCESSIBLE, algorithm, budget);
+    }
+
+    /**
+     * Returns the outcome of searching for the shortest path from the points closest to the start and goal with the
+     * edge weights of the given profile using the given algorithm. Profiles other than {@link Profile#ACCESSIBLE} run
+     * {@link Algorithm#ALT} as {@link Algorithm#ASTAR} and {@link Algorithm#CONTRACTION_HIERARCHY} as
+     * {@link Algorithm#BIDIRECTIONAL_ASTAR}. This always runs a new search and bypasses the route cache.
+     *
+     * @param start     the {@link Point} to start the shortest path.
+     * @param goal      the {@link Point} to end the shortest path.
+     * @param profile   the cost model for weighing edges.
+     * @param algorithm the shortest path algorithm to run.
+     * @param budget    the limits on the search.
+     * @return the outcome of the search, including the path if the goal was found.
+     */
+    public SearchResult<Point> shortestPath(Point start, Point goal, Profile profile, Algorithm algorithm,
+                                            SearchBudget budget) {
+        Network network = this.network;
+        Projection from = project(network, profile, start);
+        Projection to = project(network, profile, goal);
+        if (from == null || to == null) {
+            return new SearchResult<>(SearchResult.Status.NOT_FOUND, List.of(), Double.POSITIVE_INFINITY, 0);
+        }
+        return search(network, profile, from, to, algorithm, budget);
+    }
+
+    /**
+     * Returns the table of shortest path distances from the point closest to each source to the point closest to each
+     * target, with infinity for unreachable pairs, or null if the budget was exceeded first. Uses bucket-based
+     * many-to-many search over the contraction hierarchy if one is available, and otherwise one Dijkstra search per
+     * source that stops once every target is settled. Rows are computed one after another on the calling thread, so a
+     * matrix takes no more cores than a route, and the budget applies to each search and is checked between rows.
+     *
+     * @param sources the source locations.
+     * @param targets the target locations.
+     * @param budget  the limits on the searches.
+     * @return the distance from each source (row) to each target (column), or null if the budget was exceeded.
+     */
+    public double[][] distanceMatrix(List<Point> sources, List<Point> targets, SearchBudget budget) {
+        double[][] result = new double[sources.size()][targets.size()];
+        if (spatialIndex.size() == 0) {
+            for (double[] row : result) {
+                Arrays.fill(row, Double.POSITIVE_INFINITY);
+            }
+            return result;
+        }
+        int[] from = snap(sources);
+        int[] to = snap(targets);
+        Network network = this.network;
+        ContractionHierarchy hierarchy = network.hierarchy;
+        ContractionHierarchyBuckets buckets = null;
+        if (hierarchy != null) {
+            buckets = new ContractionHierarchyBuckets(hierarchy, to, backwardWorkspaces.get(), budget);
+            if (buckets.status() == SearchResult.Status.ABORTED) {
+                return null;
+            }
+        }
+        for (int i = 0; i < from.length; i += 1) {
+            // Searches on small maps settle too few vertices to check the clock, so check it before every row too.
+            if (budget.isExceeded(0)) {
+                return null;
+            }
+            if (buckets != null) {
+                if (buckets.distances(from[i], workspaces.get(), budget, result[i]) == SearchResult.Status.ABORTED) {
+                    return null;
+                }
+                continue;
+            }
+            IntOneToManySolver solver = new IntOneToManySolver(network.graph, from[i], to, workspaces.get(), budget);
+            if (solver.status() == SearchResult.Status.ABORTED) {
+                return null;
+            }
+            for (int j = 0; j < to.length; j += 1) {
+                result[i][j] = solver.distTo(to[j]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the convex hull of every location reachable from the point closest to the start within the given
+     * distance. Distances are measured with the same access-weighted edges as routes. The search settles vertices in
+     * primitive arrays, so it runs at interactive rates for walking-scale distances. If the budget is exceeded first,
+     * the hull covers only the locations settled so far and is marked as truncated.
+     *
+     * @param start       the {@link Point} to start from.
+     * @param maxDistance the maximum distance in edge weight units.
+     * @param budget      the limits on the search.
+     * @return the reachable area, which is empty if there are no roads.
+     */
+    public Isochrone isochrone(Point start, double maxDistance, SearchBudget budget) {
+        int from = spatialIndex.nearest(start.getLat(), start.getLon());
+        if (from == -1) {
+            return new Isochrone(List.of(), 0, false);
+        }
+        IntRangeSolver solver = new IntRangeSolver(network.graph, from, maxDistance, workspaces.get(), budget);
+        boolean truncated = solver.status() == SearchResult.Status.ABORTED;
+        if (solver.settled() == 0) {
+            return new Isochrone(List.of(), 0, truncated);
+        }
+        ConvexHull hull = new ConvexHull(lat, lon, solver.vertices(), solver.settled());
+        List<Point> ring = new ArrayList<>(hull.size() + 1);
+        for (int i = 0; i < hull.size(); i += 1) {
+            ring.add(context.getShapeFactory().pointLatLon(hull.lat(i), hull.lon(i)));
+        }
+        ring.add(ring.get(0));
+        return new Isochrone(Collections.unmodifiableList(ring), solver.settled(), truncated);
+    }
+
+    /**
+     * Returns the id of the vertex closest to each of the given locations.
+     */
+    private int[] snap(List<Point> locations) {
+        int[] result = new int[locations.size()];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = spatialIndex.nearest(locations.get(i).getLat(), locations.get(i).getLon());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the hit, miss, and eviction statistics of the route cache.
+     *
+     * @return the statistics of the route cache.
+     */
+    public WeightedLRUCache.Stats routeCacheStats() {
+        return routeCache.stats();
+    }
+
+    /**
+     * Returns the road network with the weights of the given profile.
+     */
+    private CSRGraph graph(Network network, Profile profile) {
+        return profile == Profile.ACCESSIBLE ? network.graph : profiles.get(profile);
+    }
+
+    /**
+     * Returns the location on a road segment closest to the given location with partial weights from the given
+     * network and profile, or null if there are no roads.
+     */
+    private Projection project(Network network, Profile profile, Point location) {
+        int segment = segmentIndex.nearest(location.getLat(), location.getLon());
+        if (segment == -1) {
+            return null;
+        }
+        return new Projection(graph(network, profile), segment,
+                segmentIndex.fraction(segment, location.getLat(), location.getLon()));
+    }
+
+    /**
+     * Returns the outcome of searching for the shortest path between the given locations using the given algorithm.
+     */
+    private SearchResult<Point> search(Network network, Profile profile, Projection from, Projection to,
+                                       Algorithm algorithm, SearchBudget budget) {
+        if (profile != Profile.ACCESSIBLE) {
+            // Chains, landmarks, and the hierarchy hold accessible weights, so search the profile's weights directly.
+            CSRGraph graph = profiles.get(profile);
+            if (algorithm == Algorithm.BIDIRECTIONAL_ASTAR || algorithm == Algorithm.CONTRACTION_HIERARCHY) {
+                IntBidirectionalAStarSolver solver = new IntBidirectionalAStarSolver(new Roads(graph),
+                        new Reversed(graph), from.ends, from.leave, to.ends, to.arrive, workspaces.get(),
+                        backwardWorkspaces.get(), budget);
+                return result(from, to, solver.status(), solver.solution(), solver.distance(), solver.settled());
+            }
+            IntAStarSolver solver = new IntAStarSolver(new Roads(graph), from.ends, from.leave, to.ends, to.arrive,
+                    workspaces.get(), budget);
+            return result(from, to, solver.status(), solver.solution(), solver.distance(), solver.settled());
+        }
+        ChainGraph chains = network.chains;
+        ContractionHierarchy hierarchy = network.hierarchy;
+        if (algorithm == Algorithm.CONTRACTION_HIERARCHY && hierarchy != null) {
+            ContractionHierarchySolver solver = new ContractionHierarchySolver(hierarchy, from.ends, from.leave,
+                    to.ends, to.arrive, workspaces.get(), backwardWorkspaces.get(), budget);
+            return result(from, to, solver.status(), solver.solution(), solver.distance(), solver.settled());
+        }
+        if (algorithm == Algorithm.BIDIRECTIONAL_ASTAR || algorithm == Algorithm.CONTRACTION_HIERARCHY) {
+            IntBidirectionalAStarSolver solver = new IntBidirectionalAStarSolver(network.roads, chains.reverse(),
+                    from.ends, from.leave, to.ends, to.arrive, workspaces.get(), backwardWorkspaces.get(), budget);
+            return chainResult(chains, from, to, solver.status(), solver.solution(), solver.distance(),
+                    solver.settled());
+        }
+        // The chain graph has no edges into vertices inside chains, so the search ends at their entries instead.
+        int[] goals = new int[4];
+        double[] goalWeights = new double[4];
+        int[] ends = new int[4];
+        int count = 0;
+        for (int i = 0; i < to.ends.length; i += 1) {
+            int end = to.ends[i];
+            int[] entries = chains.isCore(end) ? new int[]{end} : chains.entries(end);
+            double[] entryWeights = chains.isCore(end) ? new double[]{0.0} : chains.entryWeights(end);
+            for (int j = 0; j < entries.length; j += 1) {
+                goals[count] = entries[j];
+                goalWeights[count] = entryWeights[j] + to.arrive[i];
+                ends[count] = end;
+                count += 1;
+            }
+        }
+        goals = Arrays.copyOf(goals, count);
+        goalWeights = Arrays.copyOf(goalWeights, count);
+        IntAStarGraph g = algorithm == Algorithm.ALT && network.landmarkRoads != null
+                ? network.landmarkRoads : network.roads;
+        IntAStarSolver solver = new IntAStarSolver(g, from.ends, from.leave, goals, goalWeights, workspaces.get(),
+                budget);
+        int[] path = solver.solution();
+        if (path.length > 0) {
+            int last = -1;
+            for (int i = 0; i < goals.length; i += 1) {
+                if (goals[i] == path[path.length - 1] && (last == -1 || goalWeights[i] < goalWeights[last])) {
+                    last = i;
+                }
+            }
+            if (ends[last] != goals[last]) {
+                path = Arrays.copyOf(path, path.length + 1);
+                path[path.length - 1] = ends[last];
+            }
+        }
+        return chainResult(chains, from, to, solver.status(), path, solver.distance(), solver.settled());
+    }
+
+    /**
+     * Returns a search result over the chain graph with the collapsed chains on the path expanded. Searches only find
+     * paths through core vertices, so a path that stays within the chain through an end of both the start and goal
+     * segments is used instead if it is shorter.
+     */
+    private SearchResult<Point> chainResult(ChainGraph chains, Projection from, Projection to,
+                                            SearchResult.Status status, int[] path, double distance, int settled) {
+        for (int i = 0; i < from.ends.length; i += 1) {
+            for (int j = 0; j < to.ends.length; j += 1) {
+                int start = from.ends[i];
+                int goal = to.ends[j];
+                double direct = from.leave[i] + chains.direct(start, goal) + to.arrive[j];
+                if (status != SearchResult.Status.ABORTED && direct < Double.POSITIVE_INFINITY && direct <= distance) {
+                    status = SearchResult.Status.FOUND;
+                    path = start == goal ? new int[]{start} : new int[]{start, goal};
+                    distance = direct;
+                }
+            }
+        }
+        return result(from, to, status, chains.expand(path), distance, settled);
+    }
+
+    /**
+     * Returns a search result from the start location through the given vertex ids to the goal location, converted to
+     * {@link Point} locations. A route along the segment that both locations lie on never reaches a vertex, so it is
+     * used instead if it is shorter.
+     */
+    private SearchResult<Point> result(Projection from, Projection to, SearchResult.Status status, int[] path,
+                                       double distance, int settled) {
+        double along = from.along(to);
+        if (status != SearchResult.Status.ABORTED && along < Double.POSITIVE_INFINITY && along <= distance) {
+            status = SearchResult.Status.FOUND;
+            path = new int[0];
+            distance = along;
+        }
+        if (status != SearchResult.Status.FOUND) {
+            return new SearchResult<>(status, List.of(), distance, settled);
+        }
+        List<Point> solution = new ArrayList<>(path.length + 2);
+        solution.add(from.point);
+        for (int v : path) {
+            Point next = point(v);
+            if (!next.equals(solution.get(solution.size() - 1))) {
+                solution.add(next);
+            }
+        }
+        if (!to.point.equals(solution.get(solution.size() - 1))) {
+            solution.add(to.point);
+        }
+        return new SearchResult<>(status, Collections.unmodifiableList(solution), distance, settled);
     }
 
     @Override
     public List<Edge<Point>> neighbors(Point point) {
-        return neighbors.computeIfAbsent(point, (p) -> List.of());
+        Integer from = vertices.get(point);
+        if (from == null) {
+            return List.of();
+        }
+        CSRGraph graph = network.graph;
+        List<Edge<Point>> result = new ArrayList<>(graph.edgeEnd(from) - graph.edgeStart(from));
+        for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e += 1) {
+            result.add(new Edge<>(point, point(graph.target(e)), graph.weight(e)));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Edge<Point>> reverseNeighbors(Point point) {
+        Integer to = vertices.get(point);
+        if (to == null) {
+            return List.of();
+        }
+        CSRGraph reverse = network.reverse;
+        List<Edge<Point>> result = new ArrayList<>(reverse.edgeEnd(to) - reverse.edgeStart(to));
+        for (int e = reverse.edgeStart(to); e < reverse.edgeEnd(to); e += 1) {
+            result.add(new Edge<>(point(reverse.target(e)), point, reverse.weight(e)));
+        }
+        return result;
     }
 
     @Override
@@ -166,125 +1104,406 @@ public class MapGraph implements AStarGraph<Point> {
     }
 
     /**
-     * Adds an edge to this graph if it doesn't already exist using distance as the weight.
+     * Returns the {@link Point} for the given vertex id.
      *
-     * @param from the originating point of the edge.
-     * s@param to the terminating point of the edge.
-     * @param accessScore the access score for the edge where 0 is inaccessible and 1 is accessible.
+     * @param vertex the vertex id.
+     * @return the location of the vertex.
+     */
+    private Point point(int vertex) {
+        return context.getShapeFactory().pointLatLon(lat[vertex], lon[vertex]);
+    }
+
+    /**
+     * Returns the great-circle distance in degrees between two vertices, matching {@link SpatialContext#GEO}.
+     *
+     * @param from the first vertex id.
+     * @param to   the second vertex id.
+     * @return the great-circle distance in degrees between two vertices.
+     */
+    private double distance(int from, int to) {
+        return DistanceUtils.toDegrees(DistanceUtils.distHaversineRAD(
+                Math.toRadians(lat[from]), Math.toRadians(lon[from]),
+                Math.toRadians(lat[to]), Math.toRadians(lon[to])));
+    }
+
+    /**
+     * Returns the current weight with the given profile of the lightest edge from the vertex at one location to the
+     * vertex at another, or infinity if there is no such edge.
      */
-    private void addEdge(Point from, Point to, double accessScore) {
-        if (!neighbors.containsKey(from)) {
-            neighbors.put(from, new ArrayList<>());
+    double weight(Profile profile, Point from, Point to) {
+        Integer v = vertices.get(from);
+        Integer w = vertices.get(to);
+        if (v == null || w == null) {
+            return Double.POSITIVE_INFINITY;
         }
-        neighbors.get(from).add(new Edge<>(from, to,
-                estimatedDistance(from, to) / accessScore));
+        return weight(graph(network, profile), v, w);
     }
 
     /**
-     * Parses OSM XML files to construct a MapGraph.
+     * Returns the weight of the lightest edge from one vertex to another, or infinity if there is no such edge.
+     *
+     * @param graph the road network.
+     * @param from  the source vertex id.
+     * @param to    the target vertex id.
+     * @return the weight of the lightest edge between the vertices.
      */
-    private class Handler extends DefaultHandler {
-        private String state;
-        private long id;
-        private String name;
-        private boolean validWay;
-        private Point location;
-        private Queue<Point> path;
+    private static double weight(CSRGraph graph, int from, int to) {
+        double result = Double.POSITIVE_INFINITY;
+        for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e += 1) {
+            if (graph.target(e) == to) {
+                result = Math.min(result, graph.weight(e));
+            }
+        }
+        return result;
+    }
 
-        Handler() {
-            reset();
+    /**
+     * Returns an R-tree over the road segments, with one segment for each pair of distinct vertices joined by an edge
+     * in either direction.
+     */
+    private SegmentRTree segments(CSRGraph graph) {
+        int[] from = new int[graph.edgeCount()];
+        int[] to = new int[from.length];
+        int count = 0;
+        for (int v = 0; v < graph.size(); v += 1) {
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e += 1) {
+                int w = graph.target(e);
+                if (v < w || (v > w && weight(graph, w, v) == Double.POSITIVE_INFINITY)) {
+                    from[count] = v;
+                    to[count] = w;
+                    count += 1;
+                }
+            }
         }
+        return new SegmentRTree(lat, lon, Arrays.copyOf(from, count), Arrays.copyOf(to, count));
+    }
+
+    /**
+     * Returns the given fraction of an edge weight. The fraction of a missing edge is infinite unless the fraction is
+     * zero, since a location at a vertex can always leave or reach that vertex.
+     */
+    private static double partial(double fraction, double weight) {
+        return fraction == 0 ? 0 : fraction * weight;
+    }
 
+    /**
+     * Location partway along a road segment where a route starts or ends, with the weights of the partial segments
+     * between the location and both ends of the segment. Partial weights are proportional to the fraction of the
+     * segment they cover, and are infinite against a one-way street.
+     */
+    private class Projection {
+        private final int segment;
+        private final double fraction;
+        private final Point point;
+        /**
+         * The first and second vertices of the segment.
+         */
+        private final int[] ends;
+        /**
+         * The weight from the location to each end of the segment.
+         */
+        private final double[] leave;
         /**
-         * Reset the handler state before processing a new way or node.
+         * The weight from each end of the segment to the location.
          */
-        private void reset() {
-            state = "";
-            id = Long.MIN_VALUE;
-            name = "";
-            validWay = false;
-            location = null;
-            path = new ArrayDeque<>();
+        private final double[] arrive;
+        private final double forward;
+        private final double backward;
+
+        Projection(CSRGraph graph, int segment, double fraction) {
+            this.segment = segment;
+            this.fraction = fraction;
+            int from = segmentIndex.from(segment);
+            int to = segmentIndex.to(segment);
+            point = fraction == 1 ? point(to) : context.getShapeFactory().pointLatLon(
+                    lat[from] + fraction * (lat[to] - lat[from]), lon[from] + fraction * (lon[to] - lon[from]));
+            ends = new int[]{from, to};
+            forward = weight(graph, from, to);
+            backward = weight(graph, to, from);
+            leave = new double[]{partial(fraction, backward), partial(1 - fraction, forward)};
+            arrive = new double[]{partial(fraction, forward), partial(1 - fraction, backward)};
         }
 
         /**
-         * Called at the beginning of an element.
-         *
-         * @param uri        The Namespace URI, or the empty string if the element has no Namespace URI or
-         *                   if Namespace processing is not being performed.
-         * @param localName  The local name (without prefix), or the empty string if Namespace
-         *                   processing is not being performed.
-         * @param qName      The qualified name (with prefix), or the empty string if qualified names are
-         *                   not available. This tells us which element we're looking at.
-         * @param attributes The attributes attached to the element. If there are no attributes, it
-         *                   shall be an empty Attributes object.
-         * @see Attributes
+         * Returns the weight of the route from this location to the other along their shared segment, or infinity if
+         * they are on different segments or the segment is one-way in the other direction.
          */
-        @Override
-        public void startElement(String uri, String localName, String qName, Attributes attributes) {
-            if (qName.equals("node")) {
-                state = "node";
-                id = Long.parseLong(attributes.getValue("id"));
-                location = context.getShapeFactory().pointLatLon(
-                        Double.parseDouble(attributes.getValue("lat")),
-                        Double.parseDouble(attributes.getValue("lon"))
-                );
-            } else if (qName.equals("way")) {
-                state = "way";
-                id = Long.parseLong(attributes.getValue("id"));
-            } else if (state.equals("way") && qName.equals("nd")) {
-                long ref = Long.parseLong(attributes.getValue("ref"));
-                path.add(byId.get(ref));
-            } else if (state.equals("way") && qName.equals("tag")) {
-                String k = attributes.getValue("k");
-                String v = attributes.getValue("v");
-                if (k.equals("highway")) {
-                    validWay = allowedHighwayTypes.contains(v);
-                }
-            } else if (state.equals("node") && qName.equals("tag") && attributes.getValue("k").equals("name")) {
-                name = attributes.getValue("v").strip();
-                name = name.replaceAll("[“”]", "\"");
-                name = name.replaceAll("[‘’]", "'");
+        double along(Projection other) {
+            if (other.segment != segment) {
+                return Double.POSITIVE_INFINITY;
+            } else if (other.fraction >= fraction) {
+                return partial(other.fraction - fraction, forward);
             }
+            return partial(fraction - other.fraction, backward);
+        }
+    }
+
+    /**
+     * Route between two locations snapped on one version of the road network with one profile. Searching a route
+     * always uses the network it was snapped on, so everything identifying the route describes the search result too.
+     *
+     * @see #route(Point, Point, Profile)
+     */
+    public final class Route {
+        private final Network network;
+        private final Profile profile;
+        private final Projection from;
+        private final Projection to;
+
+        private Route(Network network, Profile profile, Projection from, Projection to) {
+            this.network = network;
+            this.profile = profile;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Returns the start of this route snapped to the closest point on any road segment.
+         *
+         * @return the snapped start of this route.
+         */
+        public Point start() {
+            return from.point;
+        }
+
+        /**
+         * Returns the goal of this route snapped to the closest point on any road segment.
+         *
+         * @return the snapped goal of this route.
+         */
+        public Point goal() {
+            return to.point;
         }
 
         /**
-         * Called at the end of an element.
+         * Returns the cost model for weighing the edges of this route.
          *
-         * @param uri       The Namespace URI, or the empty string if the element has no Namespace URI or
-         *                  if Namespace processing is not being performed.
-         * @param localName The local name (without prefix), or the empty string if Namespace
-         *                  processing is not being performed.
-         * @param qName     The qualified name (with prefix), or the empty string if qualified names are
-         *                  not available.
+         * @return the profile of this route.
          */
+        public Profile profile() {
+            return profile;
+        }
+
+        /**
+         * Returns the version of the edge weights this route was snapped on, as in {@link MapGraph#version()}.
+         *
+         * @return the version of the edge weights of this route.
+         */
+        public long version() {
+            return network.version;
+        }
+
+        /**
+         * Returns a checksum of the road network this route was snapped on. Versions restart at 0 with the server,
+         * but the checksum changes only when the roads or their access weights do.
+         *
+         * @return a checksum of the road network of this route.
+         */
+        public long fingerprint() {
+            return network.fingerprint;
+        }
+    }
+
+    /**
+     * Area reachable from a start location within a maximum distance, as the convex hull of the road network vertices
+     * settled by the search.
+     *
+     * @see #isochrone(Point, double, SearchBudget)
+     */
+    public static final class Isochrone {
+        private final List<Point> ring;
+        private final int settled;
+        private final boolean truncated;
+
+        private Isochrone(List<Point> ring, int settled, boolean truncated) {
+            this.ring = ring;
+            this.settled = settled;
+            this.truncated = truncated;
+        }
+
+        /**
+         * Returns the hull as a closed ring whose last point repeats the first, or an empty list if no vertices were
+         * settled. Hulls of one or two vertices are a point or a line segment.
+         *
+         * @return the closed ring around the reachable area.
+         */
+        public List<Point> ring() {
+            return ring;
+        }
+
+        /**
+         * Returns the number of vertices settled by the search, all of which lie within the ring.
+         *
+         * @return the number of vertices settled by the search.
+         */
+        public int settled() {
+            return settled;
+        }
+
+        /**
+         * Returns true if the search exceeded its budget before settling every vertex within the maximum distance, so
+         * the ring covers only part of the reachable area.
+         *
+         * @return true if the ring covers only part of the reachable area.
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
         @Override
-        public void endElement(String uri, String localName, String qName) {
-            if (qName.equals("way")) {
-                if (validWay && !path.isEmpty()) {
-                    double accessScore;
-                    if (accessScores.containsKey(id)) {
-                        accessScore = accessScores.get(id);
-                    } else {
-                        accessScore = 1;
-                    }
-                    Point from = path.remove();
-                    while (!path.isEmpty()) {
-                        Point to = path.remove();
-                        addEdge(from, to, accessScore);
-                        addEdge(to, from, accessScore);
-                        from = to;
-                    }
-                }
-                reset();
-            } else if (qName.equals("node")) {
-                byId.put(id, location);
-                if (!name.isBlank()) {
-                    byName.putIfAbsent(name, new ArrayList<>());
-                    byName.get(name).add(location);
-                }
-                reset();
+        public String toString() {
+            return "Isochrone{" +
+                    "points=" + ring.size() +
+                    ", settled=" + settled +
+                    ", truncated=" + truncated +
+                    '}';
+        }
+    }
+
+    /**
+     * Weighted road network and everything derived from its weights. Access score updates replace the whole network,
+     * so each search reads the current network once and sees consistent weights even while an update is applied.
+     */
+    private class Network {
+        private final long version;
+        private final CSRGraph graph;
+        /**
+         * The {@link IntGraph#fingerprint()} of the graph, which unlike the version identifies the weights across
+         * restarts.
+         */
+        private final long fingerprint;
+        private final CSRGraph reverse;
+        /**
+         * Road network with chains of shape points collapsed, which the A* searches run over.
+         */
+        private final ChainGraph chains;
+        private final IntAStarGraph roads;
+        /**
+         * Contraction hierarchy over the road network, or null until one is loaded or built.
+         */
+        private final ContractionHierarchy hierarchy;
+        /**
+         * Road network with the landmark heuristic, or null until landmarks are loaded or built.
+         */
+        private final IntAStarGraph landmarkRoads;
+
+        Network(long version, CSRGraph graph) {
+            this.version = version;
+            this.graph = graph;
+            fingerprint = graph.fingerprint();
+            float[] reverseWeights = new float[reverseEdges.length];
+            for (int e = 0; e < reverseEdges.length; e += 1) {
+                reverseWeights[e] = (float) graph.weight(reverseEdges[e]);
             }
+            reverse = reverseTopology.withWeights(reverseWeights);
+            chains = new ChainGraph(graph, reverse);
+            roads = new Roads(chains);
+            hierarchy = null;
+            landmarkRoads = null;
+        }
+
+        private Network(Network network, ContractionHierarchy hierarchy, IntAStarGraph landmarkRoads) {
+            version = network.version;
+            graph = network.graph;
+            fingerprint = network.fingerprint;
+            reverse = network.reverse;
+            chains = network.chains;
+            roads = network.roads;
+            this.hierarchy = hierarchy;
+            this.landmarkRoads = landmarkRoads;
+        }
+
+        /**
+         * Returns this network with the given contraction hierarchy.
+         */
+        Network withHierarchy(ContractionHierarchy hierarchy) {
+            return new Network(this, hierarchy, landmarkRoads);
+        }
+
+        /**
+         * Returns this network with the given landmarks.
+         */
+        Network withLandmarks(Landmarks landmarks) {
+            return new Network(this, hierarchy, new LandmarkGraph(roads, landmarks));
+        }
+    }
+
+    /**
+     * {@link IntAStarGraph} view of a road network with the straight-line distance heuristic, for searches over
+     * primitive vertex ids.
+     */
+    private class Roads implements IntAStarGraph {
+        private final IntGraph graph;
+
+        Roads(IntGraph graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public int size() {
+            return graph.size();
+        }
+
+        @Override
+        public int edgeStart(int vertex) {
+            return graph.edgeStart(vertex);
+        }
+
+        @Override
+        public int edgeEnd(int vertex) {
+            return graph.edgeEnd(vertex);
+        }
+
+        @Override
+        public int target(int edge) {
+            return graph.target(edge);
+        }
+
+        @Override
+        public double weight(int edge) {
+            return graph.weight(edge);
+        }
+
+        @Override
+        public double estimatedDistance(int start, int end) {
+            return distance(start, end);
+        }
+    }
+
+    /**
+     * {@link IntGraph} view of the reverse of a road network that shares its edges with {@link #reverseTopology} and
+     * reads its weights from the road network, so that reversing a profile costs no additional arrays.
+     */
+    private class Reversed implements IntGraph {
+        private final CSRGraph graph;
+
+        Reversed(CSRGraph graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public int size() {
+            return reverseTopology.size();
+        }
+
+        @Override
+        public int edgeStart(int vertex) {
+            return reverseTopology.edgeStart(vertex);
+        }
+
+        @Override
+        public int edgeEnd(int vertex) {
+            return reverseTopology.edgeEnd(vertex);
+        }
+
+        @Override
+        public int target(int edge) {
+            return reverseTopology.target(edge);
+        }
+
+        @Override
+        public double weight(int edge) {
+            return graph.weight(reverseEdges[edge]);
         }
     }
 }
@@ -0,0 +1,728 @@
+import graphs.CSRGraph;
+import org.locationtech.spatial4j.distance.DistanceUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Pipelined loader that turns a gzipped OSM file into a {@link MapSnapshot}. Each pass over the file runs in three
+ * stages connected by bounded queues so that they overlap: one thread inflates the file into byte chunks, a second
+ * parses the XML into batches of primitive node and way records, and the calling thread consumes the batches. Edge
+ * weights are computed afterward in a parallel pass over the primitive coordinate arrays, and the time spent in each
+ * stage is logged.
+ *
+ * <p>The file is read twice. The first pass only collects the ids of the nodes that highway ways reference, so that
+ * the second pass keeps those nodes and named places and skips the far larger number of nodes that belong to
+ * buildings, boundaries, and other ways.
+ *
+ * @see MapGraph
+ * @see MapSnapshot
+ */
+final class MapLoader {
+    private static final Logger LOG = LoggerFactory.getLogger(MapLoader.class);
+    /**
+     * Size in bytes of each inflated chunk.
+     */
+    private static final int CHUNK_BYTES = 1 << 16;
+    /**
+     * Number of nodes and ways in each parsed batch.
+     */
+    private static final int BATCH_SIZE = 4096;
+    /**
+     * Maximum number of chunks or batches waiting between two stages.
+     */
+    private static final int QUEUE_CAPACITY = 16;
+    /**
+     * Marks the end of the inflated chunks.
+     */
+    private static final byte[] END_OF_CHUNKS = new byte[0];
+    /**
+     * Marks the end of the parsed batches.
+     */
+    private static final Batch END_OF_BATCHES = new Batch();
+    /**
+     * Vertex of a way-referenced node that is missing from the file.
+     */
+    private static final int MISSING = -2;
+
+    /**
+     * Highway types of the ways kept as roads. Snapshots record the type of each way as its index in this list.
+     */
+    static final List<String> HIGHWAY_TYPES = List.of(
+            "motorway",
+            "trunk",
+            "primary",
+            "secondary",
+            "tertiary",
+            "unclassified",
+            "residential",
+            "living_street",
+            "motorway_link",
+            "trunk_link",
+            "primary_link",
+            "secondary_link",
+            "tertiary_link"
+    );
+
+    private final Map<Long, Double> accessScores;
+    private final BlockingQueue<byte[]> chunks;
+    private final BlockingQueue<Batch> batches;
+    /**
+     * Whether the parse stage has read every inflated chunk.
+     */
+    private volatile boolean inflated;
+
+    // Ids of the nodes referenced by highway ways in ascending order. The node in slot i < referencedCount has id
+    // referenced[i], and named places that are not on a way take the slots after them.
+    private long[] referenced;
+    private int referencedCount;
+    private double[] nodeLat;
+    private double[] nodeLon;
+    private int nodeCount;
+
+    // Vertices in numbering order, with coincident nodes sharing one vertex.
+    private final Map<Location, Integer> locations;
+    private int[] vertexOf;
+    private double[] lat;
+    private double[] lon;
+    private int vertexCount;
+
+    // Undirected road segments between vertices.
+    private int[] segmentFrom;
+    private int[] segmentTo;
+    private double[] segmentScore;
+    private long[] segmentWay;
+    private byte[] segmentType;
+    private int segmentCount;
+
+    private final Map<String, List<Integer>> names;
+
+    /**
+     * Constructs a loader that weighs each way by the given access scores.
+     *
+     * @param accessScores the access score for each OSM way, where ways without a score have a score of 1.
+     */
+    MapLoader(Map<Long, Double> accessScores) {
+        this.accessScores = accessScores;
+        chunks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        batches = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        referenced = new long[BATCH_SIZE];
+        referencedCount = 0;
+        locations = new HashMap<>();
+        lat = new double[BATCH_SIZE];
+        lon = new double[BATCH_SIZE];
+        segmentFrom = new int[BATCH_SIZE];
+        segmentTo = new int[BATCH_SIZE];
+        segmentScore = new double[BATCH_SIZE];
+        segmentWay = new long[BATCH_SIZE];
+        segmentType = new byte[BATCH_SIZE];
+        names = new HashMap<>();
+    }
+
+    /**
+     * Loads the road network and named places from the gzipped OSM streams opened by the given supplier. The file is
+     * read twice, and each stream is closed afterward. Routable vertices are numbered first, followed by any named
+     * places that are not on the road network.
+     *
+     * @param osm      opens a new gzipped OSM (XML) stream on each call.
+     * @param checksum the checksum of the source files.
+     * @return a snapshot of the road network and places.
+     * @throws ParserConfigurationException if a parser cannot be created.
+     * @throws SAXException                 for SAX errors.
+     * @throws IOException                  if the stream cannot be read or is not gzipped.
+     */
+    MapSnapshot load(Supplier<InputStream> osm, long checksum)
+            throws ParserConfigurationException, SAXException, IOException {
+        long start = System.nanoTime();
+        run("Scan", osm.get(), false, this::collect);
+        Arrays.sort(referenced, 0, referencedCount);
+        int unique = 0;
+        for (int i = 0; i < referencedCount; i += 1) {
+            if (i == 0 || referenced[i] != referenced[i - 1]) {
+                referenced[unique] = referenced[i];
+                unique += 1;
+            }
+        }
+        referenced = Arrays.copyOf(referenced, unique);
+        referencedCount = unique;
+        nodeLat = new double[referencedCount + BATCH_SIZE];
+        nodeLon = new double[referencedCount + BATCH_SIZE];
+        vertexOf = new int[referencedCount + BATCH_SIZE];
+        Arrays.fill(vertexOf, 0, referencedCount, MISSING);
+        nodeCount = referencedCount;
+
+        run("Load", osm.get(), true, this::build);
+
+        long weightsStart = System.nanoTime();
+        double[] weights = new double[segmentCount];
+        IntStream.range(0, segmentCount).parallel().forEach(i ->
+                weights[i] = distance(segmentFrom[i], segmentTo[i]) / segmentScore[i]
+        );
+        long weightsNanos = System.nanoTime() - weightsStart;
+
+        MapSnapshot snapshot = snapshot(weights, checksum);
+        LOG.info("Loaded {} vertices and {} edges from {} nodes in {} ms (weights {} ms)",
+                snapshot.vertexCount, snapshot.targets.length, nodeCount, millis(System.nanoTime() - start),
+                millis(weightsNanos));
+        return snapshot;
+    }
+
+    /**
+     * Runs one pass over the gzipped OSM stream, handing each parsed batch to the consumer on the calling thread.
+     *
+     * @param pass     the name of the pass for logging.
+     * @param osm      the gzipped OSM (XML) stream, closed afterward.
+     * @param nodes    whether to parse nodes, or only highway ways.
+     * @param consumer the consumer of each batch.
+     */
+    private void run(String pass, InputStream osm, boolean nodes, Consumer<Batch> consumer)
+            throws ParserConfigurationException, SAXException, IOException {
+        inflated = false;
+        ExecutorService stages = Executors.newFixedThreadPool(2);
+        Future<Long> inflate = stages.submit(() -> inflate(osm));
+        Future<Long> parse = stages.submit(() -> parse(nodes));
+        long consume = 0;
+        try {
+            Batch batch = batches.take();
+            while (batch != END_OF_BATCHES) {
+                long batchStart = System.nanoTime();
+                consumer.accept(batch);
+                consume += System.nanoTime() - batchStart;
+                batch = batches.take();
+            }
+        } catch (InterruptedException e) {
+            stages.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading the OSM file");
+        } catch (RuntimeException e) {
+            // Stops the upstream stages, which would otherwise wait on a full queue forever.
+            stages.shutdownNow();
+            throw e;
+        }
+        stages.shutdown();
+        long parseNanos;
+        try {
+            parseNanos = await(parse);
+        } catch (SAXException | IOException | RuntimeException e) {
+            if (inflated) {
+                // Parsing read every chunk, so a truncated or corrupt file is the underlying failure.
+                await(inflate);
+            }
+            stages.shutdownNow();
+            throw e;
+        }
+        long inflateNanos = await(inflate);
+        LOG.info("{} pass: inflate {} ms, parse {} ms, build {} ms",
+                pass, millis(inflateNanos), millis(parseNanos), millis(consume));
+    }
+
+    /**
+     * Returns the result of the given stage, rethrowing its failure.
+     */
+    private static long await(Future<Long> stage) throws SAXException, IOException {
+        try {
+            return stage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading the OSM file");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InterruptedException) {
+                throw new InterruptedIOException("Interrupted while loading the OSM file");
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    /**
+     * Inflates the gzipped stream into chunks until the end of the stream. Returns the time spent inflating.
+     */
+    private long inflate(InputStream osm) throws IOException, InterruptedException {
+        long busy = 0;
+        try (GZIPInputStream input = new GZIPInputStream(osm, CHUNK_BYTES)) {
+            while (true) {
+                long start = System.nanoTime();
+                byte[] chunk = input.readNBytes(CHUNK_BYTES);
+                busy += System.nanoTime() - start;
+                if (chunk.length == 0) {
+                    return busy;
+                }
+                chunks.put(chunk);
+            }
+        } finally {
+            chunks.put(END_OF_CHUNKS);
+        }
+    }
+
+    /**
+     * Parses the inflated chunks into batches until the end of the document. Returns the time spent parsing.
+     */
+    private long parse(boolean nodes)
+            throws ParserConfigurationException, SAXException, IOException, InterruptedException {
+        long start = System.nanoTime();
+        Handler handler = new Handler(nodes);
+        ChunkInputStream input = new ChunkInputStream();
+        try {
+            SAXParserFactory.newInstance().newSAXParser().parse(input, handler);
+            handler.flush();
+            // Consumes anything after the document so that the inflate stage is never left waiting on a full queue.
+            input.skip(Long.MAX_VALUE);
+        } finally {
+            batches.put(END_OF_BATCHES);
+        }
+        return System.nanoTime() - start - handler.waiting - input.waiting;
+    }
+
+    /**
+     * Collects the node ids referenced by the ways in the batch.
+     */
+    private void collect(Batch batch) {
+        if (referencedCount + batch.refCount > referenced.length) {
+            referenced = Arrays.copyOf(referenced, Math.max(referenced.length * 2, referencedCount + batch.refCount));
+        }
+        System.arraycopy(batch.refs, 0, referenced, referencedCount, batch.refCount);
+        referencedCount += batch.refCount;
+    }
+
+    /**
+     * Numbers the vertices and collects the road segments of the nodes and ways in the batch.
+     */
+    private void build(Batch batch) {
+        for (int i = 0; i < batch.nodes; i += 1) {
+            addNode(batch.nodeSlots[i], batch.lat[i], batch.lon[i], batch.names[i]);
+        }
+        for (int i = 0; i < batch.ways; i += 1) {
+            addWay(batch.wayIds[i], batch.wayTypes[i], batch.refs, i == 0 ? 0 : batch.wayEnds[i - 1],
+                    batch.wayEnds[i]);
+        }
+    }
+
+    /**
+     * Stores a node in its slot, or in a new slot after the referenced nodes if no way references it.
+     */
+    private void addNode(int slot, double nodeLat, double nodeLon, String name) {
+        if (slot == -1) {
+            if (nodeCount == this.nodeLat.length) {
+                this.nodeLat = Arrays.copyOf(this.nodeLat, nodeCount * 2);
+                this.nodeLon = Arrays.copyOf(this.nodeLon, nodeCount * 2);
+                vertexOf = Arrays.copyOf(vertexOf, nodeCount * 2);
+            }
+            slot = nodeCount;
+            nodeCount += 1;
+        }
+        this.nodeLat[slot] = nodeLat;
+        this.nodeLon[slot] = nodeLon;
+        vertexOf[slot] = -1;
+        if (name != null) {
+            names.computeIfAbsent(name, k -> new ArrayList<>()).add(slot);
+        }
+    }
+
+    /**
+     * Adds a road segment between each pair of consecutive nodes in the way. Nodes missing from the file are skipped.
+     */
+    private void addWay(long id, byte type, long[] refs, int from, int to) {
+        double accessScore = accessScores.getOrDefault(id, 1.0);
+        int previous = -1;
+        for (int i = from; i < to; i += 1) {
+            int slot = Arrays.binarySearch(referenced, refs[i]);
+            if (vertexOf[slot] == MISSING) {
+                continue;
+            }
+            if (previous == -1) {
+                previous = slot;
+                continue;
+            }
+            if (segmentCount == segmentFrom.length) {
+                segmentFrom = Arrays.copyOf(segmentFrom, segmentCount * 2);
+                segmentTo = Arrays.copyOf(segmentTo, segmentCount * 2);
+                segmentScore = Arrays.copyOf(segmentScore, segmentCount * 2);
+                segmentWay = Arrays.copyOf(segmentWay, segmentCount * 2);
+                segmentType = Arrays.copyOf(segmentType, segmentCount * 2);
+            }
+            segmentFrom[segmentCount] = vertex(previous);
+            segmentTo[segmentCount] = vertex(slot);
+            segmentScore[segmentCount] = accessScore;
+            segmentWay[segmentCount] = id;
+            segmentType[segmentCount] = type;
+            segmentCount += 1;
+            previous = slot;
+        }
+    }
+
+    /**
+     * Returns the vertex id for the node in the given slot, numbering it if no node at its location has been seen.
+     */
+    private int vertex(int slot) {
+        if (vertexOf[slot] == -1) {
+            Location location = new Location(nodeLat[slot], nodeLon[slot]);
+            Integer vertex = locations.get(location);
+            if (vertex == null) {
+                vertex = vertexCount;
+                locations.put(location, vertex);
+                if (vertexCount == lat.length) {
+                    lat = Arrays.copyOf(lat, vertexCount * 2);
+                    lon = Arrays.copyOf(lon, vertexCount * 2);
+                }
+                lat[vertexCount] = nodeLat[slot];
+                lon[vertexCount] = nodeLon[slot];
+                vertexCount += 1;
+            }
+            vertexOf[slot] = vertex;
+        }
+        return vertexOf[slot];
+    }
+
+    /**
+     * Returns the great-circle distance in degrees between two vertices, matching {@link MapGraph#estimatedDistance}.
+     */
+    private double distance(int from, int to) {
+        return DistanceUtils.toDegrees(DistanceUtils.distHaversineRAD(
+                Math.toRadians(lat[from]), Math.toRadians(lon[from]),
+                Math.toRadians(lat[to]), Math.toRadians(lon[to])));
+    }
+
+    /**
+     * Returns a snapshot of the collected road segments in both directions, the way of each edge, the highway type of
+     * each way, and the named places.
+     */
+    private MapSnapshot snapshot(double[] weights, long checksum) {
+        int roadVertices = vertexCount;
+        CSRGraph.Builder builder = new CSRGraph.Builder();
+        for (int i = 0; i < segmentCount; i += 1) {
+            builder.addEdge(segmentFrom[i], segmentTo[i], weights[i]);
+            builder.addEdge(segmentTo[i], segmentFrom[i], weights[i]);
+        }
+        CSRGraph roads = builder.ensureSize(roadVertices).build();
+        int[] offsets = new int[roadVertices + 1];
+        int[] targets = new int[roads.edgeCount()];
+        float[] edgeWeights = new float[roads.edgeCount()];
+        for (int v = 0; v < roadVertices; v += 1) {
+            offsets[v + 1] = roads.edgeEnd(v);
+            for (int e = roads.edgeStart(v); e < roads.edgeEnd(v); e += 1) {
+                targets[e] = roads.target(e);
+                edgeWeights[e] = (float) roads.weight(e);
+            }
+        }
+        // Edges from the same vertex keep the order in which they were added, so each edge can be matched to its way.
+        long[] ways = Arrays.copyOf(segmentWay, segmentCount);
+        Arrays.sort(ways);
+        int unique = 0;
+        for (int i = 0; i < ways.length; i += 1) {
+            if (i == 0 || ways[i] != ways[i - 1]) {
+                ways[unique] = ways[i];
+                unique += 1;
+            }
+        }
+        ways = Arrays.copyOf(ways, unique);
+        byte[] wayTypes = new byte[unique];
+        int[] edgeWays = new int[roads.edgeCount()];
+        int[] next = Arrays.copyOf(offsets, roadVertices);
+        for (int i = 0; i < segmentCount; i += 1) {
+            int way = Arrays.binarySearch(ways, segmentWay[i]);
+            wayTypes[way] = segmentType[i];
+            edgeWays[next[segmentFrom[i]]] = way;
+            next[segmentFrom[i]] += 1;
+            edgeWays[next[segmentTo[i]]] = way;
+            next[segmentTo[i]] += 1;
+        }
+        Map<String, int[]> places = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : names.entrySet()) {
+            List<Integer> nodes = entry.getValue();
+            int[] indices = new int[nodes.size()];
+            for (int i = 0; i < indices.length; i += 1) {
+                indices[i] = vertex(nodes.get(i));
+            }
+            places.put(entry.getKey(), indices);
+        }
+        return new MapSnapshot(checksum, Arrays.copyOf(lat, vertexCount), Arrays.copyOf(lon, vertexCount),
+                roadVertices, offsets, targets, edgeWeights, ways, wayTypes, edgeWays, accessScores,
+                places);
+    }
+
+    /**
+     * Exact coordinates of a node, so that nodes at the same location share one vertex.
+     */
+    private static final class Location {
+        private final double lat;
+        private final double lon;
+
+        Location(double lat, double lon) {
+            this.lat = lat;
+            this.lon = lon;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Location)) {
+                return false;
+            }
+            Location location = (Location) o;
+            return Double.compare(lat, location.lat) == 0 && Double.compare(lon, location.lon) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Double.hashCode(lat) + Double.hashCode(lon);
+        }
+    }
+
+    /**
+     * Parsed nodes and highway ways in primitive arrays, handed from the parse stage to the build stage.
+     */
+    private static final class Batch {
+        /**
+         * The slot of each node, or -1 for a named place that no way references.
+         */
+        private final int[] nodeSlots = new int[BATCH_SIZE];
+        private final double[] lat = new double[BATCH_SIZE];
+        private final double[] lon = new double[BATCH_SIZE];
+        private final String[] names = new String[BATCH_SIZE];
+        private int nodes;
+        private final long[] wayIds = new long[BATCH_SIZE];
+        /**
+         * The index in {@link #HIGHWAY_TYPES} of the highway type of each way.
+         */
+        private final byte[] wayTypes = new byte[BATCH_SIZE];
+        /**
+         * The index in refs just past the last node of each way.
+         */
+        private final int[] wayEnds = new int[BATCH_SIZE];
+        private long[] refs = new long[BATCH_SIZE];
+        private int refCount;
+        private int ways;
+
+        boolean isFull() {
+            return nodes + ways == BATCH_SIZE;
+        }
+    }
+
+    /**
+     * {@link InputStream} over the inflated chunks.
+     */
+    private final class ChunkInputStream extends InputStream {
+        private byte[] chunk = new byte[0];
+        private int position = 0;
+        /**
+         * Time spent waiting for the inflate stage to produce a chunk.
+         */
+        private long waiting = 0;
+
+        /**
+         * Returns false once every chunk has been read, otherwise ensures the current chunk has unread bytes.
+         */
+        private boolean fill() throws IOException {
+            while (position == chunk.length) {
+                if (chunk == END_OF_CHUNKS) {
+                    inflated = true;
+                    return false;
+                }
+                long start = System.nanoTime();
+                try {
+                    chunk = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for inflated chunks");
+                }
+                waiting += System.nanoTime() - start;
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            int b = chunk[position] & 0xFF;
+            position += 1;
+            return b;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && fill()) {
+                int step = (int) Math.min(n - skipped, chunk.length - position);
+                position += step;
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+
+    /**
+     * Parses OSM XML elements into batches of nodes and highway ways. Nodes are kept only if a way references them or
+     * they are named places.
+     */
+    private final class Handler extends DefaultHandler {
+        private final boolean nodes;
+        private Batch batch;
+        private String state;
+        private long id;
+        private double nodeLat;
+        private double nodeLon;
+        private String name;
+        /**
+         * The index in {@link #HIGHWAY_TYPES} of the highway type of the current way, or -1 if it is not a road.
+         */
+        private int wayType;
+        private int wayStart;
+        /**
+         * Time spent waiting for the build stage to take a batch.
+         */
+        private long waiting;
+
+        Handler(boolean nodes) {
+            this.nodes = nodes;
+            batch = new Batch();
+            waiting = 0;
+            reset();
+        }
+
+        /**
+         * Hands the current batch to the build stage if it has any elements.
+         */
+        void flush() throws SAXException {
+            if (batch.nodes + batch.ways == 0) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                batches.put(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SAXException("Interrupted while handing off a batch", e);
+            }
+            waiting += System.nanoTime() - start;
+            batch = new Batch();
+            wayStart = 0;
+        }
+
+        /**
+         * Reset the handler state before processing a new way or node.
+         */
+        private void reset() {
+            state = "";
+            id = Long.MIN_VALUE;
+            name = "";
+            wayType = -1;
+            wayStart = batch.refCount;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (qName.equals("node") && nodes) {
+                state = "node";
+                id = Long.parseLong(attributes.getValue("id"));
+                nodeLat = Double.parseDouble(attributes.getValue("lat"));
+                nodeLon = Double.parseDouble(attributes.getValue("lon"));
+            } else if (qName.equals("way")) {
+                state = "way";
+                id = Long.parseLong(attributes.getValue("id"));
+                wayStart = batch.refCount;
+            } else if (state.equals("way") && qName.equals("nd")) {
+                if (batch.refCount == batch.refs.length) {
+                    batch.refs = Arrays.copyOf(batch.refs, batch.refCount * 2);
+                }
+                batch.refs[batch.refCount] = Long.parseLong(attributes.getValue("ref"));
+                batch.refCount += 1;
+            } else if (state.equals("way") && qName.equals("tag")) {
+                String k = attributes.getValue("k");
+                String v = attributes.getValue("v");
+                if (k.equals("highway")) {
+                    wayType = HIGHWAY_TYPES.indexOf(v);
+                }
+            } else if (state.equals("node") && qName.equals("tag") && attributes.getValue("k").equals("name")) {
+                name = attributes.getValue("v").strip();
+                name = name.replaceAll("[“”]", "\"");
+                name = name.replaceAll("[‘’]", "'");
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (qName.equals("way")) {
+                if (wayType != -1 && batch.refCount > wayStart) {
+                    batch.wayIds[batch.ways] = id;
+                    batch.wayTypes[batch.ways] = (byte) wayType;
+                    batch.wayEnds[batch.ways] = batch.refCount;
+                    batch.ways += 1;
+                } else {
+                    // Drop the references of ways that are not roads.
+                    batch.refCount = wayStart;
+                }
+                reset();
+            } else if (qName.equals("node") && nodes) {
+                int slot = Arrays.binarySearch(referenced, id);
+                if (slot < 0 && name.isBlank()) {
+                    reset();
+                    return;
+                }
+                batch.nodeSlots[batch.nodes] = Math.max(slot, -1);
+                batch.lat[batch.nodes] = nodeLat;
+                batch.lon[batch.nodes] = nodeLon;
+                batch.names[batch.nodes] = name.isBlank() ? null : name;
+                batch.nodes += 1;
+                reset();
+            } else {
+                return;
+            }
+            if (batch.isFull()) {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+import org.locationtech.spatial4j.context.SpatialContext;
+
+/**
+ * Build the graph snapshot, contraction hierarchy, and landmarks that {@link MapServer} loads on startup.
+ *
+ * @see MapGraph#buildHierarchy(String)
+ * @see MapGraph#buildLandmarks(String)
+ */
+public class MapPreprocessor {
+    public static void main(String[] args) throws Exception {
+        long start = System.currentTimeMillis();
+        MapGraph map = new MapGraph(MapServer.OSM_DB_PATH, MapServer.ACCESS_PATH, MapServer.SNAPSHOT_PATH,
+                SpatialContext.GEO);
+        System.out.println("Loaded road network in " + (System.currentTimeMillis() - start) + " ms");
+
+        start = System.currentTimeMillis();
+        map.buildHierarchy(MapServer.HIERARCHY_PATH);
+        System.out.println("Wrote " + MapServer.HIERARCHY_PATH + " in " + (System.currentTimeMillis() - start) + " ms");
+
+        start = System.currentTimeMillis();
+        map.buildLandmarks(MapServer.LANDMARKS_PATH);
+        System.out.println("Wrote " + MapServer.LANDMARKS_PATH + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -1,15 +1,55 @@
+import cache.WeightedLRUCache;
+import executors.AdmissionController;
+import executors.MeteredExecutor;
+import graphs.shortestpaths.SearchBudget;
+import graphs.shortestpaths.SearchResult;
+import images.DiskCachedImageSource;
+import images.HttpImageSource;
+import images.ImageSource;
+import images.SingleFlightImageSource;
 import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.UnauthorizedResponse;
+import io.javalin.util.ConcurrencyUtil;
 import io.javalin.validation.ValidationException;
-import org.apache.commons.codec.binary.Base64InputStream;
 import org.locationtech.spatial4j.context.SpatialContext;
+import org.locationtech.spatial4j.distance.DistanceUtils;
 import org.locationtech.spatial4j.shape.Point;
+import org.locationtech.spatial4j.shape.Rectangle;
 import org.locationtech.spatial4j.shape.ShapeFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spatial.SimplifiedLine;
 
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Run the Husky Maps server.
@@ -17,6 +57,7 @@ import java.util.List;
  * @see MapGraph
  */
 public class MapServer {
+    private static final Logger LOG = LoggerFactory.getLogger(MapServer.class);
     /**
      * Default port for serving the application locally.
      */
@@ -26,22 +67,110 @@ public class MapServer {
      *
      * @see <a href="https://download.bbbike.org/osm/">BBBike</a>
      */
-    private static final String OSM_DB_PATH = "seattle.osm.gz";
+    static final String OSM_DB_PATH = "seattle.osm.gz";
     /**
      * The TSV of OSM way accessibility scores.
      */
-    private static final String ACCESS_PATH = "access.tsv";
+    static final String ACCESS_PATH = "access.tsv";
+    /**
+     * The binary graph snapshot file path, written after the first parse and reused on later starts.
+     *
+     * @see MapSnapshot
+     */
+    static final String SNAPSHOT_PATH = "seattle.snapshot";
+    /**
+     * The contraction hierarchy file path, written offline by {@link MapPreprocessor}.
+     */
+    static final String HIERARCHY_PATH = "seattle.hierarchy";
+    /**
+     * The landmark distances file path, written offline by {@link MapPreprocessor}.
+     */
+    static final String LANDMARKS_PATH = "seattle.landmarks";
     /**
      * Maximum number of autocomplete search results.
      */
     private static final int MAX_MATCHES = 10;
+    /**
+     * Maximum time spent searching for a single route before giving up.
+     */
+    private static final long ROUTE_TIMEOUT_MILLIS = 2000;
+    /**
+     * Default base URL of the static map image service.
+     */
+    private static final String IMAGE_SERVICE_URL = "https://api.mapbox.com/";
+    /**
+     * Maximum time to connect to and wait for the static map image service.
+     */
+    private static final long IMAGE_TIMEOUT_MILLIS = 5000;
+    /**
+     * Directory of cached static map images.
+     */
+    private static final String IMAGE_CACHE_PATH = "image-cache";
+    /**
+     * Maximum total size of cached static map images.
+     */
+    private static final long IMAGE_CACHE_BYTES = 256L << 20;
+    /**
+     * Number of platform threads fetching map images when virtual threads are unavailable, which bounds the concurrent
+     * requests to the image service.
+     */
+    private static final int IMAGE_IO_THREADS = 32;
+    /**
+     * Maximum number of map image fetches waiting for a platform thread. Requests beyond this are shed with a 503.
+     */
+    private static final int IMAGE_IO_QUEUE_CAPACITY = 256;
+    /**
+     * Maximum number of route computations waiting for admission. Requests beyond this are shed with a 503.
+     */
+    private static final int ROUTING_QUEUE_CAPACITY = 256;
+    /**
+     * Maximum number of location pins on one map image, closest to its center first.
+     */
+    private static final int MAX_PINS = 20;
+    /**
+     * Width in pixels of the whole world at zoom 0 in the map style's tiles.
+     */
+    private static final double WORLD_PIXELS = 512;
+    /**
+     * Maximum distance in map pixels that route simplification moves the drawn route, which is well under the width of
+     * the route line.
+     */
+    private static final double SIMPLIFY_PIXELS = 0.5;
+    /**
+     * Uppercase hexadecimal digits for percent-encoding.
+     */
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    /**
+     * Maximum number of sources and of targets in one distance matrix request.
+     */
+    private static final int MAX_MATRIX_POINTS = 100;
+    /**
+     * Maximum isochrone distance in metres.
+     */
+    private static final double MAX_ISOCHRONE_METRES = 20000;
 
     public static void main(String[] args) throws Exception {
         SpatialContext context = SpatialContext.GEO;
         ShapeFactory factory = context.getShapeFactory();
-        MapGraph map = new MapGraph(OSM_DB_PATH, ACCESS_PATH, context);
+        MapGraph map = new MapGraph(OSM_DB_PATH, ACCESS_PATH, SNAPSHOT_PATH, context);
+        if (!map.loadHierarchy(HIERARCHY_PATH)) {
+            LOG.warn("No contraction hierarchy at {}; run MapPreprocessor for faster routes", HIERARCHY_PATH);
+        }
+        map.loadLandmarks(LANDMARKS_PATH);
+        ImageSource images = new SingleFlightImageSource(new DiskCachedImageSource(
+                new HttpImageSource(imageServiceUrl(), System.getenv("TOKEN"), Duration.ofMillis(IMAGE_TIMEOUT_MILLIS)),
+                Path.of(IMAGE_CACHE_PATH), IMAGE_CACHE_BYTES));
+        int cores = Runtime.getRuntime().availableProcessors();
+        MeteredExecutor routing = MeteredExecutor.bounded("routing", cores, cores);
+        AdmissionController admission = new AdmissionController(routing, cores, ROUTING_QUEUE_CAPACITY);
+        // Virtual threads need Java 21; on older runtimes, bound the platform threads blocked on the image service.
+        MeteredExecutor io = ConcurrencyUtil.isLoomAvailable()
+                ? new MeteredExecutor("io", ConcurrencyUtil.executorService("image-io", true))
+                : MeteredExecutor.bounded("io", IMAGE_IO_THREADS, IMAGE_IO_QUEUE_CAPACITY);
         Javalin app = Javalin.create(config -> {
             config.spaRoot.addFile("/", "index.html");
+            // Serves requests on virtual threads on Java 21 and later, and on Jetty's bounded pool otherwise.
+            config.useVirtualThreads = true;
         }).start(port());
         app.get("/map/{lon},{lat},{zoom}/{width}x{height}", ctx -> {
             double lon = ctx.pathParamAsClass("lon", Double.class).get();
@@ -50,9 +179,10 @@ public class MapServer {
             int width = ctx.pathParamAsClass("width", Integer.class).get();
             int height = ctx.pathParamAsClass("height", Integer.class).get();
             String term = ctx.queryParam("term");
+            MapGraph.Profile profile = profile(ctx.queryParam("profile"));
 
             Point center = factory.pointLatLon(lat, lon);
-            List<Point> route;
+            CompletableFuture<List<Point>> route;
             try {
                 double startLon = ctx.queryParamAsClass("startLon", Double.class).get();
                 double startLat = ctx.queryParamAsClass("startLat", Double.class).get();
@@ -60,21 +190,363 @@ public class MapServer {
                 double goalLat = ctx.queryParamAsClass("goalLat", Double.class).get();
                 Point start = factory.pointLatLon(startLat, startLon);
                 Point goal = factory.pointLatLon(goalLat, goalLon);
-                route = map.shortestPath(start, goal);
+                SearchBudget budget = SearchBudget.unlimited()
+                        .withTimeout(ROUTE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                // Routing is CPU-bound, so it runs on the bounded pool rather than the request thread.
+                route = admission.submit(() -> map.shortestPath(start, goal, profile, budget).solution(),
+                        ROUTE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
             } catch (ValidationException e) {
-                route = List.of();
+                route = CompletableFuture.completedFuture(List.of());
             }
-            List<Point> locations = map.getLocations(term);
-            URL staticImageURL = url(center, zoom, width, height, route, locations);
-            ctx.result(new Base64InputStream(staticImageURL.openStream(), true));
+            List<Point> locations = term == null ? List.of()
+                    : map.getLocations(term, viewport(factory, center, zoom, width, height), MAX_PINS);
+            CompletableFuture<byte[]> image = route.thenApplyAsync(points -> {
+                try {
+                    return images.image(request(center, zoom, width, height, points, locations));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, io);
+            respond(ctx, image, ctx::result);
+        });
+        app.get("/route", route(map, admission, factory));
+        app.get("/matrix", matrix(map, admission, factory, ROUTE_TIMEOUT_MILLIS));
+        app.get("/isochrone/{lon},{lat}/{metres}", isochrone(map, admission, factory, ROUTE_TIMEOUT_MILLIS));
+        app.get("/metrics", ctx -> {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("graphVersion", map.version());
+            // Both are false while they are rebuilt after an access score update.
+            metrics.put("contractionHierarchy", map.hasHierarchy());
+            metrics.put("landmarks", map.hasLandmarks());
+            metrics.put("admission", admission.metrics());
+            metrics.put(routing.name(), routing.metrics());
+            metrics.put(io.name(), io.metrics());
+            WeightedLRUCache.Stats routeCache = map.routeCacheStats();
+            metrics.put("routeCache", Map.of(
+                    "hits", routeCache.hits(),
+                    "misses", routeCache.misses(),
+                    "evictions", routeCache.evictions(),
+                    "size", routeCache.size()
+            ));
+            ctx.json(metrics);
         });
-        app.get("/search/{lon},{lat}/{term}", ctx -> {
+        String accessToken = System.getenv("ACCESS_UPDATE_TOKEN");
+        if (accessToken != null) {
+            byte[] expected = ("Bearer " + accessToken).getBytes(StandardCharsets.UTF_8);
+            app.post("/access", ctx -> {
+                String authorization = ctx.header(Header.AUTHORIZATION);
+                if (authorization == null
+                        || !MessageDigest.isEqual(expected, authorization.getBytes(StandardCharsets.UTF_8))) {
+                    throw new UnauthorizedResponse();
+                }
+                int edges;
+                try {
+                    edges = map.updateAccessScores(MapGraph.readAccessScores(ctx.bodyInputStream()));
+                } catch (NoSuchElementException | IllegalArgumentException e) {
+                    throw new BadRequestResponse("Expected a TSV of way ids and access scores in (0, 1]");
+                }
+                ctx.json(Map.of("edges", edges, "version", map.version()));
+            });
+        }
+        String accessDirectory = System.getenv("ACCESS_UPDATES_DIR");
+        if (accessDirectory != null) {
+            new AccessScoreWatcher(map, Path.of(accessDirectory));
+        }
+        app.get("/search/{lon},{lat}/{term}", search(map, factory));
+    }
+
+    /**
+     * Returns the handler for autocomplete requests, which streams the names matching the term closest to the given
+     * location as a JSON array, compressed with gzip if the client accepts it.
+     *
+     * @param map     the map graph to search.
+     * @param factory the factory for creating points.
+     * @return the handler for autocomplete requests.
+     */
+    static Handler search(MapGraph map, ShapeFactory factory) {
+        return ctx -> {
             double lon = ctx.pathParamAsClass("lon", Double.class).get();
             double lat = ctx.pathParamAsClass("lat", Double.class).get();
             Point center = factory.pointLatLon(lat, lon);
             String term = ctx.pathParam("term");
-            ctx.json(map.getLocationsByPrefix(term, center, MAX_MATCHES));
-        });
+            ctx.contentType(ContentType.APPLICATION_JSON).header(Header.VARY, Header.ACCEPT_ENCODING);
+            // Write to the servlet stream directly, since Javalin only compresses responses larger than these.
+            boolean gzip = acceptsGzip(ctx.header(Header.ACCEPT_ENCODING));
+            if (gzip) {
+                ctx.header(Header.CONTENT_ENCODING, "gzip");
+            }
+            OutputStream out = ctx.res().getOutputStream();
+            try (OutputStream body = gzip ? new GZIPOutputStream(out) : out) {
+                map.writeLocationsByPrefix(term, center, MAX_MATCHES, body);
+            }
+        };
+    }
+
+    /**
+     * Returns the handler for route requests, which responds with the encoded polyline and distance of the shortest
+     * path. Each route is tagged with its snapped endpoints, profile, and road network, so clients revalidating an
+     * unchanged route with If-None-Match get a 304 response without running the solver.
+     *
+     * @param map       the map graph to route on.
+     * @param admission the admission controller for route searches.
+     * @param factory   the factory for creating points.
+     * @return the handler for route requests.
+     */
+    static Handler route(MapGraph map, AdmissionController admission, ShapeFactory factory) {
+        return ctx -> {
+            Point start = factory.pointLatLon(ctx.queryParamAsClass("startLat", Double.class).get(),
+                    ctx.queryParamAsClass("startLon", Double.class).get());
+            Point goal = factory.pointLatLon(ctx.queryParamAsClass("goalLat", Double.class).get(),
+                    ctx.queryParamAsClass("goalLon", Double.class).get());
+            MapGraph.Route route = map.route(start, goal, profile(ctx.queryParam("profile")));
+            if (route == null) {
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("polyline", "");
+                body.put("distance", null);
+                ctx.json(body);
+                return;
+            }
+            // The search runs over the network the route was snapped on, so the tag describes its result.
+            String etag = etag(route);
+            if (matches(ctx.header(Header.IF_NONE_MATCH), etag)) {
+                ctx.status(HttpStatus.NOT_MODIFIED).header(Header.ETAG, etag).header(Header.CACHE_CONTROL, "no-cache");
+                return;
+            }
+            SearchBudget budget = SearchBudget.unlimited().withTimeout(ROUTE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            CompletableFuture<SearchResult<Point>> future = admission.submit(() -> map.shortestPath(route, budget),
+                    ROUTE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            respond(ctx, future, result -> {
+                if (result.status() == SearchResult.Status.ABORTED) {
+                    ctx.status(HttpStatus.SERVICE_UNAVAILABLE).header(Header.RETRY_AFTER, "1");
+                    return;
+                }
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("polyline", encode(result.solution()));
+                body.put("distance", result.status() == SearchResult.Status.FOUND
+                        ? result.distance() * DistanceUtils.DEG_TO_KM * 1000 : null);
+                ctx.header(Header.ETAG, etag).header(Header.CACHE_CONTROL, "no-cache").json(body);
+            });
+        };
+    }
+
+    /**
+     * Returns the handler for isochrone requests, which responds with the encoded ring around the area reachable within
+     * the requested distance in metres and the number of vertices settled to find it. Searches that exceed the given
+     * time get a 503 response rather than a ring around only part of the area.
+     *
+     * @param map       the map graph to search.
+     * @param admission the admission controller for isochrone searches.
+     * @param factory   the factory for creating points.
+     * @param timeout   the maximum time in milliseconds to wait for admission and then to search.
+     * @return the handler for isochrone requests.
+     */
+    static Handler isochrone(MapGraph map, AdmissionController admission, ShapeFactory factory, long timeout) {
+        return ctx -> {
+            double lon = ctx.pathParamAsClass("lon", Double.class).get();
+            double lat = ctx.pathParamAsClass("lat", Double.class).get();
+            double metres = ctx.pathParamAsClass("metres", Double.class)
+                    .check(m -> m >= 0 && m <= MAX_ISOCHRONE_METRES, "must be between 0 and " + MAX_ISOCHRONE_METRES)
+                    .get();
+            Point start = factory.pointLatLon(lat, lon);
+            double maxDistance = DistanceUtils.dist2Degrees(metres / 1000, DistanceUtils.EARTH_MEAN_RADIUS_KM);
+            SearchBudget budget = SearchBudget.unlimited().withTimeout(timeout, TimeUnit.MILLISECONDS);
+            CompletableFuture<MapGraph.Isochrone> future = admission.submit(
+                    () -> map.isochrone(start, maxDistance, budget), timeout, TimeUnit.MILLISECONDS);
+            respond(ctx, future, result -> {
+                if (result.isTruncated()) {
+                    ctx.status(HttpStatus.SERVICE_UNAVAILABLE).header(Header.RETRY_AFTER, "1");
+                    return;
+                }
+                ctx.json(Map.of("polyline", encode(result.ring()), "vertices", result.settled()));
+            });
+        };
+    }
+
+    /**
+     * Returns the handler for distance matrix requests, which responds with the distance in metres from each source to
+     * each target, or null for unreachable pairs. The matrix runs in one admission slot within the given time, and
+     * requests that exceed it get a 503 response.
+     *
+     * @param map       the map graph to route on.
+     * @param admission the admission controller for matrix searches.
+     * @param factory   the factory for creating points.
+     * @param timeout   the maximum time in milliseconds to wait for admission and then to search.
+     * @return the handler for distance matrix requests.
+     */
+    static Handler matrix(MapGraph map, AdmissionController admission, ShapeFactory factory, long timeout) {
+        return ctx -> {
+            List<Point> sources = points(factory, ctx.queryParam("sources"));
+            List<Point> targets = points(factory, ctx.queryParam("targets"));
+            if (sources.size() > MAX_MATRIX_POINTS || targets.size() > MAX_MATRIX_POINTS) {
+                throw new BadRequestResponse("At most " + MAX_MATRIX_POINTS + " sources and targets");
+            }
+            CompletableFuture<double[][]> matrix = admission.submit(() -> {
+                SearchBudget budget = SearchBudget.unlimited().withTimeout(timeout, TimeUnit.MILLISECONDS);
+                return map.distanceMatrix(sources, targets, budget);
+            }, timeout, TimeUnit.MILLISECONDS);
+            respond(ctx, matrix, distances -> {
+                if (distances == null) {
+                    ctx.status(HttpStatus.SERVICE_UNAVAILABLE).header(Header.RETRY_AFTER, "1");
+                    return;
+                }
+                List<List<Double>> metres = new ArrayList<>(distances.length);
+                for (double[] row : distances) {
+                    List<Double> converted = new ArrayList<>(row.length);
+                    for (double distance : row) {
+                        converted.add(Double.isInfinite(distance) ? null : distance * DistanceUtils.DEG_TO_KM * 1000);
+                    }
+                    metres.add(converted);
+                }
+                ctx.json(Map.of("distances", metres));
+            });
+        };
+    }
+
+    /**
+     * Completes the request asynchronously with the result of the given future. Requests shed by admission control get
+     * a 503 response, and any other failure is passed on to the exception handlers.
+     *
+     * @param ctx    the request context.
+     * @param future the future result of the request.
+     * @param result the function writing a successful result to the response.
+     * @param <T>    the type of the result.
+     */
+    private static <T> void respond(Context ctx, CompletableFuture<T> future, Consumer<T> result) {
+        ctx.future(() -> future.handle((value, error) -> {
+            if (error == null) {
+                result.accept(value);
+            } else if (isOverloaded(error)) {
+                ctx.status(HttpStatus.SERVICE_UNAVAILABLE).header(Header.RETRY_AFTER, "1");
+            } else {
+                throw new CompletionException(error);
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Returns the locations in the given list of semicolon-separated longitude,latitude pairs.
+     *
+     * @param factory the factory for creating points.
+     * @param pairs   the semicolon-separated pairs, or null for no locations.
+     * @return the locations in the given list.
+     * @throws BadRequestResponse if a pair cannot be parsed.
+     */
+    private static List<Point> points(ShapeFactory factory, String pairs) {
+        List<Point> result = new ArrayList<>();
+        if (pairs == null || pairs.isEmpty()) {
+            return result;
+        }
+        for (String pair : pairs.split(";")) {
+            String[] lonLat = pair.split(",");
+            try {
+                if (lonLat.length != 2) {
+                    throw new NumberFormatException();
+                }
+                result.add(factory.pointLatLon(Double.parseDouble(lonLat[1]), Double.parseDouble(lonLat[0])));
+            } catch (NumberFormatException e) {
+                throw new BadRequestResponse("Expected lon,lat but got " + pair);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the routing profile with the given case-insensitive name, such as {@code avoid_arterials}.
+     *
+     * @param name the name of the profile, or null for the default profile.
+     * @return the routing profile with the given name.
+     * @throws BadRequestResponse if there is no profile with the given name.
+     */
+    private static MapGraph.Profile profile(String name) {
+        if (name == null) {
+            return MapGraph.Profile.ACCESSIBLE;
+        }
+        try {
+            return MapGraph.Profile.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestResponse("Expected a profile in " + Arrays.toString(MapGraph.Profile.values())
+                    + " but got " + name);
+        }
+    }
+
+    /**
+     * Returns true if the given Accept-Encoding header allows a gzip response body.
+     *
+     * @param acceptEncoding the Accept-Encoding header, or null if there is none.
+     * @return true if the response body may be compressed with gzip.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].strip();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                for (int i = 1; i < parts.length; i += 1) {
+                    // A weight of zero means the coding is not acceptable.
+                    if (parts[i].strip().matches("q=0(\\.0{0,3})?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a strong entity tag for the given route. Its snapped endpoints, profile, and the version and checksum
+     * of the road network it was snapped on together determine the search result, and the checksum keeps tags from
+     * before a restart, when versions start over at 0, from matching routes over different weights.
+     *
+     * @param route the snapped route.
+     * @return a quoted entity tag for the route.
+     */
+    private static String etag(MapGraph.Route route) {
+        Point start = route.start();
+        Point goal = route.goal();
+        String key = start.getLat() + "," + start.getLon() + ";" + goal.getLat() + "," + goal.getLon() + ";"
+                + route.profile() + ";" + route.version() + ";" + Long.toHexString(route.fingerprint());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return '"' + HexFormat.of().formatHex(digest, 0, 16) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns true if the given If-None-Match header lists the given entity tag or matches any tag.
+     *
+     * @param ifNoneMatch the If-None-Match header, or null if there is none.
+     * @param etag        the quoted entity tag of the current representation.
+     * @return true if the client already has the current representation.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.strip();
+            // Weak comparison, as required for If-None-Match.
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the given failure means the request was shed by admission control.
+     *
+     * @param error the failure of an asynchronous request.
+     * @return true if the request was shed by admission control.
+     */
+    private static boolean isOverloaded(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof RejectedExecutionException || cause instanceof TimeoutException;
     }
 
     /**
@@ -91,22 +563,62 @@ public class MapServer {
     }
 
     /**
-     * Return the API URL for retrieving the map image.
+     * Returns the base URL of the static image service, which can be pointed at a local stub server with the
+     * {@code IMAGE_SERVICE_URL} environment variable.
+     *
+     * @return the base URL of the static image service.
+     */
+    private static String imageServiceUrl() {
+        String url = System.getenv("IMAGE_SERVICE_URL");
+        if (url != null) {
+            return url;
+        }
+        return IMAGE_SERVICE_URL;
+    }
+
+    /**
+     * Returns the area shown by a map image with the given center and size, which is requested at twice the pixel
+     * density and so covers half as many map pixels in each direction.
+     *
+     * @param factory the factory for creating shapes.
+     * @param center  the center of the map image.
+     * @param zoom    the zoom level of the map image.
+     * @param width   the width of the window.
+     * @param height  the height of the window.
+     * @return the area shown by the map image.
+     */
+    static Rectangle viewport(ShapeFactory factory, Point center, int zoom, int width, int height) {
+        // Web Mercator pixel coordinates at the given zoom level.
+        double size = WORLD_PIXELS * Math.pow(2, zoom);
+        double x = (center.getLon() + 180) / 360 * size;
+        double phi = Math.toRadians(center.getLat());
+        double y = (1 - Math.log(Math.tan(phi) + 1 / Math.cos(phi)) / Math.PI) / 2 * size;
+        double halfWidth = Math.ceil(width / 2.) / 2;
+        double halfHeight = Math.ceil(height / 2.) / 2;
+        double west = Math.max(-180, (x - halfWidth) / size * 360 - 180);
+        double east = Math.min(180, (x + halfWidth) / size * 360 - 180);
+        double north = Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * (y - halfHeight) / size))));
+        double south = Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * (y + halfHeight) / size))));
+        return factory.rect(west, east, south, north);
+    }
+
+    /**
+     * Return the static image API request for retrieving the map image, relative to the image service and without the
+     * access token.
      *
      * @param center    the center of the map image.
      * @param width     the width of the window.
      * @param height    the height of the window.
      * @param route     the list of route points (or null).
      * @param locations the list of locations (or null).
-     * @return the URL for retrieving the map image.
-     * @throws MalformedURLException if the URL is invalid.
+     * @return the request for retrieving the map image.
      */
-    private static URL url(Point center, int zoom, int width, int height, List<Point> route, List<Point> locations)
-            throws MalformedURLException {
+    private static String request(Point center, int zoom, int width, int height, List<Point> route,
+                                  List<Point> locations) {
         StringBuilder overlay = new StringBuilder();
         if (route != null && !route.isEmpty()) {
             overlay.append("path-4+6cb5e6-1(");
-            overlay.append(URLEncoder.encode(encode(route), StandardCharsets.UTF_8));
+            encode(simplify(route, center, zoom), overlay, true);
             overlay.append("),");
         }
         if (locations != null && !locations.isEmpty()) {
@@ -122,21 +634,47 @@ public class MapServer {
             // Replace the trailing comma with a forward slash
             overlay.setCharAt(overlay.length() - 1, '/');
         }
-        return new URL(String.format(
-                "https://api.mapbox.com/"
-                        // {username}/{style_id} and {overlay} (must include trailing slash)
-                        + "styles/v1/%s/%s/static/%s"
+        return String.format(
+                // {username}/{style_id} and {overlay} (must include trailing slash)
+                "styles/v1/%s/%s/static/%s"
                         // {lon},{lat},{zoom}/{width}x{height}{@2x}
                         + "%f,%f,%d/%dx%d%s"
-                        // Access token and optional parameters
-                        + "?access_token=%s&logo=false&attribution=false",
+                        // Optional parameters; the image source appends the access token
+                        + "?logo=false&attribution=false",
                 "mapbox",
                 "cj7t3i5yj0unt2rmt3y4b5e32",
                 overlay,
                 center.getLon(), center.getLat(), zoom,
-                (int) Math.ceil(width / 2.), (int) Math.ceil(height / 2.), "@2x",
-                System.getenv("TOKEN")
-        ));
+                (int) Math.ceil(width / 2.), (int) Math.ceil(height / 2.), "@2x"
+        );
+    }
+
+    /**
+     * Returns the route without the points that would be drawn less than {@link #SIMPLIFY_PIXELS} from the simplified
+     * route at the given zoom level. Long routes have far more points than a map image can show, so this bounds the
+     * length of the image request.
+     *
+     * @param route  the route to simplify.
+     * @param center the center of the map image.
+     * @param zoom   the zoom level of the map image.
+     * @return the simplified route.
+     */
+    private static List<Point> simplify(List<Point> route, Point center, int zoom) {
+        double[] lat = new double[route.size()];
+        double[] lon = new double[route.size()];
+        for (int i = 0; i < route.size(); i += 1) {
+            lat[i] = route.get(i).getLat();
+            lon[i] = route.get(i).getLon();
+        }
+        // Web Mercator is conformal, so a pixel spans the same distance in every direction at a given latitude.
+        double tolerance = SIMPLIFY_PIXELS * 360 * Math.cos(Math.toRadians(center.getLat()))
+                / (WORLD_PIXELS * Math.pow(2, zoom));
+        SimplifiedLine line = new SimplifiedLine(lat, lon, tolerance);
+        List<Point> result = new ArrayList<>(line.size());
+        for (int i = 0; i < line.size(); i += 1) {
+            result.add(route.get(line.index(i)));
+        }
+        return result;
     }
 
     /**
@@ -146,31 +684,56 @@ public class MapServer {
      * @return an encoded route string.
      * @see <a href="https://github.com/mapbox/mapbox-java">MapBox PolylineUtils</a>
      */
-    private static String encode(List<Point> route) {
-        StringBuilder result = new StringBuilder();
+    static String encode(List<Point> route) {
+        // Each coordinate takes at most 6 characters at 1e-5 degree precision.
+        StringBuilder result = new StringBuilder(route.size() * 12);
+        encode(route, result, false);
+        return result.toString();
+    }
+
+    /**
+     * Appends the encoded route to the given buffer, optionally percent-encoded like {@link URLEncoder} so that it can
+     * be written straight into a request URL without building intermediate strings.
+     *
+     * @param route  list of points representing the route to encode.
+     * @param out    the buffer to append to.
+     * @param escape whether to percent-encode the characters that are not allowed in a URL.
+     */
+    static void encode(List<Point> route, StringBuilder out, boolean escape) {
         long lastLat = 0;
         long lastLon = 0;
         for (Point point : route) {
             long lat = Math.round(point.getLat() * 1e5);
-            long diffLat = lat - lastLat;
-            diffLat = diffLat < 0 ? ~(diffLat << 1) : diffLat << 1;
-            while (diffLat >= 0x20) {
-                result.append(Character.toChars((int) ((0x20 | (diffLat & 0x1f)) + 63)));
-                diffLat >>= 5;
-            }
-            result.append(Character.toChars((int) (diffLat + 63)));
+            encode(lat - lastLat, out, escape);
             lastLat = lat;
 
             long lon = Math.round(point.getLon() * 1e5);
-            long diffLon = lon - lastLon;
-            diffLon = diffLon < 0 ? ~(diffLon << 1) : diffLon << 1;
-            while (diffLon >= 0x20) {
-                result.append(Character.toChars((int) ((0x20 | (diffLon & 0x1f)) + 63)));
-                diffLon >>= 5;
-            }
-            result.append(Character.toChars((int) (diffLon + 63)));
+            encode(lon - lastLon, out, escape);
             lastLon = lon;
         }
-        return result.toString();
+    }
+
+    /**
+     * Appends one encoded coordinate difference to the given buffer.
+     */
+    private static void encode(long diff, StringBuilder out, boolean escape) {
+        diff = diff < 0 ? ~(diff << 1) : diff << 1;
+        while (diff >= 0x20) {
+            append((char) ((0x20 | (diff & 0x1f)) + 63), out, escape);
+            diff >>= 5;
+        }
+        append((char) (diff + 63), out, escape);
+    }
+
+    /**
+     * Appends one character of an encoded route, which is always in the range {@code [63, 126]}. Of those characters,
+     * {@link URLEncoder} leaves only letters and the underscore unescaped.
+     */
+    private static void append(char c, StringBuilder out, boolean escape) {
+        if (!escape || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '_') {
+            out.append(c);
+        } else {
+            out.append('%').append(HEX[c >> 4]).append(HEX[c & 0xf]);
+        }
     }
 }
@@ -0,0 +1,297 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary snapshot of a finished {@link MapGraph} so that later starts can skip parsing the OSM file.
+ * Vertices are stored as parallel coordinate arrays and adjacency is stored in compressed-sparse-row order. The
+ * snapshot is written once after a full parse and memory-mapped on later starts.
+ *
+ * <p>Layout (big-endian): magic, version, source checksum, point count, vertex count, edge count, latitudes,
+ * longitudes, edge offsets, edge targets, single-precision edge weights, the ids of the OSM ways with edges, the
+ * highway type of each way, the index of the way of each edge, access scores, and finally place names with the
+ * indices of their points. Points {@code [0, vertexCount)} are routable vertices; any remaining points are named
+ * places that are not on the road network.
+ *
+ * @see MapGraph
+ */
+final class MapSnapshot {
+    /**
+     * Magic number identifying a snapshot file ("HMAP").
+     */
+    private static final int MAGIC = 0x484D4150;
+    /**
+     * Format version. Bump whenever the layout changes so stale snapshots are rebuilt.
+     */
+    private static final int VERSION = 4;
+
+    final long checksum;
+    final double[] lat;
+    final double[] lon;
+    final int vertexCount;
+    final int[] offsets;
+    final int[] targets;
+    final float[] weights;
+    final long[] ways;
+    final byte[] wayTypes;
+    final int[] edgeWays;
+    final Map<Long, Double> accessScores;
+    final Map<String, int[]> names;
+
+    /**
+     * Constructs a snapshot from the given graph data.
+     *
+     * @param checksum     the checksum of the source files this snapshot was built from.
+     * @param lat          the latitude of each point.
+     * @param lon          the longitude of each point.
+     * @param vertexCount  the number of points that are routable vertices.
+     * @param offsets      the index of the first outgoing edge of each vertex, plus a final sentinel.
+     * @param targets      the destination point of each edge.
+     * @param weights      the weight of each edge.
+     * @param ways         the ids of the OSM ways with edges in ascending order.
+     * @param wayTypes     the index in {@link MapLoader#HIGHWAY_TYPES} of the highway type of each way.
+     * @param edgeWays     the index in {@code ways} of the way of each edge.
+     * @param accessScores the access score for each OSM way.
+     * @param names        the indices of the points for each place name.
+     */
+    MapSnapshot(long checksum, double[] lat, double[] lon, int vertexCount, int[] offsets, int[] targets,
+                float[] weights, long[] ways, byte[] wayTypes, int[] edgeWays, Map<Long, Double> accessScores,
+                Map<String, int[]> names) {
+        this.checksum = checksum;
+        this.lat = lat;
+        this.lon = lon;
+        this.vertexCount = vertexCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.ways = ways;
+        this.wayTypes = wayTypes;
+        this.edgeWays = edgeWays;
+        this.accessScores = accessScores;
+        this.names = names;
+    }
+
+    /**
+     * Returns a checksum over the contents of all the given input streams. Each stream is closed after reading.
+     *
+     * @param inputs the source file streams.
+     * @return a checksum over the contents of all the given input streams.
+     * @throws IOException if a stream cannot be read.
+     */
+    static long checksum(InputStream... inputs) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        for (InputStream input : inputs) {
+            try (input) {
+                int n;
+                while ((n = input.read(buffer)) != -1) {
+                    crc.update(buffer, 0, n);
+                }
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the snapshot stored at the given path if it exists, has the current version, was built from source files
+     * with the given checksum, and is complete. Otherwise, returns null, including for truncated files and files whose
+     * lengths do not match their contents.
+     *
+     * @param path     the snapshot file path.
+     * @param checksum the checksum of the current source files.
+     * @return the matching snapshot, or null if there is no usable snapshot.
+     * @throws IOException if the snapshot exists but cannot be read.
+     */
+    static MapSnapshot read(Path path, long checksum) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != checksum) {
+                return null;
+            }
+            int pointCount = buffer.getInt();
+            int vertexCount = buffer.getInt();
+            int edgeCount = buffer.getInt();
+            if (vertexCount < 0 || vertexCount > pointCount) {
+                return null;
+            }
+            double[] lat = doubles(buffer, pointCount);
+            double[] lon = doubles(buffer, pointCount);
+            int[] offsets = ints(buffer, vertexCount + 1);
+            int[] targets = ints(buffer, edgeCount);
+            float[] weights = floats(buffer, edgeCount);
+            long[] ways = longs(buffer, buffer.getInt());
+            byte[] wayTypes = new byte[ways.length];
+            buffer.get(wayTypes);
+            int[] edgeWays = ints(buffer, edgeCount);
+
+            int accessCount = count(buffer, Long.BYTES + Double.BYTES);
+            Map<Long, Double> accessScores = new HashMap<>(accessCount * 2);
+            for (int i = 0; i < accessCount; i += 1) {
+                accessScores.put(buffer.getLong(), buffer.getDouble());
+            }
+
+            // Each name takes at least its two lengths.
+            int nameCount = count(buffer, 2 * Integer.BYTES);
+            Map<String, int[]> names = new LinkedHashMap<>(nameCount * 2);
+            for (int i = 0; i < nameCount; i += 1) {
+                byte[] bytes = new byte[count(buffer, 1)];
+                buffer.get(bytes);
+                names.put(new String(bytes, StandardCharsets.UTF_8), ints(buffer, buffer.getInt()));
+            }
+            if (buffer.hasRemaining()) {
+                return null;
+            }
+            return new MapSnapshot(checksum, lat, lon, vertexCount, offsets, targets, weights, ways, wayTypes,
+                    edgeWays, accessScores, names);
+        } catch (BufferUnderflowException e) {
+            // Truncated, or a length field is corrupt.
+            return null;
+        }
+    }
+
+    /**
+     * Writes this snapshot to the given path. The file is written to a temporary sibling first and then moved into
+     * place so that a partially-written snapshot is never read.
+     *
+     * @param path the snapshot file path.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp),
+                1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(checksum);
+            out.writeInt(lat.length);
+            out.writeInt(vertexCount);
+            out.writeInt(targets.length);
+            for (double value : lat) {
+                out.writeDouble(value);
+            }
+            for (double value : lon) {
+                out.writeDouble(value);
+            }
+            for (int value : offsets) {
+                out.writeInt(value);
+            }
+            for (int value : targets) {
+                out.writeInt(value);
+            }
+            for (float value : weights) {
+                out.writeFloat(value);
+            }
+            out.writeInt(ways.length);
+            for (long value : ways) {
+                out.writeLong(value);
+            }
+            out.write(wayTypes);
+            for (int value : edgeWays) {
+                out.writeInt(value);
+            }
+            out.writeInt(accessScores.size());
+            for (Map.Entry<Long, Double> entry : accessScores.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeDouble(entry.getValue());
+            }
+            out.writeInt(names.size());
+            for (Map.Entry<String, int[]> entry : names.entrySet()) {
+                byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                out.writeInt(entry.getValue().length);
+                for (int index : entry.getValue()) {
+                    out.writeInt(index);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a count of elements that each take at least the given number of bytes.
+     *
+     * @throws BufferUnderflowException if the count is negative or the rest of the buffer cannot hold that many.
+     */
+    private static int count(ByteBuffer buffer, int bytes) {
+        int n = buffer.getInt();
+        require(buffer, n, bytes);
+        return n;
+    }
+
+    /**
+     * Checks that the rest of the buffer holds the given number of elements of the given size.
+     *
+     * @throws BufferUnderflowException if the number is negative or the rest of the buffer cannot hold that many.
+     */
+    private static void require(ByteBuffer buffer, int n, int bytes) {
+        if (n < 0 || n > buffer.remaining() / bytes) {
+            throw new BufferUnderflowException();
+        }
+    }
+
+    /**
+     * Bulk-reads the given number of doubles from the buffer.
+     */
+    private static double[] doubles(ByteBuffer buffer, int n) {
+        require(buffer, n, Double.BYTES);
+        double[] result = new double[n];
+        buffer.asDoubleBuffer().get(result);
+        buffer.position(buffer.position() + n * Double.BYTES);
+        return result;
+    }
+
+    /**
+     * Bulk-reads the given number of longs from the buffer.
+     */
+    private static long[] longs(ByteBuffer buffer, int n) {
+        require(buffer, n, Long.BYTES);
+        long[] result = new long[n];
+        buffer.asLongBuffer().get(result);
+        buffer.position(buffer.position() + n * Long.BYTES);
+        return result;
+    }
+
+    /**
+     * Bulk-reads the given number of floats from the buffer.
+     */
+    private static float[] floats(ByteBuffer buffer, int n) {
+        require(buffer, n, Float.BYTES);
+        float[] result = new float[n];
+        buffer.asFloatBuffer().get(result);
+        buffer.position(buffer.position() + n * Float.BYTES);
+        return result;
+    }
+
+    /**
+     * Bulk-reads the given number of ints from the buffer.
+     */
+    private static int[] ints(ByteBuffer buffer, int n) {
+        require(buffer, n, Integer.BYTES);
+        int[] result = new int[n];
+        buffer.asIntBuffer().get(result);
+        buffer.position(buffer.position() + n * Integer.BYTES);
+        return result;
+    }
+}
@@ -0,0 +1,239 @@
+package cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Thread-safe least-recently-used cache bounded by the total weight of its values rather than their number. Each value
+ * is weighed once when it is added; once the total weight exceeds the maximum, least-recently-used entries are evicted
+ * until it fits again. Hits, misses, and evictions are counted for monitoring.
+ *
+ * @param <K> the type of keys.
+ * @param <V> the type of values.
+ */
+public class WeightedLRUCache<K, V> {
+    private final long maxWeight;
+    private final ToIntFunction<? super V> weigher;
+    /**
+     * Entries in access order, from least to most recently used.
+     */
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param maxWeight the maximum total weight of all values.
+     * @param weigher   the function returning the non-negative weight of a value.
+     * @throws IllegalArgumentException if the maximum weight is negative.
+     */
+    public WeightedLRUCache(long maxWeight, ToIntFunction<? super V> weigher) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight must be non-negative: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the value for the given key and marks it as most recently used, or returns null if it is not cached.
+     *
+     * @param key the key of interest.
+     * @return the value for the given key, or null if it is not cached.
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses += 1;
+            return null;
+        }
+        hits += 1;
+        return entry.value;
+    }
+
+    /**
+     * Adds or replaces the value for the given key, evicting least-recently-used entries if needed. Values heavier than
+     * the maximum weight are not cached.
+     *
+     * @param key   the key of interest.
+     * @param value the value to cache.
+     */
+    public synchronized void put(K key, V value) {
+        int valueWeight = weigher.applyAsInt(value);
+        Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        if (valueWeight > maxWeight) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, valueWeight));
+        weight += valueWeight;
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (weight > maxWeight) {
+            weight -= iterator.next().weight;
+            iterator.remove();
+            evictions += 1;
+        }
+    }
+
+    /**
+     * Returns the value for the given key, computing and caching it on a miss. The value is computed without holding
+     * the cache lock, so concurrent misses for the same key may each compute it. Null values are returned but not
+     * cached.
+     *
+     * @param key      the key of interest.
+     * @param function the function computing the value for a key.
+     * @return the value for the given key.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        V value = get(key);
+        if (value == null) {
+            value = function.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Removes every entry from this cache. Statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Returns the number of entries in this cache.
+     *
+     * @return the number of entries in this cache.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total weight of the values in this cache.
+     *
+     * @return the total weight of the values in this cache.
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this cache.
+     *
+     * @return a snapshot of the statistics of this cache.
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size(), weight);
+    }
+
+    /**
+     * Cached value and its weight.
+     */
+    private static class Entry<V> {
+        private final V value;
+        private final int weight;
+
+        Entry(V value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Point-in-time statistics of a {@link WeightedLRUCache}.
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+        private final long weight;
+
+        Stats(long hits, long misses, long evictions, int size, long weight) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+            this.weight = weight;
+        }
+
+        /**
+         * Returns the number of lookups that found a cached value.
+         *
+         * @return the number of lookups that found a cached value.
+         */
+        public long hits() {
+            return hits;
+        }
+
+        /**
+         * Returns the number of lookups that did not find a cached value.
+         *
+         * @return the number of lookups that did not find a cached value.
+         */
+        public long misses() {
+            return misses;
+        }
+
+        /**
+         * Returns the number of entries evicted to stay within the maximum weight.
+         *
+         * @return the number of entries evicted to stay within the maximum weight.
+         */
+        public long evictions() {
+            return evictions;
+        }
+
+        /**
+         * Returns the number of entries in the cache.
+         *
+         * @return the number of entries in the cache.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns the total weight of the values in the cache.
+         *
+         * @return the total weight of the values in the cache.
+         */
+        public long weight() {
+            return weight;
+        }
+
+        /**
+         * Returns the fraction of lookups that found a cached value, or 0 if there were no lookups.
+         *
+         * @return the fraction of lookups that found a cached value.
+         */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "hits=" + hits +
+                    ", misses=" + misses +
+                    ", evictions=" + evictions +
+                    ", size=" + size +
+                    ", weight=" + weight +
+                    '}';
+        }
+    }
+}
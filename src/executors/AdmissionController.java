@@ -0,0 +1,164 @@
+package executors;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for expensive tasks: at most a fixed number of tasks run at once, a bounded number wait in FIFO
+ * order, and everything else is shed immediately. Each waiting task has a deadline; if it is not admitted in time, it
+ * is removed from the queue and fails with a {@link TimeoutException}. Tasks shed because the queue is full fail with a
+ * {@link RejectedExecutionException}, so callers can answer quickly with an overload response instead of queueing
+ * without bound.
+ */
+public class AdmissionController {
+    private final Executor executor;
+    private final int maxRunning;
+    private final int maxQueued;
+    private final ArrayDeque<Pending<?>> queue;
+    private int running;
+    private long admitted;
+    private long queued;
+    private long rejected;
+    private long expired;
+
+    /**
+     * Constructs a new admission controller.
+     *
+     * @param executor   the executor that runs admitted tasks.
+     * @param maxRunning the maximum number of tasks running at once.
+     * @param maxQueued  the maximum number of tasks waiting for admission.
+     * @throws IllegalArgumentException if maxRunning is not positive or maxQueued is negative.
+     */
+    public AdmissionController(Executor executor, int maxRunning, int maxQueued) {
+        if (maxRunning <= 0 || maxQueued < 0) {
+            throw new IllegalArgumentException("Invalid limits: " + maxRunning + " running, " + maxQueued + " queued");
+        }
+        this.executor = executor;
+        this.maxRunning = maxRunning;
+        this.maxQueued = maxQueued;
+        queue = new ArrayDeque<>();
+    }
+
+    /**
+     * Runs the given task once it is admitted and returns a future completed with its result. The future fails with a
+     * {@link RejectedExecutionException} right away if the queue is full, or with a {@link TimeoutException} if the task
+     * is still waiting when the timeout elapses.
+     *
+     * @param task    the task to run.
+     * @param timeout the maximum time to wait for admission.
+     * @param unit    the unit of the timeout.
+     * @param <T>     the type of the result.
+     * @return a future completed with the result of the task.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task, long timeout, TimeUnit unit) {
+        Pending<T> pending = new Pending<>(task);
+        synchronized (this) {
+            if (running < maxRunning) {
+                running += 1;
+                admitted += 1;
+            } else if (queue.size() < maxQueued) {
+                queue.addLast(pending);
+                queued += 1;
+                CompletableFuture.delayedExecutor(timeout, unit).execute(() -> expire(pending));
+                return pending.future;
+            } else {
+                rejected += 1;
+                return CompletableFuture.failedFuture(new RejectedExecutionException("Admission queue is full"));
+            }
+        }
+        start(pending);
+        return pending.future;
+    }
+
+    /**
+     * Fails the given task if it is still waiting for admission.
+     */
+    private void expire(Pending<?> pending) {
+        synchronized (this) {
+            if (!queue.remove(pending)) {
+                return;
+            }
+            expired += 1;
+        }
+        pending.future.completeExceptionally(new TimeoutException("Not admitted before the deadline"));
+    }
+
+    /**
+     * Runs the given admitted task on the executor, admitting the next waiting task when it finishes.
+     */
+    private void start(Pending<?> pending) {
+        try {
+            executor.execute(() -> {
+                try {
+                    pending.run();
+                } finally {
+                    release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.future.completeExceptionally(e);
+            release();
+        }
+    }
+
+    /**
+     * Hands the slot of a finished task to the next waiting task, or frees it.
+     */
+    private void release() {
+        Pending<?> next;
+        synchronized (this) {
+            next = queue.pollFirst();
+            if (next == null) {
+                running -= 1;
+                return;
+            }
+            admitted += 1;
+        }
+        start(next);
+    }
+
+    /**
+     * Returns the current metrics of this controller: running and waiting tasks, and the numbers of tasks admitted,
+     * queued, rejected because the queue was full, and expired before admission.
+     *
+     * @return the current metrics of this controller by name.
+     */
+    public synchronized Map<String, Number> metrics() {
+        Map<String, Number> result = new LinkedHashMap<>();
+        result.put("running", running);
+        result.put("waiting", queue.size());
+        result.put("admitted", admitted);
+        result.put("queued", queued);
+        result.put("rejected", rejected);
+        result.put("expired", expired);
+        return result;
+    }
+
+    /**
+     * Task and the future for its result.
+     */
+    private static class Pending<T> {
+        private final Supplier<T> task;
+        private final CompletableFuture<T> future;
+
+        Pending(Supplier<T> task) {
+            this.task = task;
+            future = new CompletableFuture<>();
+        }
+
+        void run() {
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package executors;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * {@link Executor} decorator that measures how long tasks wait before they start. Tracks the number of tasks waiting
+ * and running, the number completed and rejected, and the total and maximum time tasks spent waiting, so that a
+ * saturated pool shows up as growing queue depth and wait time.
+ */
+public class MeteredExecutor implements Executor {
+    private final String name;
+    private final ExecutorService executor;
+    private final AtomicInteger queued;
+    private final AtomicInteger running;
+    private final LongAdder completed;
+    private final LongAdder rejected;
+    private final LongAdder totalWaitNanos;
+    private final AtomicLong maxWaitNanos;
+
+    /**
+     * Constructs a metered executor over the given executor service.
+     *
+     * @param name     the name of the pool, used in thread names and metrics.
+     * @param executor the executor service running the tasks.
+     */
+    public MeteredExecutor(String name, ExecutorService executor) {
+        this.name = name;
+        this.executor = executor;
+        queued = new AtomicInteger();
+        running = new AtomicInteger();
+        completed = new LongAdder();
+        rejected = new LongAdder();
+        totalWaitNanos = new LongAdder();
+        maxWaitNanos = new AtomicLong();
+    }
+
+    /**
+     * Returns a metered executor with a fixed number of threads and a bounded queue, for CPU-bound work. Tasks
+     * submitted while the queue is full are rejected with a {@link RejectedExecutionException}.
+     *
+     * @param name          the name of the pool, used in thread names and metrics.
+     * @param threads       the number of threads.
+     * @param queueCapacity the maximum number of waiting tasks.
+     * @return a metered executor with a fixed number of threads.
+     */
+    public static MeteredExecutor bounded(String name, int threads, int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new MeteredExecutor(name, new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), factory));
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long submitted = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                long wait = System.nanoTime() - submitted;
+                queued.decrementAndGet();
+                running.incrementAndGet();
+                totalWaitNanos.add(wait);
+                maxWaitNanos.accumulateAndGet(wait, Math::max);
+                try {
+                    task.run();
+                } finally {
+                    running.decrementAndGet();
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a future completed with the result of running the given supplier on this executor. If the task is
+     * rejected, the future completes exceptionally with the {@link RejectedExecutionException}.
+     *
+     * @param supplier the task to run.
+     * @param <T>      the type of the result.
+     * @return a future completed with the result of the task.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, this);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Returns the name of this pool.
+     *
+     * @return the name of this pool.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the number of tasks waiting to start.
+     *
+     * @return the number of tasks waiting to start.
+     */
+    public int queued() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the current metrics of this pool: queued, running, completed, and rejected task counts, and the mean and
+     * maximum wait in milliseconds.
+     *
+     * @return the current metrics of this pool by name.
+     */
+    public Map<String, Number> metrics() {
+        long count = completed.sum() + running.get();
+        Map<String, Number> result = new LinkedHashMap<>();
+        result.put("queued", queued.get());
+        result.put("running", running.get());
+        result.put("completed", completed.sum());
+        result.put("rejected", rejected.sum());
+        result.put("meanWaitMillis", count == 0 ? 0.0 : totalWaitNanos.sum() / 1e6 / count);
+        result.put("maxWaitMillis", maxWaitNanos.get() / 1e6);
+        return result;
+    }
+
+    /**
+     * Stops accepting new tasks. Tasks already submitted still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
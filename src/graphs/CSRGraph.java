@@ -0,0 +1,239 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Compressed-sparse-row (CSR) implementation of the {@link IntGraph} interface. The outgoing edges of vertex
+ * {@code v} are stored at indices {@code offsets[v]} up to {@code offsets[v + 1]} of the parallel {@code targets}
+ * and {@code weights} arrays.
+ *
+ * @see IntGraph
+ */
+public class CSRGraph implements IntGraph {
+    /**
+     * Index of the first outgoing edge of each vertex, followed by a sentinel equal to the number of edges.
+     */
+    private final int[] offsets;
+    /**
+     * Destination vertex of each edge.
+     */
+    private final int[] targets;
+    /**
+     * Weight of each edge.
+     */
+    private final float[] weights;
+
+    /**
+     * Constructs a graph from the given CSR arrays. The arrays are not copied.
+     *
+     * @param offsets index of the first outgoing edge of each vertex, followed by the number of edges.
+     * @param targets destination vertex of each edge.
+     * @param weights weight of each edge.
+     * @throws IllegalArgumentException if the array lengths are inconsistent.
+     */
+    public CSRGraph(int[] offsets, int[] targets, float[] weights) {
+        if (offsets.length == 0 || offsets[offsets.length - 1] != targets.length
+                || targets.length != weights.length) {
+            throw new IllegalArgumentException("Inconsistent CSR arrays");
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    @Override
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    @Override
+    public int edgeStart(int vertex) {
+        return offsets[vertex];
+    }
+
+    @Override
+    public int edgeEnd(int vertex) {
+        return offsets[vertex + 1];
+    }
+
+    @Override
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    @Override
+    public double weight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     *
+     * @return the number of edges in this graph.
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Returns a copy of this graph with the given edges reweighed. The copy shares the offsets and targets of this
+     * graph but has its own weights, so searches still running over this graph are unaffected.
+     *
+     * @param edges   the edges to reweigh.
+     * @param weights the new weight of each of the given edges.
+     * @return a copy of this graph with the given edges reweighed.
+     */
+    public CSRGraph reweigh(int[] edges, double[] weights) {
+        float[] copy = Arrays.copyOf(this.weights, this.weights.length);
+        for (int i = 0; i < edges.length; i += 1) {
+            copy[edges[i]] = roundUp(weights[i]);
+        }
+        return withWeights(copy);
+    }
+
+    /**
+     * Returns the smallest float that is at least the given weight. Weights are narrowed this way so that an edge is
+     * never lighter than the distance it covers, which keeps distance estimates admissible A* heuristics.
+     *
+     * @param weight the weight to narrow.
+     * @return the smallest float that is at least the given weight.
+     */
+    public static float roundUp(double weight) {
+        float result = (float) weight;
+        return result < weight ? Math.nextUp(result) : result;
+    }
+
+    /**
+     * Returns a graph with the same vertices and edges as this graph but the given edge weights. The graphs share their
+     * offsets and targets, so each additional set of weights costs only the weights array.
+     *
+     * @param weights the weight of each edge, which is not copied.
+     * @return a graph with the same edges as this graph and the given weights.
+     * @throws IllegalArgumentException if there is not one weight per edge.
+     */
+    public CSRGraph withWeights(float[] weights) {
+        return new CSRGraph(offsets, targets, weights);
+    }
+
+    /**
+     * Returns the edge of this graph that each edge of {@link #reverse()} reverses, so that edge {@code e} of the
+     * reverse graph has the weight of edge {@code reverseEdges()[e]} of this graph.
+     *
+     * @return the edge of this graph for each edge of the reverse graph.
+     */
+    public int[] reverseEdges() {
+        // Same stable counting sort as the builder, keyed by target instead of source.
+        int[] next = new int[size() + 1];
+        for (int target : targets) {
+            next[target + 1] += 1;
+        }
+        for (int v = 0; v < size(); v += 1) {
+            next[v + 1] += next[v];
+        }
+        int[] result = new int[targets.length];
+        for (int e = 0; e < targets.length; e += 1) {
+            result[next[targets[e]]] = e;
+            next[targets[e]] += 1;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new graph with the direction of every edge reversed, so the outgoing edges of each vertex in the
+     * result are the incoming edges of that vertex in this graph.
+     *
+     * @return a new graph with the direction of every edge reversed.
+     */
+    public CSRGraph reverse() {
+        Builder builder = new Builder().ensureSize(size());
+        for (int v = 0; v < size(); v += 1) {
+            for (int e = offsets[v]; e < offsets[v + 1]; e += 1) {
+                builder.addEdge(targets[e], v, weights[e]);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Incrementally collects edges and then sorts them into a {@link CSRGraph}. Edges from the same vertex keep the
+     * order in which they were added.
+     */
+    public static class Builder {
+        private int size;
+        private int edgeCount;
+        private int[] sources;
+        private int[] targets;
+        private float[] weights;
+
+        /**
+         * Constructs an empty builder.
+         */
+        public Builder() {
+            size = 0;
+            edgeCount = 0;
+            sources = new int[16];
+            targets = new int[16];
+            weights = new float[16];
+        }
+
+        /**
+         * Adds an edge from and to the given vertices with the given weight. The graph grows to include both vertices.
+         *
+         * @param from   the originating vertex.
+         * @param to     the destination vertex.
+         * @param weight the weight of the edge.
+         * @return this builder.
+         */
+        public Builder addEdge(int from, int to, double weight) {
+            if (edgeCount == sources.length) {
+                int capacity = edgeCount * 2;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            sources[edgeCount] = from;
+            targets[edgeCount] = to;
+            weights[edgeCount] = roundUp(weight);
+            edgeCount += 1;
+            size = Math.max(size, Math.max(from, to) + 1);
+            return this;
+        }
+
+        /**
+         * Ensures the graph has at least the given number of vertices even if some of them have no edges.
+         *
+         * @param size the minimum number of vertices.
+         * @return this builder.
+         */
+        public Builder ensureSize(int size) {
+            this.size = Math.max(this.size, size);
+            return this;
+        }
+
+        /**
+         * Returns a new {@link CSRGraph} containing all the added edges.
+         *
+         * @return a new {@link CSRGraph} containing all the added edges.
+         */
+        public CSRGraph build() {
+            // Counting sort of the edges by source vertex.
+            int[] offsets = new int[size + 1];
+            for (int i = 0; i < edgeCount; i += 1) {
+                offsets[sources[i] + 1] += 1;
+            }
+            for (int v = 0; v < size; v += 1) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] next = Arrays.copyOf(offsets, size);
+            int[] sortedTargets = new int[edgeCount];
+            float[] sortedWeights = new float[edgeCount];
+            for (int i = 0; i < edgeCount; i += 1) {
+                int e = next[sources[i]];
+                next[sources[i]] += 1;
+                sortedTargets[e] = targets[i];
+                sortedWeights[e] = weights[i];
+            }
+            return new CSRGraph(offsets, sortedTargets, sortedWeights);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package graphs;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Directed, edge-weighted graph with primitive vertex and edge identifiers. Vertices are numbered {@code 0} through
+ * {@code size() - 1} and the outgoing edges of each vertex are numbered contiguously, so neighbors can be iterated
+ * without allocating {@link Edge} objects.
+ *
+ * <pre>{@code
+ * for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e += 1) {
+ *     int to = graph.target(e);
+ *     double weight = graph.weight(e);
+ * }
+ * }</pre>
+ *
+ * @see Graph
+ * @see CSRGraph
+ */
+public interface IntGraph {
+    /**
+     * Returns the number of vertices in this graph.
+     *
+     * @return the number of vertices in this graph.
+     */
+    int size();
+
+    /**
+     * Returns the identifier of the first outgoing edge from the given vertex.
+     *
+     * @param vertex the vertex of interest.
+     * @return the identifier of the first outgoing edge from the given vertex.
+     */
+    int edgeStart(int vertex);
+
+    /**
+     * Returns one past the identifier of the last outgoing edge from the given vertex.
+     *
+     * @param vertex the vertex of interest.
+     * @return one past the identifier of the last outgoing edge from the given vertex.
+     */
+    int edgeEnd(int vertex);
+
+    /**
+     * Returns the destination vertex of the given edge.
+     *
+     * @param edge the edge of interest.
+     * @return the destination vertex of the given edge.
+     */
+    int target(int edge);
+
+    /**
+     * Returns the weight of the given edge.
+     *
+     * @param edge the edge of interest.
+     * @return the weight of the given edge.
+     */
+    double weight(int edge);
+
+    /**
+     * Returns a checksum of the vertices, edges, and weights of this graph. Data precomputed from a graph, such as a
+     * contraction hierarchy or landmark distances, records the fingerprint so that it is not reused on another graph.
+     *
+     * @return a checksum of the topology and weights of this graph.
+     */
+    default long fingerprint() {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        for (int v = 0; v < size(); v += 1) {
+            for (int e = edgeStart(v); e < edgeEnd(v); e += 1) {
+                buffer.clear();
+                buffer.putInt(v).putInt(target(e)).putDouble(weight(e));
+                crc.update(buffer.array(), 0, 16);
+            }
+        }
+        return crc.getValue() ^ ((long) size() << 32);
+    }
+}
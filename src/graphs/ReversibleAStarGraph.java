@@ -0,0 +1,23 @@
+package graphs;
+
+import graphs.shortestpaths.BidirectionalAStarSolver;
+
+import java.util.List;
+
+/**
+ * {@link AStarGraph} that can also list the incoming edges of each vertex, as needed to search backwards from a goal.
+ *
+ * @param <V> the type of vertices.
+ * @see AStarGraph
+ * @see BidirectionalAStarSolver
+ */
+public interface ReversibleAStarGraph<V> extends AStarGraph<V> {
+    /**
+     * Returns a list of the incoming edges to the given vertex. Each edge keeps its original direction, so its
+     * {@code to} vertex is the given vertex.
+     *
+     * @param vertex the node of interest.
+     * @return a list of the incoming edges to the given vertex.
+     */
+    List<Edge<V>> reverseNeighbors(V vertex);
+}
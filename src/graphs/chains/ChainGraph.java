@@ -0,0 +1,428 @@
+package graphs.chains;
+
+import graphs.IntGraph;
+
+import java.util.Arrays;
+
+/**
+ * {@link IntGraph} that collapses every chain of two-way degree-2 vertices into a single edge. A vertex is interior to
+ * a chain if it has exactly two distinct neighbors and two-way edges to both of them, like the shape points along a
+ * single street; every other vertex is a core vertex. Each core vertex keeps its edges to other core vertices, and
+ * each walk along a chain becomes one edge whose weight is the sum of the chain's weights and whose interior vertices
+ * are stored in a packed geometry array so that paths can be {@linkplain #expand(int[]) expanded} again.
+ *
+ * <p>The graph keeps the vertex ids of the underlying graph, so coordinates, heuristics, and landmark distances
+ * indexed by vertex still apply. Searches only visit core vertices, except that each interior vertex has two exit
+ * edges to the ends of its chain so that it can start a search, and the {@linkplain #reverse() reversed graph} has
+ * the matching entry edges so that it can end one. {@link #entries(int)} and {@link #entryWeights(int)} describe the
+ * same entries for one-way searches, and {@link #direct(int, int)} covers paths that never leave a single chain.
+ *
+ * @see graphs.shortestpaths.IntAStarSolver
+ * @see graphs.shortestpaths.IntBidirectionalAStarSolver
+ */
+public class ChainGraph implements IntGraph {
+    /**
+     * Index of the first outgoing edge of each vertex.
+     */
+    private final int[] starts;
+    /**
+     * Index one past the last outgoing edge of each vertex.
+     */
+    private final int[] ends;
+    private final int[] sources;
+    private final int[] targets;
+    private final double[] weights;
+    /**
+     * Range of each edge's interior vertices in the geometry array, in path order.
+     */
+    private final int[] geometryStarts;
+    private final int[] geometryEnds;
+    private final int[] geometry;
+    /**
+     * Number of edges between core vertices. Exit edges of interior vertices follow them.
+     */
+    private final int coreEdgeCount;
+    /**
+     * For each interior vertex, the core edge of the chain through it in either direction, or -1 for core vertices.
+     */
+    private final int[] chain;
+    private final int[] chainReverse;
+    /**
+     * Index of each interior vertex in the geometry of the chains through it.
+     */
+    private final int[] position;
+    private final int[] positionReverse;
+    /**
+     * Weight of the path from the start of each chain to each interior vertex.
+     */
+    private final double[] offset;
+    private final double[] offsetReverse;
+    private final Reverse reverse;
+
+    /**
+     * Constructs the chain graph of the given graph.
+     *
+     * @param graph   the underlying graph.
+     * @param reverse the underlying graph with every edge reversed.
+     */
+    public ChainGraph(IntGraph graph, IntGraph reverse) {
+        int n = graph.size();
+        boolean[] core = new boolean[n];
+        for (int v = 0; v < n; v += 1) {
+            core[v] = !isInterior(graph, reverse, v);
+        }
+        // A ring of interior vertices with no core vertex needs one to anchor its chain.
+        boolean[] seen = new boolean[n];
+        for (int v = 0; v < n; v += 1) {
+            if (!core[v] && !seen[v]) {
+                int previous = v;
+                int current = graph.target(graph.edgeStart(v));
+                while (!core[current] && current != v) {
+                    seen[current] = true;
+                    int next = next(graph, current, previous);
+                    previous = current;
+                    current = next;
+                }
+                if (current == v) {
+                    core[v] = true;
+                }
+            }
+        }
+
+        int interiorCount = 0;
+        int edgeCapacity = 0;
+        for (int v = 0; v < n; v += 1) {
+            if (core[v]) {
+                edgeCapacity += graph.edgeEnd(v) - graph.edgeStart(v);
+            } else {
+                interiorCount += 1;
+            }
+        }
+        int edgeCount = edgeCapacity + 2 * interiorCount;
+        starts = new int[n];
+        ends = new int[n];
+        sources = new int[edgeCount];
+        targets = new int[edgeCount];
+        weights = new double[edgeCount];
+        geometryStarts = new int[edgeCount];
+        geometryEnds = new int[edgeCount];
+        geometry = new int[2 * interiorCount];
+        chain = new int[n];
+        chainReverse = new int[n];
+        position = new int[n];
+        positionReverse = new int[n];
+        offset = new double[n];
+        offsetReverse = new double[n];
+        Arrays.fill(chain, -1);
+        Arrays.fill(chainReverse, -1);
+
+        // Walk each outgoing edge of each core vertex to the next core vertex.
+        int edges = 0;
+        int length = 0;
+        for (int a = 0; a < n; a += 1) {
+            starts[a] = edges;
+            if (core[a]) {
+                for (int e = graph.edgeStart(a); e < graph.edgeEnd(a); e += 1) {
+                    int previous = a;
+                    int current = graph.target(e);
+                    double weight = graph.weight(e);
+                    geometryStarts[edges] = length;
+                    while (!core[current]) {
+                        geometry[length] = current;
+                        if (chain[current] == -1) {
+                            chain[current] = edges;
+                            position[current] = length;
+                            offset[current] = weight;
+                        } else {
+                            chainReverse[current] = edges;
+                            positionReverse[current] = length;
+                            offsetReverse[current] = weight;
+                        }
+                        length += 1;
+                        int next = next(graph, current, previous);
+                        weight += weightTo(graph, current, next);
+                        previous = current;
+                        current = next;
+                    }
+                    geometryEnds[edges] = length;
+                    sources[edges] = a;
+                    targets[edges] = current;
+                    weights[edges] = weight;
+                    edges += 1;
+                }
+            }
+            ends[a] = edges;
+        }
+        coreEdgeCount = edges;
+
+        // Each interior vertex exits to the far end of both chains through it.
+        for (int v = 0; v < n; v += 1) {
+            if (!core[v]) {
+                starts[v] = edges;
+                for (int k = 0; k < 2; k += 1) {
+                    int c = k == 0 ? chain[v] : chainReverse[v];
+                    int p = k == 0 ? position[v] : positionReverse[v];
+                    double o = k == 0 ? offset[v] : offsetReverse[v];
+                    sources[edges] = v;
+                    targets[edges] = targets[c];
+                    weights[edges] = weights[c] - o;
+                    geometryStarts[edges] = p + 1;
+                    geometryEnds[edges] = geometryEnds[c];
+                    edges += 1;
+                }
+                ends[v] = edges;
+            }
+        }
+        this.reverse = new Reverse();
+    }
+
+    /**
+     * Returns whether the vertex has exactly two distinct neighbors other than itself with two-way edges to both.
+     */
+    private static boolean isInterior(IntGraph graph, IntGraph reverse, int v) {
+        if (graph.edgeEnd(v) - graph.edgeStart(v) != 2 || reverse.edgeEnd(v) - reverse.edgeStart(v) != 2) {
+            return false;
+        }
+        int x = graph.target(graph.edgeStart(v));
+        int y = graph.target(graph.edgeStart(v) + 1);
+        int p = reverse.target(reverse.edgeStart(v));
+        int q = reverse.target(reverse.edgeStart(v) + 1);
+        return x != y && x != v && y != v && ((x == p && y == q) || (x == q && y == p));
+    }
+
+    /**
+     * Returns the neighbor of the interior vertex that is not the previous vertex.
+     */
+    private static int next(IntGraph graph, int v, int previous) {
+        int x = graph.target(graph.edgeStart(v));
+        return x != previous ? x : graph.target(graph.edgeStart(v) + 1);
+    }
+
+    /**
+     * Returns the weight of the edge from the interior vertex to its given neighbor.
+     */
+    private static double weightTo(IntGraph graph, int v, int to) {
+        int e = graph.edgeStart(v);
+        return graph.target(e) == to ? graph.weight(e) : graph.weight(e + 1);
+    }
+
+    @Override
+    public int size() {
+        return starts.length;
+    }
+
+    @Override
+    public int edgeStart(int vertex) {
+        return starts[vertex];
+    }
+
+    @Override
+    public int edgeEnd(int vertex) {
+        return ends[vertex];
+    }
+
+    @Override
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    @Override
+    public double weight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * Returns this graph with every edge reversed. Interior vertices have entry edges from the start of both chains
+     * through them instead of exit edges.
+     *
+     * @return this graph with every edge reversed.
+     */
+    public IntGraph reverse() {
+        return reverse;
+    }
+
+    /**
+     * Returns whether the given vertex is a core vertex rather than interior to a chain.
+     *
+     * @param vertex the vertex of interest.
+     * @return whether the given vertex is a core vertex.
+     */
+    public boolean isCore(int vertex) {
+        return chain[vertex] == -1;
+    }
+
+    /**
+     * Returns the number of core vertices.
+     *
+     * @return the number of core vertices.
+     */
+    public int coreSize() {
+        return size() - (sources.length - coreEdgeCount) / 2;
+    }
+
+    /**
+     * Returns the core vertices with an entry edge to the given vertex, which must be added to one-way searches that
+     * end at an interior vertex. Core vertices have no entries.
+     *
+     * @param vertex the vertex of interest.
+     * @return the core vertices with an entry edge to the given vertex.
+     */
+    public int[] entries(int vertex) {
+        return isCore(vertex) ? new int[0] : new int[]{sources[chain[vertex]], sources[chainReverse[vertex]]};
+    }
+
+    /**
+     * Returns the weights of the entry edges to the given vertex, in the same order as {@link #entries(int)}.
+     *
+     * @param vertex the vertex of interest.
+     * @return the weights of the entry edges to the given vertex.
+     */
+    public double[] entryWeights(int vertex) {
+        return isCore(vertex) ? new double[0] : new double[]{offset[vertex], offsetReverse[vertex]};
+    }
+
+    /**
+     * Returns the weight of the path between two interior vertices that stays within the chain through both of them,
+     * or infinity if they are not on the same chain. Searches only find paths through core vertices, so the shorter of
+     * the two is the shortest path.
+     *
+     * @param from the start vertex.
+     * @param to   the goal vertex.
+     * @return the weight of the path within a single chain, or infinity if there is none.
+     */
+    public double direct(int from, int to) {
+        if (isCore(from) || isCore(to)) {
+            return Double.POSITIVE_INFINITY;
+        } else if (chain[from] == chain[to] && position[from] <= position[to]) {
+            return offset[to] - offset[from];
+        } else if (chainReverse[from] == chainReverse[to] && positionReverse[from] <= positionReverse[to]) {
+            return offsetReverse[to] - offsetReverse[from];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the path through the underlying graph that the given path through this graph stands for, with the
+     * interior vertices of each chain restored. Consecutive vertices may be joined by an edge, an entry edge, or a
+     * {@linkplain #direct(int, int) direct} path within a chain, and the lightest such connection is expanded.
+     *
+     * @param path the vertices on a path through this graph.
+     * @return the vertices on the same path through the underlying graph.
+     * @throws IllegalArgumentException if two consecutive vertices are not connected.
+     */
+    public int[] expand(int[] path) {
+        if (path.length == 0) {
+            return path;
+        }
+        int[] result = new int[path.length];
+        int size = 0;
+        result[size] = path[0];
+        size += 1;
+        for (int i = 1; i < path.length; i += 1) {
+            int from = path[i - 1];
+            int to = path[i];
+            int start = 0;
+            int end = 0;
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = starts[from]; e < ends[from]; e += 1) {
+                if (targets[e] == to && weights[e] < best) {
+                    best = weights[e];
+                    start = geometryStarts[e];
+                    end = geometryEnds[e];
+                }
+            }
+            if (!isCore(to)) {
+                if (sources[chain[to]] == from && offset[to] < best) {
+                    best = offset[to];
+                    start = geometryStarts[chain[to]];
+                    end = position[to];
+                }
+                if (sources[chainReverse[to]] == from && offsetReverse[to] < best) {
+                    best = offsetReverse[to];
+                    start = geometryStarts[chainReverse[to]];
+                    end = positionReverse[to];
+                }
+                if (direct(from, to) < best) {
+                    best = direct(from, to);
+                    boolean forward = chain[from] == chain[to] && position[from] <= position[to];
+                    start = (forward ? position[from] : positionReverse[from]) + 1;
+                    end = forward ? position[to] : positionReverse[to];
+                }
+            }
+            if (best == Double.POSITIVE_INFINITY) {
+                throw new IllegalArgumentException("No edge from " + from + " to " + to);
+            }
+            if (size + end - start + 1 > result.length) {
+                result = Arrays.copyOf(result, Math.max(result.length * 2, size + end - start + 1));
+            }
+            System.arraycopy(geometry, start, result, size, end - start);
+            size += end - start;
+            result[size] = to;
+            size += 1;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Reversed view of the chain graph. Core vertices have the reversed core edges, and interior vertices have entry
+     * edges in place of exit edges.
+     */
+    private class Reverse implements IntGraph {
+        private final int[] offsets;
+        private final int[] reverseTargets;
+        private final double[] reverseWeights;
+
+        Reverse() {
+            int n = starts.length;
+            offsets = new int[n + 1];
+            for (int e = 0; e < coreEdgeCount; e += 1) {
+                offsets[targets[e] + 1] += 1;
+            }
+            for (int v = 0; v < n; v += 1) {
+                offsets[v + 1] += offsets[v] + (isCore(v) ? 0 : 2);
+            }
+            reverseTargets = new int[offsets[n]];
+            reverseWeights = new double[offsets[n]];
+            int[] next = Arrays.copyOf(offsets, n);
+            for (int v = 0; v < n; v += 1) {
+                if (!isCore(v)) {
+                    reverseTargets[next[v]] = sources[chain[v]];
+                    reverseWeights[next[v]] = offset[v];
+                    reverseTargets[next[v] + 1] = sources[chainReverse[v]];
+                    reverseWeights[next[v] + 1] = offsetReverse[v];
+                    next[v] += 2;
+                }
+            }
+            for (int e = 0; e < coreEdgeCount; e += 1) {
+                reverseTargets[next[targets[e]]] = sources[e];
+                reverseWeights[next[targets[e]]] = weights[e];
+                next[targets[e]] += 1;
+            }
+        }
+
+        @Override
+        public int size() {
+            return offsets.length - 1;
+        }
+
+        @Override
+        public int edgeStart(int vertex) {
+            return offsets[vertex];
+        }
+
+        @Override
+        public int edgeEnd(int vertex) {
+            return offsets[vertex + 1];
+        }
+
+        @Override
+        public int target(int edge) {
+            return reverseTargets[edge];
+        }
+
+        @Override
+        public double weight(int edge) {
+            return reverseWeights[edge];
+        }
+    }
+}
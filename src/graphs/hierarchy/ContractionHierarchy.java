@@ -0,0 +1,319 @@
+package graphs.hierarchy;
+
+import graphs.IntGraph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Contraction hierarchy over an {@link IntGraph}: a total order (rank) of the vertices plus the original edges and
+ * shortcut edges added while contracting vertices in that order. Every edge is stored once, at its lower-ranked
+ * endpoint: upward edges {@code v -> w} with {@code rank[w] > rank[v]} are stored at {@code v}, and downward edges
+ * {@code u -> v} with {@code rank[u] > rank[v]} are stored at {@code v} so that the backward search can climb them.
+ * Each shortcut remembers the contracted middle vertex it bypasses so that paths can be unpacked.
+ *
+ * @see ContractionHierarchyBuilder
+ * @see ContractionHierarchySolver
+ */
+public class ContractionHierarchy {
+    /**
+     * Magic number identifying a hierarchy file ("HCH1").
+     */
+    private static final int MAGIC = 0x48434831;
+    /**
+     * Format version. Bump whenever the layout changes so stale hierarchies are rebuilt.
+     */
+    private static final int VERSION = 1;
+
+    private final long fingerprint;
+    private final int[] rank;
+    private final Edges up;
+    private final Edges down;
+
+    /**
+     * Constructs a hierarchy from its vertex order and edge arrays. The arrays are not copied.
+     *
+     * @param fingerprint the {@link IntGraph#fingerprint()} of the graph the hierarchy was built from.
+     * @param rank        the contraction order of each vertex.
+     * @param up          the upward edges stored at their lower-ranked source.
+     * @param down        the downward edges stored at their lower-ranked target.
+     */
+    ContractionHierarchy(long fingerprint, int[] rank, Edges up, Edges down) {
+        this.fingerprint = fingerprint;
+        this.rank = rank;
+        this.up = up;
+        this.down = down;
+    }
+
+    /**
+     * Returns the number of vertices in this hierarchy.
+     *
+     * @return the number of vertices in this hierarchy.
+     */
+    public int size() {
+        return rank.length;
+    }
+
+    /**
+     * Returns the fingerprint of the graph this hierarchy was built from.
+     *
+     * @return the fingerprint of the graph this hierarchy was built from.
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the contraction order of the given vertex: vertices contracted later have higher ranks.
+     *
+     * @param vertex the vertex of interest.
+     * @return the contraction order of the given vertex.
+     */
+    public int rank(int vertex) {
+        return rank[vertex];
+    }
+
+    /**
+     * Returns the upward graph: the outgoing edges of each vertex that lead to higher-ranked vertices.
+     *
+     * @return the upward graph.
+     */
+    public Edges upward() {
+        return up;
+    }
+
+    /**
+     * Returns the downward graph, reversed: for each vertex, the higher-ranked vertices with an edge into it.
+     *
+     * @return the reversed downward graph.
+     */
+    public Edges downward() {
+        return down;
+    }
+
+    /**
+     * Returns the number of edges, including shortcuts, in this hierarchy.
+     *
+     * @return the number of edges in this hierarchy.
+     */
+    public int edgeCount() {
+        return up.targets.length + down.targets.length;
+    }
+
+    /**
+     * Appends the original vertices on the edge from the given vertex to the given vertex, excluding {@code from}, to
+     * the output array, recursively unpacking shortcuts.
+     *
+     * @param from   the source of the edge.
+     * @param to     the target of the edge.
+     * @param middle the middle vertex of the edge, or -1 if it is an original edge.
+     * @param output the output array.
+     * @param size   the number of vertices already in the output array.
+     * @return the number of vertices in the output array after unpacking.
+     */
+    int unpack(int from, int to, int middle, int[] output, int size) {
+        if (middle == -1) {
+            output[size] = to;
+            return size + 1;
+        }
+        // Shortcut from -> to bypasses middle: from -> middle is downward and middle -> to is upward.
+        int first = down.find(middle, from);
+        size = unpack(from, middle, down.middles[first], output, size);
+        int second = up.find(middle, to);
+        return unpack(middle, to, up.middles[second], output, size);
+    }
+
+    /**
+     * Returns the number of original edges represented by the given edge, recursively counting shortcuts.
+     */
+    int unpackedLength(int from, int to, int middle) {
+        if (middle == -1) {
+            return 1;
+        }
+        return unpackedLength(from, middle, down.middles[down.find(middle, from)])
+                + unpackedLength(middle, to, up.middles[up.find(middle, to)]);
+    }
+
+    /**
+     * Returns the hierarchy stored at the given path if it exists, has the current version, was built from a graph
+     * with the given fingerprint, and is complete. Otherwise, returns null, including for truncated files and files
+     * whose lengths do not match their contents.
+     *
+     * @param path        the hierarchy file path.
+     * @param fingerprint the fingerprint of the current graph.
+     * @return the matching hierarchy, or null if there is no usable hierarchy.
+     * @throws IOException if the hierarchy exists but cannot be read.
+     */
+    public static ContractionHierarchy read(Path path, long fingerprint) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != fingerprint) {
+                return null;
+            }
+            int n = buffer.getInt();
+            int[] rank = ints(buffer, n);
+            Edges up = Edges.read(buffer, n);
+            Edges down = Edges.read(buffer, n);
+            if (buffer.hasRemaining()) {
+                return null;
+            }
+            return new ContractionHierarchy(fingerprint, rank, up, down);
+        } catch (BufferUnderflowException e) {
+            // Truncated, or a length field is corrupt.
+            return null;
+        }
+    }
+
+    /**
+     * Writes this hierarchy to the given path via a temporary sibling file.
+     *
+     * @param path the hierarchy file path.
+     * @throws IOException if the hierarchy cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp),
+                1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(rank.length);
+            for (int value : rank) {
+                out.writeInt(value);
+            }
+            up.write(out);
+            down.write(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Checks that the rest of the buffer holds the given number of elements of the given size.
+     *
+     * @throws BufferUnderflowException if the number is negative or the rest of the buffer cannot hold that many.
+     */
+    private static void require(ByteBuffer buffer, int n, int bytes) {
+        if (n < 0 || n > buffer.remaining() / bytes) {
+            throw new BufferUnderflowException();
+        }
+    }
+
+    /**
+     * Bulk-reads the given number of ints from the buffer.
+     */
+    private static int[] ints(ByteBuffer buffer, int n) {
+        require(buffer, n, Integer.BYTES);
+        int[] result = new int[n];
+        buffer.asIntBuffer().get(result);
+        buffer.position(buffer.position() + n * Integer.BYTES);
+        return result;
+    }
+
+    /**
+     * Edges of one direction of the hierarchy in compressed-sparse-row order, with the middle vertex of each edge.
+     */
+    public static class Edges implements IntGraph {
+        private final int[] offsets;
+        private final int[] targets;
+        private final double[] weights;
+        private final int[] middles;
+
+        Edges(int[] offsets, int[] targets, double[] weights, int[] middles) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+            this.middles = middles;
+        }
+
+        @Override
+        public int size() {
+            return offsets.length - 1;
+        }
+
+        @Override
+        public int edgeStart(int vertex) {
+            return offsets[vertex];
+        }
+
+        @Override
+        public int edgeEnd(int vertex) {
+            return offsets[vertex + 1];
+        }
+
+        @Override
+        public int target(int edge) {
+            return targets[edge];
+        }
+
+        @Override
+        public double weight(int edge) {
+            return weights[edge];
+        }
+
+        /**
+         * Returns the contracted vertex bypassed by the given edge, or -1 if it is an original edge.
+         *
+         * @param edge the edge of interest.
+         * @return the middle vertex of the given edge, or -1 if it is an original edge.
+         */
+        public int middle(int edge) {
+            return middles[edge];
+        }
+
+        /**
+         * Returns the edge stored at the given vertex with the given target.
+         */
+        private int find(int vertex, int target) {
+            for (int e = offsets[vertex]; e < offsets[vertex + 1]; e += 1) {
+                if (targets[e] == target) {
+                    return e;
+                }
+            }
+            throw new IllegalStateException("Missing hierarchy edge " + vertex + " - " + target);
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeInt(targets.length);
+            for (int value : offsets) {
+                out.writeInt(value);
+            }
+            for (int value : targets) {
+                out.writeInt(value);
+            }
+            for (double value : weights) {
+                out.writeDouble(value);
+            }
+            for (int value : middles) {
+                out.writeInt(value);
+            }
+        }
+
+        private static Edges read(ByteBuffer buffer, int n) {
+            int m = buffer.getInt();
+            int[] offsets = ints(buffer, n + 1);
+            int[] targets = ints(buffer, m);
+            require(buffer, m, Double.BYTES);
+            double[] weights = new double[m];
+            buffer.asDoubleBuffer().get(weights);
+            buffer.position(buffer.position() + m * Double.BYTES);
+            int[] middles = ints(buffer, m);
+            return new Edges(offsets, targets, weights, middles);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package graphs.hierarchy;
+
+import graphs.shortestpaths.SearchBudget;
+import graphs.shortestpaths.SearchResult;
+import graphs.shortestpaths.SearchWorkspace;
+import minpq.IndexedIntMinPQ;
+
+import java.util.Arrays;
+
+/**
+ * Bucket-based many-to-many shortest path distances over a {@link ContractionHierarchy}. On construction, one backward
+ * upward search runs from each target and leaves an entry {@code (target, distance)} in the bucket of every vertex it
+ * settles. Each forward upward search from a source then scans the buckets of the vertices it settles: every shortest
+ * path meets at its highest-ranked vertex, which both searches settle, so the minimum over all bucket entries is the
+ * distance. A full distance table costs one small search per source and per target rather than one search per pair.
+ *
+ * <p>Buckets are read-only after construction, so {@link #distances(int, SearchWorkspace, SearchBudget, double[])} can
+ * run for different sources in parallel as long as each thread uses its own workspace. Both the construction and each
+ * forward search stop early once their {@link SearchBudget} is exceeded.
+ *
+ * @see ContractionHierarchy
+ */
+public class ContractionHierarchyBuckets {
+    private final ContractionHierarchy hierarchy;
+    private final int targetCount;
+    /**
+     * Index of the first bucket entry of each vertex, plus a final sentinel.
+     */
+    private final int[] offsets;
+    private final int[] entryTargets;
+    private final double[] entryDistances;
+    private final SearchResult.Status status;
+
+    /**
+     * Constructs buckets by running a backward upward search from each target until every search is done or the budget
+     * is exceeded. The budget counts the vertices settled across all targets.
+     *
+     * @param hierarchy the input hierarchy.
+     * @param targets   the target vertices; results are indexed by position in this array.
+     * @param workspace the workspace for the backward searches.
+     * @param budget    the limits on the backward searches.
+     */
+    public ContractionHierarchyBuckets(ContractionHierarchy hierarchy, int[] targets, SearchWorkspace workspace,
+                                       SearchBudget budget) {
+        this.hierarchy = hierarchy;
+        targetCount = targets.length;
+        ContractionHierarchy.Edges down = hierarchy.downward();
+        int[] vertices = new int[16];
+        int[] owners = new int[16];
+        double[] distances = new double[16];
+        int size = 0;
+        SearchResult.Status status = SearchResult.Status.FOUND;
+        for (int i = 0; i < targets.length && status == SearchResult.Status.FOUND; i += 1) {
+            workspace.reset();
+            IndexedIntMinPQ perimeter = workspace.perimeter();
+            workspace.reach(targets[i], 0.0, -1, -1);
+            perimeter.addOrChangePriority(targets[i], 0.0);
+            while (!perimeter.isEmpty()) {
+                if (budget.isExceeded(size + 1)) {
+                    status = SearchResult.Status.ABORTED;
+                    break;
+                }
+                int from = perimeter.removeMin();
+                double fromDist = workspace.distTo(from);
+                if (size == vertices.length) {
+                    vertices = Arrays.copyOf(vertices, size * 2);
+                    owners = Arrays.copyOf(owners, size * 2);
+                    distances = Arrays.copyOf(distances, size * 2);
+                }
+                vertices[size] = from;
+                owners[size] = i;
+                distances[size] = fromDist;
+                size += 1;
+                relax(down, from, fromDist, workspace);
+            }
+        }
+        this.status = status;
+
+        // Counting sort the entries by vertex.
+        int n = hierarchy.size();
+        offsets = new int[n + 1];
+        for (int j = 0; j < size; j += 1) {
+            offsets[vertices[j] + 1] += 1;
+        }
+        for (int v = 0; v < n; v += 1) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] next = Arrays.copyOf(offsets, n);
+        entryTargets = new int[size];
+        entryDistances = new double[size];
+        for (int j = 0; j < size; j += 1) {
+            int index = next[vertices[j]];
+            next[vertices[j]] += 1;
+            entryTargets[index] = owners[j];
+            entryDistances[index] = distances[j];
+        }
+    }
+
+    /**
+     * Returns how the construction ended: found if every backward search finished, or aborted if the budget was
+     * exceeded first, in which case the buckets are incomplete and no distances should be read from them.
+     *
+     * @return how the construction ended.
+     */
+    public SearchResult.Status status() {
+        return status;
+    }
+
+    /**
+     * Fills the given row with the distance from the source to each target, or infinity if it is unreachable. If the
+     * search is aborted, the row holds only upper bounds.
+     *
+     * @param source    the source vertex.
+     * @param workspace the workspace for the forward search.
+     * @param budget    the limits on the forward search.
+     * @param row       the output array, with one entry per target.
+     * @return found if the search finished, or aborted if the budget was exceeded first.
+     */
+    public SearchResult.Status distances(int source, SearchWorkspace workspace, SearchBudget budget, double[] row) {
+        Arrays.fill(row, 0, targetCount, Double.POSITIVE_INFINITY);
+        ContractionHierarchy.Edges up = hierarchy.upward();
+        workspace.reset();
+        IndexedIntMinPQ perimeter = workspace.perimeter();
+        workspace.reach(source, 0.0, -1, -1);
+        perimeter.addOrChangePriority(source, 0.0);
+        int settled = 0;
+        while (!perimeter.isEmpty()) {
+            settled += 1;
+            if (budget.isExceeded(settled)) {
+                return SearchResult.Status.ABORTED;
+            }
+            int from = perimeter.removeMin();
+            double fromDist = workspace.distTo(from);
+            for (int j = offsets[from]; j < offsets[from + 1]; j += 1) {
+                double length = fromDist + entryDistances[j];
+                if (length < row[entryTargets[j]]) {
+                    row[entryTargets[j]] = length;
+                }
+            }
+            relax(up, from, fromDist, workspace);
+        }
+        return SearchResult.Status.FOUND;
+    }
+
+    /**
+     * Relaxes the edges of the given settled vertex.
+     */
+    private static void relax(ContractionHierarchy.Edges edges, int from, double fromDist, SearchWorkspace workspace) {
+        for (int e = edges.edgeStart(from); e < edges.edgeEnd(from); e += 1) {
+            int to = edges.target(e);
+            double newDist = fromDist + edges.weight(e);
+            if (newDist < workspace.distTo(to)) {
+                workspace.reach(to, newDist, from, e);
+                workspace.perimeter().addOrChangePriority(to, newDist);
+            }
+        }
+    }
+}
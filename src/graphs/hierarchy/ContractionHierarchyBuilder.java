@@ -0,0 +1,295 @@
+package graphs.hierarchy;
+
+import graphs.IntGraph;
+import graphs.shortestpaths.SearchWorkspace;
+import minpq.IndexedIntMinPQ;
+
+import java.util.Arrays;
+
+/**
+ * Offline builder for a {@link ContractionHierarchy}. Vertices are contracted one at a time in order of increasing
+ * priority, where the priority is the edge difference (shortcuts added minus edges removed) plus the number of
+ * already-contracted neighbors to spread contraction evenly over the graph. Priorities are updated lazily: a vertex
+ * removed from the queue is re-evaluated and put back if it is no longer the minimum. A shortcut {@code u -> w} is
+ * added when contracting {@code v} only if a bounded witness search from {@code u} that avoids {@code v} finds no
+ * path to {@code w} at most as short as {@code u -> v -> w}. A truncated witness search only ever adds unneeded
+ * shortcuts, so the hierarchy stays exact.
+ *
+ * @see ContractionHierarchy
+ */
+public class ContractionHierarchyBuilder {
+    /**
+     * Default maximum number of vertices settled by each witness search.
+     */
+    public static final int DEFAULT_WITNESS_LIMIT = 500;
+
+    private final IntGraph graph;
+    private final int witnessLimit;
+    private final Adjacency out;
+    private final Adjacency in;
+    private final boolean[] contracted;
+    private final int[] contractedNeighbors;
+    private final SearchWorkspace workspace;
+
+    /**
+     * Constructs a builder for the given graph with the default witness search limit.
+     *
+     * @param graph the input graph.
+     */
+    public ContractionHierarchyBuilder(IntGraph graph) {
+        this(graph, DEFAULT_WITNESS_LIMIT);
+    }
+
+    /**
+     * Constructs a builder for the given graph.
+     *
+     * @param graph        the input graph.
+     * @param witnessLimit the maximum number of vertices settled by each witness search.
+     */
+    public ContractionHierarchyBuilder(IntGraph graph, int witnessLimit) {
+        this.graph = graph;
+        this.witnessLimit = witnessLimit;
+        int n = graph.size();
+        out = new Adjacency(n);
+        in = new Adjacency(n);
+        contracted = new boolean[n];
+        contractedNeighbors = new int[n];
+        workspace = new SearchWorkspace(n);
+    }
+
+    /**
+     * Contracts every vertex of the graph and returns the resulting hierarchy.
+     *
+     * @return the contraction hierarchy for the graph.
+     */
+    public ContractionHierarchy build() {
+        int n = graph.size();
+        for (int v = 0; v < n; v += 1) {
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e += 1) {
+                int w = graph.target(e);
+                if (w != v) {
+                    out.add(v, w, graph.weight(e), -1);
+                    in.add(w, v, graph.weight(e), -1);
+                }
+            }
+        }
+
+        IndexedIntMinPQ queue = new IndexedIntMinPQ(n);
+        for (int v = 0; v < n; v += 1) {
+            queue.addOrChangePriority(v, priority(v));
+        }
+
+        int[] rank = new int[n];
+        Adjacency up = new Adjacency(n);
+        Adjacency down = new Adjacency(n);
+        int order = 0;
+        while (!queue.isEmpty()) {
+            int v = queue.removeMin();
+            double priority = priority(v);
+            if (!queue.isEmpty() && priority > queue.peekMinPriority()) {
+                queue.addOrChangePriority(v, priority);
+                continue;
+            }
+            rank[v] = order;
+            order += 1;
+            // The remaining edges of v all lead to vertices that will be contracted later, so they point upward.
+            for (int i = 0; i < out.sizes[v]; i += 1) {
+                if (!contracted[out.vertices[v][i]]) {
+                    up.append(v, out.vertices[v][i], out.weights[v][i], out.middles[v][i]);
+                }
+            }
+            for (int i = 0; i < in.sizes[v]; i += 1) {
+                if (!contracted[in.vertices[v][i]]) {
+                    down.append(v, in.vertices[v][i], in.weights[v][i], in.middles[v][i]);
+                }
+            }
+            contract(v, true);
+            contracted[v] = true;
+            out.release(v);
+            in.release(v);
+            updateNeighbors(v, queue);
+        }
+        return new ContractionHierarchy(graph.fingerprint(), rank, up.compact(), down.compact());
+    }
+
+    /**
+     * Recomputes the priority of each uncontracted neighbor of the given vertex.
+     */
+    private void updateNeighbors(int v, IndexedIntMinPQ queue) {
+        for (Adjacency adjacency : new Adjacency[]{out, in}) {
+            for (int i = 0; i < adjacency.sizes[v]; i += 1) {
+                int w = adjacency.vertices[v][i];
+                if (!contracted[w]) {
+                    contractedNeighbors[w] += 1;
+                    queue.addOrChangePriority(w, priority(w));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the contraction priority of the given uncontracted vertex.
+     */
+    private double priority(int v) {
+        int removed = 0;
+        for (int i = 0; i < in.sizes[v]; i += 1) {
+            removed += contracted[in.vertices[v][i]] ? 0 : 1;
+        }
+        for (int i = 0; i < out.sizes[v]; i += 1) {
+            removed += contracted[out.vertices[v][i]] ? 0 : 1;
+        }
+        return contract(v, false) - removed + contractedNeighbors[v];
+    }
+
+    /**
+     * Returns the number of shortcuts needed to contract the given vertex, adding them if requested.
+     */
+    private int contract(int v, boolean add) {
+        int shortcuts = 0;
+        for (int i = 0; i < in.sizes[v]; i += 1) {
+            int u = in.vertices[v][i];
+            if (contracted[u]) {
+                continue;
+            }
+            double toV = in.weights[v][i];
+            double limit = 0.0;
+            for (int j = 0; j < out.sizes[v]; j += 1) {
+                int w = out.vertices[v][j];
+                if (w != u && !contracted[w]) {
+                    limit = Math.max(limit, toV + out.weights[v][j]);
+                }
+            }
+            if (limit == 0.0) {
+                continue;
+            }
+            witness(u, v, limit);
+            for (int j = 0; j < out.sizes[v]; j += 1) {
+                int w = out.vertices[v][j];
+                double length = toV + out.weights[v][j];
+                if (w == u || contracted[w] || workspace.distTo(w) <= length) {
+                    continue;
+                }
+                shortcuts += 1;
+                if (add) {
+                    out.add(u, w, length, v);
+                    in.add(w, u, length, v);
+                }
+            }
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Runs a bounded Dijkstra search from the source over uncontracted vertices other than the ignored vertex, leaving
+     * the distances in the workspace.
+     */
+    private void witness(int source, int ignored, double limit) {
+        workspace.reset();
+        IndexedIntMinPQ perimeter = workspace.perimeter();
+        workspace.reach(source, 0.0, -1, -1);
+        perimeter.addOrChangePriority(source, 0.0);
+        int settled = 0;
+        while (!perimeter.isEmpty() && settled < witnessLimit && perimeter.peekMinPriority() <= limit) {
+            int from = perimeter.removeMin();
+            settled += 1;
+            double fromDist = workspace.distTo(from);
+            for (int i = 0; i < out.sizes[from]; i += 1) {
+                int to = out.vertices[from][i];
+                if (to == ignored || contracted[to]) {
+                    continue;
+                }
+                double newDist = fromDist + out.weights[from][i];
+                if (newDist < workspace.distTo(to)) {
+                    workspace.reach(to, newDist, from, -1);
+                    perimeter.addOrChangePriority(to, newDist);
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable per-vertex edge lists with the middle vertex of each edge.
+     */
+    private static class Adjacency {
+        private static final int[] NO_VERTICES = new int[0];
+        private static final double[] NO_WEIGHTS = new double[0];
+
+        private final int[][] vertices;
+        private final double[][] weights;
+        private final int[][] middles;
+        private final int[] sizes;
+
+        Adjacency(int n) {
+            vertices = new int[n][];
+            weights = new double[n][];
+            middles = new int[n][];
+            sizes = new int[n];
+            Arrays.fill(vertices, NO_VERTICES);
+            Arrays.fill(weights, NO_WEIGHTS);
+            Arrays.fill(middles, NO_VERTICES);
+        }
+
+        /**
+         * Adds an edge from v to w, or lowers the weight of the existing edge from v to w.
+         */
+        void add(int v, int w, double weight, int middle) {
+            for (int i = 0; i < sizes[v]; i += 1) {
+                if (vertices[v][i] == w) {
+                    if (weight < weights[v][i]) {
+                        weights[v][i] = weight;
+                        middles[v][i] = middle;
+                    }
+                    return;
+                }
+            }
+            append(v, w, weight, middle);
+        }
+
+        /**
+         * Adds an edge from v to w without checking for an existing edge.
+         */
+        void append(int v, int w, double weight, int middle) {
+            int size = sizes[v];
+            if (size == vertices[v].length) {
+                int capacity = Math.max(4, size * 2);
+                vertices[v] = Arrays.copyOf(vertices[v], capacity);
+                weights[v] = Arrays.copyOf(weights[v], capacity);
+                middles[v] = Arrays.copyOf(middles[v], capacity);
+            }
+            vertices[v][size] = w;
+            weights[v][size] = weight;
+            middles[v][size] = middle;
+            sizes[v] = size + 1;
+        }
+
+        /**
+         * Trims the edge lists of a contracted vertex, which are only still read to update its neighbors.
+         */
+        void release(int v) {
+            vertices[v] = Arrays.copyOf(vertices[v], sizes[v]);
+            weights[v] = NO_WEIGHTS;
+            middles[v] = NO_VERTICES;
+        }
+
+        /**
+         * Returns these edge lists in compressed-sparse-row order.
+         */
+        ContractionHierarchy.Edges compact() {
+            int n = sizes.length;
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v < n; v += 1) {
+                offsets[v + 1] = offsets[v] + sizes[v];
+            }
+            int m = offsets[n];
+            int[] targets = new int[m];
+            double[] edgeWeights = new double[m];
+            int[] edgeMiddles = new int[m];
+            for (int v = 0; v < n; v += 1) {
+                System.arraycopy(vertices[v], 0, targets, offsets[v], sizes[v]);
+                System.arraycopy(weights[v], 0, edgeWeights, offsets[v], sizes[v]);
+                System.arraycopy(middles[v], 0, edgeMiddles, offsets[v], sizes[v]);
+            }
+            return new ContractionHierarchy.Edges(offsets, targets, edgeWeights, edgeMiddles);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package graphs.hierarchy;
+
+import graphs.shortestpaths.SearchBudget;
+import graphs.shortestpaths.SearchResult;
+import graphs.shortestpaths.SearchWorkspace;
+import minpq.IndexedIntMinPQ;
+
+/**
+ * Bidirectional upward Dijkstra search for single-pair shortest paths in a {@link ContractionHierarchy}. The forward
+ * search from the start only follows upward edges and the backward search from the goal only follows downward edges in
+ * reverse, so both searches climb the hierarchy and meet at the highest-ranked vertex on the shortest path. Each
+ * direction stops once its smallest key is at least the best path found so far. The resulting path is unpacked back
+ * into original vertices. Results are only valid until either workspace is used for another search.
+ *
+ * @see ContractionHierarchy
+ */
+public class ContractionHierarchySolver {
+    private final ContractionHierarchy hierarchy;
+    private final SearchWorkspace forward;
+    private final SearchWorkspace backward;
+    private final SearchResult.Status status;
+    private final int settled;
+    private int meeting;
+    private double best;
+
+    /**
+     * Constructs a new instance by searching the hierarchy from the start to the goal within the budget.
+     *
+     * @param hierarchy the input hierarchy.
+     * @param start     the start vertex.
+     * @param goal      the goal vertex.
+     * @param forward   the workspace for the forward search, reset before the search.
+     * @param backward  the workspace for the backward search, reset before the search.
+     * @param budget    the limits on the search.
+     */
+    public ContractionHierarchySolver(ContractionHierarchy hierarchy, int start, int goal,
+                                      SearchWorkspace forward, SearchWorkspace backward, SearchBudget budget) {
+        this(hierarchy, new int[]{start}, new double[]{0.0}, new int[]{goal}, new double[]{0.0}, forward, backward,
+                budget);
+    }
+
+    /**
+     * Constructs a new instance by searching the hierarchy from several starts to whichever of several goals is
+     * closest within the budget. Each start is reached at its start weight and each goal adds its goal weight to the
+     * paths that end there, so that the starts and goals can stand for the ends of an edge partway along which the
+     * route begins or ends. Starts and goals with infinite weights are ignored.
+     *
+     * @param hierarchy    the input hierarchy.
+     * @param starts       the start vertices.
+     * @param startWeights the weight of reaching each start vertex.
+     * @param goals        the goal vertices.
+     * @param goalWeights  the weight of ending the path at each goal vertex.
+     * @param forward      the workspace for the forward search, reset before the search.
+     * @param backward     the workspace for the backward search, reset before the search.
+     * @param budget       the limits on the search.
+     */
+    public ContractionHierarchySolver(ContractionHierarchy hierarchy, int[] starts, double[] startWeights, int[] goals,
+                                      double[] goalWeights, SearchWorkspace forward, SearchWorkspace backward,
+                                      SearchBudget budget) {
+        this.hierarchy = hierarchy;
+        this.forward = forward;
+        this.backward = backward;
+        forward.reset();
+        backward.reset();
+        meeting = -1;
+        best = Double.POSITIVE_INFINITY;
+
+        IndexedIntMinPQ forwardPerimeter = forward.perimeter();
+        IndexedIntMinPQ backwardPerimeter = backward.perimeter();
+        for (int i = 0; i < starts.length; i += 1) {
+            if (startWeights[i] < forward.distTo(starts[i])) {
+                forward.reach(starts[i], startWeights[i], -1, -1);
+                forwardPerimeter.addOrChangePriority(starts[i], startWeights[i]);
+            }
+        }
+        for (int i = 0; i < goals.length; i += 1) {
+            if (goalWeights[i] < backward.distTo(goals[i])) {
+                backward.reach(goals[i], goalWeights[i], -1, -1);
+                backwardPerimeter.addOrChangePriority(goals[i], goalWeights[i]);
+            }
+        }
+        for (int start : starts) {
+            if (forward.distTo(start) + backward.distTo(start) < best) {
+                best = forward.distTo(start) + backward.distTo(start);
+                meeting = start;
+            }
+        }
+
+        SearchResult.Status status = SearchResult.Status.NOT_FOUND;
+        int settled = 0;
+        boolean isForward = true;
+        while (true) {
+            boolean forwardDone = forwardPerimeter.isEmpty() || forwardPerimeter.peekMinPriority() >= best;
+            boolean backwardDone = backwardPerimeter.isEmpty() || backwardPerimeter.peekMinPriority() >= best;
+            if (forwardDone && backwardDone) {
+                break;
+            }
+            settled += 1;
+            if (budget.isExceeded(settled)) {
+                status = SearchResult.Status.ABORTED;
+                break;
+            }
+            // Alternate directions while both are active.
+            isForward = backwardDone || (!forwardDone && isForward);
+            ContractionHierarchy.Edges edges = isForward ? hierarchy.upward() : hierarchy.downward();
+            SearchWorkspace self = isForward ? forward : backward;
+            SearchWorkspace other = isForward ? backward : forward;
+            int from = self.perimeter().removeMin();
+            double fromDist = self.distTo(from);
+            for (int e = edges.edgeStart(from); e < edges.edgeEnd(from); e += 1) {
+                int to = edges.target(e);
+                double newDist = fromDist + edges.weight(e);
+                if (newDist < self.distTo(to)) {
+                    self.reach(to, newDist, from, e);
+                    self.perimeter().addOrChangePriority(to, newDist);
+                    double length = newDist + other.distTo(to);
+                    if (length < best) {
+                        best = length;
+                        meeting = to;
+                    }
+                }
+            }
+            isForward = !isForward;
+        }
+        if (status != SearchResult.Status.ABORTED && meeting != -1) {
+            status = SearchResult.Status.FOUND;
+        }
+        this.status = status;
+        this.settled = settled;
+    }
+
+    /**
+     * Returns how the search ended.
+     *
+     * @return how the search ended.
+     */
+    public SearchResult.Status status() {
+        return status;
+    }
+
+    /**
+     * Returns the number of vertices settled by both searches.
+     *
+     * @return the number of vertices settled by both searches.
+     */
+    public int settled() {
+        return settled;
+    }
+
+    /**
+     * Returns the total weight of the shortest path including the weights of its start and goal, or infinity if the
+     * goal was not found.
+     *
+     * @return the total weight of the shortest path.
+     */
+    public double distance() {
+        return status == SearchResult.Status.FOUND ? best : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the original vertices on the shortest path from the start to the goal with all shortcuts unpacked, or
+     * an empty array if the goal was not found. With several starts and goals, the path begins at one of the starts
+     * and ends at one of the goals.
+     *
+     * @return the vertices on the shortest path.
+     */
+    public int[] solution() {
+        if (status != SearchResult.Status.FOUND) {
+            return new int[0];
+        }
+        ContractionHierarchy.Edges up = hierarchy.upward();
+        ContractionHierarchy.Edges down = hierarchy.downward();
+        int length = 1;
+        for (int v = meeting; forward.parent(v) != -1; v = forward.parent(v)) {
+            length += hierarchy.unpackedLength(forward.parent(v), v, up.middle(forward.edgeTo(v)));
+        }
+        for (int v = meeting; backward.parent(v) != -1; v = backward.parent(v)) {
+            length += hierarchy.unpackedLength(v, backward.parent(v), down.middle(backward.edgeTo(v)));
+        }
+
+        // Collect the upward edges of the forward search from the start, then unpack them in order.
+        int[] hops = new int[length];
+        int count = 0;
+        for (int v = meeting; forward.parent(v) != -1; v = forward.parent(v)) {
+            hops[count] = v;
+            count += 1;
+        }
+        int[] path = new int[length];
+        int start = count == 0 ? meeting : forward.parent(hops[count - 1]);
+        path[0] = start;
+        int size = 1;
+        for (int i = count - 1; i >= 0; i -= 1) {
+            int v = hops[i];
+            size = hierarchy.unpack(forward.parent(v), v, up.middle(forward.edgeTo(v)), path, size);
+        }
+        for (int v = meeting; backward.parent(v) != -1; v = backward.parent(v)) {
+            size = hierarchy.unpack(v, backward.parent(v), down.middle(backward.edgeTo(v)), path, size);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,56 @@
+package graphs.landmarks;
+
+import graphs.IntAStarGraph;
+
+/**
+ * {@link IntAStarGraph} decorator whose heuristic is the larger of the underlying graph's heuristic and the landmark
+ * lower bound. Both are consistent, so their maximum is too, and A* search over this graph still finds shortest paths
+ * while settling fewer vertices whenever edge weights exceed the underlying estimate.
+ *
+ * @see Landmarks
+ */
+public class LandmarkGraph implements IntAStarGraph {
+    private final IntAStarGraph graph;
+    private final Landmarks landmarks;
+
+    /**
+     * Constructs a decorator over the given graph using the given landmarks.
+     *
+     * @param graph     the underlying graph.
+     * @param landmarks the landmarks built from the underlying graph.
+     */
+    public LandmarkGraph(IntAStarGraph graph, Landmarks landmarks) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+    }
+
+    @Override
+    public int size() {
+        return graph.size();
+    }
+
+    @Override
+    public int edgeStart(int vertex) {
+        return graph.edgeStart(vertex);
+    }
+
+    @Override
+    public int edgeEnd(int vertex) {
+        return graph.edgeEnd(vertex);
+    }
+
+    @Override
+    public int target(int edge) {
+        return graph.target(edge);
+    }
+
+    @Override
+    public double weight(int edge) {
+        return graph.weight(edge);
+    }
+
+    @Override
+    public double estimatedDistance(int start, int end) {
+        return Math.max(graph.estimatedDistance(start, end), landmarks.lowerBound(start, end));
+    }
+}
@@ -0,0 +1,378 @@
+package graphs.landmarks;
+
+import graphs.IntGraph;
+import graphs.shortestpaths.SearchWorkspace;
+import minpq.IndexedIntMinPQ;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Shortest path distances from and to a small set of landmark vertices for the ALT (A*, landmarks, triangle
+ * inequality) heuristic. For any landmark {@code L}, the triangle inequality gives two lower bounds on the distance
+ * from {@code v} to {@code t}: {@code d(v, L) - d(t, L)} and {@code d(L, t) - d(L, v)}. Landmarks behind the goal or
+ * in front of the start give tight bounds, so landmarks are chosen near the edges of the graph.
+ *
+ * <p>Distances are stored vertex-major in primitive arrays so that the bounds for one vertex are adjacent in memory.
+ *
+ * @see LandmarkGraph
+ */
+public class Landmarks {
+    /**
+     * Magic number identifying a landmarks file ("HALT").
+     */
+    private static final int MAGIC = 0x48414C54;
+    /**
+     * Format version. Bump whenever the layout changes so stale landmarks are rebuilt.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Strategies for choosing landmarks.
+     */
+    public enum Selection {
+        /**
+         * Each landmark is the reachable vertex farthest from all the landmarks chosen so far.
+         */
+        FARTHEST,
+        /**
+         * Each landmark is a leaf of a shortest path tree from a random root, in the subtree whose distances are
+         * worst covered by the landmarks chosen so far. Usually gives tighter bounds than {@link #FARTHEST}.
+         */
+        AVOID
+    }
+
+    private final long fingerprint;
+    private final int[] landmarks;
+    /**
+     * Distance from each landmark to each vertex, at {@code vertex * count + landmark}.
+     */
+    private final double[] from;
+    /**
+     * Distance from each vertex to each landmark, at {@code vertex * count + landmark}.
+     */
+    private final double[] to;
+
+    private Landmarks(long fingerprint, int[] landmarks, double[] from, double[] to) {
+        this.fingerprint = fingerprint;
+        this.landmarks = landmarks;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Chooses up to the given number of landmarks in the graph and computes the distances from and to each of them.
+     *
+     * @param graph     the input graph.
+     * @param reverse   the input graph with every edge reversed.
+     * @param count     the maximum number of landmarks.
+     * @param selection the strategy for choosing landmarks.
+     * @param seed      the seed for choosing the first landmark or the tree roots.
+     * @return the landmarks and their distances.
+     * @throws IllegalArgumentException if the graphs differ in size or the count is not positive.
+     */
+    public static Landmarks build(IntGraph graph, IntGraph reverse, int count, Selection selection, long seed) {
+        if (graph.size() != reverse.size()) {
+            throw new IllegalArgumentException("Graph and reverse sizes differ");
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("Landmark count must be positive: " + count);
+        }
+        int n = graph.size();
+        count = Math.min(count, n);
+        Random random = new Random(seed);
+        SearchWorkspace workspace = new SearchWorkspace(n);
+        int[] order = new int[n];
+        double[][] fromColumns = new double[count][];
+        double[][] toColumns = new double[count][];
+        int[] chosen = new int[count];
+        // Closest landmark distance of each vertex so far, for the farthest strategy.
+        double[] nearest = new double[n];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+
+        int k = 0;
+        int failures = 0;
+        while (k < count && n > 0 && failures < count) {
+            int landmark;
+            if (selection == Selection.AVOID) {
+                landmark = avoid(graph, random.nextInt(n), chosen, fromColumns, toColumns, k, workspace, order);
+            } else if (k == 0) {
+                // Start from the vertex farthest from a random vertex rather than the random vertex itself.
+                int reached = dijkstra(graph, random.nextInt(n), workspace, order);
+                landmark = order[reached - 1];
+            } else {
+                landmark = -1;
+                for (int v = 0; v < n; v += 1) {
+                    if (nearest[v] != Double.POSITIVE_INFINITY && (landmark == -1 || nearest[v] > nearest[landmark])) {
+                        landmark = v;
+                    }
+                }
+            }
+            if (landmark == -1 || contains(chosen, k, landmark)) {
+                // Only the avoid strategy can do better by trying again from another root.
+                failures += selection == Selection.AVOID ? 1 : count;
+                continue;
+            }
+            chosen[k] = landmark;
+            fromColumns[k] = distances(graph, landmark, workspace, order);
+            toColumns[k] = distances(reverse, landmark, workspace, order);
+            for (int v = 0; v < n; v += 1) {
+                nearest[v] = Math.min(nearest[v], fromColumns[k][v]);
+            }
+            k += 1;
+        }
+
+        double[] from = new double[n * k];
+        double[] to = new double[n * k];
+        for (int v = 0; v < n; v += 1) {
+            for (int i = 0; i < k; i += 1) {
+                from[v * k + i] = fromColumns[i][v];
+                to[v * k + i] = toColumns[i][v];
+            }
+        }
+        return new Landmarks(graph.fingerprint(), Arrays.copyOf(chosen, k), from, to);
+    }
+
+    /**
+     * Returns the landmark chosen by the avoid strategy for the shortest path tree from the given root.
+     */
+    private static int avoid(IntGraph graph, int root, int[] chosen, double[][] fromColumns, double[][] toColumns,
+                             int k, SearchWorkspace workspace, int[] order) {
+        int reached = dijkstra(graph, root, workspace, order);
+        int n = graph.size();
+        // Weight each vertex by how much the current landmarks underestimate its distance from the root, then sum the
+        // weights of each subtree in reverse settling order. Subtrees that already contain a landmark are covered.
+        double[] size = new double[n];
+        int[] bestChild = new int[n];
+        boolean[] covered = new boolean[n];
+        for (int i = 0; i < k; i += 1) {
+            covered[chosen[i]] = true;
+        }
+        for (int i = reached - 1; i >= 0; i -= 1) {
+            int v = order[i];
+            double bound = 0.0;
+            for (int j = 0; j < k; j += 1) {
+                bound = Math.max(bound, bound(fromColumns[j][root], fromColumns[j][v], toColumns[j][root],
+                        toColumns[j][v]));
+            }
+            size[v] += workspace.distTo(v) - bound;
+            if (covered[v]) {
+                size[v] = 0.0;
+            }
+            bestChild[v] = -1;
+        }
+        for (int i = reached - 1; i > 0; i -= 1) {
+            int v = order[i];
+            int parent = workspace.parent(v);
+            if (covered[v]) {
+                covered[parent] = true;
+                size[parent] = 0.0;
+            } else if (!covered[parent]) {
+                size[parent] += size[v];
+            }
+        }
+        for (int i = 1; i < reached; i += 1) {
+            int v = order[i];
+            int parent = workspace.parent(v);
+            if (!covered[v] && (bestChild[parent] == -1 || size[v] > size[bestChild[parent]])) {
+                bestChild[parent] = v;
+            }
+        }
+        int landmark = root;
+        while (bestChild[landmark] != -1) {
+            landmark = bestChild[landmark];
+        }
+        return landmark;
+    }
+
+    /**
+     * Returns the lower bound on the distance from v to t given by one landmark.
+     */
+    private static double bound(double fromV, double fromT, double toV, double toT) {
+        double bound = 0.0;
+        if (toV != Double.POSITIVE_INFINITY && toT != Double.POSITIVE_INFINITY) {
+            bound = toV - toT;
+        }
+        if (fromV != Double.POSITIVE_INFINITY && fromT != Double.POSITIVE_INFINITY) {
+            bound = Math.max(bound, fromT - fromV);
+        }
+        return bound;
+    }
+
+    /**
+     * Returns the distance from the source to every vertex of the graph.
+     */
+    private static double[] distances(IntGraph graph, int source, SearchWorkspace workspace, int[] order) {
+        int reached = dijkstra(graph, source, workspace, order);
+        double[] result = new double[graph.size()];
+        Arrays.fill(result, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < reached; i += 1) {
+            result[order[i]] = workspace.distTo(order[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from the source, recording the vertices in settling order. Returns how many vertices
+     * were reached.
+     */
+    private static int dijkstra(IntGraph graph, int source, SearchWorkspace workspace, int[] order) {
+        workspace.reset();
+        IndexedIntMinPQ perimeter = workspace.perimeter();
+        workspace.reach(source, 0.0, -1, -1);
+        perimeter.addOrChangePriority(source, 0.0);
+        int reached = 0;
+        while (!perimeter.isEmpty()) {
+            int from = perimeter.removeMin();
+            order[reached] = from;
+            reached += 1;
+            double fromDist = workspace.distTo(from);
+            for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e += 1) {
+                int to = graph.target(e);
+                double newDist = fromDist + graph.weight(e);
+                if (newDist < workspace.distTo(to)) {
+                    workspace.reach(to, newDist, from, e);
+                    perimeter.addOrChangePriority(to, newDist);
+                }
+            }
+        }
+        return reached;
+    }
+
+    private static boolean contains(int[] values, int size, int value) {
+        for (int i = 0; i < size; i += 1) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a lower bound on the shortest path distance from the given vertex to the given goal.
+     *
+     * @param vertex the vertex of interest.
+     * @param goal   the goal vertex.
+     * @return a lower bound on the distance from the vertex to the goal.
+     */
+    public double lowerBound(int vertex, int goal) {
+        int k = landmarks.length;
+        int v = vertex * k;
+        int t = goal * k;
+        double result = 0.0;
+        for (int i = 0; i < k; i += 1) {
+            result = Math.max(result, bound(from[v + i], from[t + i], to[v + i], to[t + i]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the landmark vertices.
+     *
+     * @return the landmark vertices.
+     */
+    public int[] landmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Returns the fingerprint of the graph these landmarks were built from.
+     *
+     * @return the fingerprint of the graph these landmarks were built from.
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the landmarks stored at the given path if they exist, have the current version, were built from a graph
+     * with the given fingerprint, and are complete. Otherwise, returns null, including for truncated files.
+     *
+     * @param path        the landmarks file path.
+     * @param fingerprint the fingerprint of the current graph.
+     * @return the matching landmarks, or null if there are no usable landmarks.
+     * @throws IOException if the landmarks exist but cannot be read.
+     */
+    public static Landmarks read(Path path, long fingerprint) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != fingerprint) {
+                return null;
+            }
+            int n = buffer.getInt();
+            int k = buffer.getInt();
+            if (n < 0 || k < 0 || k > buffer.remaining() / Integer.BYTES) {
+                return null;
+            }
+            int[] landmarks = new int[k];
+            buffer.asIntBuffer().get(landmarks);
+            buffer.position(buffer.position() + k * Integer.BYTES);
+            long cells = (long) n * k;
+            if (cells * 2 * Double.BYTES != buffer.remaining()) {
+                return null;
+            }
+            double[] from = doubles(buffer, (int) cells);
+            double[] to = doubles(buffer, (int) cells);
+            return new Landmarks(fingerprint, landmarks, from, to);
+        } catch (BufferUnderflowException e) {
+            // Truncated before the end of the header.
+            return null;
+        }
+    }
+
+    /**
+     * Writes these landmarks to the given path via a temporary sibling file.
+     *
+     * @param path the landmarks file path.
+     * @throws IOException if the landmarks cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp),
+                1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(landmarks.length == 0 ? 0 : from.length / landmarks.length);
+            out.writeInt(landmarks.length);
+            for (int value : landmarks) {
+                out.writeInt(value);
+            }
+            for (double value : from) {
+                out.writeDouble(value);
+            }
+            for (double value : to) {
+                out.writeDouble(value);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Bulk-reads the given number of doubles from the buffer.
+     */
+    private static double[] doubles(ByteBuffer buffer, int n) {
+        double[] result = new double[n];
+        buffer.asDoubleBuffer().get(result);
+        buffer.position(buffer.position() + n * Double.BYTES);
+        return result;
+    }
+}
@@ -8,15 +8,19 @@ import minpq.MinPQ;
 import java.util.*;
 
 /**
- * A* search implementation for single-pair shortest paths in an {@link AStarGraph}.
+ * A* search implementation for single-pair shortest paths in an {@link AStarGraph}. The search stops as soon as the
+ * goal is settled, when every reachable vertex has been settled, or when the {@link SearchBudget} is exceeded.
  *
  * @param <V> the type of vertices.
  * @see AStarGraph
+ * @see SearchResult
  */
 public class AStarSolver<V> {
     private final Map<V, Edge<V>> edgeTo;
     private final Map<V, Double> distTo;
     private final V goal;
+    private final SearchResult.Status status;
+    private final int settled;
 
     /**
      * Constructs a new instance by executing A* search on the graph from the start to the goal.
@@ -26,6 +30,18 @@ public class AStarSolver<V> {
      * @param goal  the goal vertex.
      */
     public AStarSolver(AStarGraph<V> graph, V start, V goal) {
+        this(graph, start, goal, SearchBudget.unlimited());
+    }
+
+    /**
+     * Constructs a new instance by executing A* search on the graph from the start to the goal within the budget.
+     *
+     * @param graph  the input graph.
+     * @param start  the start vertex.
+     * @param goal   the goal vertex.
+     * @param budget the limits on the search.
+     */
+    public AStarSolver(AStarGraph<V> graph, V start, V goal, SearchBudget budget) {
         edgeTo = new HashMap<>();
         distTo = new HashMap<>();
         this.goal = goal;
@@ -33,8 +49,19 @@ public class AStarSolver<V> {
         perimeter.add(start, 0.0);
         edgeTo.put(start, null);
         distTo.put(start, 0.0);
+        SearchResult.Status status = SearchResult.Status.NOT_FOUND;
+        int settled = 0;
         while (!perimeter.isEmpty()) {
             V from = perimeter.removeMin();
+            settled += 1;
+            if (Objects.equals(from, goal)) {
+                status = SearchResult.Status.FOUND;
+                break;
+            }
+            if (budget.isExceeded(settled)) {
+                status = SearchResult.Status.ABORTED;
+                break;
+            }
             for (Edge<V> e : graph.neighbors(from)) {
                 V to = e.to;
                 double oldDist = distTo.getOrDefault(to, Double.POSITIVE_INFINITY);
@@ -47,6 +74,8 @@ public class AStarSolver<V> {
                 }
             }
         }
+        this.status = status;
+        this.settled = settled;
     }
 
     /**
@@ -65,4 +94,16 @@ public class AStarSolver<V> {
         Collections.reverse(path);
         return path;
     }
+
+    /**
+     * Returns the outcome of the search. The solution is empty unless the goal was found.
+     *
+     * @return the outcome of the search.
+     */
+    public SearchResult<V> result() {
+        if (status != SearchResult.Status.FOUND) {
+            return new SearchResult<>(status, List.of(), Double.POSITIVE_INFINITY, settled);
+        }
+        return new SearchResult<>(status, solution(), distTo.get(goal), settled);
+    }
 }
@@ -0,0 +1,181 @@
+package graphs.shortestpaths;
+
+import graphs.Edge;
+import graphs.ReversibleAStarGraph;
+import minpq.DoubleMapMinPQ;
+import minpq.MinPQ;
+
+import java.util.*;
+
+/**
+ * Bidirectional A* search implementation for single-pair shortest paths in a {@link ReversibleAStarGraph}. One search
+ * runs forward from the start and another runs backward from the goal until their frontiers prove that the best
+ * meeting point found so far is optimal.
+ *
+ * <p>Both searches use the average potential {@code p(v) = (h(v, goal) - h(start, v)) / 2}, which is consistent
+ * whenever the graph's heuristic is, so the stopping criterion is the same as bidirectional Dijkstra's on the reduced
+ * edge weights: stop once the sum of the smallest forward and backward keys reaches the best path length found so far.
+ * With a zero heuristic, this is plain bidirectional Dijkstra.
+ *
+ * @param <V> the type of vertices.
+ * @see ReversibleAStarGraph
+ * @see AStarSolver
+ * @see IntBidirectionalAStarSolver
+ */
+public class BidirectionalAStarSolver<V> {
+    private final Map<V, Edge<V>> forwardEdgeTo;
+    private final Map<V, Double> forwardDistTo;
+    private final Map<V, Edge<V>> backwardEdgeTo;
+    private final Map<V, Double> backwardDistTo;
+    private final V start;
+    private final V goal;
+    private final SearchResult.Status status;
+    private final int settled;
+    private V meeting;
+    private double best;
+
+    /**
+     * Constructs a new instance by executing bidirectional A* search on the graph from the start to the goal.
+     *
+     * @param graph the input graph.
+     * @param start the start vertex.
+     * @param goal  the goal vertex.
+     */
+    public BidirectionalAStarSolver(ReversibleAStarGraph<V> graph, V start, V goal) {
+        this(graph, start, goal, SearchBudget.unlimited());
+    }
+
+    /**
+     * Constructs a new instance by executing bidirectional A* search on the graph from the start to the goal within
+     * the budget.
+     *
+     * @param graph  the input graph.
+     * @param start  the start vertex.
+     * @param goal   the goal vertex.
+     * @param budget the limits on the search.
+     */
+    public BidirectionalAStarSolver(ReversibleAStarGraph<V> graph, V start, V goal, SearchBudget budget) {
+        forwardEdgeTo = new HashMap<>();
+        forwardDistTo = new HashMap<>();
+        backwardEdgeTo = new HashMap<>();
+        backwardDistTo = new HashMap<>();
+        this.start = start;
+        this.goal = goal;
+        meeting = null;
+        best = Double.POSITIVE_INFINITY;
+
+        MinPQ<V> forward = new DoubleMapMinPQ<>();
+        MinPQ<V> backward = new DoubleMapMinPQ<>();
+        forwardEdgeTo.put(start, null);
+        forwardDistTo.put(start, 0.0);
+        forward.add(start, potential(graph, start));
+        backwardEdgeTo.put(goal, null);
+        backwardDistTo.put(goal, 0.0);
+        backward.add(goal, -potential(graph, goal));
+        if (Objects.equals(start, goal)) {
+            meeting = start;
+            best = 0.0;
+        }
+
+        SearchResult.Status status = SearchResult.Status.NOT_FOUND;
+        int settled = 0;
+        while (!forward.isEmpty() && !backward.isEmpty()) {
+            double topForward = forward.getPriority(forward.peekMin());
+            double topBackward = backward.getPriority(backward.peekMin());
+            if (topForward + topBackward >= best) {
+                break;
+            }
+            settled += 1;
+            if (budget.isExceeded(settled)) {
+                status = SearchResult.Status.ABORTED;
+                break;
+            }
+            if (forward.size() <= backward.size()) {
+                V from = forward.removeMin();
+                for (Edge<V> e : graph.neighbors(from)) {
+                    V to = e.to;
+                    double newDist = forwardDistTo.get(from) + e.weight;
+                    if (newDist < forwardDistTo.getOrDefault(to, Double.POSITIVE_INFINITY)) {
+                        forwardEdgeTo.put(to, e);
+                        forwardDistTo.put(to, newDist);
+                        forward.addOrChangePriority(to, newDist + potential(graph, to));
+                        meet(to, newDist + backwardDistTo.getOrDefault(to, Double.POSITIVE_INFINITY));
+                    }
+                }
+            } else {
+                V to = backward.removeMin();
+                for (Edge<V> e : graph.reverseNeighbors(to)) {
+                    V from = e.from;
+                    double newDist = backwardDistTo.get(to) + e.weight;
+                    if (newDist < backwardDistTo.getOrDefault(from, Double.POSITIVE_INFINITY)) {
+                        backwardEdgeTo.put(from, e);
+                        backwardDistTo.put(from, newDist);
+                        backward.addOrChangePriority(from, newDist - potential(graph, from));
+                        meet(from, newDist + forwardDistTo.getOrDefault(from, Double.POSITIVE_INFINITY));
+                    }
+                }
+            }
+        }
+        if (status != SearchResult.Status.ABORTED && meeting != null) {
+            status = SearchResult.Status.FOUND;
+        }
+        this.status = status;
+        this.settled = settled;
+    }
+
+    /**
+     * Returns the average potential of the given vertex: half the difference between its estimated distance to the
+     * goal and its estimated distance from the start.
+     */
+    private double potential(ReversibleAStarGraph<V> graph, V vertex) {
+        return (graph.estimatedDistance(vertex, goal) - graph.estimatedDistance(start, vertex)) / 2;
+    }
+
+    /**
+     * Records the given vertex as the meeting point if the path through it is the shortest found so far.
+     */
+    private void meet(V vertex, double length) {
+        if (length < best) {
+            best = length;
+            meeting = vertex;
+        }
+    }
+
+    /**
+     * Returns the single-pair shortest path from the stored start to the stored goal, or an empty list if the goal
+     * was not found.
+     *
+     * @return a list of vertices representing the shortest path.
+     */
+    public List<V> solution() {
+        if (status != SearchResult.Status.FOUND) {
+            return List.of();
+        }
+        List<V> path = new ArrayList<>();
+        V curr = meeting;
+        path.add(curr);
+        while (forwardEdgeTo.get(curr) != null) {
+            curr = forwardEdgeTo.get(curr).from;
+            path.add(curr);
+        }
+        Collections.reverse(path);
+        curr = meeting;
+        while (backwardEdgeTo.get(curr) != null) {
+            curr = backwardEdgeTo.get(curr).to;
+            path.add(curr);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the outcome of the search. The solution is empty unless the goal was found.
+     *
+     * @return the outcome of the search.
+     */
+    public SearchResult<V> result() {
+        if (status != SearchResult.Status.FOUND) {
+            return new SearchResult<>(status, List.of(), Double.POSITIVE_INFINITY, settled);
+        }
+        return new SearchResult<>(status, solution(), best, settled);
+    }
+}
@@ -0,0 +1,204 @@
+package graphs.shortestpaths;
+
+import graphs.IntAStarGraph;
+import minpq.IndexedIntMinPQ;
+
+/**
+ * A* search implementation for single-pair shortest paths in an {@link IntAStarGraph}, computed in a reusable
+ * {@link SearchWorkspace}. The search stops as soon as the goal is settled, when every reachable vertex has been
+ * settled, or when the {@link SearchBudget} is exceeded. Results are only valid until the workspace is used for
+ * another search.
+ *
+ * @see IntAStarGraph
+ * @see AStarSolver
+ * @see SearchWorkspace
+ */
+public class IntAStarSolver {
+    private final SearchWorkspace workspace;
+    private final int goal;
+    private final double distance;
+    private final SearchResult.Status status;
+    private final int settled;
+
+    /**
+     * Constructs a new instance by executing A* search on the graph from the start to the goal within the budget.
+     *
+     * @param graph     the input graph.
+     * @param start     the start vertex.
+     * @param goal      the goal vertex.
+     * @param workspace the workspace to search in, reset before the search.
+     * @param budget    the limits on the search.
+     */
+    public IntAStarSolver(IntAStarGraph graph, int start, int goal, SearchWorkspace workspace, SearchBudget budget) {
+        this(graph, start, goal, new int[0], new double[0], workspace, budget);
+    }
+
+    /**
+     * Constructs a new instance by executing A* search on the graph from the start to the goal within the budget, with
+     * extra edges to the goal from the given entry vertices. Entries let the search end at a goal that the graph has
+     * no edges into, such as a vertex inside a collapsed chain of a {@link graphs.chains.ChainGraph}.
+     *
+     * @param graph        the input graph.
+     * @param start        the start vertex.
+     * @param goal         the goal vertex.
+     * @param entries      the vertices with an extra edge to the goal.
+     * @param entryWeights the weight of the extra edge from each entry vertex.
+     * @param workspace    the workspace to search in, reset before the search.
+     * @param budget       the limits on the search.
+     */
+    public IntAStarSolver(IntAStarGraph graph, int start, int goal, int[] entries, double[] entryWeights,
+                          SearchWorkspace workspace, SearchBudget budget) {
+        this.workspace = workspace;
+        this.goal = goal;
+        workspace.reset();
+        IndexedIntMinPQ perimeter = workspace.perimeter();
+        workspace.reach(start, 0.0, -1, -1);
+        perimeter.addOrChangePriority(start, graph.estimatedDistance(start, goal));
+        SearchResult.Status status = SearchResult.Status.NOT_FOUND;
+        int settled = 0;
+        while (!perimeter.isEmpty()) {
+            int from = perimeter.removeMin();
+            settled += 1;
+            if (from == goal) {
+                status = SearchResult.Status.FOUND;
+                break;
+            }
+            if (budget.isExceeded(settled)) {
+                status = SearchResult.Status.ABORTED;
+                break;
+            }
+            double fromDist = workspace.distTo(from);
+            for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e += 1) {
+                int to = graph.target(e);
+                double newDist = fromDist + graph.weight(e);
+                if (newDist < workspace.distTo(to)) {
+                    workspace.reach(to, newDist, from, e);
+                    perimeter.addOrChangePriority(to, newDist + graph.estimatedDistance(to, goal));
+                }
+            }
+            for (int i = 0; i < entries.length; i += 1) {
+                double newDist = fromDist + entryWeights[i];
+                if (entries[i] == from && newDist < workspace.distTo(goal)) {
+                    workspace.reach(goal, newDist, from, -1);
+                    perimeter.addOrChangePriority(goal, newDist);
+                }
+            }
+        }
+        this.status = status;
+        this.settled = settled;
+        this.distance = status == SearchResult.Status.FOUND ? workspace.distTo(goal) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Constructs a new instance by executing A* search on the graph from several starts to whichever of several goals
+     * is closest within the budget. Each start is reached at its start weight and each goal adds its goal weight to
+     * the paths that end there, so that the starts and goals can stand for the ends of an edge partway along which the
+     * route begins or ends. The heuristic is the smallest estimate to any goal plus its goal weight, and the search
+     * stops once no vertex on the perimeter can lead to a shorter path than the best found so far. Starts and goals
+     * with infinite weights are ignored.
+     *
+     * @param graph        the input graph.
+     * @param starts       the start vertices.
+     * @param startWeights the weight of reaching each start vertex.
+     * @param goals        the goal vertices.
+     * @param goalWeights  the weight of ending the path at each goal vertex.
+     * @param workspace    the workspace to search in, reset before the search.
+     * @param budget       the limits on the search.
+     */
+    public IntAStarSolver(IntAStarGraph graph, int[] starts, double[] startWeights, int[] goals, double[] goalWeights,
+                          SearchWorkspace workspace, SearchBudget budget) {
+        this.workspace = workspace;
+        workspace.reset();
+        IndexedIntMinPQ perimeter = workspace.perimeter();
+        for (int i = 0; i < starts.length; i += 1) {
+            if (startWeights[i] < workspace.distTo(starts[i])) {
+                workspace.reach(starts[i], startWeights[i], -1, -1);
+                perimeter.addOrChangePriority(starts[i],
+                        startWeights[i] + estimatedDistance(graph, starts[i], goals, goalWeights));
+            }
+        }
+        int goal = -1;
+        double best = Double.POSITIVE_INFINITY;
+        SearchResult.Status status = SearchResult.Status.NOT_FOUND;
+        int settled = 0;
+        while (!perimeter.isEmpty() && perimeter.peekMinPriority() < best) {
+            int from = perimeter.removeMin();
+            settled += 1;
+            if (budget.isExceeded(settled)) {
+                status = SearchResult.Status.ABORTED;
+                break;
+            }
+            double fromDist = workspace.distTo(from);
+            for (int i = 0; i < goals.length; i += 1) {
+                if (goals[i] == from && fromDist + goalWeights[i] < best) {
+                    goal = from;
+                    best = fromDist + goalWeights[i];
+                }
+            }
+            for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e += 1) {
+                int to = graph.target(e);
+                double newDist = fromDist + graph.weight(e);
+                if (newDist < workspace.distTo(to)) {
+                    workspace.reach(to, newDist, from, e);
+                    perimeter.addOrChangePriority(to, newDist + estimatedDistance(graph, to, goals, goalWeights));
+                }
+            }
+        }
+        if (status != SearchResult.Status.ABORTED && goal != -1) {
+            status = SearchResult.Status.FOUND;
+        }
+        this.goal = goal;
+        this.status = status;
+        this.settled = settled;
+        this.distance = status == SearchResult.Status.FOUND ? best : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the smallest estimated distance from the given vertex to any goal plus the weight of that goal.
+     */
+    private static double estimatedDistance(IntAStarGraph graph, int vertex, int[] goals, double[] goalWeights) {
+        double result = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < goals.length; i += 1) {
+            result = Math.min(result, graph.estimatedDistance(vertex, goals[i]) + goalWeights[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns how the search ended.
+     *
+     * @return how the search ended.
+     */
+    public SearchResult.Status status() {
+        return status;
+    }
+
+    /**
+     * Returns the number of vertices settled by the search.
+     *
+     * @return the number of vertices settled by the search.
+     */
+    public int settled() {
+        return settled;
+    }
+
+    /**
+     * Returns the total weight of the shortest path including the weights of its start and goal, or infinity if the
+     * goal was not found.
+     *
+     * @return the total weight of the shortest path.
+     */
+    public double distance() {
+        return distance;
+    }
+
+    /**
+     * Returns the vertices on the shortest path from the start to the goal, or an empty array if the goal was not
+     * found. With several starts and goals, the path begins at one of the starts and ends at one of the goals.
+     *
+     * @return the vertices on the shortest path.
+     */
+    public int[] solution() {
+        return status == SearchResult.Status.FOUND ? workspace.path(goal) : new int[0];
+    }
+}
@@ -0,0 +1,55 @@
+package graphs.shortestpaths;
+
+import graphs.IntGraph;
+
+/**
+ * Bellman-Ford algorithm implementation of the {@link IntShortestPathSolver} interface.
+ *
+ * @see IntShortestPathSolver
+ * @see BellmanFordSolver
+ */
+public class IntBellmanFordSolver implements IntShortestPathSolver {
+    private final SearchWorkspace workspace;
+
+    /**
+     * Constructs a new instance by executing Bellman-Ford algorithm on the graph from the start. Stops early once a
+     * round of relaxations changes no distances.
+     *
+     * @param graph     the input graph.
+     * @param start     the start vertex.
+     * @param workspace the workspace to search in, reset before the search.
+     */
+    public IntBellmanFordSolver(IntGraph graph, int start, SearchWorkspace workspace) {
+        this.workspace = workspace;
+        workspace.reset();
+        workspace.reach(start, 0.0, -1, -1);
+        boolean changed = true;
+        for (int i = 1; i < graph.size() && changed; i += 1) {
+            changed = false;
+            for (int from = 0; from < graph.size(); from += 1) {
+                if (!workspace.isReached(from)) {
+                    continue;
+                }
+                double fromDist = workspace.distTo(from);
+                for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e += 1) {
+                    int to = graph.target(e);
+                    double newDist = fromDist + graph.weight(e);
+                    if (newDist < workspace.distTo(to)) {
+                        workspace.reach(to, newDist, from, e);
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public int[] solution(int goal) {
+        return workspace.path(goal);
+    }
+
+    @Override
+    public double distTo(int goal) {
+        return workspace.distTo(goal);
+    }
+}
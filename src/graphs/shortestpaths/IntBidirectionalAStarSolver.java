@@ -0,0 +1,201 @@
+package graphs.shortestpaths;
+
+import graphs.IntAStarGraph;
+import graphs.IntGraph;
+import minpq.IndexedIntMinPQ;
+
+import java.util.Arrays;
+
+/**
+ * Bidirectional A* search implementation for single-pair shortest paths in an {@link IntAStarGraph}, computed in two
+ * reusable {@link SearchWorkspace} instances: one for the forward search from the start and one for the backward
+ * search from the goal over the reversed graph. Uses the same average potential and stopping criterion as
+ * {@link BidirectionalAStarSolver}. Results are only valid until either workspace is used for another search.
+ *
+ * @see BidirectionalAStarSolver
+ * @see IntAStarSolver
+ */
+public class IntBidirectionalAStarSolver {
+    private final SearchWorkspace forward;
+    private final SearchWorkspace backward;
+    private final SearchResult.Status status;
+    private final int settled;
+    private int meeting;
+    private double best;
+
+    /**
+     * Constructs a new instance by executing bidirectional A* search on the graph from the start to the goal within
+     * the budget.
+     *
+     * @param graph    the input graph.
+     * @param reverse  the input graph with every edge reversed.
+     * @param start    the start vertex.
+     * @param goal     the goal vertex.
+     * @param forward  the workspace for the forward search, reset before the search.
+     * @param backward the workspace for the backward search, reset before the search.
+     * @param budget   the limits on the search.
+     */
+    public IntBidirectionalAStarSolver(IntAStarGraph graph, IntGraph reverse, int start, int goal,
+                                       SearchWorkspace forward, SearchWorkspace backward, SearchBudget budget) {
+        this(graph, reverse, new int[]{start}, new double[]{0.0}, new int[]{goal}, new double[]{0.0}, forward,
+                backward, budget);
+    }
+
+    /**
+     * Constructs a new instance by executing bidirectional A* search on the graph from several starts to whichever of
+     * several goals is closest within the budget. Each start is reached at its start weight and each goal adds its
+     * goal weight to the paths that end there, so that the starts and goals can stand for the ends of an edge partway
+     * along which the route begins or ends. The potentials use the smallest estimate to any goal and from any start,
+     * each including its weight. Starts and goals with infinite weights are ignored.
+     *
+     * @param graph        the input graph.
+     * @param reverse      the input graph with every edge reversed.
+     * @param starts       the start vertices.
+     * @param startWeights the weight of reaching each start vertex.
+     * @param goals        the goal vertices.
+     * @param goalWeights  the weight of ending the path at each goal vertex.
+     * @param forward      the workspace for the forward search, reset before the search.
+     * @param backward     the workspace for the backward search, reset before the search.
+     * @param budget       the limits on the search.
+     */
+    public IntBidirectionalAStarSolver(IntAStarGraph graph, IntGraph reverse, int[] starts, double[] startWeights,
+                                       int[] goals, double[] goalWeights, SearchWorkspace forward,
+                                       SearchWorkspace backward, SearchBudget budget) {
+        this.forward = forward;
+        this.backward = backward;
+        forward.reset();
+        backward.reset();
+        meeting = -1;
+        best = Double.POSITIVE_INFINITY;
+
+        IndexedIntMinPQ forwardPerimeter = forward.perimeter();
+        IndexedIntMinPQ backwardPerimeter = backward.perimeter();
+        for (int i = 0; i < starts.length; i += 1) {
+            if (startWeights[i] < forward.distTo(starts[i])) {
+                forward.reach(starts[i], startWeights[i], -1, -1);
+                forwardPerimeter.addOrChangePriority(starts[i], startWeights[i]
+                        + potential(graph, starts, startWeights, goals, goalWeights, starts[i]));
+            }
+        }
+        for (int i = 0; i < goals.length; i += 1) {
+            if (goalWeights[i] < backward.distTo(goals[i])) {
+                backward.reach(goals[i], goalWeights[i], -1, -1);
+                backwardPerimeter.addOrChangePriority(goals[i], goalWeights[i]
+                        - potential(graph, starts, startWeights, goals, goalWeights, goals[i]));
+            }
+        }
+        for (int start : starts) {
+            if (forward.distTo(start) + backward.distTo(start) < best) {
+                best = forward.distTo(start) + backward.distTo(start);
+                meeting = start;
+            }
+        }
+
+        SearchResult.Status status = SearchResult.Status.NOT_FOUND;
+        int settled = 0;
+        while (!forwardPerimeter.isEmpty() && !backwardPerimeter.isEmpty()) {
+            if (forwardPerimeter.peekMinPriority() + backwardPerimeter.peekMinPriority() >= best) {
+                break;
+            }
+            settled += 1;
+            if (budget.isExceeded(settled)) {
+                status = SearchResult.Status.ABORTED;
+                break;
+            }
+            boolean isForward = forwardPerimeter.size() <= backwardPerimeter.size();
+            IntGraph g = isForward ? graph : reverse;
+            SearchWorkspace self = isForward ? forward : backward;
+            SearchWorkspace other = isForward ? backward : forward;
+            double sign = isForward ? 1 : -1;
+            int from = self.perimeter().removeMin();
+            double fromDist = self.distTo(from);
+            for (int e = g.edgeStart(from); e < g.edgeEnd(from); e += 1) {
+                int to = g.target(e);
+                double newDist = fromDist + g.weight(e);
+                if (newDist < self.distTo(to)) {
+                    self.reach(to, newDist, from, e);
+                    self.perimeter().addOrChangePriority(to,
+                            newDist + sign * potential(graph, starts, startWeights, goals, goalWeights, to));
+                    double length = newDist + other.distTo(to);
+                    if (length < best) {
+                        best = length;
+                        meeting = to;
+                    }
+                }
+            }
+        }
+        if (status != SearchResult.Status.ABORTED && meeting != -1) {
+            status = SearchResult.Status.FOUND;
+        }
+        this.status = status;
+        this.settled = settled;
+    }
+
+    /**
+     * Returns the average potential of the given vertex.
+     */
+    private static double potential(IntAStarGraph graph, int[] starts, double[] startWeights, int[] goals,
+                                    double[] goalWeights, int vertex) {
+        double toGoal = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < goals.length; i += 1) {
+            toGoal = Math.min(toGoal, graph.estimatedDistance(vertex, goals[i]) + goalWeights[i]);
+        }
+        double fromStart = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < starts.length; i += 1) {
+            fromStart = Math.min(fromStart, startWeights[i] + graph.estimatedDistance(starts[i], vertex));
+        }
+        return (toGoal - fromStart) / 2;
+    }
+
+    /**
+     * Returns how the search ended.
+     *
+     * @return how the search ended.
+     */
+    public SearchResult.Status status() {
+        return status;
+    }
+
+    /**
+     * Returns the number of vertices settled by both searches.
+     *
+     * @return the number of vertices settled by both searches.
+     */
+    public int settled() {
+        return settled;
+    }
+
+    /**
+     * Returns the total weight of the shortest path including the weights of its start and goal, or infinity if the
+     * goal was not found.
+     *
+     * @return the total weight of the shortest path.
+     */
+    public double distance() {
+        return status == SearchResult.Status.FOUND ? best : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the vertices on the shortest path from the start to the goal, or an empty array if the goal was not
+     * found. With several starts and goals, the path begins at one of the starts and ends at one of the goals.
+     *
+     * @return the vertices on the shortest path.
+     */
+    public int[] solution() {
+        if (status != SearchResult.Status.FOUND) {
+            return new int[0];
+        }
+        int[] head = forward.path(meeting);
+        int length = head.length;
+        for (int v = backward.parent(meeting); v != -1; v = backward.parent(v)) {
+            length += 1;
+        }
+        int[] path = Arrays.copyOf(head, length);
+        int i = head.length;
+        for (int v = backward.parent(meeting); v != -1; v = backward.parent(v)) {
+            path[i] = v;
+            i += 1;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,51 @@
+package graphs.shortestpaths;
+
+import graphs.IntGraph;
+import minpq.IndexedIntMinPQ;
+
+/**
+ * Dijkstra's algorithm implementation of the {@link IntShortestPathSolver} interface.
+ *
+ * @see IntShortestPathSolver
+ * @see DijkstraSolver
+ */
+public class IntDijkstraSolver implements IntShortestPathSolver {
+    private final SearchWorkspace workspace;
+
+    /**
+     * Constructs a new instance by executing Dijkstra's algorithm on the graph from the start.
+     *
+     * @param graph     the input graph.
+     * @param start     the start vertex.
+     * @param workspace the workspace to search in, reset before the search.
+     */
+    public IntDijkstraSolver(IntGraph graph, int start, SearchWorkspace workspace) {
+        this.workspace = workspace;
+        workspace.reset();
+        IndexedIntMinPQ perimeter = workspace.perimeter();
+        workspace.reach(start, 0.0, -1, -1);
+        perimeter.addOrChangePriority(start, 0.0);
+        while (!perimeter.isEmpty()) {
+            int from = perimeter.removeMin();
+            double fromDist = workspace.distTo(from);
+            for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e += 1) {
+                int to = graph.target(e);
+                double newDist = fromDist + graph.weight(e);
+                if (newDist < workspace.distTo(to)) {
+                    workspace.reach(to, newDist, from, e);
+                    perimeter.addOrChangePriority(to, newDist);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int[] solution(int goal) {
+        return workspace.path(goal);
+    }
+
+    @Override
+    public double distTo(int goal) {
+        return workspace.distTo(goal);
+    }
+}
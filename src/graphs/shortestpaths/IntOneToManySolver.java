@@ -0,0 +1,105 @@
+package graphs.shortestpaths;
+
+import graphs.IntGraph;
+import minpq.IndexedIntMinPQ;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra's algorithm from one start vertex to many target vertices, computed in a reusable
+ * {@link SearchWorkspace}. Unlike {@link IntDijkstraSolver}, the search stops as soon as every target is settled, so
+ * nearby targets do not pay for a search of the whole graph. Results are only valid until the workspace is used for
+ * another search.
+ *
+ * @see IntDijkstraSolver
+ */
+public class IntOneToManySolver {
+    private final SearchWorkspace workspace;
+    private final SearchResult.Status status;
+    private final int settled;
+
+    /**
+     * Constructs a new instance by executing Dijkstra's algorithm on the graph from the start until every target is
+     * settled or the budget is exceeded.
+     *
+     * @param graph     the input graph.
+     * @param start     the start vertex.
+     * @param targets   the target vertices, possibly with duplicates.
+     * @param workspace the workspace to search in, reset before the search.
+     * @param budget    the limits on the search.
+     */
+    public IntOneToManySolver(IntGraph graph, int start, int[] targets, SearchWorkspace workspace,
+                              SearchBudget budget) {
+        this.workspace = workspace;
+        int[] remaining = targets.clone();
+        Arrays.sort(remaining);
+        int unique = 0;
+        for (int i = 0; i < remaining.length; i += 1) {
+            if (i == 0 || remaining[i] != remaining[i - 1]) {
+                unique += 1;
+            }
+        }
+
+        workspace.reset();
+        IndexedIntMinPQ perimeter = workspace.perimeter();
+        workspace.reach(start, 0.0, -1, -1);
+        perimeter.addOrChangePriority(start, 0.0);
+        SearchResult.Status status = SearchResult.Status.FOUND;
+        int settled = 0;
+        while (unique > 0 && !perimeter.isEmpty()) {
+            settled += 1;
+            if (budget.isExceeded(settled)) {
+                status = SearchResult.Status.ABORTED;
+                break;
+            }
+            int from = perimeter.removeMin();
+            if (Arrays.binarySearch(remaining, from) >= 0) {
+                unique -= 1;
+            }
+            double fromDist = workspace.distTo(from);
+            for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e += 1) {
+                int to = graph.target(e);
+                double newDist = fromDist + graph.weight(e);
+                if (newDist < workspace.distTo(to)) {
+                    workspace.reach(to, newDist, from, e);
+                    perimeter.addOrChangePriority(to, newDist);
+                }
+            }
+        }
+        if (status == SearchResult.Status.FOUND && unique > 0) {
+            status = SearchResult.Status.NOT_FOUND;
+        }
+        this.status = status;
+        this.settled = settled;
+    }
+
+    /**
+     * Returns how the search ended: found if every target was reached, not found if some target is unreachable, or
+     * aborted if the budget was exceeded first.
+     *
+     * @return how the search ended.
+     */
+    public SearchResult.Status status() {
+        return status;
+    }
+
+    /**
+     * Returns the number of vertices settled by the search.
+     *
+     * @return the number of vertices settled by the search.
+     */
+    public int settled() {
+        return settled;
+    }
+
+    /**
+     * Returns the distance from the start to the given target, or infinity if it is unreachable. If the search was
+     * aborted, the distance to an unsettled target is only an upper bound.
+     *
+     * @param target a target vertex.
+     * @return the distance from the start to the given target.
+     */
+    public double distTo(int target) {
+        return workspace.distTo(target);
+    }
+}
@@ -0,0 +1,103 @@
+package graphs.shortestpaths;
+
+import graphs.IntGraph;
+import minpq.IndexedIntMinPQ;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra's algorithm from one start vertex that settles every vertex within a maximum distance and stops at the
+ * first vertex beyond it, computed in a reusable {@link SearchWorkspace}. The settled vertices are recorded in
+ * settling order in a primitive array, so the search does not allocate per vertex.
+ *
+ * @see IntDijkstraSolver
+ */
+public class IntRangeSolver {
+    private final SearchWorkspace workspace;
+    private final SearchResult.Status status;
+    private int[] settled;
+    private int count;
+
+    /**
+     * Constructs a new instance by executing Dijkstra's algorithm on the graph from the start until the next vertex
+     * is farther than the maximum distance or the budget is exceeded.
+     *
+     * @param graph       the input graph.
+     * @param start       the start vertex.
+     * @param maxDistance the maximum distance from the start.
+     * @param workspace   the workspace to search in, reset before the search.
+     * @param budget      the limits on the search.
+     */
+    public IntRangeSolver(IntGraph graph, int start, double maxDistance, SearchWorkspace workspace,
+                          SearchBudget budget) {
+        this.workspace = workspace;
+        settled = new int[64];
+        count = 0;
+        workspace.reset();
+        IndexedIntMinPQ perimeter = workspace.perimeter();
+        workspace.reach(start, 0.0, -1, -1);
+        perimeter.addOrChangePriority(start, 0.0);
+        SearchResult.Status status = SearchResult.Status.FOUND;
+        while (!perimeter.isEmpty() && perimeter.peekMinPriority() <= maxDistance) {
+            if (budget.isExceeded(count + 1)) {
+                status = SearchResult.Status.ABORTED;
+                break;
+            }
+            int from = perimeter.removeMin();
+            if (count == settled.length) {
+                settled = Arrays.copyOf(settled, count * 2);
+            }
+            settled[count] = from;
+            count += 1;
+            double fromDist = workspace.distTo(from);
+            for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e += 1) {
+                int to = graph.target(e);
+                double newDist = fromDist + graph.weight(e);
+                if (newDist < workspace.distTo(to)) {
+                    workspace.reach(to, newDist, from, e);
+                    perimeter.addOrChangePriority(to, newDist);
+                }
+            }
+        }
+        this.status = status;
+    }
+
+    /**
+     * Returns how the search ended: found if every vertex within the maximum distance was settled, or aborted if the
+     * budget was exceeded first.
+     *
+     * @return how the search ended.
+     */
+    public SearchResult.Status status() {
+        return status;
+    }
+
+    /**
+     * Returns the number of vertices settled by the search.
+     *
+     * @return the number of vertices settled by the search.
+     */
+    public int settled() {
+        return count;
+    }
+
+    /**
+     * Returns the vertices settled by the search in settling order. Only the first {@link #settled()} entries are
+     * valid.
+     *
+     * @return the vertices settled by the search.
+     */
+    public int[] vertices() {
+        return settled;
+    }
+
+    /**
+     * Returns the distance from the start to the given settled vertex.
+     *
+     * @param vertex a settled vertex.
+     * @return the distance from the start to the given vertex.
+     */
+    public double distTo(int vertex) {
+        return workspace.distTo(vertex);
+    }
+}
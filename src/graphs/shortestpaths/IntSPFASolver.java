@@ -0,0 +1,49 @@
+package graphs.shortestpaths;
+
+import graphs.IntGraph;
+
+/**
+ * Shortest Path Faster Algorithm implementation of the {@link IntShortestPathSolver} interface.
+ *
+ * @see IntShortestPathSolver
+ * @see SPFASolver
+ */
+public class IntSPFASolver implements IntShortestPathSolver {
+    private final SearchWorkspace workspace;
+
+    /**
+     * Constructs a new instance by executing SPFA on the graph from the start.
+     *
+     * @param graph     the input graph.
+     * @param start     the start vertex.
+     * @param workspace the workspace to search in, reset before the search.
+     */
+    public IntSPFASolver(IntGraph graph, int start, SearchWorkspace workspace) {
+        this.workspace = workspace;
+        workspace.reset();
+        workspace.reach(start, 0.0, -1, -1);
+        workspace.enqueue(start);
+        while (!workspace.isQueueEmpty()) {
+            int from = workspace.dequeue();
+            double fromDist = workspace.distTo(from);
+            for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e += 1) {
+                int to = graph.target(e);
+                double newDist = fromDist + graph.weight(e);
+                if (newDist < workspace.distTo(to)) {
+                    workspace.reach(to, newDist, from, e);
+                    workspace.enqueue(to);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int[] solution(int goal) {
+        return workspace.path(goal);
+    }
+
+    @Override
+    public double distTo(int goal) {
+        return workspace.distTo(goal);
+    }
+}
@@ -0,0 +1,29 @@
+package graphs.shortestpaths;
+
+import graphs.IntGraph;
+
+/**
+ * Single-source shortest paths from a start vertex to all reachable vertices in an {@link IntGraph}, computed in a
+ * reusable {@link SearchWorkspace}. Results are only valid until the workspace is used for another search.
+ *
+ * @see ShortestPathSolver
+ * @see SearchWorkspace
+ * @see IntDijkstraSolver
+ */
+public interface IntShortestPathSolver {
+    /**
+     * Returns the single-pair shortest path from the start vertex to the goal.
+     *
+     * @param goal the goal vertex.
+     * @return the vertices on the shortest path, or an empty array if the goal is unreachable.
+     */
+    int[] solution(int goal);
+
+    /**
+     * Returns the total weight of the shortest path from the start vertex to the goal.
+     *
+     * @param goal the goal vertex.
+     * @return the total weight of the shortest path, or infinity if the goal is unreachable.
+     */
+    double distTo(int goal);
+}
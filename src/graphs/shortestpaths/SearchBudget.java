@@ -0,0 +1,98 @@
+package graphs.shortestpaths;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Per-query limits on a shortest paths search: a maximum number of settled vertices, a deadline, and a cancellation
+ * token. A search that exceeds its budget stops early and reports {@link SearchResult.Status#ABORTED}. Instances are
+ * immutable; each {@code with} method returns a new budget with the additional limit.
+ *
+ * @see AStarSolver
+ * @see SearchResult
+ */
+public class SearchBudget {
+    /**
+     * Number of settled vertices between checks of the clock and cancellation token.
+     */
+    private static final int CHECK_INTERVAL = 64;
+    /**
+     * Budget with no limits.
+     */
+    private static final SearchBudget UNLIMITED = new SearchBudget(Integer.MAX_VALUE, false, 0, () -> false);
+
+    private final int maxSettled;
+    private final boolean hasDeadline;
+    private final long deadline;
+    private final BooleanSupplier cancelled;
+
+    private SearchBudget(int maxSettled, boolean hasDeadline, long deadline, BooleanSupplier cancelled) {
+        this.maxSettled = maxSettled;
+        this.hasDeadline = hasDeadline;
+        this.deadline = deadline;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Returns a budget with no limits.
+     *
+     * @return a budget with no limits.
+     */
+    public static SearchBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Returns a copy of this budget that also stops the search after the given number of vertices are settled.
+     *
+     * @param maxSettled the maximum number of vertices to settle.
+     * @return a copy of this budget with the settled vertex limit.
+     */
+    public SearchBudget withMaxSettled(int maxSettled) {
+        return new SearchBudget(Math.min(this.maxSettled, maxSettled), hasDeadline, deadline, cancelled);
+    }
+
+    /**
+     * Returns a copy of this budget that also stops the search once the given amount of time from now has elapsed.
+     *
+     * @param timeout the maximum search time.
+     * @param unit    the unit of the timeout.
+     * @return a copy of this budget with the deadline.
+     */
+    public SearchBudget withTimeout(long timeout, TimeUnit unit) {
+        long newDeadline = System.nanoTime() + unit.toNanos(timeout);
+        if (hasDeadline && deadline - newDeadline < 0) {
+            newDeadline = deadline;
+        }
+        return new SearchBudget(maxSettled, true, newDeadline, cancelled);
+    }
+
+    /**
+     * Returns a copy of this budget that also stops the search once the given token reports cancellation.
+     *
+     * @param token returns true once the search should be cancelled.
+     * @return a copy of this budget with the cancellation token.
+     */
+    public SearchBudget withCancellation(BooleanSupplier token) {
+        BooleanSupplier previous = cancelled;
+        return new SearchBudget(maxSettled, hasDeadline, deadline,
+                () -> previous.getAsBoolean() || token.getAsBoolean());
+    }
+
+    /**
+     * Returns true if a search that has settled the given number of vertices has exceeded this budget. The clock and
+     * cancellation token are only checked periodically to keep this call cheap.
+     *
+     * @param settled the number of vertices settled so far.
+     * @return true if the search should stop.
+     */
+    public boolean isExceeded(int settled) {
+        if (settled >= maxSettled) {
+            return true;
+        }
+        if (settled % CHECK_INTERVAL != 0) {
+            return false;
+        }
+        return (hasDeadline && System.nanoTime() - deadline >= 0) || cancelled.getAsBoolean();
+    }
+}
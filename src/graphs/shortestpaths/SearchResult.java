@@ -0,0 +1,106 @@
+package graphs.shortestpaths;
+
+import java.util.List;
+
+/**
+ * Outcome of a single-pair shortest paths search: whether the goal was found, the path and its distance, and how
+ * much work the search did.
+ *
+ * @param <V> the type of vertices.
+ * @see AStarSolver
+ * @see SearchBudget
+ */
+public class SearchResult<V> {
+    /**
+     * How a search ended.
+     */
+    public enum Status {
+        /**
+         * The goal was settled and the path is a shortest path.
+         */
+        FOUND,
+        /**
+         * Every reachable vertex was settled without reaching the goal.
+         */
+        NOT_FOUND,
+        /**
+         * The search exceeded its {@link SearchBudget} before settling the goal.
+         */
+        ABORTED
+    }
+
+    private final Status status;
+    private final List<V> solution;
+    private final double distance;
+    private final int settled;
+
+    /**
+     * Constructs a new result.
+     *
+     * @param status   how the search ended.
+     * @param solution the vertices on the shortest path, or an empty list if the goal was not found.
+     * @param distance the total weight of the shortest path, or infinity if the goal was not found.
+     * @param settled  the number of vertices settled by the search.
+     */
+    public SearchResult(Status status, List<V> solution, double distance, int settled) {
+        this.status = status;
+        this.solution = solution;
+        this.distance = distance;
+        this.settled = settled;
+    }
+
+    /**
+     * Returns how the search ended.
+     *
+     * @return how the search ended.
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * Returns true if the goal was found.
+     *
+     * @return true if the goal was found.
+     */
+    public boolean isFound() {
+        return status == Status.FOUND;
+    }
+
+    /**
+     * Returns the vertices on the shortest path from the start to the goal, or an empty list if the goal was not
+     * found.
+     *
+     * @return a list of vertices representing the shortest path.
+     */
+    public List<V> solution() {
+        return solution;
+    }
+
+    /**
+     * Returns the total weight of the shortest path, or infinity if the goal was not found.
+     *
+     * @return the total weight of the shortest path.
+     */
+    public double distance() {
+        return distance;
+    }
+
+    /**
+     * Returns the number of vertices settled by the search.
+     *
+     * @return the number of vertices settled by the search.
+     */
+    public int settled() {
+        return settled;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult{" +
+                "status=" + status +
+                ", distance=" + distance +
+                ", settled=" + settled +
+                '}';
+    }
+}
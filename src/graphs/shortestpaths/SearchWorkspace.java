@@ -0,0 +1,202 @@
+package graphs.shortestpaths;
+
+import minpq.IndexedIntMinPQ;
+
+import java.util.Arrays;
+
+/**
+ * Preallocated, reusable state for shortest paths searches over an {@link graphs.IntGraph}: primitive distance and
+ * parent arrays indexed by vertex id, a primitive heap, and a FIFO queue. {@link #reset()} runs in constant time by
+ * advancing a generation stamp, so steady-state searches do not allocate. A workspace is not thread-safe; each thread
+ * should own one and reuse it across queries. Results read from a workspace are only valid until its next reset.
+ *
+ * @see IntDijkstraSolver
+ * @see IntAStarSolver
+ * @see IntBellmanFordSolver
+ * @see IntSPFASolver
+ */
+public class SearchWorkspace {
+    private final double[] distTo;
+    private final int[] edgeTo;
+    private final int[] parent;
+    /**
+     * Generation in which each vertex was last reached. Entries from older generations are stale.
+     */
+    private final int[] stamps;
+    private final IndexedIntMinPQ perimeter;
+    private final int[] queue;
+    /**
+     * Generation in which each vertex was last added to the queue, or 0 once it is removed.
+     */
+    private final int[] queued;
+    private int generation;
+    private int head;
+    private int queueSize;
+
+    /**
+     * Constructs a workspace for graphs with up to the given number of vertices.
+     *
+     * @param capacity the maximum number of vertices.
+     */
+    public SearchWorkspace(int capacity) {
+        distTo = new double[capacity];
+        edgeTo = new int[capacity];
+        parent = new int[capacity];
+        stamps = new int[capacity];
+        perimeter = new IndexedIntMinPQ(capacity);
+        queue = new int[capacity];
+        queued = new int[capacity];
+        generation = 1;
+        head = 0;
+        queueSize = 0;
+    }
+
+    /**
+     * Returns the maximum number of vertices.
+     *
+     * @return the maximum number of vertices.
+     */
+    public int capacity() {
+        return distTo.length;
+    }
+
+    /**
+     * Forgets all reached vertices and empties the heap and queue in constant time.
+     */
+    public void reset() {
+        generation += 1;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            Arrays.fill(queued, 0);
+            generation = 1;
+        }
+        perimeter.clear();
+        head = 0;
+        queueSize = 0;
+    }
+
+    /**
+     * Returns true if the given vertex has been reached since the last reset.
+     *
+     * @param vertex the vertex of interest.
+     * @return true if the given vertex has been reached.
+     */
+    public boolean isReached(int vertex) {
+        return stamps[vertex] == generation;
+    }
+
+    /**
+     * Returns the best known distance to the given vertex, or infinity if it has not been reached.
+     *
+     * @param vertex the vertex of interest.
+     * @return the best known distance to the given vertex.
+     */
+    public double distTo(int vertex) {
+        return isReached(vertex) ? distTo[vertex] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the edge used to reach the given vertex, or -1 if it is a source or has not been reached.
+     *
+     * @param vertex the vertex of interest.
+     * @return the edge used to reach the given vertex.
+     */
+    public int edgeTo(int vertex) {
+        return isReached(vertex) ? edgeTo[vertex] : -1;
+    }
+
+    /**
+     * Returns the vertex preceding the given vertex on its best known path, or -1 if it is a source or has not been
+     * reached.
+     *
+     * @param vertex the vertex of interest.
+     * @return the vertex preceding the given vertex.
+     */
+    public int parent(int vertex) {
+        return isReached(vertex) ? parent[vertex] : -1;
+    }
+
+    /**
+     * Records a new best known path to the given vertex.
+     *
+     * @param vertex the vertex reached.
+     * @param dist   the distance to the vertex.
+     * @param from   the preceding vertex, or -1 for a source.
+     * @param edge   the edge from the preceding vertex, or -1 for a source.
+     */
+    public void reach(int vertex, double dist, int from, int edge) {
+        stamps[vertex] = generation;
+        distTo[vertex] = dist;
+        parent[vertex] = from;
+        edgeTo[vertex] = edge;
+    }
+
+    /**
+     * Returns the heap of this workspace, cleared on every reset.
+     *
+     * @return the heap of this workspace.
+     */
+    public IndexedIntMinPQ perimeter() {
+        return perimeter;
+    }
+
+    /**
+     * Adds the given vertex to the back of the queue unless it is already queued.
+     *
+     * @param vertex the vertex to add.
+     * @return true if the vertex was added.
+     */
+    public boolean enqueue(int vertex) {
+        if (queued[vertex] == generation) {
+            return false;
+        }
+        queued[vertex] = generation;
+        queue[(head + queueSize) % queue.length] = vertex;
+        queueSize += 1;
+        return true;
+    }
+
+    /**
+     * Removes and returns the vertex at the front of the queue.
+     *
+     * @return the vertex at the front of the queue.
+     */
+    public int dequeue() {
+        int vertex = queue[head];
+        head = (head + 1) % queue.length;
+        queueSize -= 1;
+        queued[vertex] = 0;
+        return vertex;
+    }
+
+    /**
+     * Returns true if the queue is empty.
+     *
+     * @return true if the queue is empty.
+     */
+    public boolean isQueueEmpty() {
+        return queueSize == 0;
+    }
+
+    /**
+     * Returns the vertices on the best known path to the given vertex, or an empty array if it has not been reached.
+     *
+     * @param goal the last vertex on the path.
+     * @return the vertices on the best known path to the given vertex.
+     */
+    public int[] path(int goal) {
+        if (!isReached(goal)) {
+            return new int[0];
+        }
+        int length = 0;
+        for (int v = goal; v != -1; v = parent[v]) {
+            length += 1;
+        }
+        int[] path = new int[length];
+        for (int v = goal; v != -1; v = parent[v]) {
+            length -= 1;
+            path[length] = v;
+        }
+        return path;
+    }
+}
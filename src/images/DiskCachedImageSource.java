@@ -0,0 +1,182 @@
+package images;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * {@link ImageSource} decorator that keeps Base64-encoded images in a directory on disk, evicting the least recently
+ * used images once their total size exceeds a limit. Each image is stored in a file named by the SHA-256 hash of its
+ * request, so the cache survives restarts: existing files are indexed on construction, oldest first.
+ */
+public class DiskCachedImageSource implements ImageSource {
+    /**
+     * Suffix of cached image files.
+     */
+    private static final String SUFFIX = ".b64";
+
+    private final ImageSource source;
+    private final Path directory;
+    private final long maxBytes;
+    /**
+     * Size of each cached file keyed by file name, in access order from least to most recently used.
+     */
+    private final LinkedHashMap<String, Long> index;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs a new disk-cached image source, creating the directory if needed.
+     *
+     * @param source    the underlying image source.
+     * @param directory the directory for cached images.
+     * @param maxBytes  the maximum total size of cached images.
+     * @throws IOException if the directory cannot be created or listed.
+     */
+    public DiskCachedImageSource(ImageSource source, Path directory, long maxBytes) throws IOException {
+        this.source = source;
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        index = new LinkedHashMap<>(16, 0.75f, true);
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(DiskCachedImageSource::lastModified))
+                    .forEach(file -> {
+                        long size = size(file);
+                        index.put(file.getFileName().toString(), size);
+                        bytes += size;
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        synchronized (this) {
+            evict();
+        }
+    }
+
+    @Override
+    public byte[] image(String request) throws IOException {
+        String name = DigestUtils.sha256Hex(request) + SUFFIX;
+        Path file = directory.resolve(name);
+        boolean cached;
+        synchronized (this) {
+            cached = index.get(name) != null;
+        }
+        if (cached) {
+            try {
+                byte[] image = Files.readAllBytes(file);
+                synchronized (this) {
+                    hits += 1;
+                }
+                return image;
+            } catch (IOException e) {
+                // The file was evicted or removed since the lookup, so fetch it again.
+                synchronized (this) {
+                    Long size = index.remove(name);
+                    bytes -= size == null ? 0 : size;
+                }
+            }
+        }
+        synchronized (this) {
+            misses += 1;
+        }
+
+        byte[] image = source.image(request);
+        Path temp = Files.createTempFile(directory, name, ".tmp");
+        try {
+            Files.write(temp, image);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            return image;
+        }
+        synchronized (this) {
+            Long previous = index.put(name, (long) image.length);
+            bytes += image.length - (previous == null ? 0 : previous);
+            evict();
+        }
+        return image;
+    }
+
+    /**
+     * Returns the number of requests served from disk.
+     *
+     * @return the number of requests served from disk.
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests passed to the underlying image source.
+     *
+     * @return the number of requests passed to the underlying image source.
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of images evicted to stay within the size limit.
+     *
+     * @return the number of images evicted to stay within the size limit.
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the total size of cached images.
+     *
+     * @return the total size of cached images.
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Deletes least-recently-used images until the total size is within the limit.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey()));
+            } catch (IOException e) {
+                // Forget the file anyway; it is overwritten if the same image is cached again.
+            }
+            bytes -= entry.getValue();
+            iterator.remove();
+            evictions += 1;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
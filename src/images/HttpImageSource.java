@@ -0,0 +1,58 @@
+package images;
+
+import org.apache.commons.codec.binary.Base64;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * {@link ImageSource} that fetches images over HTTP from a configurable base URL, such as the Mapbox API or a local
+ * stub server, and appends the access token to each request. Connections are pooled by a shared {@link HttpClient}.
+ */
+public class HttpImageSource implements ImageSource {
+    private final String baseUrl;
+    private final String token;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    /**
+     * Constructs a new image source.
+     *
+     * @param baseUrl the URL that requests are relative to, ending with a slash.
+     * @param token   the access token appended to each request, or null to send no token.
+     * @param timeout the maximum time to connect and to wait for each response.
+     */
+    public HttpImageSource(String baseUrl, String token, Duration timeout) {
+        this.baseUrl = baseUrl;
+        this.token = token;
+        this.timeout = timeout;
+        client = HttpClient.newBuilder().connectTimeout(timeout).followRedirects(HttpClient.Redirect.NORMAL).build();
+    }
+
+    @Override
+    public byte[] image(String request) throws IOException {
+        StringBuilder url = new StringBuilder(baseUrl).append(request);
+        if (token != null) {
+            url.append(request.indexOf('?') == -1 ? '?' : '&');
+            url.append("access_token=").append(URLEncoder.encode(token, StandardCharsets.UTF_8));
+        }
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(url.toString())).timeout(timeout).GET().build();
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + request, e);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Image service returned " + response.statusCode() + " for " + request);
+        }
+        return Base64.encodeBase64(response.body());
+    }
+}
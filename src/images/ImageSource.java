@@ -0,0 +1,22 @@
+package images;
+
+import java.io.IOException;
+
+/**
+ * Source of Base64-encoded static map images. Requests are identified by their path and query relative to the image
+ * service, without credentials, so the same request string can be used as a cache key.
+ *
+ * @see HttpImageSource
+ * @see SingleFlightImageSource
+ * @see DiskCachedImageSource
+ */
+public interface ImageSource {
+    /**
+     * Returns the Base64-encoded image for the given request.
+     *
+     * @param request the path and query of the image relative to the image service, without credentials.
+     * @return the Base64-encoded image bytes.
+     * @throws IOException if the image cannot be retrieved.
+     */
+    byte[] image(String request) throws IOException;
+}
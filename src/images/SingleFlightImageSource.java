@@ -0,0 +1,80 @@
+package images;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ImageSource} decorator that coalesces concurrent identical requests: while a request is in flight, other
+ * callers asking for the same image wait for its result instead of making their own upstream call. Once the request
+ * completes, the next caller starts a new one.
+ */
+public class SingleFlightImageSource implements ImageSource {
+    private final ImageSource source;
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>> inFlight;
+    private final AtomicLong coalesced;
+
+    /**
+     * Constructs a new coalescing image source.
+     *
+     * @param source the underlying image source.
+     */
+    public SingleFlightImageSource(ImageSource source) {
+        this.source = source;
+        inFlight = new ConcurrentHashMap<>();
+        coalesced = new AtomicLong();
+    }
+
+    @Override
+    public byte[] image(String request) throws IOException {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(request, future);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+        try {
+            byte[] image = source.image(request);
+            future.complete(image);
+            return image;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(request, future);
+        }
+    }
+
+    /**
+     * Returns the number of requests that were served by waiting on an identical in-flight request.
+     *
+     * @return the number of coalesced requests.
+     */
+    public long coalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Waits for the given in-flight request and returns its result, rethrowing its failure.
+     */
+    private static byte[] await(CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an in-flight image");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package minpq;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Primitive indexed binary heap of {@code int} elements in the range {@code [0, capacity)} with {@code double}
+ * priority values. Unlike {@link MinPQ} implementations, this heap never boxes elements or priorities and never
+ * allocates after construction, and {@link #clear()} runs in constant time by advancing a generation stamp instead of
+ * resetting the index arrays.
+ *
+ * @see MinPQ
+ * @see OptimizedHeapMinPQ
+ */
+public class IndexedIntMinPQ {
+    /**
+     * Elements in heap order.
+     */
+    private final int[] heap;
+    /**
+     * Priority value of each element.
+     */
+    private final double[] priorities;
+    /**
+     * Index of each element in the heap, or -1 if the element has been removed.
+     */
+    private final int[] positions;
+    /**
+     * Generation in which each element's position was last written. Positions from older generations are stale.
+     */
+    private final int[] stamps;
+    private int generation;
+    private int size;
+
+    /**
+     * Constructs an empty instance for elements in the range {@code [0, capacity)}.
+     *
+     * @param capacity one more than the largest element.
+     */
+    public IndexedIntMinPQ(int capacity) {
+        heap = new int[capacity];
+        priorities = new double[capacity];
+        positions = new int[capacity];
+        stamps = new int[capacity];
+        generation = 1;
+        size = 0;
+    }
+
+    /**
+     * Removes all elements in constant time.
+     */
+    public void clear() {
+        size = 0;
+        generation += 1;
+        if (generation == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Returns the largest element plus one.
+     *
+     * @return the largest element plus one.
+     */
+    public int capacity() {
+        return heap.length;
+    }
+
+    /**
+     * Adds an element with the given priority value if it is not already present. Otherwise, updates the priority value
+     * of the existing element.
+     *
+     * @param element  the element to add or update.
+     * @param priority the priority value for the element.
+     */
+    public void addOrChangePriority(int element, double priority) {
+        if (contains(element)) {
+            double oldPriority = priorities[element];
+            priorities[element] = priority;
+            if (priority < oldPriority) {
+                swim(positions[element]);
+            } else {
+                sink(positions[element]);
+            }
+        } else {
+            stamps[element] = generation;
+            priorities[element] = priority;
+            heap[size] = element;
+            positions[element] = size;
+            size += 1;
+            swim(size - 1);
+        }
+    }
+
+    /**
+     * Returns true if the given element is in this priority queue.
+     *
+     * @param element element to be checked for containment.
+     * @return true if the given element is in this priority queue.
+     */
+    public boolean contains(int element) {
+        return stamps[element] == generation && positions[element] >= 0;
+    }
+
+    /**
+     * Returns the priority value for the given element if it is present.
+     *
+     * @param element element to query.
+     * @return the priority value for the given element.
+     * @throws NoSuchElementException if element is not present.
+     */
+    public double getPriority(int element) {
+        if (!contains(element)) {
+            throw new NoSuchElementException("PQ does not contain " + element);
+        }
+        return priorities[element];
+    }
+
+    /**
+     * Returns the element with the minimum priority value.
+     *
+     * @return the element with the minimum priority value.
+     * @throws NoSuchElementException if this priority queue is empty.
+     */
+    public int peekMin() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("PQ is empty");
+        }
+        return heap[0];
+    }
+
+    /**
+     * Returns the minimum priority value.
+     *
+     * @return the minimum priority value.
+     * @throws NoSuchElementException if this priority queue is empty.
+     */
+    public double peekMinPriority() {
+        return priorities[peekMin()];
+    }
+
+    /**
+     * Returns and removes the element with the minimum priority value.
+     *
+     * @return the element with the minimum priority value.
+     * @throws NoSuchElementException if this priority queue is empty.
+     */
+    public int removeMin() {
+        int min = peekMin();
+        size -= 1;
+        exch(0, size);
+        positions[min] = -1;
+        sink(0);
+        return min;
+    }
+
+    /**
+     * Returns the number of elements in this priority queue.
+     *
+     * @return the number of elements in this priority queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if this priority queue contains no elements.
+     *
+     * @return true if this priority queue contains no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void swim(int k) {
+        while (k > 0 && greater((k - 1) / 2, k)) {
+            exch(k, (k - 1) / 2);
+            k = (k - 1) / 2;
+        }
+    }
+
+    private void sink(int k) {
+        while (2 * k + 1 < size) {
+            int j = 2 * k + 1;
+            if (j + 1 < size && greater(j, j + 1)) {
+                j += 1;
+            }
+            if (!greater(k, j)) {
+                break;
+            }
+            exch(k, j);
+            k = j;
+        }
+    }
+
+    private boolean greater(int i, int j) {
+        return priorities[heap[i]] > priorities[heap[j]];
+    }
+
+    private void exch(int i, int j) {
+        int element = heap[i];
+        heap[i] = heap[j];
+        heap[j] = element;
+        positions[heap[i]] = i;
+        positions[heap[j]] = j;
+    }
+}
@@ -0,0 +1,121 @@
+package spatial;
+
+import java.util.Arrays;
+
+/**
+ * Convex hull of a set of locations computed with Andrew's monotone chain algorithm. Coordinates are quantized to
+ * 1e-7 degrees, the precision of OpenStreetMap, so that the points can be sorted as packed primitive keys and the
+ * orientation tests are exact integer arithmetic for any set of locations spanning at most 180 degrees of longitude.
+ */
+public class ConvexHull {
+    /**
+     * Quantization scale in units per degree.
+     */
+    private static final double SCALE = 1e7;
+
+    private final double[] lat;
+    private final double[] lon;
+
+    /**
+     * Constructs the convex hull of the given points.
+     *
+     * @param lat    the latitude of each location.
+     * @param lon    the longitude of each location.
+     * @param points the indices of the locations to enclose.
+     * @param count  the number of valid entries in the points array.
+     */
+    public ConvexHull(double[] lat, double[] lon, int[] points, int count) {
+        // Pack (x, y) so that signed long order is lexicographic order: x in the high bits, y offset to unsigned.
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i += 1) {
+            long x = Math.round(lon[points[i]] * SCALE);
+            long y = Math.round(lat[points[i]] * SCALE);
+            keys[i] = x << 32 | (y + 0x80000000L);
+        }
+        Arrays.sort(keys);
+        int unique = 0;
+        for (int i = 0; i < count; i += 1) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[unique] = keys[i];
+                unique += 1;
+            }
+        }
+
+        long[] hull = new long[2 * unique];
+        int size = 0;
+        if (unique < 3) {
+            System.arraycopy(keys, 0, hull, 0, unique);
+            size = unique;
+        } else {
+            // Lower hull, then upper hull, each keeping only counter-clockwise turns.
+            for (int i = 0; i < unique; i += 1) {
+                while (size >= 2 && cross(hull[size - 2], hull[size - 1], keys[i]) <= 0) {
+                    size -= 1;
+                }
+                hull[size] = keys[i];
+                size += 1;
+            }
+            int lower = size + 1;
+            for (int i = unique - 2; i >= 0; i -= 1) {
+                while (size >= lower && cross(hull[size - 2], hull[size - 1], keys[i]) <= 0) {
+                    size -= 1;
+                }
+                hull[size] = keys[i];
+                size += 1;
+            }
+            // The last point repeats the first.
+            size -= 1;
+        }
+
+        this.lat = new double[size];
+        this.lon = new double[size];
+        for (int i = 0; i < size; i += 1) {
+            this.lon[i] = x(hull[i]) / SCALE;
+            this.lat[i] = y(hull[i]) / SCALE;
+        }
+    }
+
+    private static long x(long key) {
+        return key >> 32;
+    }
+
+    private static long y(long key) {
+        return (key & 0xFFFFFFFFL) - 0x80000000L;
+    }
+
+    /**
+     * Returns the z-component of the cross product of (b - a) and (c - a), positive for a counter-clockwise turn.
+     */
+    private static long cross(long a, long b, long c) {
+        return (x(b) - x(a)) * (y(c) - y(a)) - (y(b) - y(a)) * (x(c) - x(a));
+    }
+
+    /**
+     * Returns the number of vertices of this hull.
+     *
+     * @return the number of vertices of this hull.
+     */
+    public int size() {
+        return lat.length;
+    }
+
+    /**
+     * Returns the latitude of the given hull vertex, in counter-clockwise order starting from the westernmost point.
+     *
+     * @param i the index of the hull vertex.
+     * @return the latitude of the given hull vertex.
+     */
+    public double lat(int i) {
+        return lat[i];
+    }
+
+    /**
+     * Returns the longitude of the given hull vertex, in counter-clockwise order starting from the westernmost point.
+     *
+     * @param i the index of the hull vertex.
+     * @return the longitude of the given hull vertex.
+     */
+    public double lon(int i) {
+        return lon[i];
+    }
+}
@@ -0,0 +1,256 @@
+package spatial;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Static k-d tree over points on the surface of the Earth given by latitude and longitude. Each point is converted to
+ * a 3-dimensional unit vector so that straight-line (chord) distance is monotonic in great-circle distance, which
+ * makes nearest-neighbor queries exact without any trigonometry per visited node. The tree is built once in
+ * {@code O(n log n)} time and answers nearest and k-nearest queries in logarithmic expected time.
+ */
+public class KDTree {
+    /**
+     * Number of dimensions of the unit vectors.
+     */
+    private static final int K = 3;
+    /**
+     * Point ids in tree order: the root of the range {@code [lo, hi)} is stored at {@code (lo + hi) >>> 1}.
+     */
+    private final int[] ids;
+    /**
+     * Unit vector coordinates in tree order, {@code K} values per point.
+     */
+    private final double[] coords;
+    /**
+     * Splitting axis of the node stored at each index.
+     */
+    private final byte[] axes;
+
+    /**
+     * Constructs a tree over all the points in the given coordinate arrays, identified by their array index.
+     *
+     * @param lat the latitude of each point in degrees.
+     * @param lon the longitude of each point in degrees.
+     */
+    public KDTree(double[] lat, double[] lon) {
+        this(lat, lon, identity(lat.length));
+    }
+
+    /**
+     * Constructs a tree over the given subset of points in the given coordinate arrays.
+     *
+     * @param lat the latitude of each point in degrees.
+     * @param lon the longitude of each point in degrees.
+     * @param ids the indices of the points to include.
+     */
+    public KDTree(double[] lat, double[] lon, int[] ids) {
+        int n = ids.length;
+        this.ids = Arrays.copyOf(ids, n);
+        double[] unit = new double[n * K];
+        for (int i = 0; i < n; i += 1) {
+            toUnit(lat[ids[i]], lon[ids[i]], unit, i * K);
+        }
+        this.axes = new byte[n];
+        build(unit, 0, n);
+        this.coords = unit;
+    }
+
+    /**
+     * Returns the number of points in this tree.
+     *
+     * @return the number of points in this tree.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the id of the point closest to the given location, or -1 if this tree is empty.
+     *
+     * @param lat the latitude of the query location in degrees.
+     * @param lon the longitude of the query location in degrees.
+     * @return the id of the point closest to the given location, or -1 if this tree is empty.
+     */
+    public int nearest(double lat, double lon) {
+        int[] result = nearest(lat, lon, 1);
+        return result.length == 0 ? -1 : result[0];
+    }
+
+    /**
+     * Returns the ids of up to k points closest to the given location, ordered from closest to farthest.
+     *
+     * @param lat the latitude of the query location in degrees.
+     * @param lon the longitude of the query location in degrees.
+     * @param k   the maximum number of points to return.
+     * @return the ids of up to k points closest to the given location, ordered from closest to farthest.
+     */
+    public int[] nearest(double lat, double lon, int k) {
+        return nearest(lat, lon, k, id -> true);
+    }
+
+    /**
+     * Returns the ids of up to k points accepted by the filter closest to the given location, ordered from closest to
+     * farthest. Rejected points never tighten the search bound, so a filter that rejects most points visits most of
+     * the tree.
+     *
+     * @param lat    the latitude of the query location in degrees.
+     * @param lon    the longitude of the query location in degrees.
+     * @param k      the maximum number of points to return.
+     * @param filter the test that the id of each returned point passes.
+     * @return the ids of up to k accepted points closest to the given location, ordered from closest to farthest.
+     */
+    public int[] nearest(double lat, double lon, int k, IntPredicate filter) {
+        double[] query = new double[K];
+        toUnit(lat, lon, query, 0);
+        Neighbors best = new Neighbors(Math.min(k, ids.length));
+        if (best.capacity() > 0) {
+            nearest(query, 0, ids.length, filter, best);
+        }
+        return best.sorted();
+    }
+
+    /**
+     * Recursively searches the range {@code [lo, hi)} for accepted points closer than the current k-th best.
+     */
+    private void nearest(double[] query, int lo, int hi, IntPredicate filter, Neighbors best) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (filter.test(ids[mid])) {
+            best.offer(ids[mid], squaredDistance(query, mid));
+        }
+        int axis = axes[mid];
+        double delta = query[axis] - coords[mid * K + axis];
+        if (delta < 0) {
+            nearest(query, lo, mid, filter, best);
+            if (delta * delta < best.bound()) {
+                nearest(query, mid + 1, hi, filter, best);
+            }
+        } else {
+            nearest(query, mid + 1, hi, filter, best);
+            if (delta * delta < best.bound()) {
+                nearest(query, lo, mid, filter, best);
+            }
+        }
+    }
+
+    /**
+     * Returns the squared chord distance from the query vector to the point stored at the given tree index.
+     */
+    private double squaredDistance(double[] query, int index) {
+        double result = 0;
+        for (int d = 0; d < K; d += 1) {
+            double delta = query[d] - coords[index * K + d];
+            result += delta * delta;
+        }
+        return result;
+    }
+
+    /**
+     * Recursively arranges the range {@code [lo, hi)} so that its median along the widest axis is stored at the
+     * middle index with smaller points before it and larger points after it.
+     */
+    private void build(double[] unit, int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int axis = widestAxis(unit, lo, hi);
+        int mid = (lo + hi) >>> 1;
+        select(unit, lo, hi - 1, mid, axis);
+        axes[mid] = (byte) axis;
+        build(unit, lo, mid);
+        build(unit, mid + 1, hi);
+    }
+
+    /**
+     * Returns the axis with the largest spread of coordinates in the range {@code [lo, hi)}.
+     */
+    private static int widestAxis(double[] unit, int lo, int hi) {
+        int widest = 0;
+        double widestSpread = -1;
+        for (int d = 0; d < K; d += 1) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i += 1) {
+                min = Math.min(min, unit[i * K + d]);
+                max = Math.max(max, unit[i * K + d]);
+            }
+            if (max - min > widestSpread) {
+                widest = d;
+                widestSpread = max - min;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * Quickselect: partially sorts the inclusive range {@code [lo, hi]} along the given axis so that the k-th
+     * smallest point is stored at index k.
+     */
+    private void select(double[] unit, int lo, int hi, int k, int axis) {
+        while (lo < hi) {
+            double pivot = unit[((lo + hi) >>> 1) * K + axis];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (unit[i * K + axis] < pivot) {
+                    i += 1;
+                }
+                while (unit[j * K + axis] > pivot) {
+                    j -= 1;
+                }
+                if (i <= j) {
+                    swap(unit, i, j);
+                    i += 1;
+                    j -= 1;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Exchanges the points stored at the two given tree indices.
+     */
+    private void swap(double[] unit, int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        for (int d = 0; d < K; d += 1) {
+            double c = unit[i * K + d];
+            unit[i * K + d] = unit[j * K + d];
+            unit[j * K + d] = c;
+        }
+    }
+
+    /**
+     * Writes the unit vector for the given latitude and longitude into the destination array.
+     */
+    static void toUnit(double lat, double lon, double[] dest, int offset) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        double cosPhi = Math.cos(phi);
+        dest[offset] = cosPhi * Math.cos(lambda);
+        dest[offset + 1] = cosPhi * Math.sin(lambda);
+        dest[offset + 2] = Math.sin(phi);
+    }
+
+    /**
+     * Returns the array {@code [0, 1, ..., n - 1]}.
+     */
+    private static int[] identity(int n) {
+        int[] result = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            result[i] = i;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,94 @@
+package spatial;
+
+/**
+ * Bounded max-heap of the k closest points found so far, keyed on squared chord distance. Shared by the spatial
+ * indexes for their k-nearest queries.
+ */
+final class Neighbors {
+    private final int capacity;
+    private final int[] ids;
+    private final double[] distances;
+    private int size;
+
+    Neighbors(int capacity) {
+        this.capacity = capacity;
+        this.ids = new int[capacity];
+        this.distances = new double[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the maximum number of points kept.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the distance a point must beat to be added: the current k-th best, or infinity if not yet full.
+     */
+    double bound() {
+        return size < capacity ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    /**
+     * Adds the point if it is closer than the current k-th best.
+     */
+    void offer(int id, double distance) {
+        if (size < capacity) {
+            ids[size] = id;
+            distances[size] = distance;
+            size += 1;
+            swim(size - 1);
+        } else if (distance < distances[0]) {
+            ids[0] = id;
+            distances[0] = distance;
+            sink(0);
+        }
+    }
+
+    /**
+     * Returns the ids in this heap ordered from closest to farthest, emptying the heap.
+     */
+    int[] sorted() {
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i -= 1) {
+            result[i] = ids[0];
+            size -= 1;
+            ids[0] = ids[size];
+            distances[0] = distances[size];
+            sink(0);
+        }
+        return result;
+    }
+
+    private void swim(int k) {
+        while (k > 0 && distances[(k - 1) / 2] < distances[k]) {
+            exch(k, (k - 1) / 2);
+            k = (k - 1) / 2;
+        }
+    }
+
+    private void sink(int k) {
+        while (2 * k + 1 < size) {
+            int j = 2 * k + 1;
+            if (j + 1 < size && distances[j + 1] > distances[j]) {
+                j += 1;
+            }
+            if (distances[k] >= distances[j]) {
+                break;
+            }
+            exch(k, j);
+            k = j;
+        }
+    }
+
+    private void exch(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+    }
+}
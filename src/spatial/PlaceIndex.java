@@ -0,0 +1,360 @@
+package spatial;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Static index of named places for finding the places closest to a location among those whose names start with a
+ * prefix. The names are sorted so that the matches of any prefix form one contiguous range. On top of the sorted order
+ * sits a segment tree: level {@code l} splits the names into aligned blocks of {@code LEAF_SIZE << l} places, and the
+ * places of each block are arranged as an implicit k-d tree over their unit vectors. A query splits the prefix range
+ * into at most two blocks per level, scans the few places left over at either end, and searches each block's k-d tree
+ * against one shared bound on the k-th closest match. Because the blocks are partitioned by location rather than by
+ * name, short prefixes that match thousands of names examine only the matches near the query location, and no list of
+ * matches is ever built. The blocks take {@code O(n log n)} ints and bytes on top of the places. Each name is also
+ * stored as a UTF-8 JSON string literal, so {@link #writeNearest} can write the matches to a response without encoding
+ * them again.
+ *
+ * @see KDTree
+ */
+public class PlaceIndex {
+    /**
+     * Number of places in each block of the lowest level; shorter runs at the ends of a range are scanned linearly.
+     */
+    private static final int LEAF_SIZE = 8;
+    /**
+     * Place names in {@link CharSequence#compare} order.
+     */
+    private final CharSequence[] names;
+    /**
+     * Unit vector coordinates of each place in name order, 3 values per place.
+     */
+    private final double[] coords;
+    /**
+     * Positions of the places in each level, arranged so that each block of the level is a k-d tree: the root of the
+     * range {@code [lo, hi)} is stored at {@code (lo + hi) >>> 1}.
+     */
+    private final int[][] trees;
+    /**
+     * Splitting axis of the k-d tree node stored at each index of each level.
+     */
+    private final byte[][] axes;
+    /**
+     * UTF-8 bytes of each name in name order as a quoted JSON string, one after another.
+     */
+    private final byte[] json;
+    /**
+     * Offset of each JSON string in {@link #json}, followed by the total length.
+     */
+    private final int[] jsonOffsets;
+
+    /**
+     * Constructs an index over the given places.
+     *
+     * @param names the name of each place.
+     * @param lat   the latitude of each place in degrees.
+     * @param lon   the longitude of each place in degrees.
+     * @throws IllegalArgumentException if the arrays have different lengths.
+     */
+    public PlaceIndex(List<? extends CharSequence> names, double[] lat, double[] lon) {
+        int n = names.size();
+        if (lat.length != n || lon.length != n) {
+            throw new IllegalArgumentException("Expected one location per name");
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(names::get, CharSequence::compare));
+        this.names = new CharSequence[n];
+        coords = new double[n * 3];
+        for (int i = 0; i < n; i += 1) {
+            this.names[i] = names.get(order[i]);
+            KDTree.toUnit(lat[order[i]], lon[order[i]], coords, i * 3);
+        }
+        int levels = 0;
+        while ((long) LEAF_SIZE << levels <= n) {
+            levels += 1;
+        }
+        trees = new int[levels][];
+        axes = new byte[levels][];
+        for (int level = 0; level < levels; level += 1) {
+            int[] tree = new int[n];
+            for (int i = 0; i < n; i += 1) {
+                tree[i] = i;
+            }
+            byte[] axis = new byte[n];
+            int size = LEAF_SIZE << level;
+            for (int start = 0; start < n; start += size) {
+                build(tree, axis, start, Math.min(n, start + size));
+            }
+            trees[level] = tree;
+            axes[level] = axis;
+        }
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        jsonOffsets = new int[n + 1];
+        for (int i = 0; i < n; i += 1) {
+            jsonOffsets[i] = encoded.size();
+            encoded.writeBytes(quote(this.names[i]).getBytes(StandardCharsets.UTF_8));
+        }
+        jsonOffsets[n] = encoded.size();
+        json = encoded.toByteArray();
+    }
+
+    /**
+     * Returns the given name as a JSON string literal, escaping quotes, backslashes and control characters.
+     */
+    private static String quote(CharSequence name) {
+        StringBuilder result = new StringBuilder(name.length() + 2).append('"');
+        for (int i = 0; i < name.length(); i += 1) {
+            char c = name.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < 0x20) {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    /**
+     * Recursively arranges the positions in the range {@code [lo, hi)} of a level so that the median along the widest
+     * axis is stored at the middle index with smaller places before it and larger places after it.
+     */
+    private void build(int[] tree, byte[] axis, int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int widest = 0;
+        double widestSpread = -1;
+        for (int d = 0; d < 3; d += 1) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i += 1) {
+                min = Math.min(min, coords[tree[i] * 3 + d]);
+                max = Math.max(max, coords[tree[i] * 3 + d]);
+            }
+            if (max - min > widestSpread) {
+                widest = d;
+                widestSpread = max - min;
+            }
+        }
+        int mid = (lo + hi) >>> 1;
+        select(tree, lo, hi - 1, mid, widest);
+        axis[mid] = (byte) widest;
+        build(tree, axis, lo, mid);
+        build(tree, axis, mid + 1, hi);
+    }
+
+    /**
+     * Quickselect: partially sorts the inclusive range {@code [lo, hi]} of a level along the given axis so that the
+     * k-th smallest place is stored at index k.
+     */
+    private void select(int[] tree, int lo, int hi, int k, int axis) {
+        while (lo < hi) {
+            double pivot = coords[tree[(lo + hi) >>> 1] * 3 + axis];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coords[tree[i] * 3 + axis] < pivot) {
+                    i += 1;
+                }
+                while (coords[tree[j] * 3 + axis] > pivot) {
+                    j -= 1;
+                }
+                if (i <= j) {
+                    int place = tree[i];
+                    tree[i] = tree[j];
+                    tree[j] = place;
+                    i += 1;
+                    j -= 1;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of places in this index.
+     *
+     * @return the number of places in this index.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the names of up to k places closest to the given location whose names start with the given prefix,
+     * ordered from closest to farthest. An empty prefix matches no places.
+     *
+     * @param prefix the prefix of the names to match.
+     * @param lat    the latitude of the query location in degrees.
+     * @param lon    the longitude of the query location in degrees.
+     * @param k      the maximum number of names to return.
+     * @return the names of up to k matching places closest to the given location.
+     */
+    public List<CharSequence> nearest(CharSequence prefix, double lat, double lon, int k) {
+        int[] matches = search(prefix, lat, lon, k);
+        List<CharSequence> result = new ArrayList<>(matches.length);
+        for (int i : matches) {
+            result.add(names[i]);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Writes the names of up to k places closest to the given location whose names start with the given prefix to the
+     * given stream as a UTF-8 JSON array of strings, ordered from closest to farthest. The names are copied from their
+     * stored encoding, so nothing is encoded per query.
+     *
+     * @param prefix the prefix of the names to match.
+     * @param lat    the latitude of the query location in degrees.
+     * @param lon    the longitude of the query location in degrees.
+     * @param k      the maximum number of names to write.
+     * @param out    the stream to write the JSON array to.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeNearest(CharSequence prefix, double lat, double lon, int k, OutputStream out) throws IOException {
+        int[] matches = search(prefix, lat, lon, k);
+        out.write('[');
+        for (int j = 0; j < matches.length; j += 1) {
+            if (j > 0) {
+                out.write(',');
+            }
+            int i = matches[j];
+            out.write(json, jsonOffsets[i], jsonOffsets[i + 1] - jsonOffsets[i]);
+        }
+        out.write(']');
+    }
+
+    /**
+     * Returns the sorted positions of up to k places closest to the given location whose names start with the given
+     * prefix, ordered from closest to farthest.
+     */
+    private int[] search(CharSequence prefix, double lat, double lon, int k) {
+        if (prefix == null || prefix.length() == 0) {
+            return new int[0];
+        }
+        int lo = lowerBound(prefix);
+        int hi = lo;
+        // The names that match the prefix come first in the rest of the sorted names.
+        int right = names.length;
+        while (hi < right) {
+            int mid = (hi + right) >>> 1;
+            if (isPrefixOf(prefix, names[mid])) {
+                hi = mid + 1;
+            } else {
+                right = mid;
+            }
+        }
+        Neighbors best = new Neighbors(Math.min(k, hi - lo));
+        if (best.capacity() == 0) {
+            return new int[0];
+        }
+        double[] query = new double[3];
+        KDTree.toUnit(lat, lon, query, 0);
+        // Scan the places before the first and after the last whole block of the lowest level.
+        int first = Math.min(hi, (lo + LEAF_SIZE - 1) / LEAF_SIZE * LEAF_SIZE);
+        int last = Math.max(first, hi / LEAF_SIZE * LEAF_SIZE);
+        for (int i = lo; i < first; i += 1) {
+            best.offer(i, squaredDistance(query, i));
+        }
+        for (int i = last; i < hi; i += 1) {
+            best.offer(i, squaredDistance(query, i));
+        }
+        // Cover the whole blocks with at most two blocks per level, as in a bottom-up segment tree query.
+        int from = first / LEAF_SIZE;
+        int to = last / LEAF_SIZE;
+        for (int level = 0; from < to; level += 1) {
+            int size = LEAF_SIZE << level;
+            if ((from & 1) == 1) {
+                nearest(trees[level], axes[level], from * size, (from + 1) * size, query, best);
+                from += 1;
+            }
+            if ((to & 1) == 1) {
+                to -= 1;
+                nearest(trees[level], axes[level], to * size, (to + 1) * size, query, best);
+            }
+            from >>>= 1;
+            to >>>= 1;
+        }
+        return best.sorted();
+    }
+
+    /**
+     * Returns the index of the first name that is not less than the given prefix.
+     */
+    private int lowerBound(CharSequence prefix) {
+        int lo = 0;
+        int hi = names.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (CharSequence.compare(names[mid], prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Recursively searches the k-d tree over the range {@code [lo, hi)} of a level for places closer than the current
+     * k-th best.
+     */
+    private void nearest(int[] tree, byte[] axis, int lo, int hi, double[] query, Neighbors best) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        best.offer(tree[mid], squaredDistance(query, tree[mid]));
+        int d = axis[mid];
+        double delta = query[d] - coords[tree[mid] * 3 + d];
+        if (delta < 0) {
+            nearest(tree, axis, lo, mid, query, best);
+            if (delta * delta < best.bound()) {
+                nearest(tree, axis, mid + 1, hi, query, best);
+            }
+        } else {
+            nearest(tree, axis, mid + 1, hi, query, best);
+            if (delta * delta < best.bound()) {
+                nearest(tree, axis, lo, mid, query, best);
+            }
+        }
+    }
+
+    /**
+     * Returns the squared chord distance from the query vector to the given place.
+     */
+    private double squaredDistance(double[] query, int place) {
+        double result = 0;
+        for (int d = 0; d < 3; d += 1) {
+            double delta = query[d] - coords[place * 3 + d];
+            result += delta * delta;
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if and only if the given name starts with the given prefix.
+     */
+    private static boolean isPrefixOf(CharSequence prefix, CharSequence name) {
+        return prefix.length() <= name.length()
+                && CharSequence.compare(prefix, name.subSequence(0, prefix.length())) == 0;
+    }
+}
@@ -0,0 +1,263 @@
+package spatial;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Static R-tree over line segments between points given by latitude and longitude. The tree is bulk-loaded with
+ * Sort-Tile-Recursive (STR) packing: the entries of each level are sorted into vertical slices by the x coordinate of
+ * their centers, each slice is sorted by the y coordinate, and runs of consecutive entries become full nodes of the
+ * next level. Coordinates are projected onto a plane with longitude scaled by the cosine of the mean latitude, which is
+ * accurate to well under a meter across a city. Nearest-segment queries skip any node whose bounding box is farther than
+ * the closest segment found so far, so they visit a logarithmic number of nodes in practice.
+ */
+public class SegmentRTree {
+    /**
+     * Maximum number of entries in each node.
+     */
+    private static final int NODE_CAPACITY = 16;
+    /**
+     * Projected x and y coordinates of the segment endpoints, 4 values per segment.
+     */
+    private final double[] coords;
+    private final int[] from;
+    private final int[] to;
+    /**
+     * Scale applied to longitudes so that projected distances are uniform in every direction.
+     */
+    private final double scale;
+    /**
+     * Bounding box of each node as min x, min y, max x, and max y. Leaves come first, then each level above them, so
+     * the root is the last node.
+     */
+    private final double[] boxes;
+    /**
+     * Range of entries of each node in {@link #entries}: segment ids for leaves and node ids for all other nodes.
+     */
+    private final int[] entryStarts;
+    private final int[] entryEnds;
+    private final int[] entries;
+    private final int leafCount;
+
+    /**
+     * Constructs a tree over the segments between the given pairs of points.
+     *
+     * @param lat  the latitude of each point in degrees.
+     * @param lon  the longitude of each point in degrees.
+     * @param from the index of the first point of each segment.
+     * @param to   the index of the second point of each segment.
+     */
+    public SegmentRTree(double[] lat, double[] lon, int[] from, int[] to) {
+        int n = from.length;
+        this.from = Arrays.copyOf(from, n);
+        this.to = Arrays.copyOf(to, n);
+        double meanLat = 0;
+        for (double value : lat) {
+            meanLat += value / lat.length;
+        }
+        scale = Math.cos(Math.toRadians(meanLat));
+        coords = new double[n * 4];
+        for (int i = 0; i < n; i += 1) {
+            coords[i * 4] = lon[from[i]] * scale;
+            coords[i * 4 + 1] = lat[from[i]];
+            coords[i * 4 + 2] = lon[to[i]] * scale;
+            coords[i * 4 + 3] = lat[to[i]];
+        }
+
+        // Count the nodes on every level so that all the arrays can be allocated up front.
+        leafCount = nodes(n);
+        int nodeCount = 0;
+        for (int count = leafCount; count > 0; count = count == 1 ? 0 : nodes(count)) {
+            nodeCount += count;
+        }
+        boxes = new double[nodeCount * 4];
+        entryStarts = new int[nodeCount];
+        entryEnds = new int[nodeCount];
+        entries = new int[n + nodeCount];
+
+        // Pack the segments into leaves, then repeatedly pack the nodes of each level into the level above.
+        double[] level = new double[n * 4];
+        for (int i = 0; i < n; i += 1) {
+            level[i * 4] = Math.min(coords[i * 4], coords[i * 4 + 2]);
+            level[i * 4 + 1] = Math.min(coords[i * 4 + 1], coords[i * 4 + 3]);
+            level[i * 4 + 2] = Math.max(coords[i * 4], coords[i * 4 + 2]);
+            level[i * 4 + 3] = Math.max(coords[i * 4 + 1], coords[i * 4 + 3]);
+        }
+        int levelStart = 0;
+        int levelSize = n;
+        int entryCount = 0;
+        int node = 0;
+        while (node < nodeCount) {
+            int[] order = pack(level, levelSize);
+            for (int i = 0; i < levelSize; i += NODE_CAPACITY) {
+                entryStarts[node] = entryCount;
+                boxes[node * 4] = Double.POSITIVE_INFINITY;
+                boxes[node * 4 + 1] = Double.POSITIVE_INFINITY;
+                boxes[node * 4 + 2] = Double.NEGATIVE_INFINITY;
+                boxes[node * 4 + 3] = Double.NEGATIVE_INFINITY;
+                for (int j = i; j < Math.min(i + NODE_CAPACITY, levelSize); j += 1) {
+                    int entry = order[j];
+                    entries[entryCount] = levelStart + entry;
+                    entryCount += 1;
+                    boxes[node * 4] = Math.min(boxes[node * 4], level[entry * 4]);
+                    boxes[node * 4 + 1] = Math.min(boxes[node * 4 + 1], level[entry * 4 + 1]);
+                    boxes[node * 4 + 2] = Math.max(boxes[node * 4 + 2], level[entry * 4 + 2]);
+                    boxes[node * 4 + 3] = Math.max(boxes[node * 4 + 3], level[entry * 4 + 3]);
+                }
+                entryEnds[node] = entryCount;
+                node += 1;
+            }
+            // The nodes just packed are the entries of the next level.
+            levelStart = node - nodes(levelSize);
+            level = Arrays.copyOfRange(boxes, levelStart * 4, node * 4);
+            levelSize = nodes(levelSize);
+        }
+    }
+
+    /**
+     * Returns the number of nodes needed to hold the given number of entries.
+     */
+    private static int nodes(int count) {
+        return (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+    }
+
+    /**
+     * Returns the order of the given boxes after Sort-Tile-Recursive packing, so that each run of
+     * {@link #NODE_CAPACITY} consecutive boxes belongs in the same node.
+     */
+    private static int[] pack(double[] level, int size) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> level[i * 4] + level[i * 4 + 2]));
+        int slices = (int) Math.ceil(Math.sqrt(nodes(size)));
+        int sliceSize = slices * NODE_CAPACITY;
+        for (int i = 0; i < size; i += sliceSize) {
+            Arrays.sort(order, i, Math.min(i + sliceSize, size),
+                    Comparator.comparingDouble(j -> level[j * 4 + 1] + level[j * 4 + 3]));
+        }
+        int[] result = new int[size];
+        for (int i = 0; i < size; i += 1) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of segments in this tree.
+     *
+     * @return the number of segments in this tree.
+     */
+    public int size() {
+        return from.length;
+    }
+
+    /**
+     * Returns the index of the first point of the given segment.
+     *
+     * @param segment the segment id.
+     * @return the index of the first point of the segment.
+     */
+    public int from(int segment) {
+        return from[segment];
+    }
+
+    /**
+     * Returns the index of the second point of the given segment.
+     *
+     * @param segment the segment id.
+     * @return the index of the second point of the segment.
+     */
+    public int to(int segment) {
+        return to[segment];
+    }
+
+    /**
+     * Returns the id of the segment closest to the given location, or -1 if this tree is empty.
+     *
+     * @param lat the latitude of the query location in degrees.
+     * @param lon the longitude of the query location in degrees.
+     * @return the id of the segment closest to the given location, or -1 if this tree is empty.
+     */
+    public int nearest(double lat, double lon) {
+        if (from.length == 0) {
+            return -1;
+        }
+        Nearest best = new Nearest();
+        nearest(entryStarts.length - 1, lon * scale, lat, best);
+        return best.segment;
+    }
+
+    /**
+     * Returns how far along the given segment the point closest to the given location lies, from 0 at its first point
+     * to 1 at its second point.
+     *
+     * @param segment the segment id.
+     * @param lat     the latitude of the query location in degrees.
+     * @param lon     the longitude of the query location in degrees.
+     * @return the fraction of the segment before the point closest to the given location.
+     */
+    public double fraction(int segment, double lat, double lon) {
+        double dx = coords[segment * 4 + 2] - coords[segment * 4];
+        double dy = coords[segment * 4 + 3] - coords[segment * 4 + 1];
+        double length = dx * dx + dy * dy;
+        if (length == 0) {
+            return 0;
+        }
+        double t = ((lon * scale - coords[segment * 4]) * dx + (lat - coords[segment * 4 + 1]) * dy) / length;
+        return Math.max(0, Math.min(1, t));
+    }
+
+    /**
+     * Recursively searches the given node for segments closer than the current best.
+     */
+    private void nearest(int node, double x, double y, Nearest best) {
+        if (boxDistance(node, x, y) >= best.distance) {
+            return;
+        }
+        for (int i = entryStarts[node]; i < entryEnds[node]; i += 1) {
+            if (node < leafCount) {
+                double distance = segmentDistance(entries[i], x, y);
+                if (distance < best.distance) {
+                    best.segment = entries[i];
+                    best.distance = distance;
+                }
+            } else {
+                nearest(entries[i], x, y, best);
+            }
+        }
+    }
+
+    /**
+     * Returns the squared projected distance from the given point to the bounding box of the given node.
+     */
+    private double boxDistance(int node, double x, double y) {
+        double dx = Math.max(0, Math.max(boxes[node * 4] - x, x - boxes[node * 4 + 2]));
+        double dy = Math.max(0, Math.max(boxes[node * 4 + 1] - y, y - boxes[node * 4 + 3]));
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Returns the squared projected distance from the given point to the given segment.
+     */
+    private double segmentDistance(int segment, double x, double y) {
+        double x1 = coords[segment * 4];
+        double y1 = coords[segment * 4 + 1];
+        double dx = coords[segment * 4 + 2] - x1;
+        double dy = coords[segment * 4 + 3] - y1;
+        double length = dx * dx + dy * dy;
+        double t = length == 0 ? 0 : Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy) / length));
+        double px = x1 + t * dx - x;
+        double py = y1 + t * dy - y;
+        return px * px + py * py;
+    }
+
+    /**
+     * Closest segment found so far and its squared projected distance.
+     */
+    private static class Nearest {
+        private int segment = -1;
+        private double distance = Double.POSITIVE_INFINITY;
+    }
+}
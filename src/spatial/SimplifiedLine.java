@@ -0,0 +1,112 @@
+package spatial;
+
+/**
+ * Polyline through locations simplified with the Douglas-Peucker algorithm: the endpoints are kept, and each run
+ * between two kept points is split at its point farthest from the straight line between them until no point in any run
+ * is farther than the tolerance. Coordinates are projected onto a plane with longitude scaled by the cosine of the
+ * first latitude, which is accurate to well under a meter across a city. Runs are split with an explicit stack, so long
+ * routes cannot overflow the call stack.
+ */
+public class SimplifiedLine {
+    /**
+     * Indices of the kept locations in increasing order.
+     */
+    private final int[] kept;
+
+    /**
+     * Constructs the simplification of the polyline through the given locations.
+     *
+     * @param lat       the latitude of each location in degrees.
+     * @param lon       the longitude of each location in degrees.
+     * @param tolerance the maximum distance in degrees of latitude from a dropped location to the simplified line.
+     */
+    public SimplifiedLine(double[] lat, double[] lon, double tolerance) {
+        int n = lat.length;
+        if (n < 3) {
+            kept = new int[n];
+            for (int i = 0; i < n; i += 1) {
+                kept[i] = i;
+            }
+            return;
+        }
+        double scale = Math.cos(Math.toRadians(lat[0]));
+        double limit = tolerance * tolerance;
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int count = 2;
+        // Each run splits into at most two, so the stack holds at most one pending run per kept point.
+        int[] stack = new int[2 * n];
+        int size = 0;
+        stack[size] = 0;
+        stack[size + 1] = n - 1;
+        size += 2;
+        while (size > 0) {
+            size -= 2;
+            int first = stack[size];
+            int last = stack[size + 1];
+            int farthest = -1;
+            double farthestDistance = limit;
+            for (int i = first + 1; i < last; i += 1) {
+                double distance = squaredDistance(lat, lon, scale, first, last, i);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest != -1) {
+                keep[farthest] = true;
+                count += 1;
+                stack[size] = first;
+                stack[size + 1] = farthest;
+                stack[size + 2] = farthest;
+                stack[size + 3] = last;
+                size += 4;
+            }
+        }
+        kept = new int[count];
+        int k = 0;
+        for (int i = 0; i < n; i += 1) {
+            if (keep[i]) {
+                kept[k] = i;
+                k += 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the squared projected distance from the given location to the segment between two other locations.
+     */
+    private static double squaredDistance(double[] lat, double[] lon, double scale, int from, int to, int point) {
+        double x1 = lon[from] * scale;
+        double y1 = lat[from];
+        double dx = lon[to] * scale - x1;
+        double dy = lat[to] - y1;
+        double px = lon[point] * scale - x1;
+        double py = lat[point] - y1;
+        double length = dx * dx + dy * dy;
+        double t = length == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / length));
+        double ex = px - t * dx;
+        double ey = py - t * dy;
+        return ex * ex + ey * ey;
+    }
+
+    /**
+     * Returns the number of locations kept in the simplified line.
+     *
+     * @return the number of locations kept in the simplified line.
+     */
+    public int size() {
+        return kept.length;
+    }
+
+    /**
+     * Returns the index in the original polyline of the i-th kept location.
+     *
+     * @param i the position of the location in the simplified line.
+     * @return the index of the location in the original polyline.
+     */
+    public int index(int i) {
+        return kept[i];
+    }
+}
@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.spatial4j.shape.Point;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link AccessScoreWatcher} class.
+ *
+ * @see AccessScoreWatcher
+ */
+public class AccessScoreWatcherTests {
+    @Test
+    public void appliesEachMovedInFileOnce(@TempDir Path directory) throws Exception {
+        MapGraph map = MapFixture.graph(directory);
+        Path updates = Files.createDirectory(directory.resolve("updates"));
+        AccessScoreWatcher watcher = new AccessScoreWatcher(map, updates);
+        try {
+            Files.writeString(updates.resolve("notes.txt"), "Ignored\n");
+            move(directory, updates, "scores.tsv", MapFixture.rowWay(0));
+            MapGraphTests.await(() -> map.version() == 1);
+
+            // A bad file is logged and skipped, and later files still apply.
+            Files.writeString(updates.resolve("bad.tsv"), "OSM ID\tAccess Score\n1\t2.0\n");
+            move(directory, updates, "more.tsv", MapFixture.rowWay(1));
+            MapGraphTests.await(() -> map.version() == 2);
+
+            // Files apply in the order they arrive, so once a marker file has applied, any repeated event for the
+            // earlier files would have been handled too.
+            Point from = MapFixture.point(2, 0);
+            Point to = MapFixture.point(2, 1);
+            double weight = map.weight(MapGraph.Profile.ACCESSIBLE, from, to);
+            move(directory, updates, "marker.tsv", MapFixture.rowWay(2));
+            MapGraphTests.await(() -> map.weight(MapGraph.Profile.ACCESSIBLE, from, to) > weight);
+            assertEquals(3, map.version());
+        } finally {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Writes a file that halves the access score of the given way outside the watched directory, then moves it in.
+     */
+    private static void move(Path directory, Path updates, String name, long way) throws IOException {
+        Path file = Files.writeString(directory.resolve(name), "OSM ID\tAccess Score\n" + way + "\t0.5\n");
+        Files.move(file, updates.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,169 @@
+import org.locationtech.spatial4j.context.SpatialContext;
+import org.locationtech.spatial4j.shape.Point;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Small gzipped OSM file for map tests: a {@link #SIZE} by {@link #SIZE} grid of streets in downtown Seattle with one
+ * way per row and one per column. The middle row is a primary arterial and the others are residential. The file also
+ * has a named place on the grid, named places off the roads, a building whose nodes are not kept, and a road that
+ * references a node missing from the file.
+ */
+final class MapFixture {
+    /**
+     * Number of intersections on each side of the grid.
+     */
+    static final int SIZE = 7;
+    /**
+     * Row of the primary arterial.
+     */
+    static final int ARTERIAL = SIZE / 2;
+    /**
+     * Distance in degrees between neighboring intersections.
+     */
+    static final double SPACING = 0.001;
+    /**
+     * Number of routable vertices: the grid plus the end of the road past the missing node.
+     */
+    static final int VERTICES = SIZE * SIZE + 1;
+    /**
+     * Number of road segments: one between each pair of neighboring intersections, plus the road past the missing
+     * node.
+     */
+    static final int SEGMENTS = 2 * SIZE * (SIZE - 1) + 1;
+    /**
+     * Id of the way with the node missing from the file.
+     */
+    static final long BROKEN_WAY = 4000;
+    static final String OSM_PATH = "fixture.osm.gz";
+    static final String ACCESS_PATH = "fixture.tsv";
+    static final SpatialContext CONTEXT = SpatialContext.GEO;
+
+    private MapFixture() {
+    }
+
+    static double lat(int row) {
+        return 47.60 + row * SPACING;
+    }
+
+    static double lon(int column) {
+        return -122.34 + column * SPACING;
+    }
+
+    static Point point(int row, int column) {
+        return CONTEXT.getShapeFactory().pointLatLon(lat(row), lon(column));
+    }
+
+    static long node(int row, int column) {
+        return 1 + row * SIZE + column;
+    }
+
+    static long rowWay(int row) {
+        return 1000 + row;
+    }
+
+    static long columnWay(int column) {
+        return 2000 + column;
+    }
+
+    /**
+     * Returns the OSM XML of the fixture.
+     */
+    static String osm() {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<osm version=\"0.6\">\n");
+        for (int row = 0; row < SIZE; row += 1) {
+            for (int column = 0; column < SIZE; column += 1) {
+                String name = row == 0 && column == 0 ? "Cafe Allegro" : row == SIZE - 1 && column == 0 ? "Starbucks"
+                        : null;
+                node(xml, node(row, column), lat(row), lon(column), name);
+            }
+        }
+        node(xml, 900, lat(SIZE + 2), lon(0), "Space Needle");
+        node(xml, 901, lat(SIZE + 2), lon(SIZE - 1), "Starbucks");
+        node(xml, 950, lat(SIZE + 5), lon(0), null);
+        node(xml, 951, lat(SIZE + 5), lon(1), null);
+        node(xml, 960, lat(0), lon(SIZE + 1), null);
+        for (int row = 0; row < SIZE; row += 1) {
+            long[] refs = new long[SIZE];
+            for (int column = 0; column < SIZE; column += 1) {
+                refs[column] = node(row, column);
+            }
+            way(xml, rowWay(row), "highway", row == ARTERIAL ? "primary" : "residential", refs);
+        }
+        for (int column = 0; column < SIZE; column += 1) {
+            long[] refs = new long[SIZE];
+            for (int row = 0; row < SIZE; row += 1) {
+                refs[row] = node(row, column);
+            }
+            way(xml, columnWay(column), "highway", "residential", refs);
+        }
+        way(xml, 3000, "building", "yes", new long[]{950, 951});
+        way(xml, BROKEN_WAY, "highway", "residential", new long[]{node(0, SIZE - 1), 999, 960});
+        return xml.append("</osm>\n").toString();
+    }
+
+    private static void node(StringBuilder xml, long id, double lat, double lon, String name) {
+        xml.append("  <node id=\"").append(id).append("\" lat=\"").append(lat).append("\" lon=\"").append(lon)
+                .append("\">");
+        if (name != null) {
+            xml.append("<tag k=\"name\" v=\"").append(name).append("\"/>");
+        }
+        xml.append("</node>\n");
+    }
+
+    private static void way(StringBuilder xml, long id, String key, String value, long[] refs) {
+        xml.append("  <way id=\"").append(id).append("\">");
+        for (long ref : refs) {
+            xml.append("<nd ref=\"").append(ref).append("\"/>");
+        }
+        xml.append("<tag k=\"").append(key).append("\" v=\"").append(value).append("\"/></way>\n");
+    }
+
+    /**
+     * Returns the gzipped OSM XML of the fixture.
+     */
+    static byte[] osmGz() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(osm().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the gzipped OSM file and an access score TSV with no scores to the given directory.
+     */
+    static void write(Path directory) throws IOException {
+        Files.write(directory.resolve(OSM_PATH), osmGz());
+        Files.writeString(directory.resolve(ACCESS_PATH), "OSM ID\tAccess Score\n");
+    }
+
+    /**
+     * Returns a map graph of the fixture, written to and then loaded from the given directory.
+     */
+    static MapGraph graph(Path directory) throws IOException, ParserConfigurationException, SAXException {
+        write(directory);
+        // Map graphs open their sources as resources of the context class loader.
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(new URLClassLoader(new URL[]{directory.toUri().toURL()}, previous));
+        try {
+            return new MapGraph(OSM_PATH, ACCESS_PATH, CONTEXT);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import graphs.shortestpaths.SearchBudget;
+import graphs.shortestpaths.SearchResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.spatial4j.shape.Point;
+import org.locationtech.spatial4j.shape.Rectangle;
+import org.locationtech.spatial4j.shape.ShapeFactory;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link MapGraph} class over the {@link MapFixture} grid.
+ *
+ * @see MapGraph
+ * @see MapFixture
+ */
+public class MapGraphTests {
+    /**
+     * Waits up to 30 seconds for the given condition to hold.
+     */
+    static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Returns the access route along the first row of the grid.
+     */
+    private static SearchResult<Point> firstRow(MapGraph map) {
+        return map.shortestPath(MapFixture.point(0, 0), MapFixture.point(0, MapFixture.SIZE - 1),
+                SearchBudget.unlimited());
+    }
+
+    @Test
+    public void updatesReweighTheEdgesOfEachWay(@TempDir Path directory) throws Exception {
+        MapGraph map = MapFixture.graph(directory);
+        double straight = firstRow(map).distance();
+        assertEquals(0, map.version());
+
+        // Each row way has one edge in each direction between neighboring intersections.
+        assertEquals(2 * (MapFixture.SIZE - 1), map.updateAccessScores(Map.of(MapFixture.rowWay(0), 0.5)));
+        assertEquals(1, map.version());
+        SearchResult<Point> detour = firstRow(map);
+        assertTrue(detour.distance() > straight && detour.distance() < 2 * straight, detour.distance() + "");
+        assertFalse(detour.solution().contains(MapFixture.point(0, MapFixture.SIZE / 2)));
+
+        // Halving every score doubles every weight.
+        Map<Long, Double> scores = new HashMap<>();
+        for (int i = 0; i < MapFixture.SIZE; i += 1) {
+            scores.put(MapFixture.rowWay(i), 0.5);
+            scores.put(MapFixture.columnWay(i), 0.5);
+        }
+        assertEquals(4 * MapFixture.SIZE * (MapFixture.SIZE - 1), map.updateAccessScores(scores));
+        assertEquals(2, map.version());
+        assertEquals(2 * straight, firstRow(map).distance(), 1e-9);
+        assertEquals(0, map.updateAccessScores(Map.of(1L, 0.5)));
+        assertEquals(3, map.version());
+    }
+
+    @Test
+    public void updatesClearTheRouteCache(@TempDir Path directory) throws Exception {
+        MapGraph map = MapFixture.graph(directory);
+        firstRow(map);
+        firstRow(map);
+        assertEquals(1, map.routeCacheStats().hits());
+        assertEquals(1, map.routeCacheStats().size());
+        map.updateAccessScores(Map.of(MapFixture.rowWay(0), 0.5));
+        assertEquals(0, map.routeCacheStats().size());
+    }
+
+    @Test
+    public void updatesRejectScoresOutsideUnitInterval(@TempDir Path directory) throws Exception {
+        MapGraph map = MapFixture.graph(directory);
+        double straight = firstRow(map).distance();
+        for (double score : new double[]{0, -0.5, 1.5, Double.NaN}) {
+            Map<Long, Double> scores = Map.of(MapFixture.rowWay(0), 0.5, MapFixture.rowWay(1), score);
+            assertThrows(IllegalArgumentException.class, () -> map.updateAccessScores(scores));
+        }
+        assertEquals(0, map.version());
+        assertEquals(straight, firstRow(map).distance());
+        assertEquals(2 * (MapFixture.SIZE - 1), map.updateAccessScores(Map.of(MapFixture.rowWay(0), 1.0)));
+    }
+
+    @Test
+    public void updatesRebuildPreprocessingInTheBackground(@TempDir Path directory) throws Exception {
+        MapGraph map = MapFixture.graph(directory);
+        assertFalse(map.hasHierarchy());
+        map.buildHierarchy(null);
+        map.buildLandmarks(null);
+        assertTrue(map.hasHierarchy());
+        assertTrue(map.hasLandmarks());
+
+        map.updateAccessScores(Map.of(MapFixture.rowWay(0), 0.5));
+        await(() -> map.hasHierarchy() && map.hasLandmarks());
+        Point start = MapFixture.point(0, 0);
+        Point goal = MapFixture.point(0, MapFixture.SIZE - 1);
+        double expected = map.shortestPath(start, goal, MapGraph.Algorithm.ASTAR, SearchBudget.unlimited()).distance();
+        for (MapGraph.Algorithm algorithm : MapGraph.Algorithm.values()) {
+            assertEquals(expected, map.shortestPath(start, goal, algorithm, SearchBudget.unlimited()).distance(), 1e-9,
+                    algorithm.name());
+        }
+        assertEquals(expected, firstRow(map).distance(), 1e-9);
+    }
+
+    /**
+     * Returns the straight-line length of the given route.
+     */
+    private static double length(MapGraph map, List<Point> route) {
+        double result = 0;
+        for (int i = 1; i < route.size(); i += 1) {
+            result += map.estimatedDistance(route.get(i - 1), route.get(i));
+        }
+        return result;
+    }
+
+    @Test
+    public void profilesWeighArterialsDifferently(@TempDir Path directory) throws Exception {
+        MapGraph map = MapFixture.graph(directory);
+        Point start = MapFixture.point(MapFixture.ARTERIAL, 0);
+        Point goal = MapFixture.point(MapFixture.ARTERIAL, MapFixture.SIZE - 1);
+        Point middle = MapFixture.point(MapFixture.ARTERIAL, MapFixture.SIZE / 2);
+
+        SearchResult<Point> shortest = map.shortestPath(start, goal, MapGraph.Profile.SHORTEST,
+                SearchBudget.unlimited());
+        assertTrue(shortest.solution().contains(middle));
+        assertEquals(length(map, shortest.solution()), shortest.distance(), 1e-8);
+
+        // The arterial costs 3 times its length, so the route detours over the residential streets next to it.
+        SearchResult<Point> avoid = map.shortestPath(start, goal, MapGraph.Profile.AVOID_ARTERIALS,
+                SearchBudget.unlimited());
+        assertFalse(avoid.solution().contains(middle));
+        assertEquals(length(map, avoid.solution()), avoid.distance(), 1e-8);
+        assertTrue(avoid.distance() > shortest.distance() && avoid.distance() < 3 * shortest.distance());
+        for (MapGraph.Algorithm algorithm : MapGraph.Algorithm.values()) {
+            assertEquals(avoid.distance(), map.shortestPath(start, goal, MapGraph.Profile.AVOID_ARTERIALS, algorithm,
+                    SearchBudget.unlimited()).distance(), 1e-9, algorithm.name());
+        }
+
+        Point next = MapFixture.point(MapFixture.ARTERIAL, 1);
+        double length = map.estimatedDistance(start, next);
+        assertEquals(length, map.weight(MapGraph.Profile.SHORTEST, start, next), 1e-9);
+        assertEquals(3 * length, map.weight(MapGraph.Profile.AVOID_ARTERIALS, start, next), 1e-9);
+    }
+
+    @Test
+    public void profileWeightsKeepTheHeuristicAdmissible(@TempDir Path directory) throws Exception {
+        for (double penalty : MapGraph.ARTERIAL_PENALTIES.values()) {
+            assertTrue(penalty >= 1, penalty + "");
+        }
+        MapGraph map = MapFixture.graph(directory);
+        map.updateAccessScores(Map.of(MapFixture.rowWay(1), 0.25));
+        for (MapGraph.Profile profile : MapGraph.Profile.values()) {
+            for (int row = 0; row < MapFixture.SIZE; row += 1) {
+                for (int column = 1; column < MapFixture.SIZE; column += 1) {
+                    // Each row and column of the grid has a segment between consecutive intersections.
+                    assertAdmissible(map, profile, MapFixture.point(row, column - 1), MapFixture.point(row, column));
+                    assertAdmissible(map, profile, MapFixture.point(column - 1, row), MapFixture.point(column, row));
+                }
+            }
+        }
+    }
+
+    /**
+     * Asserts that the edges in both directions between the given locations weigh at least their straight-line length.
+     */
+    private static void assertAdmissible(MapGraph map, MapGraph.Profile profile, Point a, Point b) {
+        assertTrue(map.weight(profile, a, b) >= map.estimatedDistance(a, b), profile + " " + a + " " + b);
+        assertTrue(map.weight(profile, b, a) >= map.estimatedDistance(b, a), profile + " " + b + " " + a);
+    }
+
+    @Test
+    public void locationsAreClippedToBoundsAndCapped(@TempDir Path directory) throws Exception {
+        MapGraph map = MapFixture.graph(directory);
+        ShapeFactory factory = MapFixture.CONTEXT.getShapeFactory();
+        Point onGrid = MapFixture.point(MapFixture.SIZE - 1, 0);
+        Point offGrid = MapFixture.point(MapFixture.SIZE + 2, MapFixture.SIZE - 1);
+        Rectangle everything = factory.rect(MapFixture.lon(-1), MapFixture.lon(MapFixture.SIZE),
+                MapFixture.lat(-1), MapFixture.lat(MapFixture.SIZE + 3));
+        Rectangle grid = factory.rect(MapFixture.lon(0), MapFixture.lon(MapFixture.SIZE - 1),
+                MapFixture.lat(0), MapFixture.lat(MapFixture.SIZE - 1));
+
+        // Locations are ordered from closest to farthest from the center of the bounds, and the cap keeps the closest.
+        Rectangle northeast = factory.rect(MapFixture.lon(0), MapFixture.lon(MapFixture.SIZE + 5),
+                MapFixture.lat(2), MapFixture.lat(MapFixture.SIZE + 3));
+        assertEquals(List.of(onGrid, offGrid), map.getLocations("Starbucks", everything, 10));
+        assertEquals(List.of(offGrid, onGrid), map.getLocations("Starbucks", northeast, 10));
+        assertEquals(List.of(onGrid), map.getLocations("Starbucks", everything, 1));
+        assertEquals(List.of(offGrid), map.getLocations("Starbucks", northeast, 1));
+        assertEquals(List.of(onGrid), map.getLocations("Starbucks", grid, 10));
+        assertEquals(List.of(), map.getLocations("Starbucks", everything, 0));
+        assertEquals(List.of(), map.getLocations("Unknown", everything, 10));
+
+        // Names with one location are clipped and capped too.
+        assertEquals(1, map.getLocations("Space Needle", everything, 10).size());
+        assertEquals(List.of(), map.getLocations("Space Needle", grid, 10));
+        assertEquals(List.of(), map.getLocations("Space Needle", everything, 0));
+    }
+
+    @Test
+    public void emptyAndInvertedBoundsClipLocations(@TempDir Path directory) throws Exception {
+        MapGraph map = MapFixture.graph(directory);
+        ShapeFactory factory = MapFixture.CONTEXT.getShapeFactory();
+        Point onGrid = MapFixture.point(MapFixture.SIZE - 1, 0);
+        Point offGrid = MapFixture.point(MapFixture.SIZE + 2, MapFixture.SIZE - 1);
+
+        // A box with no area holds only the locations exactly at its corner.
+        Rectangle point = factory.rect(onGrid.getLon(), onGrid.getLon(), onGrid.getLat(), onGrid.getLat());
+        assertEquals(List.of(onGrid), map.getLocations("Starbucks", point, 10));
+        Rectangle nowhere = factory.rect(MapFixture.lon(1), MapFixture.lon(1), MapFixture.lat(1), MapFixture.lat(1));
+        assertEquals(List.of(), map.getLocations("Starbucks", nowhere, 10));
+        assertEquals(List.of(), map.getLocations("Cafe Allegro", nowhere, 10));
+
+        // West of east wraps around the antimeridian, leaving out only the gap between them.
+        Rectangle inverted = factory.rect(onGrid.getLon() + MapFixture.SPACING / 2,
+                onGrid.getLon() - MapFixture.SPACING / 2, MapFixture.lat(-1), MapFixture.lat(MapFixture.SIZE + 3));
+        assertTrue(inverted.getCrossesDateLine());
+        assertEquals(List.of(offGrid), map.getLocations("Starbucks", inverted, 10));
+        assertEquals(List.of(), map.getLocations("Cafe Allegro", inverted, 10));
+    }
+
+    @Test
+    public void isochroneRingsTheReachableArea(@TempDir Path directory) throws Exception {
+        MapGraph map = MapFixture.graph(directory);
+        Point corner = MapFixture.point(0, 0);
+        MapGraph.Isochrone everything = map.isochrone(corner, 1, SearchBudget.unlimited());
+        assertFalse(everything.isTruncated());
+        assertEquals(MapFixture.VERTICES, everything.settled());
+        List<Point> ring = everything.ring();
+        assertEquals(ring.get(0), ring.get(ring.size() - 1));
+        // The road past the missing node ends east of the first row, so the hull has it in place of that corner.
+        assertEquals(5, ring.size());
+        for (int[] hull : new int[][]{{0, 0}, {0, MapFixture.SIZE + 1}, {MapFixture.SIZE - 1, 0},
+                {MapFixture.SIZE - 1, MapFixture.SIZE - 1}}) {
+            Point expected = MapFixture.point(hull[0], hull[1]);
+            assertTrue(ring.stream().anyMatch(p -> MapFixture.CONTEXT.getDistCalc().distance(p, expected) < 1e-9),
+                    Arrays.toString(hull));
+        }
+
+        // Nothing is reachable within no distance except the start itself.
+        MapGraph.Isochrone start = map.isochrone(corner, 0, SearchBudget.unlimited());
+        assertFalse(start.isTruncated());
+        assertEquals(1, start.settled());
+        assertEquals(List.of(corner, corner), start.ring());
+    }
+
+    @Test
+    public void isochronePastItsBudgetIsTruncated(@TempDir Path directory) throws Exception {
+        MapGraph map = MapFixture.graph(directory);
+        Point corner = MapFixture.point(0, 0);
+        MapGraph.Isochrone partial = map.isochrone(corner, 1, SearchBudget.unlimited().withMaxSettled(5));
+        assertTrue(partial.isTruncated());
+        assertEquals(4, partial.settled());
+        assertFalse(partial.ring().isEmpty());
+        assertTrue(partial.ring().contains(corner));
+
+        MapGraph.Isochrone none = map.isochrone(corner, 1, SearchBudget.unlimited().withMaxSettled(1));
+        assertTrue(none.isTruncated());
+        assertEquals(0, none.settled());
+        assertEquals(List.of(), none.ring());
+    }
+}
@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link MapLoader} class.
+ *
+ * @see MapLoader
+ * @see MapFixture
+ */
+public class MapLoaderTests {
+    /**
+     * Returns the snapshot loaded from the given gzipped OSM bytes with the given access scores.
+     */
+    private static MapSnapshot load(byte[] osm, Map<Long, Double> accessScores) throws Exception {
+        return new MapLoader(accessScores).load(() -> new ByteArrayInputStream(osm), 373);
+    }
+
+    /**
+     * Returns the number of edges of the given way in the snapshot.
+     */
+    private static long edges(MapSnapshot snapshot, long way) {
+        int index = Arrays.binarySearch(snapshot.ways, way);
+        return Arrays.stream(snapshot.edgeWays).filter(w -> w == index).count();
+    }
+
+    @Test
+    public void loadsRoadsAndPlaces() throws Exception {
+        MapSnapshot snapshot = load(MapFixture.osmGz(), new HashMap<>());
+        assertEquals(373, snapshot.checksum);
+        assertEquals(MapFixture.VERTICES, snapshot.vertexCount);
+        assertEquals(2 * MapFixture.SEGMENTS, snapshot.targets.length);
+        assertEquals(snapshot.vertexCount + 1, snapshot.offsets.length);
+        // Every row and column, and the road past the missing node, but not the building.
+        assertEquals(2 * MapFixture.SIZE + 1, snapshot.ways.length);
+        assertTrue(Arrays.binarySearch(snapshot.ways, 3000) < 0);
+        assertEquals(2 * (MapFixture.SIZE - 1), edges(snapshot, MapFixture.rowWay(0)));
+        // The missing node is skipped, so its neighbors are joined directly.
+        assertEquals(2, edges(snapshot, MapFixture.BROKEN_WAY));
+        int arterial = Arrays.binarySearch(snapshot.ways, MapFixture.rowWay(MapFixture.ARTERIAL));
+        assertEquals(MapLoader.HIGHWAY_TYPES.indexOf("primary"), snapshot.wayTypes[arterial]);
+        int residential = Arrays.binarySearch(snapshot.ways, MapFixture.columnWay(0));
+        assertEquals(MapLoader.HIGHWAY_TYPES.indexOf("residential"), snapshot.wayTypes[residential]);
+    }
+
+    @Test
+    public void placesOffTheRoadsFollowTheVertices() throws Exception {
+        MapSnapshot snapshot = load(MapFixture.osmGz(), new HashMap<>());
+        // The two named places off the roads are the only points that are not vertices.
+        assertEquals(MapFixture.VERTICES + 2, snapshot.lat.length);
+        assertEquals(3, snapshot.names.size());
+
+        int[] cafe = snapshot.names.get("Cafe Allegro");
+        assertEquals(1, cafe.length);
+        assertTrue(cafe[0] < snapshot.vertexCount);
+        assertEquals(MapFixture.lat(0), snapshot.lat[cafe[0]]);
+        assertEquals(MapFixture.lon(0), snapshot.lon[cafe[0]]);
+
+        int[] needle = snapshot.names.get("Space Needle");
+        assertEquals(1, needle.length);
+        assertTrue(needle[0] >= snapshot.vertexCount);
+        assertEquals(MapFixture.lat(MapFixture.SIZE + 2), snapshot.lat[needle[0]]);
+
+        int[] starbucks = snapshot.names.get("Starbucks");
+        assertEquals(2, starbucks.length);
+        assertEquals(1, Arrays.stream(starbucks).filter(i -> i < snapshot.vertexCount).count());
+    }
+
+    @Test
+    public void weighsWaysByAccessScore() throws Exception {
+        long scored = MapFixture.rowWay(1);
+        MapSnapshot plain = load(MapFixture.osmGz(), new HashMap<>());
+        MapSnapshot weighted = load(MapFixture.osmGz(), new HashMap<>(Map.of(scored, 0.5)));
+        int way = Arrays.binarySearch(weighted.ways, scored);
+        for (int e = 0; e < weighted.targets.length; e += 1) {
+            double expected = weighted.edgeWays[e] == way ? 2 * plain.weights[e] : plain.weights[e];
+            assertEquals(expected, weighted.weights[e], 1e-9);
+        }
+    }
+
+    @Test
+    public void truncatedFileThrowsIOException() {
+        byte[] osm = MapFixture.osmGz();
+        byte[] truncated = Arrays.copyOf(osm, osm.length / 2);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertThrows(IOException.class, () -> load(truncated, new HashMap<>()));
+            // Not gzipped at all.
+            assertThrows(IOException.class, () -> load(MapFixture.osm().getBytes(), new HashMap<>()));
+        });
+    }
+}
@@ -0,0 +1,329 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import executors.AdmissionController;
+import graphs.shortestpaths.SearchBudget;
+import io.javalin.Javalin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.spatial4j.distance.DistanceUtils;
+import org.locationtech.spatial4j.shape.Point;
+import org.locationtech.spatial4j.shape.Rectangle;
+import org.locationtech.spatial4j.shape.ShapeFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the request handlers of the {@link MapServer} class.
+ *
+ * @see MapServer
+ */
+public class MapServerTests {
+    @TempDir
+    private Path directory;
+    private MapGraph map;
+    private ExecutorService executor;
+    private Javalin app;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    public void start() throws Exception {
+        map = MapFixture.graph(directory);
+        executor = Executors.newFixedThreadPool(2);
+        app = serve(map);
+    }
+
+    /**
+     * Returns a server on a free port with the handlers under test over the given map. Matrix requests at
+     * {@code /expired-matrix} have no time to search.
+     */
+    private Javalin serve(MapGraph map) {
+        AdmissionController admission = new AdmissionController(executor, 2, 2);
+        ShapeFactory factory = MapFixture.CONTEXT.getShapeFactory();
+        return Javalin.create()
+                .get("/route", MapServer.route(map, admission, factory))
+                .get("/matrix", MapServer.matrix(map, admission, factory, 10_000))
+                .get("/expired-matrix", MapServer.matrix(map, admission, factory, 0))
+                .get("/search/{lon},{lat}/{term}", MapServer.search(map, factory))
+                .get("/isochrone/{lon},{lat}/{metres}", MapServer.isochrone(map, admission, factory, 10_000))
+                .start(0);
+    }
+
+    /**
+     * Returns the response to a request for the given path and query.
+     */
+    private HttpResponse<String> get(String pathAndQuery) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + app.port() + pathAndQuery)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Returns the response to an autocomplete request for the given term from the first intersection of the fixture
+     * with the given Accept-Encoding header, or none if it is null.
+     */
+    private HttpResponse<byte[]> search(String term, String acceptEncoding) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + app.port() + "/search/"
+                + MapFixture.lon(0) + "," + MapFixture.lat(0) + "/" + term));
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Returns the names the map matches for the given term from the first intersection of the fixture, as JSON.
+     */
+    private String expectedNames(String term) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (CharSequence name : map.getLocationsByPrefix(term, MapFixture.point(0, 0), 10)) {
+            names.add(name.toString());
+        }
+        return new ObjectMapper().writeValueAsString(names);
+    }
+
+    /**
+     * Returns the given intersections of the fixture as semicolon-separated longitude,latitude pairs.
+     */
+    private static String pairs(int[]... intersections) {
+        StringBuilder result = new StringBuilder();
+        for (int[] intersection : intersections) {
+            if (!result.isEmpty()) {
+                result.append(';');
+            }
+            result.append(MapFixture.lon(intersection[1])).append(',').append(MapFixture.lat(intersection[0]));
+        }
+        return result.toString();
+    }
+
+    @AfterEach
+    public void stop() {
+        app.stop();
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the response to a route request along the whole arterial row of the fixture with the given
+     * If-None-Match header, or none if it is null.
+     */
+    private HttpResponse<String> route(String ifNoneMatch) throws IOException, InterruptedException {
+        String query = "startLat=" + MapFixture.lat(MapFixture.ARTERIAL) + "&startLon=" + MapFixture.lon(0)
+                + "&goalLat=" + MapFixture.lat(MapFixture.ARTERIAL) + "&goalLon=" + MapFixture.lon(MapFixture.SIZE - 1);
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + app.port() + "/route?"
+                + query));
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void unchangedRoutesAreNotModified() throws Exception {
+        HttpResponse<String> first = route(null);
+        assertEquals(200, first.statusCode());
+        assertTrue(first.body().contains("\"distance\":"), first.body());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        assertEquals("no-cache", first.headers().firstValue("Cache-Control").orElseThrow());
+
+        HttpResponse<String> revalidated = route(etag);
+        assertEquals(304, revalidated.statusCode());
+        assertEquals(etag, revalidated.headers().firstValue("ETag").orElseThrow());
+        assertEquals(304, route("\"other\", W/" + etag).statusCode());
+        assertEquals(200, route("\"other\"").statusCode());
+    }
+
+    @Test
+    public void accessScoreUpdatesChangeTheTag() throws Exception {
+        String etag = route(null).headers().firstValue("ETag").orElseThrow();
+        map.updateAccessScores(Map.of(MapFixture.rowWay(MapFixture.ARTERIAL), 0.5));
+
+        HttpResponse<String> updated = route(etag);
+        assertEquals(200, updated.statusCode());
+        String next = updated.headers().firstValue("ETag").orElseThrow();
+        assertNotEquals(etag, next);
+        assertEquals(304, route(next).statusCode());
+    }
+
+    @Test
+    public void tagsIdentifyWeightsAcrossRestarts() throws Exception {
+        String original = route(null).headers().firstValue("ETag").orElseThrow();
+        map.updateAccessScores(Map.of(MapFixture.rowWay(MapFixture.ARTERIAL), 0.5));
+        String updated = route(null).headers().firstValue("ETag").orElseThrow();
+
+        // Versions start over at 0 after a restart, so only the checksum tells the two first updates apart.
+        map = MapFixture.graph(directory);
+        app.stop();
+        app = serve(map);
+        assertEquals(304, route(original).statusCode());
+        map.updateAccessScores(Map.of(MapFixture.rowWay(MapFixture.ARTERIAL), 0.25));
+        assertEquals(1, map.version());
+        assertEquals(200, route(updated).statusCode());
+    }
+
+    @Test
+    public void matrixMeasuresEveryPair() throws Exception {
+        HttpResponse<String> response = get("/matrix?sources=" + pairs(new int[]{0, 0}, new int[]{2, 0})
+                + "&targets=" + pairs(new int[]{0, 0}, new int[]{0, 3}, new int[]{2, 0}));
+        assertEquals(200, response.statusCode(), response.body());
+        JsonNode distances = new ObjectMapper().readTree(response.body()).get("distances");
+        assertEquals(2, distances.size());
+        assertEquals(3, distances.get(0).size());
+        assertEquals(0.0, distances.get(0).get(0).asDouble());
+        assertEquals(0.0, distances.get(1).get(2).asDouble());
+        // Neighboring intersections are 0.001 degrees apart, so three blocks east is about 225 m at this latitude.
+        assertEquals(225, distances.get(0).get(1).asDouble(), 5);
+        assertEquals(distances.get(0).get(2).asDouble(), distances.get(1).get(0).asDouble(), 1e-6);
+
+        assertEquals("{\"distances\":[]}", get("/matrix").body());
+    }
+
+    @Test
+    public void matrixRejectsMalformedAndOversizedRequests() throws Exception {
+        assertEquals(400, get("/matrix?sources=-122.34&targets=" + pairs(new int[]{0, 0})).statusCode());
+        assertEquals(400, get("/matrix?sources=east,north&targets=" + pairs(new int[]{0, 0})).statusCode());
+        int[][] many = new int[101][];
+        Arrays.fill(many, new int[]{0, 0});
+        assertEquals(400, get("/matrix?sources=" + pairs(many) + "&targets=" + pairs(new int[]{0, 0})).statusCode());
+        assertEquals(200, get("/matrix?sources=" + pairs(Arrays.copyOf(many, 100)) + "&targets="
+                + pairs(new int[]{0, 0})).statusCode());
+    }
+
+    @Test
+    public void matrixPastItsDeadlineIsUnavailable() throws Exception {
+        HttpResponse<String> response = get("/expired-matrix?sources=" + pairs(new int[]{0, 0}) + "&targets="
+                + pairs(new int[]{MapFixture.SIZE - 1, MapFixture.SIZE - 1}));
+        assertEquals(503, response.statusCode());
+        assertEquals("1", response.headers().firstValue("Retry-After").orElseThrow());
+    }
+
+    @Test
+    public void isochroneRingsTheReachableArea() throws Exception {
+        HttpResponse<String> response = get("/isochrone/" + MapFixture.lon(0) + "," + MapFixture.lat(0) + "/250");
+        assertEquals(200, response.statusCode());
+        JsonNode body = new ObjectMapper().readTree(response.body());
+        MapGraph.Isochrone expected = map.isochrone(MapFixture.point(0, 0),
+                DistanceUtils.dist2Degrees(0.25, DistanceUtils.EARTH_MEAN_RADIUS_KM), SearchBudget.unlimited());
+        assertTrue(expected.settled() > 1 && expected.settled() < MapFixture.SIZE * MapFixture.SIZE);
+        assertEquals(MapServer.encode(expected.ring()), body.get("polyline").asText());
+        assertEquals(expected.settled(), body.get("vertices").asInt());
+
+        assertEquals(400, get("/isochrone/" + MapFixture.lon(0) + "," + MapFixture.lat(0) + "/-1").statusCode());
+        assertEquals(400, get("/isochrone/" + MapFixture.lon(0) + "," + MapFixture.lat(0) + "/1e9").statusCode());
+    }
+
+    @Test
+    public void searchIsPlainWithoutGzip() throws Exception {
+        for (String acceptEncoding : new String[]{null, "identity", "gzip;q=0", "br, gzip; q=0.000"}) {
+            HttpResponse<byte[]> response = search("S", acceptEncoding);
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("Content-Encoding").isEmpty(), acceptEncoding);
+            assertTrue(response.headers().firstValue("Vary").orElseThrow().contains("Accept-Encoding"));
+            assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("application/json"));
+            String body = new String(response.body(), StandardCharsets.UTF_8);
+            assertEquals(expectedNames("S"), body, acceptEncoding);
+        }
+        // Both places starting with an S match, so the bodies compared above are not empty.
+        assertEquals(2, new ObjectMapper().readTree(expectedNames("S")).size());
+    }
+
+    @Test
+    public void searchIsGzippedWhenAccepted() throws Exception {
+        for (String acceptEncoding : new String[]{"gzip", "deflate, GZIP;q=0.5", "br, *"}) {
+            HttpResponse<byte[]> response = search("S", acceptEncoding);
+            assertEquals(200, response.statusCode());
+            assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElseThrow(), acceptEncoding);
+            try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+                assertEquals(expectedNames("S"), new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        HttpResponse<byte[]> empty = search("zzz", "gzip");
+        try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(empty.body()))) {
+            assertEquals("[]", new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void viewportCoversTheMapImage() {
+        ShapeFactory factory = MapFixture.CONTEXT.getShapeFactory();
+        Point center = factory.pointLatLon(47.6, -122.3);
+        // Images are requested at twice the pixel density, so 1024 window pixels show 512 of the 512 << 10 map pixels.
+        Rectangle viewport = MapServer.viewport(factory, center, 10, 1024, 768);
+        assertEquals(360.0 / 1024, viewport.getWidth(), 1e-9);
+        assertEquals(center.getLon(), viewport.getCenter().getLon(), 1e-9);
+        assertTrue(viewport.getMinY() < center.getLat() && center.getLat() < viewport.getMaxY());
+        // Mercator stretches higher latitudes, so the box reaches less far north than south of its center.
+        assertTrue(viewport.getMaxY() - center.getLat() < center.getLat() - viewport.getMinY());
+        assertEquals(viewport.getWidth() / 2, MapServer.viewport(factory, center, 11, 1024, 768).getWidth(), 1e-9);
+
+        // An empty window shows only its center, and the whole world is clipped to the valid longitudes.
+        Rectangle empty = MapServer.viewport(factory, center, 10, 0, 0);
+        assertEquals(0, empty.getWidth(), 1e-9);
+        assertEquals(0, empty.getHeight(), 1e-9);
+        Rectangle world = MapServer.viewport(factory, center, 0, 4096, 4096);
+        assertEquals(-180, world.getMinX());
+        assertEquals(180, world.getMaxX());
+        assertFalse(world.getCrossesDateLine());
+    }
+
+    @Test
+    public void encodesPolylines() {
+        ShapeFactory factory = MapFixture.CONTEXT.getShapeFactory();
+        // The example from the polyline algorithm documentation.
+        List<Point> route = List.of(factory.pointLatLon(38.5, -120.2), factory.pointLatLon(40.7, -120.95),
+                factory.pointLatLon(43.252, -126.453));
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", MapServer.encode(route));
+        assertEquals("", MapServer.encode(List.of()));
+        StringBuilder escaped = new StringBuilder("prefix:");
+        MapServer.encode(route, escaped, true);
+        assertEquals("prefix:_p%7EiF%7Eps%7CU_ulLnnqC_mqNvxq%60%40", escaped.toString());
+    }
+
+    @Test
+    public void escapedPolylinesMatchUrlEncoder() {
+        ShapeFactory factory = MapFixture.CONTEXT.getShapeFactory();
+        Random random = new Random(373);
+        boolean[] seen = new boolean[128];
+        for (int r = 0; r < 200; r += 1) {
+            // Steps of every size from none at all to hundreds of kilometers.
+            List<Point> route = new ArrayList<>();
+            double lat = 47.6;
+            double lon = -122.3;
+            for (int i = 0; i < 20; i += 1) {
+                double scale = random.nextInt(4) == 0 ? 0 : Math.pow(10, random.nextInt(7) - 5);
+                lat = Math.max(-90, Math.min(90, lat + random.nextGaussian() * scale));
+                lon = Math.max(-180, Math.min(180, lon + random.nextGaussian() * scale));
+                route.add(factory.pointLatLon(lat, lon));
+            }
+            String plain = MapServer.encode(route);
+            StringBuilder escaped = new StringBuilder();
+            MapServer.encode(route, escaped, true);
+            assertEquals(URLEncoder.encode(plain, StandardCharsets.UTF_8), escaped.toString());
+            for (int i = 0; i < plain.length(); i += 1) {
+                seen[plain.charAt(i)] = true;
+            }
+        }
+        // Every character an encoded route can hold was escaped, including quotes, backslashes and brackets.
+        for (char c = 63; c <= 126; c += 1) {
+            assertTrue(seen[c], "character " + c);
+        }
+    }
+}
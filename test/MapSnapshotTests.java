@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link MapSnapshot} class.
+ *
+ * @see MapSnapshot
+ */
+public class MapSnapshotTests {
+    /**
+     * Returns a snapshot of two vertices joined in both directions by one way, plus one named place off the road.
+     */
+    private static MapSnapshot snapshot(long checksum) {
+        Map<String, int[]> names = new LinkedHashMap<>();
+        names.put("Café", new int[]{0});
+        names.put("Pike Place Market", new int[]{1, 2});
+        return new MapSnapshot(checksum, new double[]{47.60, 47.61, 47.62}, new double[]{-122.33, -122.33, -122.34},
+                2, new int[]{0, 1, 2}, new int[]{1, 0}, new float[]{0.01f, 0.02f}, new long[]{4636201},
+                new byte[]{3}, new int[]{0, 0}, Map.of(4636201L, 0.5), names);
+    }
+
+    @Test
+    public void readsWhatItWrites(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("test.snapshot");
+        MapSnapshot snapshot = snapshot(373);
+        snapshot.write(path);
+
+        MapSnapshot loaded = MapSnapshot.read(path, 373);
+        assertNotNull(loaded);
+        assertEquals(373, loaded.checksum);
+        assertArrayEquals(snapshot.lat, loaded.lat);
+        assertArrayEquals(snapshot.lon, loaded.lon);
+        assertEquals(snapshot.vertexCount, loaded.vertexCount);
+        assertArrayEquals(snapshot.offsets, loaded.offsets);
+        assertArrayEquals(snapshot.targets, loaded.targets);
+        assertArrayEquals(snapshot.weights, loaded.weights);
+        assertArrayEquals(snapshot.ways, loaded.ways);
+        assertArrayEquals(snapshot.wayTypes, loaded.wayTypes);
+        assertArrayEquals(snapshot.edgeWays, loaded.edgeWays);
+        assertEquals(snapshot.accessScores, loaded.accessScores);
+        assertEquals(snapshot.names.keySet(), loaded.names.keySet());
+        for (String name : snapshot.names.keySet()) {
+            assertArrayEquals(snapshot.names.get(name), loaded.names.get(name));
+        }
+
+        assertNull(MapSnapshot.read(path, 374));
+        assertNull(MapSnapshot.read(directory.resolve("missing.snapshot"), 373));
+    }
+
+    @Test
+    public void ignoresTruncatedFiles(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("test.snapshot");
+        snapshot(373).write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        for (int length = 0; length < bytes.length; length += 1) {
+            Files.write(path, Arrays.copyOf(bytes, length));
+            assertNull(MapSnapshot.read(path, 373), "length " + length);
+        }
+        // Trailing bytes mean the lengths do not match the contents.
+        Files.write(path, Arrays.copyOf(bytes, bytes.length + 4));
+        assertNull(MapSnapshot.read(path, 373));
+    }
+
+    @Test
+    public void ignoresCorruptLengths(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("test.snapshot");
+        snapshot(373).write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        // The point, vertex and edge counts follow the 16-byte magic, version and checksum.
+        for (int offset = 16; offset < 28; offset += 4) {
+            for (byte value : new byte[]{0x7f, (byte) 0xff}) {
+                byte[] corrupt = bytes.clone();
+                corrupt[offset] = value;
+                Files.write(path, corrupt);
+                assertNull(MapSnapshot.read(path, 373), "offset " + offset + " value " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link WeightedLRUCache} class.
+ *
+ * @see WeightedLRUCache
+ */
+public class WeightedLRUCacheTests {
+    @Test
+    public void evictsLeastRecentlyUsedByWeight() {
+        WeightedLRUCache<Integer, String> cache = new WeightedLRUCache<>(10, String::length);
+        cache.put(1, "aaaa");
+        cache.put(2, "bbbb");
+        assertEquals("aaaa", cache.get(1));
+        cache.put(3, "cccc");
+        // 2 is the least recently used, so it is evicted to fit 3.
+        assertNull(cache.get(2));
+        assertEquals("aaaa", cache.get(1));
+        assertEquals("cccc", cache.get(3));
+        assertEquals(8, cache.weight());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void replacingUpdatesWeight() {
+        WeightedLRUCache<Integer, String> cache = new WeightedLRUCache<>(10, String::length);
+        cache.put(1, "aaaaaaaa");
+        cache.put(1, "a");
+        assertEquals(1, cache.weight());
+        cache.put(2, "bbbbbbbbb");
+        assertEquals(10, cache.weight());
+        assertEquals(0, cache.stats().evictions());
+    }
+
+    @Test
+    public void skipsValuesHeavierThanMaximum() {
+        WeightedLRUCache<Integer, String> cache = new WeightedLRUCache<>(3, String::length);
+        cache.put(1, "a");
+        cache.put(2, "bbbb");
+        assertNull(cache.get(2));
+        assertEquals("a", cache.get(1));
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        WeightedLRUCache<Integer, String> cache = new WeightedLRUCache<>(10, String::length);
+        assertEquals("one", cache.computeIfAbsent(1, key -> "one"));
+        assertEquals("one", cache.computeIfAbsent(1, key -> fail("Computed a cached value")));
+        assertNull(cache.get(2));
+        WeightedLRUCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(1.0 / 3, stats.hitRate(), 1e-9);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+        assertEquals(1, cache.stats().hits());
+    }
+}
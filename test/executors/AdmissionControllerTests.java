@@ -0,0 +1,85 @@
+package executors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link AdmissionController} class.
+ *
+ * @see AdmissionController
+ */
+public class AdmissionControllerTests {
+    @Test
+    public void queuesThenShedsBeyondLimits() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        AdmissionController admission = new AdmissionController(executor, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Integer> first = admission.submit(() -> {
+                await(release);
+                return 1;
+            }, 5, TimeUnit.SECONDS);
+            CompletableFuture<Integer> second = admission.submit(() -> 2, 5, TimeUnit.SECONDS);
+            CompletableFuture<Integer> third = admission.submit(() -> 3, 5, TimeUnit.SECONDS);
+            assertTrue(third.isCompletedExceptionally());
+            ExecutionException e = assertThrows(ExecutionException.class, third::get);
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+            assertFalse(second.isDone());
+
+            release.countDown();
+            assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            assertEquals(2, second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        Map<String, Number> metrics = admission.metrics();
+        assertEquals(2, metrics.get("admitted").longValue());
+        assertEquals(1, metrics.get("queued").longValue());
+        assertEquals(1, metrics.get("rejected").longValue());
+        assertEquals(0, metrics.get("expired").longValue());
+    }
+
+    @Test
+    public void expiresWaitingTasksAtDeadline() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        AdmissionController admission = new AdmissionController(executor, 1, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Integer> first = admission.submit(() -> {
+                await(release);
+                return 1;
+            }, 5, TimeUnit.SECONDS);
+            CompletableFuture<Integer> late = admission.submit(() -> 2, 50, TimeUnit.MILLISECONDS);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(TimeoutException.class, e.getCause());
+
+            release.countDown();
+            assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            // The expired task never runs, and the slot is free again.
+            assertEquals(3, admission.submit(() -> 3, 5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, admission.metrics().get("expired").longValue());
+        assertEquals(0, admission.metrics().get("waiting").intValue());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
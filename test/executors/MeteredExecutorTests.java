@@ -0,0 +1,61 @@
+package executors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link MeteredExecutor} class.
+ *
+ * @see MeteredExecutor
+ */
+public class MeteredExecutorTests {
+    @Test
+    public void countsQueuedAndRejectedTasks() throws Exception {
+        MeteredExecutor executor = MeteredExecutor.bounded("test", 1, 2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Integer> first = executor.supply(() -> {
+                started.countDown();
+                await(release);
+                return 1;
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Integer> second = executor.supply(() -> 2);
+            CompletableFuture<Integer> third = executor.supply(() -> 3);
+            assertEquals(2, executor.queued());
+
+            CompletableFuture<Integer> fourth = executor.supply(() -> 4);
+            ExecutionException e = assertThrows(ExecutionException.class, fourth::get);
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+
+            release.countDown();
+            assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            assertEquals(2, second.get(5, TimeUnit.SECONDS));
+            assertEquals(3, third.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+        Map<String, Number> metrics = executor.metrics();
+        assertEquals(0, metrics.get("queued").intValue());
+        assertEquals(1, metrics.get("rejected").longValue());
+        assertTrue(metrics.get("maxWaitMillis").doubleValue() > 0);
+        assertTrue(metrics.get("maxWaitMillis").doubleValue() >= metrics.get("meanWaitMillis").doubleValue());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
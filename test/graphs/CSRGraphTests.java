@@ -0,0 +1,165 @@
+package graphs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link CSRGraph} class.
+ *
+ * @see CSRGraph
+ */
+public class CSRGraphTests {
+    /**
+     * Returns a random graph with the given number of vertices and edges, including duplicate edges and self-loops.
+     */
+    private static CSRGraph randomGraph(Random random, int size, int edges) {
+        CSRGraph.Builder builder = new CSRGraph.Builder().ensureSize(size);
+        for (int i = 0; i < edges; i += 1) {
+            builder.addEdge(random.nextInt(size), random.nextInt(size), random.nextDouble() * 100);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the outgoing edges of the given vertex as target and weight pairs, sorted by target and then weight.
+     */
+    private static List<String> edges(IntGraph graph, int vertex) {
+        List<String> result = new ArrayList<>();
+        for (int e = graph.edgeStart(vertex); e < graph.edgeEnd(vertex); e += 1) {
+            result.add(String.format("%08d %s", graph.target(e), graph.weight(e)));
+        }
+        result.sort(null);
+        return result;
+    }
+
+    @Test
+    public void builderKeepsInsertionOrderAndDuplicates() {
+        CSRGraph graph = new CSRGraph.Builder()
+                .addEdge(2, 0, 1.5)
+                .addEdge(0, 3, 2)
+                .addEdge(0, 1, 3)
+                .addEdge(2, 1, 4)
+                .addEdge(0, 3, 5)
+                .ensureSize(6)
+                .build();
+        assertEquals(6, graph.size());
+        assertEquals(5, graph.edgeCount());
+        // Edges are grouped by source in the order they were added, and duplicate edges are all kept.
+        assertEquals(0, graph.edgeStart(0));
+        assertEquals(3, graph.edgeEnd(0));
+        assertArrayEquals(new int[]{3, 1, 3}, new int[]{graph.target(0), graph.target(1), graph.target(2)});
+        assertArrayEquals(new double[]{2, 3, 5}, new double[]{graph.weight(0), graph.weight(1), graph.weight(2)});
+        assertEquals(graph.edgeStart(1), graph.edgeEnd(1));
+        assertEquals(2, graph.edgeEnd(2) - graph.edgeStart(2));
+        assertEquals(0, graph.target(graph.edgeStart(2)));
+        assertEquals(1.5, graph.weight(graph.edgeStart(2)));
+        for (int v = 3; v < graph.size(); v += 1) {
+            assertEquals(graph.edgeStart(v), graph.edgeEnd(v));
+        }
+        assertEquals(graph.edgeCount(), graph.edgeEnd(graph.size() - 1));
+
+        assertEquals(0, new CSRGraph.Builder().build().size());
+        // Adding an edge grows the graph to fit it, and ensureSize never shrinks it.
+        assertEquals(8, new CSRGraph.Builder().ensureSize(3).addEdge(7, 0, 1).ensureSize(2).build().size());
+    }
+
+    @Test
+    public void constructorRejectsInconsistentArrays() {
+        assertThrows(IllegalArgumentException.class, () -> new CSRGraph(new int[0], new int[0], new float[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CSRGraph(new int[]{0, 2}, new int[]{0}, new float[]{1}));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CSRGraph(new int[]{0, 1}, new int[]{0}, new float[]{1, 2}));
+    }
+
+    @Test
+    public void reversingTwiceRestoresTheEdges() {
+        CSRGraph graph = randomGraph(new Random(373), 50, 400);
+        CSRGraph reverse = graph.reverse();
+        assertEquals(graph.size(), reverse.size());
+        assertEquals(graph.edgeCount(), reverse.edgeCount());
+        CSRGraph twice = reverse.reverse();
+        for (int v = 0; v < graph.size(); v += 1) {
+            assertEquals(edges(graph, v), edges(twice, v), "vertex " + v);
+        }
+    }
+
+    @Test
+    public void reverseEdgesMatchReverseGraph() {
+        CSRGraph graph = randomGraph(new Random(373), 50, 400);
+        CSRGraph reverse = graph.reverse();
+        int[] reverseEdges = graph.reverseEdges();
+        int[] sources = new int[graph.edgeCount()];
+        for (int v = 0; v < graph.size(); v += 1) {
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e += 1) {
+                sources[e] = v;
+            }
+        }
+        boolean[] seen = new boolean[graph.edgeCount()];
+        for (int v = 0; v < reverse.size(); v += 1) {
+            for (int e = reverse.edgeStart(v); e < reverse.edgeEnd(v); e += 1) {
+                int original = reverseEdges[e];
+                assertFalse(seen[original]);
+                seen[original] = true;
+                assertEquals(v, graph.target(original));
+                assertEquals(sources[original], reverse.target(e));
+                assertEquals(graph.weight(original), reverse.weight(e));
+            }
+        }
+    }
+
+    @Test
+    public void withWeightsSharesEdgesButNotWeights() {
+        CSRGraph graph = randomGraph(new Random(373), 20, 100);
+        float[] weights = new float[graph.edgeCount()];
+        for (int e = 0; e < weights.length; e += 1) {
+            weights[e] = e;
+        }
+        CSRGraph reweighted = graph.withWeights(weights);
+        assertNotEquals(graph.fingerprint(), reweighted.fingerprint());
+        for (int v = 0; v < graph.size(); v += 1) {
+            assertEquals(graph.edgeStart(v), reweighted.edgeStart(v));
+            assertEquals(graph.edgeEnd(v), reweighted.edgeEnd(v));
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e += 1) {
+                assertEquals(graph.target(e), reweighted.target(e));
+                assertEquals(e, reweighted.weight(e));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> graph.withWeights(new float[graph.edgeCount() + 1]));
+
+        // Reweighing copies the weights, so the original graph is unchanged.
+        double before = graph.weight(3);
+        CSRGraph updated = graph.reweigh(new int[]{3}, new double[]{1234.5});
+        assertEquals(1234.5, updated.weight(3));
+        assertEquals(before, graph.weight(3));
+        assertEquals(graph.weight(4), updated.weight(4));
+    }
+
+    @Test
+    public void roundUpNeverRoundsDown() {
+        Random random = new Random(373);
+        for (int i = 0; i < 100_000; i += 1) {
+            double weight = random.nextDouble() * Math.pow(10, random.nextInt(12) - 6);
+            float rounded = CSRGraph.roundUp(weight);
+            assertTrue(rounded >= weight, weight + " rounded to " + rounded);
+            // It is the smallest such float.
+            assertTrue(Math.nextDown(rounded) < weight, weight + " rounded to " + rounded);
+        }
+        assertEquals(0.5f, CSRGraph.roundUp(0.5));
+        assertEquals(0f, CSRGraph.roundUp(0));
+        assertEquals(Float.POSITIVE_INFINITY, CSRGraph.roundUp(Double.POSITIVE_INFINITY));
+        // The nearest float to 0.1 is above it, but the nearest float to 0.7 is below it.
+        assertEquals(0.1f, CSRGraph.roundUp(0.1));
+        assertEquals(Math.nextUp(0.7f), CSRGraph.roundUp(0.7));
+
+        // The builder and reweighing round up too, so weights stay at least the distances they were built from.
+        assertTrue(new CSRGraph.Builder().addEdge(0, 1, 0.7).build().weight(0) >= 0.7);
+        CSRGraph graph = new CSRGraph.Builder().addEdge(0, 1, 1).build();
+        assertTrue(graph.reweigh(new int[]{0}, new double[]{0.7}).weight(0) >= 0.7);
+    }
+}
@@ -0,0 +1,182 @@
+package graphs.chains;
+
+import graphs.CSRGraph;
+import graphs.IntAStarGraph;
+import graphs.IntGraph;
+import graphs.shortestpaths.IntAStarSolver;
+import graphs.shortestpaths.IntBidirectionalAStarSolver;
+import graphs.shortestpaths.IntDijkstraSolver;
+import graphs.shortestpaths.SearchBudget;
+import graphs.shortestpaths.SearchResult;
+import graphs.shortestpaths.SearchWorkspace;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ChainGraph} class.
+ */
+public class ChainGraphTests {
+    /**
+     * Width and height of the grid of intersections.
+     */
+    private static final int N = 12;
+
+    /**
+     * Returns a grid of intersections whose streets are split by up to three shape points, with a different random
+     * weight in each direction, plus a loop street from the first intersection and a ring with no intersections.
+     */
+    private static CSRGraph streets(Random random) {
+        CSRGraph.Builder builder = new CSRGraph.Builder();
+        int next = N * N;
+        for (int v = 0; v < N * N; v += 1) {
+            for (int w : new int[]{v + 1, v + N}) {
+                if (w < N * N && (w != v + 1 || w % N != 0) && random.nextDouble() < 0.9) {
+                    int previous = v;
+                    for (int i = random.nextInt(4); i > 0; i -= 1) {
+                        street(builder, random, previous, next);
+                        previous = next;
+                        next += 1;
+                    }
+                    street(builder, random, previous, w);
+                }
+            }
+        }
+        int previous = 0;
+        for (int i = 0; i < 3; i += 1) {
+            street(builder, random, previous, next);
+            previous = next;
+            next += 1;
+        }
+        street(builder, random, previous, 0);
+        int ring = next;
+        for (int i = 0; i < 5; i += 1) {
+            street(builder, random, next, i < 4 ? next + 1 : ring);
+            next += 1;
+        }
+        return builder.build();
+    }
+
+    private static void street(CSRGraph.Builder builder, Random random, int from, int to) {
+        builder.addEdge(from, to, 1 + random.nextDouble());
+        builder.addEdge(to, from, 1 + random.nextDouble());
+    }
+
+    /**
+     * Returns the given graph with a zero heuristic.
+     */
+    private static IntAStarGraph withoutHeuristic(IntGraph graph) {
+        return new IntAStarGraph() {
+            @Override
+            public int size() {
+                return graph.size();
+            }
+
+            @Override
+            public int edgeStart(int vertex) {
+                return graph.edgeStart(vertex);
+            }
+
+            @Override
+            public int edgeEnd(int vertex) {
+                return graph.edgeEnd(vertex);
+            }
+
+            @Override
+            public int target(int edge) {
+                return graph.target(edge);
+            }
+
+            @Override
+            public double weight(int edge) {
+                return graph.weight(edge);
+            }
+
+            @Override
+            public double estimatedDistance(int start, int end) {
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * Returns the weight of the given path through the graph using the lightest edge between each pair of vertices.
+     */
+    private static double length(IntGraph graph, int[] path) {
+        double length = 0;
+        for (int i = 1; i < path.length; i += 1) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = graph.edgeStart(path[i - 1]); e < graph.edgeEnd(path[i - 1]); e += 1) {
+                if (graph.target(e) == path[i]) {
+                    best = Math.min(best, graph.weight(e));
+                }
+            }
+            length += best;
+        }
+        return length;
+    }
+
+    @Test
+    public void collapsesShapePoints() {
+        CSRGraph graph = streets(new Random(373));
+        ChainGraph chains = new ChainGraph(graph, graph.reverse());
+        assertEquals(graph.size(), chains.size());
+        // Every intersection with 3 or 4 streets stays, as do the loop's intersection and one vertex of the ring.
+        assertTrue(chains.coreSize() < N * N + 2);
+        assertTrue(chains.coreSize() < graph.size() / 2);
+        for (int v = 0; v < chains.size(); v += 1) {
+            if (chains.isCore(v)) {
+                for (int e = chains.edgeStart(v); e < chains.edgeEnd(v); e += 1) {
+                    assertTrue(chains.isCore(chains.target(e)));
+                }
+            } else {
+                assertEquals(2, chains.entries(v).length);
+                assertEquals(2, chains.edgeEnd(v) - chains.edgeStart(v));
+            }
+        }
+    }
+
+    @Test
+    public void searchesMatchDijkstra() {
+        CSRGraph graph = streets(new Random(373));
+        ChainGraph chains = new ChainGraph(graph, graph.reverse());
+        IntAStarGraph roads = withoutHeuristic(chains);
+        SearchWorkspace forward = new SearchWorkspace(graph.size());
+        SearchWorkspace backward = new SearchWorkspace(graph.size());
+        SearchWorkspace reference = new SearchWorkspace(graph.size());
+        Random random = new Random(143);
+        for (int q = 0; q < 300; q += 1) {
+            int start = random.nextInt(graph.size());
+            // Every third goal is a neighbor of the start, so both often lie on the same chain.
+            int degree = graph.edgeEnd(start) - graph.edgeStart(start);
+            int goal = q % 3 == 0
+                    ? graph.target(graph.edgeStart(start) + random.nextInt(degree))
+                    : random.nextInt(graph.size());
+            double expected = new IntDijkstraSolver(graph, start, reference).distTo(goal);
+
+            IntBidirectionalAStarSolver bidirectional = new IntBidirectionalAStarSolver(roads, chains.reverse(),
+                    start, goal, forward, backward, SearchBudget.unlimited());
+            double direct = chains.direct(start, goal);
+            assertEquals(expected, Math.min(bidirectional.distance(), direct), 1e-9);
+            if (expected == Double.POSITIVE_INFINITY) {
+                // The ring is not connected to the grid.
+                assertNotEquals(SearchResult.Status.FOUND, bidirectional.status());
+                continue;
+            }
+            int[] path = chains.expand(direct <= bidirectional.distance()
+                    ? new int[]{start, goal} : bidirectional.solution());
+            assertEquals(start, path[0]);
+            assertEquals(goal, path[path.length - 1]);
+            assertEquals(expected, length(graph, path), 1e-9);
+
+            IntAStarSolver astar = new IntAStarSolver(roads, start, goal, chains.entries(goal),
+                    chains.entryWeights(goal), forward, SearchBudget.unlimited());
+            assertEquals(expected, Math.min(astar.distance(), direct), 1e-9);
+            if (astar.distance() < direct) {
+                assertEquals(expected, length(graph, chains.expand(astar.solution())), 1e-9);
+            }
+        }
+    }
+}
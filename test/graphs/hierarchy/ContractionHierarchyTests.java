@@ -0,0 +1,209 @@
+package graphs.hierarchy;
+
+import graphs.CSRGraph;
+import graphs.shortestpaths.IntDijkstraSolver;
+import graphs.shortestpaths.SearchBudget;
+import graphs.shortestpaths.SearchResult;
+import graphs.shortestpaths.SearchWorkspace;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ContractionHierarchyBuilder}, {@link ContractionHierarchy}, and
+ * {@link ContractionHierarchySolver} classes.
+ */
+public class ContractionHierarchyTests {
+    /**
+     * Width and height of the random grid.
+     */
+    private static final int N = 30;
+
+    @Test
+    public void matchesDijkstra() {
+        CSRGraph graph = randomGrid(new Random(373));
+        ContractionHierarchy hierarchy = new ContractionHierarchyBuilder(graph).build();
+        assertQueriesMatch(graph, hierarchy, new Random(143));
+    }
+
+    @Test
+    public void seededQueriesMatchDijkstra() {
+        CSRGraph graph = randomGrid(new Random(373));
+        ContractionHierarchy hierarchy = new ContractionHierarchyBuilder(graph).build();
+        SearchWorkspace forward = new SearchWorkspace(graph.size());
+        SearchWorkspace backward = new SearchWorkspace(graph.size());
+        SearchWorkspace reference = new SearchWorkspace(graph.size());
+        Random random = new Random(143);
+        for (int q = 0; q < 100; q += 1) {
+            // The two ends of a random edge on each side, as for a location partway along it.
+            int from = random.nextInt(graph.size());
+            int to = random.nextInt(graph.size());
+            int[] starts = {from, from + 1 < graph.size() ? from + 1 : from - 1};
+            int[] goals = {to, q % 10 == 0 ? from : to + 1 < graph.size() ? to + 1 : to - 1};
+            double[] startWeights = {random.nextDouble(), random.nextDouble()};
+            double[] goalWeights = {random.nextDouble(), random.nextDouble()};
+            double expected = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < starts.length; i += 1) {
+                IntDijkstraSolver dijkstra = new IntDijkstraSolver(graph, starts[i], reference);
+                for (int j = 0; j < goals.length; j += 1) {
+                    expected = Math.min(expected, startWeights[i] + dijkstra.distTo(goals[j]) + goalWeights[j]);
+                }
+            }
+            ContractionHierarchySolver solver = new ContractionHierarchySolver(hierarchy, starts, startWeights, goals,
+                    goalWeights, forward, backward, SearchBudget.unlimited());
+            assertEquals(expected, solver.distance(), 1e-9);
+            if (expected < Double.POSITIVE_INFINITY) {
+                int[] path = solver.solution();
+                int start = path[0] == starts[0] ? 0 : 1;
+                int goal = path[path.length - 1] == goals[0] ? 0 : 1;
+                assertEquals(starts[start], path[0]);
+                assertEquals(goals[goal], path[path.length - 1]);
+                assertEquals(expected, startWeights[start] + length(graph, path) + goalWeights[goal], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void bucketsMatchDijkstra() {
+        CSRGraph graph = randomGrid(new Random(373));
+        ContractionHierarchy hierarchy = new ContractionHierarchyBuilder(graph).build();
+        Random random = new Random(143);
+        int[] sources = random.ints(10, 0, graph.size()).toArray();
+        int[] targets = random.ints(15, 0, graph.size()).toArray();
+        SearchWorkspace workspace = new SearchWorkspace(graph.size());
+        ContractionHierarchyBuckets buckets = new ContractionHierarchyBuckets(hierarchy, targets, workspace,
+                SearchBudget.unlimited());
+        assertEquals(SearchResult.Status.FOUND, buckets.status());
+        SearchWorkspace reference = new SearchWorkspace(graph.size());
+        double[] row = new double[targets.length];
+        for (int source : sources) {
+            assertEquals(SearchResult.Status.FOUND,
+                    buckets.distances(source, workspace, SearchBudget.unlimited(), row));
+            IntDijkstraSolver expected = new IntDijkstraSolver(graph, source, reference);
+            for (int j = 0; j < targets.length; j += 1) {
+                assertEquals(expected.distTo(targets[j]), row[j], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void bucketsStopWhenBudgetIsExceeded() {
+        CSRGraph graph = randomGrid(new Random(373));
+        ContractionHierarchy hierarchy = new ContractionHierarchyBuilder(graph).build();
+        int[] targets = new Random(143).ints(15, 0, graph.size()).toArray();
+        SearchWorkspace workspace = new SearchWorkspace(graph.size());
+        assertEquals(SearchResult.Status.ABORTED, new ContractionHierarchyBuckets(hierarchy, targets, workspace,
+                SearchBudget.unlimited().withMaxSettled(targets.length)).status());
+
+        ContractionHierarchyBuckets buckets = new ContractionHierarchyBuckets(hierarchy, targets, workspace,
+                SearchBudget.unlimited());
+        double[] row = new double[targets.length];
+        assertEquals(SearchResult.Status.ABORTED,
+                buckets.distances(targets[0], workspace, SearchBudget.unlimited().withMaxSettled(1), row));
+        assertEquals(SearchResult.Status.ABORTED, buckets.distances(targets[0], workspace,
+                SearchBudget.unlimited().withCancellation(() -> true), row));
+    }
+
+    @Test
+    public void readsWhatItWrites(@TempDir Path directory) throws IOException {
+        CSRGraph graph = randomGrid(new Random(373));
+        ContractionHierarchy hierarchy = new ContractionHierarchyBuilder(graph).build();
+        Path path = directory.resolve("test.hierarchy");
+        hierarchy.write(path);
+
+        ContractionHierarchy loaded = ContractionHierarchy.read(path, graph.fingerprint());
+        assertNotNull(loaded);
+        assertEquals(hierarchy.edgeCount(), loaded.edgeCount());
+        assertQueriesMatch(graph, loaded, new Random(143));
+
+        CSRGraph other = randomGrid(new Random(374));
+        assertNull(ContractionHierarchy.read(path, other.fingerprint()));
+        assertNull(ContractionHierarchy.read(directory.resolve("missing.hierarchy"), 0));
+    }
+
+    @Test
+    public void ignoresTruncatedFiles(@TempDir Path directory) throws IOException {
+        CSRGraph graph = randomGrid(new Random(373));
+        Path path = directory.resolve("test.hierarchy");
+        new ContractionHierarchyBuilder(graph).build().write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        for (int length : new int[]{0, 7, 16, 19, 40, bytes.length / 2, bytes.length - 1}) {
+            Files.write(path, Arrays.copyOf(bytes, length));
+            assertNull(ContractionHierarchy.read(path, graph.fingerprint()), "length " + length);
+        }
+        // A vertex count far larger than the file, and then a negative one.
+        bytes[16] = 0x7f;
+        Files.write(path, bytes);
+        assertNull(ContractionHierarchy.read(path, graph.fingerprint()));
+        bytes[16] = (byte) 0xff;
+        Files.write(path, bytes);
+        assertNull(ContractionHierarchy.read(path, graph.fingerprint()));
+    }
+
+    private static void assertQueriesMatch(CSRGraph graph, ContractionHierarchy hierarchy, Random random) {
+        SearchWorkspace forward = new SearchWorkspace(graph.size());
+        SearchWorkspace backward = new SearchWorkspace(graph.size());
+        SearchWorkspace reference = new SearchWorkspace(graph.size());
+        for (int q = 0; q < 100; q += 1) {
+            int start = random.nextInt(graph.size());
+            int goal = random.nextInt(graph.size());
+            IntDijkstraSolver expected = new IntDijkstraSolver(graph, start, reference);
+            ContractionHierarchySolver solver = new ContractionHierarchySolver(hierarchy, start, goal,
+                    forward, backward, SearchBudget.unlimited());
+            if (expected.distTo(goal) == Double.POSITIVE_INFINITY) {
+                assertEquals(SearchResult.Status.NOT_FOUND, solver.status());
+                assertEquals(0, solver.solution().length);
+                continue;
+            }
+            assertEquals(SearchResult.Status.FOUND, solver.status());
+            assertEquals(expected.distTo(goal), solver.distance(), 1e-9);
+            int[] path = solver.solution();
+            assertEquals(start, path[0]);
+            assertEquals(goal, path[path.length - 1]);
+            assertEquals(expected.distTo(goal), length(graph, path), 1e-9);
+        }
+    }
+
+    /**
+     * Returns the total weight of the path, taking the lightest edge between consecutive vertices.
+     */
+    private static double length(CSRGraph graph, int[] path) {
+        double length = 0.0;
+        for (int i = 0; i + 1 < path.length; i += 1) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = graph.edgeStart(path[i]); e < graph.edgeEnd(path[i]); e += 1) {
+                if (graph.target(e) == path[i + 1]) {
+                    best = Math.min(best, graph.weight(e));
+                }
+            }
+            assertNotEquals(Double.POSITIVE_INFINITY, best, "Path uses a missing edge");
+            length += best;
+        }
+        return length;
+    }
+
+    /**
+     * Returns a grid graph with about 10% of edges missing, some one-way edges, and random weights.
+     */
+    private static CSRGraph randomGrid(Random random) {
+        CSRGraph.Builder builder = new CSRGraph.Builder();
+        for (int v = 0; v < N * N; v += 1) {
+            for (int w : new int[]{v + 1, v + N}) {
+                if (w < N * N && (w != v + 1 || w % N != 0) && random.nextDouble() < 0.9) {
+                    builder.addEdge(v, w, 1 + random.nextDouble());
+                    if (random.nextDouble() < 0.8) {
+                        builder.addEdge(w, v, 1 + random.nextDouble());
+                    }
+                }
+            }
+        }
+        return builder.ensureSize(N * N).build();
+    }
+}
@@ -0,0 +1,154 @@
+package graphs.landmarks;
+
+import graphs.CSRGraph;
+import graphs.IntAStarGraph;
+import graphs.shortestpaths.IntAStarSolver;
+import graphs.shortestpaths.IntDijkstraSolver;
+import graphs.shortestpaths.SearchBudget;
+import graphs.shortestpaths.SearchWorkspace;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link Landmarks} and {@link LandmarkGraph} classes.
+ */
+public class LandmarksTests {
+    /**
+     * Width and height of the random grid.
+     */
+    private static final int N = 30;
+
+    @Test
+    public void lowerBoundsAreAdmissible() {
+        Grid grid = new Grid(new Random(373));
+        SearchWorkspace workspace = new SearchWorkspace(grid.size());
+        for (Landmarks.Selection selection : Landmarks.Selection.values()) {
+            Landmarks landmarks = Landmarks.build(grid.graph, grid.graph.reverse(), 8, selection, 0);
+            assertEquals(8, landmarks.landmarks().length);
+            Random random = new Random(143);
+            for (int q = 0; q < 20; q += 1) {
+                int start = random.nextInt(grid.size());
+                IntDijkstraSolver solver = new IntDijkstraSolver(grid.graph, start, workspace);
+                for (int goal = 0; goal < grid.size(); goal += 1) {
+                    assertTrue(landmarks.lowerBound(start, goal) <= solver.distTo(goal) + 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesDijkstraWithFewerSettled() {
+        Grid grid = new Grid(new Random(373));
+        Landmarks landmarks = Landmarks.build(grid.graph, grid.graph.reverse(), 8, Landmarks.Selection.AVOID, 0);
+        LandmarkGraph alt = new LandmarkGraph(grid, landmarks);
+        SearchWorkspace workspace = new SearchWorkspace(grid.size());
+        SearchWorkspace reference = new SearchWorkspace(grid.size());
+        Random random = new Random(143);
+        long plainSettled = 0;
+        long altSettled = 0;
+        for (int q = 0; q < 100; q += 1) {
+            int start = random.nextInt(grid.size());
+            int goal = random.nextInt(grid.size());
+            double expected = new IntDijkstraSolver(grid.graph, start, reference).distTo(goal);
+            IntAStarSolver plain = new IntAStarSolver(grid, start, goal, workspace, SearchBudget.unlimited());
+            assertEquals(expected, plain.distance(), 1e-9);
+            plainSettled += plain.settled();
+            IntAStarSolver solver = new IntAStarSolver(alt, start, goal, workspace, SearchBudget.unlimited());
+            assertEquals(expected, solver.distance(), 1e-9);
+            altSettled += solver.settled();
+        }
+        assertTrue(altSettled < plainSettled, altSettled + " >= " + plainSettled);
+    }
+
+    @Test
+    public void readsWhatItWrites(@TempDir Path directory) throws IOException {
+        Grid grid = new Grid(new Random(373));
+        Landmarks landmarks = Landmarks.build(grid.graph, grid.graph.reverse(), 4, Landmarks.Selection.FARTHEST, 0);
+        Path path = directory.resolve("test.landmarks");
+        landmarks.write(path);
+
+        Landmarks loaded = Landmarks.read(path, grid.graph.fingerprint());
+        assertNotNull(loaded);
+        assertArrayEquals(landmarks.landmarks(), loaded.landmarks());
+        for (int v = 0; v < grid.size(); v += 1) {
+            assertEquals(landmarks.lowerBound(v, 0), loaded.lowerBound(v, 0));
+        }
+        assertNull(Landmarks.read(path, new Grid(new Random(374)).graph.fingerprint()));
+    }
+
+    @Test
+    public void ignoresTruncatedFiles(@TempDir Path directory) throws IOException {
+        Grid grid = new Grid(new Random(373));
+        Landmarks landmarks = Landmarks.build(grid.graph, grid.graph.reverse(), 4, Landmarks.Selection.FARTHEST, 0);
+        Path path = directory.resolve("test.landmarks");
+        landmarks.write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        for (int length : new int[]{0, 7, 16, 23, 40, bytes.length / 2, bytes.length - 1}) {
+            Files.write(path, Arrays.copyOf(bytes, length));
+            assertNull(Landmarks.read(path, grid.graph.fingerprint()), "length " + length);
+        }
+        // A landmark count far larger than the file.
+        bytes[20] = 0x7f;
+        Files.write(path, bytes);
+        assertNull(Landmarks.read(path, grid.graph.fingerprint()));
+    }
+
+    /**
+     * Grid graph with about 10% of edges missing whose weights are between one and three times the straight-line
+     * distance, like access-weighted streets.
+     */
+    private static class Grid implements IntAStarGraph {
+        final CSRGraph graph;
+
+        Grid(Random random) {
+            CSRGraph.Builder builder = new CSRGraph.Builder();
+            for (int v = 0; v < N * N; v += 1) {
+                for (int w : new int[]{v + 1, v + N}) {
+                    if (w < N * N && (w != v + 1 || w % N != 0) && random.nextDouble() < 0.9) {
+                        builder.addEdge(v, w, 1 + 2 * random.nextDouble());
+                        builder.addEdge(w, v, 1 + 2 * random.nextDouble());
+                    }
+                }
+            }
+            graph = builder.ensureSize(N * N).build();
+        }
+
+        @Override
+        public int size() {
+            return graph.size();
+        }
+
+        @Override
+        public int edgeStart(int vertex) {
+            return graph.edgeStart(vertex);
+        }
+
+        @Override
+        public int edgeEnd(int vertex) {
+            return graph.edgeEnd(vertex);
+        }
+
+        @Override
+        public int target(int edge) {
+            return graph.target(edge);
+        }
+
+        @Override
+        public double weight(int edge) {
+            return graph.weight(edge);
+        }
+
+        @Override
+        public double estimatedDistance(int start, int end) {
+            return Math.hypot(start % N - end % N, start / N - end / N);
+        }
+    }
+}
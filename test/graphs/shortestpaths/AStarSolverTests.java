@@ -0,0 +1,162 @@
+package graphs.shortestpaths;
+
+import graphs.AStarGraph;
+import graphs.Edge;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link AStarSolver} class.
+ *
+ * @see AStarSolver
+ */
+public class AStarSolverTests {
+    /**
+     * Opposite corners of the {@link RandomGrid}, which are too far apart to be found within a few hundred settled
+     * vertices.
+     */
+    private static final int START = 0;
+    private static final int GOAL = RandomGrid.N * RandomGrid.N - 1;
+
+    /**
+     * Graph of the path 0 to 1 to 2 with unit weights, plus vertex 3 with no edges.
+     */
+    private static final AStarGraph<Integer> PATH = new AStarGraph<>() {
+        private final Map<Integer, List<Edge<Integer>>> edges = Map.of(
+                0, List.of(new Edge<>(0, 1, 1.0)),
+                1, List.of(new Edge<>(1, 2, 1.0)),
+                2, List.of(),
+                3, List.of()
+        );
+
+        @Override
+        public List<Edge<Integer>> neighbors(Integer vertex) {
+            return edges.get(vertex);
+        }
+
+        @Override
+        public double estimatedDistance(Integer start, Integer end) {
+            return 0;
+        }
+    };
+
+    @Test
+    public void findsShortestPaths() {
+        RandomGrid grid = new RandomGrid(373);
+        Random random = new Random(143);
+        for (int q = 0; q < 100; q += 1) {
+            int start = random.nextInt(grid.size());
+            int goal = random.nextInt(grid.size());
+            SearchResult<Integer> result = new AStarSolver<>(grid, start, goal).result();
+            List<Integer> expected = new DijkstraSolver<>(grid, start).solution(goal);
+            // Dijkstra's solution to an unreachable goal is just the goal.
+            if (expected.get(0) != start) {
+                assertEquals(SearchResult.Status.NOT_FOUND, result.status());
+                continue;
+            }
+            assertEquals(SearchResult.Status.FOUND, result.status());
+            assertEquals(start, result.solution().get(0));
+            assertEquals(goal, result.solution().get(result.solution().size() - 1));
+            assertEquals(grid.length(expected), result.distance(), 1e-9);
+            assertEquals(result.distance(), grid.length(result.solution()), 1e-9);
+            assertTrue(result.settled() > 0);
+        }
+    }
+
+    @Test
+    public void startEqualsGoal() {
+        SearchResult<Integer> result = new AStarSolver<>(PATH, 1, 1).result();
+        assertTrue(result.isFound());
+        assertEquals(List.of(1), result.solution());
+        assertEquals(0.0, result.distance());
+        assertEquals(1, result.settled());
+    }
+
+    @Test
+    public void unreachableGoalIsNotFound() {
+        SearchResult<Integer> result = new AStarSolver<>(PATH, 0, 3).result();
+        assertEquals(SearchResult.Status.NOT_FOUND, result.status());
+        assertFalse(result.isFound());
+        assertEquals(List.of(), result.solution());
+        assertEquals(Double.POSITIVE_INFINITY, result.distance());
+        // Every vertex reachable from the start is settled before giving up.
+        assertEquals(3, result.settled());
+
+        assertEquals(SearchResult.Status.NOT_FOUND, new AStarSolver<>(PATH, 2, 0).result().status());
+    }
+
+    @Test
+    public void abortsAfterMaxSettled() {
+        RandomGrid grid = new RandomGrid(373);
+        SearchResult<Integer> result = new AStarSolver<>(grid, START, GOAL,
+                SearchBudget.unlimited().withMaxSettled(10)).result();
+        assertEquals(SearchResult.Status.ABORTED, result.status());
+        assertEquals(List.of(), result.solution());
+        assertEquals(Double.POSITIVE_INFINITY, result.distance());
+        assertEquals(10, result.settled());
+
+        // The goal is checked before the budget, so a goal settled exactly at the limit is still found.
+        SearchResult<Integer> found = new AStarSolver<>(PATH, 0, 2, SearchBudget.unlimited().withMaxSettled(3))
+                .result();
+        assertTrue(found.isFound());
+        assertEquals(List.of(0, 1, 2), found.solution());
+        assertEquals(2.0, found.distance());
+        assertEquals(SearchResult.Status.ABORTED,
+                new AStarSolver<>(PATH, 0, 2, SearchBudget.unlimited().withMaxSettled(2)).result().status());
+    }
+
+    @Test
+    public void abortsAtDeadlineOnCheckInterval() {
+        RandomGrid grid = new RandomGrid(373);
+        SearchResult<Integer> result = new AStarSolver<>(grid, START, GOAL,
+                SearchBudget.unlimited().withTimeout(0, TimeUnit.NANOSECONDS)).result();
+        assertEquals(SearchResult.Status.ABORTED, result.status());
+        // The clock is only read every 64 settled vertices.
+        assertEquals(64, result.settled());
+
+        // Small searches finish before the first check, however late they are.
+        assertTrue(new AStarSolver<>(PATH, 0, 2, SearchBudget.unlimited().withTimeout(0, TimeUnit.NANOSECONDS))
+                .result().isFound());
+    }
+
+    @Test
+    public void abortsOnCancellationOnCheckInterval() {
+        RandomGrid grid = new RandomGrid(373);
+        AtomicInteger checks = new AtomicInteger();
+        SearchBudget budget = SearchBudget.unlimited().withCancellation(() -> checks.incrementAndGet() == 3);
+        SearchResult<Integer> result = new AStarSolver<>(grid, START, GOAL, budget).result();
+        assertEquals(SearchResult.Status.ABORTED, result.status());
+        assertEquals(List.of(), result.solution());
+        assertEquals(3, checks.get());
+        assertEquals(3 * 64, result.settled());
+
+        SearchResult<Integer> uncancelled = new AStarSolver<>(grid, START, GOAL,
+                SearchBudget.unlimited().withCancellation(() -> false)).result();
+        assertEquals(new AStarSolver<>(grid, START, GOAL).result().status(), uncancelled.status());
+        assertTrue(uncancelled.settled() > 3 * 64);
+    }
+
+    @Test
+    public void abortedSearchesReportPartialWork() {
+        RandomGrid grid = new RandomGrid(373);
+        SearchResult<Integer> complete = new AStarSolver<>(grid, START, GOAL).result();
+        assertTrue(complete.isFound());
+        for (int limit : new int[]{1, 63, 64, 65, complete.settled() - 1}) {
+            SearchResult<Integer> result = new AStarSolver<>(grid, START, GOAL,
+                    SearchBudget.unlimited().withMaxSettled(limit)).result();
+            assertEquals(SearchResult.Status.ABORTED, result.status(), "limit " + limit);
+            assertEquals(limit, result.settled());
+        }
+        SearchResult<Integer> exact = new AStarSolver<>(grid, START, GOAL,
+                SearchBudget.unlimited().withMaxSettled(complete.settled())).result();
+        assertTrue(exact.isFound());
+        assertEquals(complete.distance(), exact.distance());
+    }
+}
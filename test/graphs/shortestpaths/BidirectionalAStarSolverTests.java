@@ -0,0 +1,58 @@
+package graphs.shortestpaths;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link BidirectionalAStarSolver} and {@link IntBidirectionalAStarSolver} classes.
+ *
+ * @see BidirectionalAStarSolver
+ * @see IntBidirectionalAStarSolver
+ */
+public class BidirectionalAStarSolverTests {
+    @Test
+    public void matchesUnidirectionalSearch() {
+        RandomGrid grid = new RandomGrid(373);
+        SearchWorkspace forward = new SearchWorkspace(grid.size());
+        SearchWorkspace backward = new SearchWorkspace(grid.size());
+        Random random = new Random(143);
+        for (int q = 0; q < 200; q += 1) {
+            int start = random.nextInt(grid.size());
+            int goal = random.nextInt(grid.size());
+            SearchResult<Integer> expected = new AStarSolver<>(grid, start, goal).result();
+
+            SearchResult<Integer> generic = new BidirectionalAStarSolver<>(grid, start, goal).result();
+            assertEquals(expected.status(), generic.status());
+            assertEquals(expected.distance(), generic.distance(), 1e-9);
+
+            IntBidirectionalAStarSolver primitive = new IntBidirectionalAStarSolver(grid, grid.reverse, start, goal,
+                    forward, backward, SearchBudget.unlimited());
+            assertEquals(expected.status(), primitive.status());
+            assertEquals(expected.distance(), primitive.distance(), 1e-9);
+
+            if (expected.isFound()) {
+                List<Integer> path = generic.solution();
+                assertEquals(start, path.get(0));
+                assertEquals(goal, path.get(path.size() - 1));
+                assertEquals(expected.distance(), grid.length(path), 1e-9);
+                int[] primitivePath = primitive.solution();
+                assertEquals(start, primitivePath[0]);
+                assertEquals(goal, primitivePath[primitivePath.length - 1]);
+                assertEquals(expected.distance(), grid.length(primitivePath), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void startEqualsGoal() {
+        RandomGrid grid = new RandomGrid(373);
+        SearchResult<Integer> result = new BidirectionalAStarSolver<>(grid, 5, 5).result();
+        assertTrue(result.isFound());
+        assertEquals(List.of(5), result.solution());
+        assertEquals(0.0, result.distance());
+    }
+}
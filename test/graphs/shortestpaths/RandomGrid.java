@@ -0,0 +1,127 @@
+package graphs.shortestpaths;
+
+import graphs.CSRGraph;
+import graphs.Edge;
+import graphs.IntAStarGraph;
+import graphs.ReversibleAStarGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Random grid graph for shortest paths tests. Vertices are jittered grid points, about 10% of grid edges are missing,
+ * and each direction of an edge has its own weight of at least the straight-line distance between its endpoints, so
+ * straight-line distance is a consistent heuristic.
+ */
+class RandomGrid implements IntAStarGraph, ReversibleAStarGraph<Integer> {
+    /**
+     * Width and height of the grid.
+     */
+    static final int N = 40;
+    final CSRGraph graph;
+    final CSRGraph reverse;
+    private final double[] x;
+    private final double[] y;
+
+    RandomGrid(long seed) {
+        Random random = new Random(seed);
+        x = new double[N * N];
+        y = new double[N * N];
+        for (int v = 0; v < N * N; v += 1) {
+            x[v] = v % N + random.nextDouble() * 0.5;
+            y[v] = v / N + random.nextDouble() * 0.5;
+        }
+        CSRGraph.Builder builder = new CSRGraph.Builder();
+        for (int v = 0; v < N * N; v += 1) {
+            for (int w : new int[]{v + 1, v + N}) {
+                if (w < N * N && (w != v + 1 || w % N != 0) && random.nextDouble() < 0.9) {
+                    builder.addEdge(v, w, estimatedDistance(v, w) * (1 + random.nextDouble()));
+                    builder.addEdge(w, v, estimatedDistance(v, w) * (1 + random.nextDouble()));
+                }
+            }
+        }
+        graph = builder.ensureSize(N * N).build();
+        reverse = graph.reverse();
+    }
+
+    @Override
+    public int size() {
+        return graph.size();
+    }
+
+    @Override
+    public int edgeStart(int vertex) {
+        return graph.edgeStart(vertex);
+    }
+
+    @Override
+    public int edgeEnd(int vertex) {
+        return graph.edgeEnd(vertex);
+    }
+
+    @Override
+    public int target(int edge) {
+        return graph.target(edge);
+    }
+
+    @Override
+    public double weight(int edge) {
+        return graph.weight(edge);
+    }
+
+    @Override
+    public double estimatedDistance(int start, int end) {
+        return Math.hypot(x[start] - x[end], y[start] - y[end]);
+    }
+
+    @Override
+    public List<Edge<Integer>> neighbors(Integer vertex) {
+        List<Edge<Integer>> result = new ArrayList<>();
+        for (int e = edgeStart(vertex); e < edgeEnd(vertex); e += 1) {
+            result.add(new Edge<>(vertex, target(e), weight(e)));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Edge<Integer>> reverseNeighbors(Integer vertex) {
+        List<Edge<Integer>> result = new ArrayList<>();
+        for (int e = reverse.edgeStart(vertex); e < reverse.edgeEnd(vertex); e += 1) {
+            result.add(new Edge<>(reverse.target(e), vertex, reverse.weight(e)));
+        }
+        return result;
+    }
+
+    @Override
+    public double estimatedDistance(Integer start, Integer end) {
+        return estimatedDistance((int) start, (int) end);
+    }
+
+    /**
+     * Returns the total weight of the given path, failing if consecutive vertices are not adjacent.
+     */
+    double length(int[] path) {
+        double result = 0;
+        for (int i = 0; i + 1 < path.length; i += 1) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = edgeStart(path[i]); e < edgeEnd(path[i]); e += 1) {
+                if (target(e) == path[i + 1]) {
+                    best = Math.min(best, weight(e));
+                }
+            }
+            assertTrue(best < Double.POSITIVE_INFINITY, "Path uses a missing edge");
+            result += best;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total weight of the given path, failing if consecutive vertices are not adjacent.
+     */
+    double length(List<Integer> path) {
+        return length(path.stream().mapToInt(Integer::intValue).toArray());
+    }
+}
@@ -0,0 +1,98 @@
+package graphs.shortestpaths;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SearchBudget} class.
+ *
+ * @see SearchBudget
+ */
+public class SearchBudgetTests {
+    @Test
+    public void unlimitedIsNeverExceeded() {
+        SearchBudget budget = SearchBudget.unlimited();
+        for (int settled = 0; settled < 1000; settled += 1) {
+            assertFalse(budget.isExceeded(settled));
+        }
+        assertFalse(budget.isExceeded(Integer.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void maxSettledIsCheckedOnEveryCall() {
+        SearchBudget budget = SearchBudget.unlimited().withMaxSettled(10);
+        for (int settled = 1; settled < 10; settled += 1) {
+            assertFalse(budget.isExceeded(settled));
+        }
+        assertTrue(budget.isExceeded(10));
+        assertTrue(budget.isExceeded(11));
+        // The tighter of two limits applies.
+        assertTrue(budget.withMaxSettled(20).isExceeded(10));
+        assertTrue(budget.withMaxSettled(5).isExceeded(5));
+    }
+
+    @Test
+    public void deadlineIsCheckedEvery64Settled() {
+        SearchBudget budget = SearchBudget.unlimited().withTimeout(0, TimeUnit.NANOSECONDS);
+        for (int settled = 1; settled < 64; settled += 1) {
+            assertFalse(budget.isExceeded(settled), "settled " + settled);
+        }
+        assertTrue(budget.isExceeded(64));
+        assertFalse(budget.isExceeded(65));
+        assertTrue(budget.isExceeded(128));
+
+        SearchBudget later = SearchBudget.unlimited().withTimeout(1, TimeUnit.HOURS);
+        assertFalse(later.isExceeded(64));
+        // The earlier of two deadlines applies.
+        assertTrue(budget.withTimeout(1, TimeUnit.HOURS).isExceeded(64));
+        assertTrue(later.withTimeout(0, TimeUnit.NANOSECONDS).isExceeded(64));
+    }
+
+    @Test
+    public void cancellationIsCheckedEvery64Settled() {
+        AtomicInteger checks = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        SearchBudget budget = SearchBudget.unlimited().withCancellation(() -> {
+            checks.incrementAndGet();
+            return cancelled.get();
+        });
+        for (int settled = 1; settled <= 64; settled += 1) {
+            assertFalse(budget.isExceeded(settled));
+        }
+        assertEquals(1, checks.get());
+
+        cancelled.set(true);
+        assertFalse(budget.isExceeded(65));
+        assertEquals(1, checks.get());
+        assertTrue(budget.isExceeded(128));
+        assertEquals(2, checks.get());
+    }
+
+    @Test
+    public void cancellationTokensCombine() {
+        AtomicBoolean first = new AtomicBoolean();
+        AtomicBoolean second = new AtomicBoolean();
+        SearchBudget budget = SearchBudget.unlimited().withCancellation(first::get).withCancellation(second::get);
+        assertFalse(budget.isExceeded(64));
+        second.set(true);
+        assertTrue(budget.isExceeded(64));
+        second.set(false);
+        first.set(true);
+        assertTrue(budget.isExceeded(64));
+    }
+
+    @Test
+    public void budgetsAreImmutable() {
+        SearchBudget budget = SearchBudget.unlimited();
+        budget.withMaxSettled(1);
+        budget.withTimeout(0, TimeUnit.NANOSECONDS);
+        budget.withCancellation(() -> true);
+        assertFalse(budget.isExceeded(64));
+        assertFalse(SearchBudget.unlimited().isExceeded(64));
+    }
+}
@@ -0,0 +1,193 @@
+package graphs.shortestpaths;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SearchWorkspace} class and the {@link IntShortestPathSolver} implementations that use it.
+ *
+ * @see SearchWorkspace
+ */
+public class SearchWorkspaceTests {
+    @Test
+    public void solversAgreeWithReferenceWhileReusingWorkspace() {
+        RandomGrid grid = new RandomGrid(373);
+        SearchWorkspace workspace = new SearchWorkspace(grid.size());
+        Random random = new Random(143);
+        for (int q = 0; q < 20; q += 1) {
+            int start = random.nextInt(grid.size());
+            ShortestPathSolver<Integer> reference = new DijkstraSolver<>(grid, start);
+            int[] goals = random.ints(10, 0, grid.size()).toArray();
+            double[] expected = new double[goals.length];
+            for (int i = 0; i < goals.length; i += 1) {
+                List<Integer> path = reference.solution(goals[i]);
+                expected[i] = path.get(0) == start
+                        ? grid.length(path.stream().mapToInt(Integer::intValue).toArray())
+                        : Double.POSITIVE_INFINITY;
+            }
+            List<IntShortestPathSolver> solvers = List.of(
+                    new IntDijkstraSolver(grid, start, workspace),
+                    new IntSPFASolver(grid, start, new SearchWorkspace(grid.size())),
+                    new IntBellmanFordSolver(grid, start, new SearchWorkspace(grid.size()))
+            );
+            for (IntShortestPathSolver solver : solvers) {
+                for (int i = 0; i < goals.length; i += 1) {
+                    assertEquals(expected[i], solver.distTo(goals[i]), 1e-9);
+                    if (expected[i] < Double.POSITIVE_INFINITY) {
+                        assertEquals(expected[i], grid.length(solver.solution(goals[i])), 1e-9);
+                    }
+                }
+            }
+            IntOneToManySolver oneToMany = new IntOneToManySolver(grid, start, goals, workspace,
+                    SearchBudget.unlimited());
+            for (int i = 0; i < goals.length; i += 1) {
+                assertEquals(expected[i], oneToMany.distTo(goals[i]), 1e-9);
+            }
+            for (int i = 0; i < goals.length; i += 1) {
+                IntAStarSolver astar = new IntAStarSolver(grid, start, goals[i], workspace,
+                        SearchBudget.unlimited());
+                assertEquals(expected[i], astar.distance(), 1e-9);
+                if (astar.status() == SearchResult.Status.FOUND) {
+                    assertEquals(expected[i], grid.length(astar.solution()), 1e-9);
+                } else {
+                    assertEquals(SearchResult.Status.NOT_FOUND, astar.status());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void seededSolversMatchBestCombination() {
+        RandomGrid grid = new RandomGrid(373);
+        SearchWorkspace forward = new SearchWorkspace(grid.size());
+        SearchWorkspace backward = new SearchWorkspace(grid.size());
+        SearchWorkspace reference = new SearchWorkspace(grid.size());
+        Random random = new Random(143);
+        for (int q = 0; q < 50; q += 1) {
+            // Two starts and goals with partial weights, like the ends of the edges under a clicked location.
+            int[] starts = random.ints(2, 0, grid.size()).toArray();
+            int[] goals = random.ints(2, 0, grid.size()).toArray();
+            double[] startWeights = {random.nextDouble(), q % 5 == 0 ? Double.POSITIVE_INFINITY : random.nextDouble()};
+            double[] goalWeights = {random.nextDouble(), random.nextDouble()};
+            if (q % 7 == 0) {
+                goals[1] = starts[0];
+            }
+            double expected = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < starts.length; i += 1) {
+                IntDijkstraSolver dijkstra = new IntDijkstraSolver(grid, starts[i], reference);
+                for (int j = 0; j < goals.length; j += 1) {
+                    expected = Math.min(expected, startWeights[i] + dijkstra.distTo(goals[j]) + goalWeights[j]);
+                }
+            }
+
+            IntBidirectionalAStarSolver bidirectional = new IntBidirectionalAStarSolver(grid, grid.reverse, starts,
+                    startWeights, goals, goalWeights, forward, backward, SearchBudget.unlimited());
+            assertEquals(expected, bidirectional.distance(), 1e-9);
+            if (expected < Double.POSITIVE_INFINITY) {
+                assertEquals(expected, seededLength(grid, bidirectional.solution(), starts, startWeights, goals,
+                        goalWeights), 1e-9);
+            }
+            IntAStarSolver astar = new IntAStarSolver(grid, starts, startWeights, goals, goalWeights, forward,
+                    SearchBudget.unlimited());
+            assertEquals(expected, astar.distance(), 1e-9);
+            if (expected < Double.POSITIVE_INFINITY) {
+                assertEquals(SearchResult.Status.FOUND, astar.status());
+                assertEquals(expected, seededLength(grid, astar.solution(), starts, startWeights, goals, goalWeights),
+                        1e-9);
+            } else {
+                assertEquals(SearchResult.Status.NOT_FOUND, astar.status());
+            }
+        }
+    }
+
+    /**
+     * Returns the length of the path plus the weights of the start and goal it begins and ends at.
+     */
+    private static double seededLength(RandomGrid grid, int[] path, int[] starts, double[] startWeights, int[] goals,
+                                       double[] goalWeights) {
+        double startWeight = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < starts.length; i += 1) {
+            if (starts[i] == path[0]) {
+                startWeight = Math.min(startWeight, startWeights[i]);
+            }
+        }
+        double goalWeight = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < goals.length; i += 1) {
+            if (goals[i] == path[path.length - 1]) {
+                goalWeight = Math.min(goalWeight, goalWeights[i]);
+            }
+        }
+        return startWeight + grid.length(path) + goalWeight;
+    }
+
+    @Test
+    public void rangeSolverSettlesExactlyTheVerticesWithinRange() {
+        RandomGrid grid = new RandomGrid(373);
+        SearchWorkspace workspace = new SearchWorkspace(grid.size());
+        Random random = new Random(143);
+        for (int q = 0; q < 20; q += 1) {
+            int start = random.nextInt(grid.size());
+            IntDijkstraSolver reference = new IntDijkstraSolver(grid, start, new SearchWorkspace(grid.size()));
+            double maxDistance = random.nextDouble() * 20;
+            IntRangeSolver range = new IntRangeSolver(grid, start, maxDistance, workspace, SearchBudget.unlimited());
+            assertEquals(SearchResult.Status.FOUND, range.status());
+            boolean[] inRange = new boolean[grid.size()];
+            for (int i = 0; i < range.settled(); i += 1) {
+                int v = range.vertices()[i];
+                assertFalse(inRange[v]);
+                inRange[v] = true;
+                assertEquals(reference.distTo(v), range.distTo(v), 1e-9);
+            }
+            for (int v = 0; v < grid.size(); v += 1) {
+                assertEquals(reference.distTo(v) <= maxDistance, inRange[v]);
+            }
+        }
+    }
+
+    @Test
+    public void budgetAbortsSearch() {
+        RandomGrid grid = new RandomGrid(373);
+        SearchWorkspace workspace = new SearchWorkspace(grid.size());
+        IntAStarSolver solver = new IntAStarSolver(grid, 0, grid.size() - 1, workspace,
+                SearchBudget.unlimited().withMaxSettled(10));
+        assertEquals(SearchResult.Status.ABORTED, solver.status());
+        assertEquals(10, solver.settled());
+        assertEquals(0, solver.solution().length);
+        solver = new IntAStarSolver(grid, 0, grid.size() - 1, workspace,
+                SearchBudget.unlimited().withCancellation(() -> true));
+        assertEquals(SearchResult.Status.ABORTED, solver.status());
+    }
+
+    @Test
+    public void steadyStateSearchDoesNotAllocate() {
+        RandomGrid grid = new RandomGrid(373);
+        SearchWorkspace workspace = new SearchWorkspace(grid.size());
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Random random = new Random(373);
+        int queries = 2000;
+        int[] starts = random.ints(queries, 0, grid.size()).toArray();
+        int[] goals = random.ints(queries, 0, grid.size()).toArray();
+        double checksum = 0;
+        for (int warmup = 0; warmup < 3; warmup += 1) {
+            for (int q = 0; q < queries; q += 1) {
+                checksum += new IntAStarSolver(grid, starts[q], goals[q], workspace, SearchBudget.unlimited())
+                        .settled();
+            }
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int q = 0; q < queries; q += 1) {
+            checksum += new IntAStarSolver(grid, starts[q], goals[q], workspace, SearchBudget.unlimited())
+                    .settled();
+        }
+        long bytesPerQuery = (threads.getCurrentThreadAllocatedBytes() - before) / queries;
+        assertTrue(checksum > 0);
+        // At most the solver object itself; the boxed-map solvers allocate hundreds of kilobytes per query here.
+        assertTrue(bytesPerQuery < 256, "Allocated " + bytesPerQuery + " bytes per query");
+    }
+}
@@ -0,0 +1,59 @@
+package images;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link DiskCachedImageSource} class.
+ *
+ * @see DiskCachedImageSource
+ */
+public class DiskCachedImageSourceTests {
+    @Test
+    public void servesRepeatedRequestsFromDisk(@TempDir Path directory) throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        ImageSource upstream = request -> {
+            calls.incrementAndGet();
+            return request.getBytes();
+        };
+        DiskCachedImageSource images = new DiskCachedImageSource(upstream, directory, 1000);
+        assertArrayEquals("a".getBytes(), images.image("a"));
+        assertArrayEquals("a".getBytes(), images.image("a"));
+        assertEquals(1, calls.get());
+        assertEquals(1, images.hits());
+        assertEquals(1, images.misses());
+
+        // A new instance over the same directory picks up the cached image.
+        DiskCachedImageSource restarted = new DiskCachedImageSource(upstream, directory, 1000);
+        assertArrayEquals("a".getBytes(), restarted.image("a"));
+        assertEquals(1, calls.get());
+        assertEquals(1, restarted.bytes());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed(@TempDir Path directory) throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        DiskCachedImageSource images = new DiskCachedImageSource(request -> {
+            calls.incrementAndGet();
+            return request.getBytes();
+        }, directory, 8);
+        images.image("aaaa");
+        images.image("bbbb");
+        images.image("aaaa");
+        images.image("cccc");
+        assertEquals(1, images.evictions());
+        assertEquals(8, images.bytes());
+        assertEquals(3, calls.get());
+
+        images.image("aaaa");
+        assertEquals(3, calls.get());
+        images.image("bbbb");
+        assertEquals(4, calls.get());
+    }
+}
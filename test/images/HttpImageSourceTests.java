@@ -0,0 +1,66 @@
+package images;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link HttpImageSource} class against a local stub server.
+ *
+ * @see HttpImageSource
+ */
+public class HttpImageSourceTests {
+    private HttpServer server;
+    private final AtomicReference<String> lastQuery = new AtomicReference<>();
+
+    @BeforeEach
+    public void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/styles/", exchange -> {
+            lastQuery.set(exchange.getRequestURI().getQuery());
+            byte[] body = {1, 2, 3};
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/missing/", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void stopStub() {
+        server.stop(0);
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @Test
+    public void fetchesAndEncodesImage() throws IOException {
+        HttpImageSource images = new HttpImageSource(baseUrl(), "secret", Duration.ofSeconds(5));
+        byte[] image = images.image("styles/v1/map.png?logo=false");
+        assertArrayEquals(Base64.encodeBase64(new byte[]{1, 2, 3}), image);
+        assertEquals("logo=false&access_token=secret", lastQuery.get());
+    }
+
+    @Test
+    public void failsOnErrorStatus() {
+        HttpImageSource images = new HttpImageSource(baseUrl(), null, Duration.ofSeconds(5));
+        assertThrows(IOException.class, () -> images.image("missing/map.png"));
+    }
+}
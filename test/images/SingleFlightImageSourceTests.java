@@ -0,0 +1,99 @@
+package images;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SingleFlightImageSource} class.
+ *
+ * @see SingleFlightImageSource
+ */
+public class SingleFlightImageSourceTests {
+    /**
+     * Number of concurrent callers.
+     */
+    private static final int THREADS = 8;
+
+    @Test
+    public void coalescesConcurrentIdenticalRequests() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlightImageSource images = new SingleFlightImageSource(request -> {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return request.getBytes();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i += 1) {
+                results.add(executor.submit(() -> images.image("a")));
+            }
+            // Wait until every caller has either started the fetch or joined it.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (calls.get() + images.coalesced() < THREADS && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<byte[]> result : results) {
+                assertArrayEquals("a".getBytes(), result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+        assertEquals(THREADS - 1, images.coalesced());
+
+        // Completed requests are not remembered.
+        images.image("a");
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void sharesFailures() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlightImageSource images = new SingleFlightImageSource(request -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            throw new IOException("upstream down");
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<byte[]> first = executor.submit(() -> images.image("a"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            Future<byte[]> second = null;
+            while (images.coalesced() == 0 && System.nanoTime() < deadline) {
+                if (second == null) {
+                    Thread.sleep(10);
+                    second = executor.submit(() -> images.image("a"));
+                }
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<byte[]> result : List.of(first, second)) {
+                Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IOException.class, e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package minpq;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link IndexedIntMinPQ} class.
+ *
+ * @see IndexedIntMinPQ
+ */
+public class IndexedIntMinPQTests {
+    @Test
+    public void randomPrioritiesMatchReference() {
+        Random random = new Random(373);
+        int n = 1000;
+        MinPQ<Integer> reference = new DoubleMapMinPQ<>();
+        IndexedIntMinPQ testing = new IndexedIntMinPQ(n);
+        for (int i = 0; i < n; i += 1) {
+            int priority = random.nextInt(n);
+            reference.add(i, priority);
+            testing.addOrChangePriority(i, priority);
+        }
+        for (int i = 0; i < n; i += 1) {
+            int element = random.nextInt(n);
+            int priority = random.nextInt(n);
+            reference.changePriority(element, priority);
+            testing.addOrChangePriority(element, priority);
+        }
+        while (!reference.isEmpty()) {
+            assertEquals(reference.size(), testing.size());
+            double priority = reference.getPriority(reference.peekMin());
+            reference.removeMin();
+            assertEquals(priority, testing.peekMinPriority());
+            int element = testing.removeMin();
+            assertFalse(testing.contains(element));
+        }
+        assertTrue(testing.isEmpty());
+    }
+
+    @Test
+    public void clearForgetsElements() {
+        IndexedIntMinPQ testing = new IndexedIntMinPQ(10);
+        testing.addOrChangePriority(3, 1.0);
+        testing.addOrChangePriority(7, 0.5);
+        testing.clear();
+        assertTrue(testing.isEmpty());
+        assertFalse(testing.contains(3));
+        assertFalse(testing.contains(7));
+        assertThrows(NoSuchElementException.class, testing::peekMin);
+        testing.addOrChangePriority(7, 2.0);
+        testing.addOrChangePriority(3, 4.0);
+        assertEquals(7, testing.removeMin());
+        assertEquals(3, testing.removeMin());
+        assertFalse(testing.contains(3));
+    }
+}
@@ -0,0 +1,74 @@
+package spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ConvexHull} class.
+ *
+ * @see ConvexHull
+ */
+public class ConvexHullTests {
+    /**
+     * Returns the indices 0 to n - 1.
+     */
+    private static int[] all(int n) {
+        int[] points = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            points[i] = i;
+        }
+        return points;
+    }
+
+    @Test
+    public void squareEnclosesInteriorPoints() {
+        double[] lat = {47.6, 47.6, 47.7, 47.7, 47.65, 47.61, 47.65};
+        double[] lon = {-122.4, -122.3, -122.3, -122.4, -122.35, -122.39, -122.4};
+        ConvexHull hull = new ConvexHull(lat, lon, all(lat.length), lat.length);
+        assertEquals(4, hull.size());
+        double[][] expected = {{47.6, -122.4}, {47.6, -122.3}, {47.7, -122.3}, {47.7, -122.4}};
+        for (int i = 0; i < expected.length; i += 1) {
+            assertEquals(expected[i][0], hull.lat(i), 1e-9);
+            assertEquals(expected[i][1], hull.lon(i), 1e-9);
+        }
+    }
+
+    @Test
+    public void collinearAndDuplicatePointsCollapse() {
+        double[] lat = {47.6, 47.62, 47.64, 47.6, 47.64};
+        double[] lon = {-122.3, -122.3, -122.3, -122.3, -122.3};
+        ConvexHull hull = new ConvexHull(lat, lon, all(lat.length), lat.length);
+        assertEquals(2, hull.size());
+        assertEquals(47.6, hull.lat(0), 1e-9);
+        assertEquals(47.64, hull.lat(1), 1e-9);
+
+        assertEquals(1, new ConvexHull(lat, lon, new int[]{0, 3}, 2).size());
+        assertEquals(0, new ConvexHull(lat, lon, new int[0], 0).size());
+    }
+
+    @Test
+    public void hullIsCounterClockwiseAndEnclosesEveryPoint() {
+        Random random = new Random(373);
+        int n = 2000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            // Already at the hull's 1e-7 precision, so rounding cannot move a point outside.
+            lat[i] = Math.round((47.5 + random.nextDouble() * 0.3) * 1e7) / 1e7;
+            lon[i] = Math.round((-122.45 + random.nextDouble() * 0.3) * 1e7) / 1e7;
+        }
+        ConvexHull hull = new ConvexHull(lat, lon, all(n), n);
+        assertTrue(hull.size() >= 3);
+        for (int i = 0; i < hull.size(); i += 1) {
+            int j = (i + 1) % hull.size();
+            for (int p = 0; p < n; p += 1) {
+                double cross = (hull.lon(j) - hull.lon(i)) * (lat[p] - hull.lat(i))
+                        - (hull.lat(j) - hull.lat(i)) * (lon[p] - hull.lon(i));
+                assertTrue(cross >= -1e-12, "point " + p + " is outside edge " + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link KDTree} class.
+ *
+ * @see KDTree
+ */
+public class KDTreeTests {
+    /**
+     * Returns the great-circle distance in radians between the two locations.
+     */
+    private static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    @Test
+    public void emptyTreeHasNoNearest() {
+        KDTree tree = new KDTree(new double[0], new double[0]);
+        assertEquals(0, tree.size());
+        assertEquals(-1, tree.nearest(47.6, -122.3));
+        assertArrayEquals(new int[0], tree.nearest(47.6, -122.3, 5));
+    }
+
+    @Test
+    public void nearestMatchesLinearScan() {
+        Random random = new Random(373);
+        int n = 5000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            lat[i] = 47.5 + random.nextDouble() * 0.3;
+            lon[i] = -122.45 + random.nextDouble() * 0.3;
+        }
+        KDTree tree = new KDTree(lat, lon);
+        for (int q = 0; q < 500; q += 1) {
+            double qLat = 47.45 + random.nextDouble() * 0.4;
+            double qLon = -122.5 + random.nextDouble() * 0.4;
+            int[] expected = IntStream.range(0, n).boxed()
+                    .sorted(Comparator.comparingDouble(i -> distance(qLat, qLon, lat[i], lon[i])))
+                    .limit(8)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            assertEquals(expected[0], tree.nearest(qLat, qLon));
+            assertArrayEquals(expected, tree.nearest(qLat, qLon, 8));
+        }
+    }
+
+    @Test
+    public void filteredNearestMatchesLinearScan() {
+        Random random = new Random(143);
+        int n = 2000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            lat[i] = 47.5 + random.nextDouble() * 0.3;
+            lon[i] = -122.45 + random.nextDouble() * 0.3;
+        }
+        KDTree tree = new KDTree(lat, lon);
+        for (int q = 0; q < 200; q += 1) {
+            double qLat = 47.5 + random.nextDouble() * 0.3;
+            double qLon = -122.45 + random.nextDouble() * 0.3;
+            // Only points in a box around the query location, like the visible part of a map.
+            double height = random.nextDouble() * 0.1;
+            double width = random.nextDouble() * 0.1;
+            IntPredicate inside = i -> Math.abs(lat[i] - qLat) <= height && Math.abs(lon[i] - qLon) <= width;
+            int[] expected = IntStream.range(0, n).filter(inside).boxed()
+                    .sorted(Comparator.comparingDouble(i -> distance(qLat, qLon, lat[i], lon[i])))
+                    .limit(8)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            assertArrayEquals(expected, tree.nearest(qLat, qLon, 8, inside));
+        }
+    }
+
+    @Test
+    public void subsetOnlyReturnsIncludedIds() {
+        double[] lat = {47.60, 47.61, 47.62, 47.63};
+        double[] lon = {-122.30, -122.30, -122.30, -122.30};
+        KDTree tree = new KDTree(lat, lon, new int[]{1, 3});
+        assertEquals(2, tree.size());
+        assertEquals(1, tree.nearest(47.60, -122.30));
+        assertEquals(3, tree.nearest(47.625, -122.30));
+        assertArrayEquals(new int[]{3, 1}, tree.nearest(47.64, -122.30, 10));
+    }
+}
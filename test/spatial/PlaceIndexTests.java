@@ -0,0 +1,137 @@
+package spatial;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link PlaceIndex} class.
+ *
+ * @see PlaceIndex
+ */
+public class PlaceIndexTests {
+    /**
+     * Returns the great-circle distance in radians between the two locations.
+     */
+    private static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    @Test
+    public void emptyPrefixMatchesNothing() {
+        PlaceIndex index = new PlaceIndex(List.of("Safeway", "Starbucks"), new double[]{47.6, 47.7},
+                new double[]{-122.3, -122.3});
+        assertEquals(2, index.size());
+        assertEquals(List.of(), index.nearest("", 47.6, -122.3, 10));
+        assertEquals(List.of(), index.nearest("Z", 47.6, -122.3, 10));
+        PlaceIndex empty = new PlaceIndex(List.of(), new double[0], new double[0]);
+        assertEquals(List.of(), empty.nearest("S", 47.6, -122.3, 10));
+    }
+
+    @Test
+    public void ranksMatchesByDistance() {
+        double[] lat = {47.60, 47.61, 47.62, 47.63, 47.60};
+        double[] lon = {-122.30, -122.30, -122.30, -122.30, -122.30};
+        PlaceIndex index = new PlaceIndex(List.of("Starbucks", "Safeway", "Space Needle", "Seattle Library", "Pike"),
+                lat, lon);
+        assertEquals(List.of("Space Needle", "Safeway", "Seattle Library"), index.nearest("S", 47.619, -122.3, 3));
+        assertEquals(List.of("Starbucks"), index.nearest("St", 47.62, -122.3, 5));
+    }
+
+    @Test
+    public void writesMatchesAsJson() throws IOException {
+        double[] lat = {47.60, 47.61, 47.62, 47.63};
+        double[] lon = {-122.30, -122.30, -122.30, -122.30};
+        PlaceIndex index = new PlaceIndex(List.of("Café \"Vita\"", "C:\\Temp\tBar", "Cinerama", "Pike"), lat, lon);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeNearest("C", 47.612, -122.3, 2, out);
+        assertEquals("[\"C:\\\\Temp\\u0009Bar\",\"Cinerama\"]", out.toString(StandardCharsets.UTF_8));
+        out.reset();
+        index.writeNearest("Caf", 47.6, -122.3, 5, out);
+        assertArrayEquals("[\"Café \\\"Vita\\\"\"]".getBytes(StandardCharsets.UTF_8), out.toByteArray());
+        out.reset();
+        index.writeNearest("", 47.6, -122.3, 5, out);
+        assertEquals("[]", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void escapesEveryNameAsValidJson() throws IOException {
+        StringBuilder control = new StringBuilder("Control");
+        for (char c = 0; c < 0x20; c += 1) {
+            control.append(c);
+        }
+        List<String> names = List.of("Quote \"\" Bar", "Backslash \\ \\\" Bar", control.toString(),
+                "Non-ASCII Café 北京 \uD83D\uDE00", "Delete \u007f \u2028");
+        double[] lat = new double[names.size()];
+        double[] lon = new double[names.size()];
+        Arrays.fill(lat, 47.6);
+        Arrays.fill(lon, -122.3);
+        PlaceIndex index = new PlaceIndex(names, lat, lon);
+        for (String name : names) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            index.writeNearest(name, 47.6, -122.3, 1, out);
+            JsonNode parsed = new ObjectMapper().readTree(out.toByteArray());
+            assertEquals(1, parsed.size());
+            assertEquals(name, parsed.get(0).asText());
+        }
+
+        // Control characters are written as unicode escapes, and other characters as their UTF-8 bytes.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeNearest("Control", 47.6, -122.3, 1, out);
+        String written = out.toString(StandardCharsets.UTF_8);
+        assertTrue(written.startsWith("[\"Control\\u0000\\u0001"), written);
+        assertTrue(written.endsWith("\\u001f\"]"), written);
+        out.reset();
+        index.writeNearest("Non", 47.6, -122.3, 1, out);
+        assertArrayEquals(("[\"" + names.get(3) + "\"]").getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    public void nearestMatchesLinearScan() {
+        Random random = new Random(373);
+        int n = 5000;
+        List<String> names = new ArrayList<>(n);
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            // Short names over a small alphabet, so prefixes match anywhere from one place to thousands.
+            StringBuilder name = new StringBuilder();
+            for (int j = 1 + random.nextInt(5); j > 0; j -= 1) {
+                name.append((char) ('a' + random.nextInt(4)));
+            }
+            names.add(name.toString() + i);
+            lat[i] = 47.5 + random.nextDouble() * 0.3;
+            lon[i] = -122.45 + random.nextDouble() * 0.3;
+        }
+        PlaceIndex index = new PlaceIndex(names, lat, lon);
+        for (int q = 0; q < 500; q += 1) {
+            double qLat = 47.45 + random.nextDouble() * 0.4;
+            double qLon = -122.5 + random.nextDouble() * 0.4;
+            String prefix = names.get(random.nextInt(n)).substring(0, 1 + random.nextInt(3));
+            List<CharSequence> expected = IntStream.range(0, n).boxed()
+                    .filter(i -> names.get(i).startsWith(prefix))
+                    .sorted(Comparator.comparingDouble(i -> distance(qLat, qLon, lat[i], lon[i])))
+                    .limit(10)
+                    .map(names::get)
+                    .collect(Collectors.toList());
+            assertEquals(expected, index.nearest(prefix, qLat, qLon, 10));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SegmentRTree} class.
+ *
+ * @see SegmentRTree
+ */
+public class SegmentRTreeTests {
+    /**
+     * Returns the squared projected distance from the query location to the point closest to it on the segment.
+     */
+    private static double distance(SegmentRTree tree, double[] lat, double[] lon, double scale, int segment,
+                                   double qLat, double qLon) {
+        double t = tree.fraction(segment, qLat, qLon);
+        int from = tree.from(segment);
+        int to = tree.to(segment);
+        double dx = (lon[from] + t * (lon[to] - lon[from]) - qLon) * scale;
+        double dy = lat[from] + t * (lat[to] - lat[from]) - qLat;
+        return dx * dx + dy * dy;
+    }
+
+    @Test
+    public void emptyTreeHasNoNearest() {
+        SegmentRTree tree = new SegmentRTree(new double[0], new double[0], new int[0], new int[0]);
+        assertEquals(0, tree.size());
+        assertEquals(-1, tree.nearest(47.6, -122.3));
+    }
+
+    @Test
+    public void fractionProjectsOntoSegment() {
+        double[] lat = {47.6, 47.6, 47.7};
+        double[] lon = {-122.3, -122.2, -122.2};
+        SegmentRTree tree = new SegmentRTree(lat, lon, new int[]{0, 1}, new int[]{1, 2});
+        assertEquals(0, tree.nearest(47.59, -122.25));
+        assertEquals(0.5, tree.fraction(0, 47.59, -122.25), 1e-9);
+        assertEquals(1, tree.fraction(0, 47.6, -122.1), 1e-9);
+        assertEquals(0, tree.fraction(0, 47.6, -122.4), 1e-9);
+        assertEquals(1, tree.nearest(47.68, -122.19));
+        assertEquals(0.8, tree.fraction(1, 47.68, -122.19), 1e-9);
+    }
+
+    @Test
+    public void nearestMatchesLinearScan() {
+        Random random = new Random(373);
+        int n = 5000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            lat[i] = 47.5 + random.nextDouble() * 0.3;
+            lon[i] = -122.45 + random.nextDouble() * 0.3;
+        }
+        // Short streets from each point to a nearby point, like a road network.
+        int[] from = new int[n];
+        int[] to = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            from[i] = i;
+            to[i] = (i + 1 + random.nextInt(3)) % n;
+            lat[to[i]] = lat[i] + (random.nextDouble() - 0.5) * 0.01;
+            lon[to[i]] = lon[i] + (random.nextDouble() - 0.5) * 0.01;
+        }
+        double meanLat = 0;
+        for (int i = 0; i < n; i += 1) {
+            meanLat += lat[i] / n;
+        }
+        double scale = Math.cos(Math.toRadians(meanLat));
+        SegmentRTree tree = new SegmentRTree(lat, lon, from, to);
+        assertEquals(n, tree.size());
+        for (int q = 0; q < 500; q += 1) {
+            double qLat = 47.45 + random.nextDouble() * 0.4;
+            double qLon = -122.5 + random.nextDouble() * 0.4;
+            double expected = Double.POSITIVE_INFINITY;
+            for (int s = 0; s < n; s += 1) {
+                expected = Math.min(expected, distance(tree, lat, lon, scale, s, qLat, qLon));
+            }
+            int nearest = tree.nearest(qLat, qLon);
+            assertEquals(expected, distance(tree, lat, lon, scale, nearest, qLat, qLon), 1e-15);
+        }
+    }
+}
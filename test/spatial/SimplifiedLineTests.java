@@ -0,0 +1,79 @@
+package spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SimplifiedLine} class.
+ *
+ * @see SimplifiedLine
+ */
+public class SimplifiedLineTests {
+    /**
+     * Returns the projected distance from the point to the segment, matching the projection of the simplified line.
+     */
+    private static double distance(double[] lat, double[] lon, int from, int to, int point) {
+        double scale = Math.cos(Math.toRadians(lat[0]));
+        double dx = (lon[to] - lon[from]) * scale;
+        double dy = lat[to] - lat[from];
+        double px = (lon[point] - lon[from]) * scale;
+        double py = lat[point] - lat[from];
+        double length = dx * dx + dy * dy;
+        double t = length == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / length));
+        return Math.hypot(px - t * dx, py - t * dy);
+    }
+
+    @Test
+    public void shortLinesAreUnchanged() {
+        SimplifiedLine empty = new SimplifiedLine(new double[0], new double[0], 1);
+        assertEquals(0, empty.size());
+        SimplifiedLine pair = new SimplifiedLine(new double[]{47.6, 47.7}, new double[]{-122.3, -122.3}, 1);
+        assertEquals(2, pair.size());
+        assertEquals(0, pair.index(0));
+        assertEquals(1, pair.index(1));
+    }
+
+    @Test
+    public void dropsStraightRunsAndKeepsCorners() {
+        // East along a street, then north around a corner.
+        double[] lat = {47.60, 47.60, 47.60, 47.60, 47.61, 47.62};
+        double[] lon = {-122.33, -122.32, -122.31, -122.30, -122.30, -122.30};
+        SimplifiedLine line = new SimplifiedLine(lat, lon, 1e-4);
+        assertEquals(3, line.size());
+        assertEquals(0, line.index(0));
+        assertEquals(3, line.index(1));
+        assertEquals(5, line.index(2));
+        // A tolerance wider than the corner drops it too.
+        assertEquals(2, new SimplifiedLine(lat, lon, 0.1).size());
+    }
+
+    @Test
+    public void droppedPointsStayWithinTolerance() {
+        Random random = new Random(373);
+        int n = 2000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        lat[0] = 47.6;
+        lon[0] = -122.3;
+        for (int i = 1; i < n; i += 1) {
+            lat[i] = lat[i - 1] + (random.nextDouble() - 0.3) * 1e-4;
+            lon[i] = lon[i - 1] + (random.nextDouble() - 0.5) * 1e-4;
+        }
+        double tolerance = 2e-4;
+        SimplifiedLine line = new SimplifiedLine(lat, lon, tolerance);
+        assertTrue(line.size() < n / 4);
+        assertEquals(0, line.index(0));
+        assertEquals(n - 1, line.index(line.size() - 1));
+        for (int k = 1; k < line.size(); k += 1) {
+            int from = line.index(k - 1);
+            int to = line.index(k);
+            assertTrue(from < to);
+            for (int i = from + 1; i < to; i += 1) {
+                assertTrue(distance(lat, lon, from, to, i) <= tolerance);
+            }
+        }
+    }
+}